@@ -0,0 +1,36 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: AsyncLlmService.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Interface for AI services that do not block a thread while waiting for the model.
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.response.AiResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * LLM service with a non-blocking variant of runProcess.
+ */
+public interface AsyncLlmService extends LlmService {
+    /**
+     * Sends the request to the AI api without blocking the calling thread.
+     * The returned future fails with an IOException (or RateLimitException)
+     * in the same cases where runProcess would throw one.
+     *
+     * @param request holds the request of the user
+     * @return future completed with the response from AI
+     */
+    CompletableFuture<AiResponse> runProcessAsync(RequestGeneraliser request);
+}
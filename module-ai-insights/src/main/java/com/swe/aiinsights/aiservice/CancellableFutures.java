@@ -0,0 +1,105 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: CancellableFutures.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Chains futures so that a cancellation reaches the work behind them.
+ *
+ * <p>
+ *     A future built with thenCompose or handle does not pass its
+ *     cancellation back to the future it was built from. Cancelling the
+ *     answer of a hedge that lost then left its HTTP call running until
+ *     the model answered. The chains built here cancel the source and the
+ *     future of the next step when they are cancelled.
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cancellable variants of thenCompose and handle followed by thenCompose.
+ */
+final class CancellableFutures {
+
+    private CancellableFutures() { }
+
+    /**
+     * Runs the next step once the source succeeded.
+     *
+     * @param source future the chain starts from
+     * @param next builds the next step from the value of the source
+     * @param <T> type of the source value
+     * @param <U> type of the result
+     * @return future completed like the next step, cancelling it cancels the whole chain
+     */
+    static <T, U> CompletableFuture<U> thenCompose(final CompletableFuture<T> source,
+                                                   final Function<? super T, CompletableFuture<U>> next) {
+        return handleCompose(source, (value, error) -> {
+            if (error != null) {
+                return CompletableFuture.failedFuture(error);
+            }
+            return next.apply(value);
+        });
+    }
+
+    /**
+     * Runs the next step once the source completed, whatever the outcome.
+     *
+     * @param source future the chain starts from
+     * @param next builds the next step from the value or the error of the source
+     * @param <T> type of the source value
+     * @param <U> type of the result
+     * @return future completed like the next step, cancelling it cancels the whole chain
+     */
+    static <T, U> CompletableFuture<U> handleCompose(
+            final CompletableFuture<T> source,
+            final BiFunction<? super T, Throwable, CompletableFuture<U>> next) {
+        final CompletableFuture<U> result = new CompletableFuture<>();
+        final AtomicReference<CompletableFuture<U>> step = new AtomicReference<>();
+        source.whenComplete((value, error) -> {
+            final CompletableFuture<U> nextStep;
+            try {
+                nextStep = next.apply(value, error);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            step.set(nextStep);
+            if (result.isCancelled()) {
+                // cancelled while the step was being built
+                nextStep.cancel(true);
+                return;
+            }
+            nextStep.whenComplete((nextValue, nextError) -> {
+                if (nextError != null) {
+                    result.completeExceptionally(nextError);
+                } else {
+                    result.complete(nextValue);
+                }
+            });
+        });
+        result.whenComplete((value, error) -> {
+            if (!result.isCancelled()) {
+                return;
+            }
+            source.cancel(true);
+            final CompletableFuture<U> nextStep = step.get();
+            if (nextStep != null) {
+                nextStep.cancel(true);
+            }
+        });
+        return result;
+    }
+}
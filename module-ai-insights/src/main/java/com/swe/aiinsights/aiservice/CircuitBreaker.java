@@ -0,0 +1,451 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: CircuitBreaker.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Circuit breaker guarding one LLM service.
+ *
+ * <p>
+ *     The breaker keeps the outcome and latency of the last calls in a
+ *     rolling window. It opens when too many of them failed or were slow,
+ *     and immediately when the service reports a rate limit. After a
+ *     cool-down a single probe request is let through; its outcome decides
+ *     whether the breaker closes again or stays open. The probe has a short
+ *     deadline of its own, so a service that is still hanging does not
+ *     hold the probe slot for the whole read timeout, and a probe slower
+ *     than the slow-call threshold counts as a failure. Outcomes are
+ *     reported with the permit of their call, so only the probe decides:
+ *     a call let through before the breaker opened that finishes while it
+ *     is half-open is not taken for the probe.
+ * </p>
+ *
+ * <p>
+ *     References :
+ *         1. https://martinfowler.com/bliki/CircuitBreaker.html
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import com.swe.aiinsights.configu.EnvConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Closed / open / half-open breaker over a count based rolling window.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * State of the breaker.
+     */
+    public enum State {
+        /**
+         * Calls go through and are recorded.
+         */
+        CLOSED,
+        /**
+         * Calls are refused until the cool-down is over.
+         */
+        OPEN,
+        /**
+         * One probe call is let through.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Answer of the breaker to a call asking to go through.
+     */
+    public enum Permit {
+        /**
+         * The call must not be sent.
+         */
+        REFUSED,
+        /**
+         * The call may be sent.
+         */
+        CALL,
+        /**
+         * The call may be sent as the probe of a half-open breaker,
+         * within the probe deadline.
+         */
+        PROBE
+    }
+
+    /**
+     * Point in time view of the health of a service.
+     *
+     * @param state state of the breaker
+     * @param failureRate share of failed or slow calls in the window
+     * @param averageLatencyMillis mean latency of the calls in the window
+     * @param calls number of calls in the window
+     */
+    public record Health(State state, double failureRate, long averageLatencyMillis, int calls) {
+    }
+
+    /**
+     * Default number of calls in the rolling window.
+     */
+    private static final int DEFAULT_WINDOW = 20;
+
+    /**
+     * Default number of calls needed before the failure rate is trusted.
+     */
+    private static final int DEFAULT_MIN_CALLS = 5;
+
+    /**
+     * Default share of failed or slow calls that opens the breaker.
+     */
+    private static final double DEFAULT_FAILURE_RATE = 0.5;
+
+    /**
+     * Default latency above which a successful call counts as slow.
+     */
+    private static final long DEFAULT_SLOW_CALL_MILLIS = 60_000;
+
+    /**
+     * Default cool-down of an open breaker in seconds.
+     */
+    private static final long DEFAULT_OPEN_SECONDS = 30;
+
+    /**
+     * Default deadline of a probe call.
+     */
+    private static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 15_000;
+
+    /**
+     * Whether each call in the window failed or was slow.
+     */
+    private final boolean[] bad;
+
+    /**
+     * Latency of each call in the window.
+     */
+    private final long[] latencies;
+
+    /**
+     * Number of calls needed before the failure rate is trusted.
+     */
+    private final int minCalls;
+
+    /**
+     * Share of failed or slow calls that opens the breaker.
+     */
+    private final double failureRateThreshold;
+
+    /**
+     * Latency above which a successful call counts as slow.
+     */
+    private final long slowCallMillis;
+
+    /**
+     * Cool-down of an open breaker.
+     */
+    private final long openMillis;
+
+    /**
+     * Deadline of a probe call.
+     */
+    private final long probeTimeoutMillis;
+
+    /**
+     * Source of the current time in millis.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Current state.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * Time at which an open breaker lets a probe through.
+     */
+    private long openUntil;
+
+    /**
+     * Whether the probe of a half-open breaker is in flight.
+     */
+    private boolean probeInFlight;
+
+    /**
+     * Slot of the window written next.
+     */
+    private int next;
+
+    /**
+     * Number of calls in the window.
+     */
+    private int calls;
+
+    /**
+     * Number of failed or slow calls in the window.
+     */
+    private int badCalls;
+
+    /**
+     * Sum of the latencies in the window.
+     */
+    private long latencySum;
+
+    /**
+     * Creates a breaker.
+     *
+     * @param window number of calls in the rolling window
+     * @param givenMinCalls number of calls needed before the failure rate is trusted
+     * @param failureRate share of failed or slow calls that opens the breaker
+     * @param slowMillis latency above which a successful call counts as slow
+     * @param coolDownMillis cool-down of an open breaker
+     */
+    public CircuitBreaker(final int window, final int givenMinCalls, final double failureRate,
+                          final long slowMillis, final long coolDownMillis) {
+        this(window, givenMinCalls, failureRate, slowMillis, coolDownMillis,
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * Creates a breaker with the given clock.
+     *
+     * @param window number of calls in the rolling window
+     * @param givenMinCalls number of calls needed before the failure rate is trusted
+     * @param failureRate share of failed or slow calls that opens the breaker
+     * @param slowMillis latency above which a successful call counts as slow
+     * @param coolDownMillis cool-down of an open breaker
+     * @param givenClock source of the current time in millis
+     */
+    public CircuitBreaker(final int window, final int givenMinCalls, final double failureRate,
+                          final long slowMillis, final long coolDownMillis, final LongSupplier givenClock) {
+        this(window, givenMinCalls, failureRate, slowMillis, coolDownMillis,
+                Math.min(slowMillis, DEFAULT_PROBE_TIMEOUT_MILLIS), givenClock);
+    }
+
+    /**
+     * Creates a breaker with the given probe deadline and clock.
+     *
+     * @param window number of calls in the rolling window
+     * @param givenMinCalls number of calls needed before the failure rate is trusted
+     * @param failureRate share of failed or slow calls that opens the breaker
+     * @param slowMillis latency above which a successful call counts as slow
+     * @param coolDownMillis cool-down of an open breaker
+     * @param probeMillis deadline of a probe call
+     * @param givenClock source of the current time in millis
+     */
+    public CircuitBreaker(final int window, final int givenMinCalls, final double failureRate,
+                          final long slowMillis, final long coolDownMillis, final long probeMillis,
+                          final LongSupplier givenClock) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.bad = new boolean[window];
+        this.latencies = new long[window];
+        this.minCalls = Math.max(1, Math.min(givenMinCalls, window));
+        this.failureRateThreshold = failureRate;
+        this.slowCallMillis = slowMillis;
+        this.openMillis = coolDownMillis;
+        // a probe slower than the slow-call threshold fails anyway, it need not run longer
+        this.probeTimeoutMillis = Math.min(probeMillis, slowMillis);
+        this.clock = givenClock;
+    }
+
+    /**
+     * Creates a breaker configured from the environment.
+     * AI_BREAKER_WINDOW, AI_BREAKER_MIN_CALLS, AI_BREAKER_FAILURE_RATE,
+     * AI_BREAKER_SLOW_CALL_MILLIS, AI_BREAKER_OPEN_SECONDS and
+     * AI_BREAKER_PROBE_TIMEOUT_MILLIS override the defaults.
+     *
+     * @return the configured breaker
+     */
+    public static CircuitBreaker fromEnv() {
+        return new CircuitBreaker(
+                EnvConfig.getInt("AI_BREAKER_WINDOW", DEFAULT_WINDOW),
+                EnvConfig.getInt("AI_BREAKER_MIN_CALLS", DEFAULT_MIN_CALLS),
+                EnvConfig.getDouble("AI_BREAKER_FAILURE_RATE", DEFAULT_FAILURE_RATE),
+                EnvConfig.getLong("AI_BREAKER_SLOW_CALL_MILLIS", DEFAULT_SLOW_CALL_MILLIS),
+                TimeUnit.SECONDS.toMillis(
+                        EnvConfig.getLong("AI_BREAKER_OPEN_SECONDS", DEFAULT_OPEN_SECONDS)),
+                EnvConfig.getLong("AI_BREAKER_PROBE_TIMEOUT_MILLIS", DEFAULT_PROBE_TIMEOUT_MILLIS),
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * Asks to send a call through the breaker, telling whether it is the probe.
+     * A caller that is let through must report the outcome with onSuccess,
+     * onFailure, trip or release, passing the permit it got.
+     * A probe must be given up after getProbeTimeoutMillis and reported as a failure.
+     *
+     * @return whether and how the call may be sent
+     */
+    public synchronized Permit acquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() < openUntil) {
+                return Permit.REFUSED;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return Permit.REFUSED;
+            }
+            probeInFlight = true;
+            return Permit.PROBE;
+        }
+        return Permit.CALL;
+    }
+
+    /**
+     * Gets the deadline of a probe call.
+     *
+     * @return deadline in milliseconds
+     */
+    public long getProbeTimeoutMillis() {
+        return probeTimeoutMillis;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param permit permit the call was sent with
+     * @param latencyMillis time the call took
+     */
+    public synchronized void onSuccess(final Permit permit, final long latencyMillis) {
+        final boolean slow = latencyMillis > slowCallMillis;
+        if (state == State.HALF_OPEN) {
+            if (permit != Permit.PROBE) {
+                // a call sent before the breaker opened, only the probe decides
+                return;
+            }
+            if (latencyMillis > probeTimeoutMillis) {
+                // the service answers, but too slowly to take the traffic back
+                open();
+            } else {
+                state = State.CLOSED;
+                probeInFlight = false;
+                record(false, latencyMillis);
+            }
+            return;
+        }
+        record(slow, latencyMillis);
+    }
+
+    /**
+     * Records a failed call.
+     *
+     * @param permit permit the call was sent with
+     * @param latencyMillis time the call took
+     */
+    public synchronized void onFailure(final Permit permit, final long latencyMillis) {
+        if (state == State.HALF_OPEN) {
+            if (permit == Permit.PROBE) {
+                open();
+            }
+            return;
+        }
+        record(true, latencyMillis);
+    }
+
+    /**
+     * Gives back a call that was cancelled before it had an outcome,
+     * such as a hedge that lost. It is not recorded; a cancelled probe
+     * lets the next call probe instead.
+     *
+     * @param permit permit the call was sent with
+     */
+    public synchronized void release(final Permit permit) {
+        if (state == State.HALF_OPEN && permit == Permit.PROBE) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Opens the breaker right away, used when the service is out of quota.
+     */
+    public synchronized void trip() {
+        open();
+    }
+
+    /**
+     * Gets the current state.
+     * An open breaker whose cool-down is over is reported as half-open.
+     *
+     * @return the state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() >= openUntil) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Gets the health of the guarded service.
+     *
+     * @return the current health
+     */
+    public synchronized Health health() {
+        final double rate;
+        final long latency;
+        if (calls == 0) {
+            rate = 0;
+            latency = 0;
+        } else {
+            rate = (double) badCalls / calls;
+            latency = latencySum / calls;
+        }
+        return new Health(getState(), rate, latency, calls);
+    }
+
+    /**
+     * Adds a call to the window and opens the breaker when the failure rate is too high.
+     *
+     * @param failed whether the call failed or was slow
+     * @param latencyMillis time the call took
+     */
+    private void record(final boolean failed, final long latencyMillis) {
+        if (state == State.OPEN) {
+            // late outcome of a call sent before the breaker opened
+            return;
+        }
+        if (calls == bad.length) {
+            if (bad[next]) {
+                badCalls--;
+            }
+            latencySum -= latencies[next];
+        } else {
+            calls++;
+        }
+        bad[next] = failed;
+        latencies[next] = latencyMillis;
+        if (failed) {
+            badCalls++;
+        }
+        latencySum += latencyMillis;
+        next = (next + 1) % bad.length;
+
+        if (calls >= minCalls && (double) badCalls / calls >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Opens the breaker and starts a fresh window for when it closes again.
+     */
+    private void open() {
+        state = State.OPEN;
+        openUntil = clock.getAsLong() + openMillis;
+        probeInFlight = false;
+        calls = 0;
+        badCalls = 0;
+        latencySum = 0;
+        next = 0;
+    }
+}
@@ -26,20 +26,25 @@
 
 package com.swe.aiinsights.aiservice;
 
+import com.swe.aiinsights.configu.EnvConfig;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.modeladapter.GeminiAdapter;
-import com.swe.aiinsights.modeladapter.ModelAdapter;
 import com.swe.aiinsights.getkeys.GeminiKeyManager;
+import com.swe.aiinsights.getkeys.KeyQuota;
 import io.github.cdimascio.dotenv.Dotenv;
 import okhttp3.Request;
 import okhttp3.Response;
-import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import com.swe.aiinsights.response.AiResponse;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.Consumer;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.swe.aiinsights.customexceptions.RateLimitException;
@@ -50,7 +55,7 @@ import org.slf4j.Logger;
  * Gemini Service builds the request and calls the AI api.
  * Receives the AI response.
  */
-public final class GeminiService implements LlmService {
+public final class GeminiService implements StreamingLlmService {
 
     /**
      * Get the log file path.
@@ -59,19 +64,15 @@ public final class GeminiService implements LlmService {
 
 
     /**
-     * Loads environment variables from the .env file.
+     * Default time a request waits for the key list on a cold start.
      */
-    private static Dotenv dotenv = Dotenv.load();
-    /**
-     * gets the GEMINI_URL_TEMPLATE from the .env file.
-     */
-    private static final String GEMINI_API_URL_TEMPLATE =
-            dotenv.get("GEMINI_URL");
+    private static final long DEFAULT_KEY_READY_TIMEOUT_SECONDS = 5;
+
     /**
-     * Sets the Media type used for JSON requests.
+     * Tokens charged for an image when Gemini does not report the count,
+     * a whiteboard snapshot is billed as a few 768 px tiles of 258 tokens.
      */
-    private static final MediaType JSON =
-            MediaType.get("application/json; charset=utf-8");
+    private static final long ESTIMATED_IMAGE_TOKENS = 1_032;
     /**
      * The Gemini API key used for request authentication.
      */
@@ -97,21 +98,33 @@ public final class GeminiService implements LlmService {
     private final GeminiKeyManager keyManager;
 
     /**
-     * Constructor for initialising the http client for making the request.
+     * Time a request waits for the key list while the key manager is starting.
      */
+    private final long keyReadyTimeoutSeconds;
 
+    /**
+     * Constructor for initialising the http client for making the request.
+     * Uses the transport shared by all LLM services.
+     */
     public GeminiService() {
+        this(HttpTransport.shared());
+    }
+
+    /**
+     * Constructor using the given transport for making the request.
+     *
+     * @param transport shared connection pool and dispatcher
+     */
+    public GeminiService(final HttpTransport transport) {
 
         keyManager = new GeminiKeyManager();
+        keyReadyTimeoutSeconds = EnvConfig.getLong("AI_KEY_READY_TIMEOUT_SECONDS",
+                DEFAULT_KEY_READY_TIMEOUT_SECONDS);
         LOG.info("Initializing GeminiService");
         final int timeout = 200;
         final int readMul = 6;
-        // creating an http client
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(timeout, TimeUnit.SECONDS)
-                .readTimeout(timeout * readMul, TimeUnit.SECONDS)
-                .writeTimeout(timeout, TimeUnit.SECONDS)
-                .build();
+        // deriving an http client from the shared transport
+        this.httpClient = transport.client(timeout, timeout * readMul, timeout);
         LOG.info("GeminiService initialized with timeout: {} seconds", timeout);
 
     }
@@ -123,10 +136,12 @@ public final class GeminiService implements LlmService {
     public AiResponse runProcess(final RequestGeneraliser aiRequest)
             throws IOException {
 
-        final ModelAdapter adapter = new GeminiAdapter();
+        final GeminiAdapter adapter = new GeminiAdapter();
 
-        final String requestBody = adapter.buildRequest(aiRequest);
+        // the json is written to the connection while the request is sent
+        final RequestBody requestBody = adapter.requestBody(aiRequest);
 
+        awaitKeys();
         final int maxRetries = keyManager.getNumberOfKeys();
 //        System.out.println(maxRetries);
         int attempt = 0;
@@ -134,11 +149,16 @@ public final class GeminiService implements LlmService {
 //            System.out.println("Attempt");
 //            System.out.println(attempt);
             final String currentKey = keyManager.getCurrentKey();
-            final String apiUrl = GEMINI_API_URL_TEMPLATE + currentKey;
+            if (currentKey == null) {
+                // no round trip on a key that is known to be out of budget
+                LOG.debug("All API keys are out of budget");
+                throw new RateLimitException("All available API keys used");
+            }
+            final String apiUrl = Urls.GENERATE + currentKey;
 
             final Request request = new Request.Builder()
                     .url(apiUrl)
-                    .post(RequestBody.create(requestBody, JSON))
+                    .post(requestBody)
                     .build();
 
             final int keyLimitCode = 429;
@@ -150,6 +170,7 @@ public final class GeminiService implements LlmService {
                     final AiResponse returnResponse = aiRequest.getAiResponse();
                     final String textResponse = adapter.getResponse(response);
                     returnResponse.setResponse(textResponse);
+                    keyManager.recordTokens(currentKey, tokensUsed(adapter, aiRequest, textResponse));
                     LOG.debug("Response received from adapter");
                     return returnResponse;
                 }
@@ -168,11 +189,277 @@ public final class GeminiService implements LlmService {
 //                    System.out.println(attempt);
                     continue;  // Skip the rest and restart loop
                 }
+                // not a quota error, so it counts against the health of the service
+                LOG.debug("Gemini failed with HTTP {}, trying to switch model", response.code());
+                throw new IOException("Gemini failed with HTTP " + response.code());
+            } finally {
+                keyManager.releaseKey(currentKey);
             }
-            LOG.debug("Some other error but trying to switch model\n");
-            throw new RateLimitException("Some other error but trying to switch model");
         }
-        LOG.debug("Some other error but trying to switch model");
+        LOG.debug("All API keys hit their limit, trying to switch model");
         throw new RateLimitException("All available API keys used");
     }
-}
\ No newline at end of file
+
+    /**
+     * {@inheritDoc}
+     * Uses the same key rotation as runProcess, each attempt is enqueued on
+     * the OkHttp dispatcher instead of blocking a worker thread.
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser aiRequest) {
+        final GeminiAdapter adapter = new GeminiAdapter();
+        final RequestBody requestBody = adapter.requestBody(aiRequest);
+        return afterKeys(() -> attemptAsync(aiRequest, Urls.GENERATE, requestBody, adapter,
+                adapter::getResponse, 0, keyManager.getNumberOfKeys()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Uses the streamGenerateContent endpoint with server-sent events.
+     * When no streaming endpoint can be derived, the whole answer is
+     * delivered as a single chunk.
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessStreaming(final RequestGeneraliser aiRequest,
+                                                             final Consumer<String> onChunk) {
+        if (Urls.STREAM == null) {
+            LOG.warn("No Gemini streaming endpoint configured, answering in one chunk");
+            return runProcessAsync(aiRequest).thenApply(response -> {
+                onChunk.accept(response.getResponse());
+                return response;
+            });
+        }
+        final GeminiAdapter adapter = new GeminiAdapter();
+        final RequestBody requestBody = adapter.streamingRequestBody(aiRequest);
+        return afterKeys(() -> attemptAsync(aiRequest, Urls.STREAM, requestBody, adapter,
+                response -> StreamDrainer.drain(response, adapter, onChunk),
+                0, keyManager.getNumberOfKeys()));
+    }
+
+    /**
+     * Tells whether the Gemini keys are available.
+     * Until the key list arrived, requests wait for it up to
+     * AI_KEY_READY_TIMEOUT_SECONDS and then fail over to the next service.
+     *
+     * @return true once keys can be used
+     */
+    public boolean isReady() {
+        return !keyManager.isStarting();
+    }
+
+    /**
+     * Gets the budget left on every Gemini key.
+     *
+     * @return remaining budget of each key, keys are masked
+     */
+    public List<KeyQuota.Remaining> getKeyQuota() {
+        return keyManager.getRemainingQuota();
+    }
+
+    /**
+     * Gets the tokens a request and its answer used.
+     * Gemini reports the count in usageMetadata. When it does not, the count
+     * is estimated from the text sent and answered; an image is charged a
+     * fixed cost, its base64 data is far longer than the tokens it is billed.
+     *
+     * @param adapter adapter that read the answer
+     * @param aiRequest the generalised request
+     * @param answer text of the answer
+     * @return number of tokens
+     */
+    private static long tokensUsed(final GeminiAdapter adapter, final RequestGeneraliser aiRequest,
+                                   final String answer) {
+        final long reported = adapter.getTotalTokenCount();
+        if (reported >= 0) {
+            return reported;
+        }
+        final int charsPerToken = 4;
+        final long chars = lengthOf(aiRequest.getPrompt()) + lengthOf(aiRequest.getTextData()) + lengthOf(answer);
+        final boolean image = aiRequest.getImgData() != null || aiRequest.getImage() != null;
+        return chars / charsPerToken + (image ? ESTIMATED_IMAGE_TOKENS : 0);
+    }
+
+    /**
+     * Gets the length of a text that may be missing.
+     *
+     * @param text the text, may be null
+     * @return its length, 0 when null
+     */
+    private static long lengthOf(final String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    /**
+     * Waits for the key list while the key manager is starting.
+     *
+     * @throws IOException when no keys arrived in time
+     */
+    private void awaitKeys() throws IOException {
+        if (!keyManager.isStarting()) {
+            return;
+        }
+        LOG.info("Waiting for the Gemini keys");
+        try {
+            keyManager.whenReady().get(keyReadyTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the Gemini keys", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Gemini keys not available yet", e);
+        }
+    }
+
+    /**
+     * Runs an attempt once the key list is available, without blocking the caller.
+     *
+     * @param attempt the first attempt of the request
+     * @return future completed with the response from AI
+     */
+    private CompletableFuture<AiResponse> afterKeys(final Supplier<CompletableFuture<AiResponse>> attempt) {
+        if (!keyManager.isStarting()) {
+            return attempt.get();
+        }
+        LOG.info("Waiting for the Gemini keys");
+        // a copy, so neither the timeout nor a cancellation reaches the shared future
+        final CompletableFuture<Void> ready = keyManager.whenReady().copy()
+                .orTimeout(keyReadyTimeoutSeconds, TimeUnit.SECONDS);
+        return CancellableFutures.handleCompose(ready, (value, error) -> {
+            if (error != null) {
+                return CompletableFuture.failedFuture(new IOException("Gemini keys not available yet", error));
+            }
+            return attempt.get();
+        });
+    }
+
+    /**
+     * Reads the text out of a successful HTTP response.
+     */
+    @FunctionalInterface
+    private interface ResponseReader {
+        /**
+         * Reads the text of the response.
+         * @param response successful HTTP response
+         * @return text answered by the model
+         * @throws IOException in case the body cannot be read
+         */
+        String read(Response response) throws IOException;
+    }
+
+    /**
+     * Sends one attempt with the current key and moves on to the next key
+     * when the current one is exhausted.
+     * The key is released once the attempt is over.
+     *
+     * @param aiRequest the generalised request
+     * @param urlTemplate endpoint to which the key is appended
+     * @param requestBody json body of the request
+     * @param adapter adapter reading the answer, it keeps the token count Gemini reports
+     * @param reader reads the text out of a successful response
+     * @param attempt number of keys tried so far
+     * @param maxRetries number of keys available
+     * @return future completed with the response from AI
+     */
+    private CompletableFuture<AiResponse> attemptAsync(final RequestGeneraliser aiRequest,
+                                                       final String urlTemplate,
+                                                       final RequestBody requestBody,
+                                                       final GeminiAdapter adapter,
+                                                       final ResponseReader reader,
+                                                       final int attempt,
+                                                       final int maxRetries) {
+        if (attempt >= maxRetries) {
+            LOG.debug("All API keys hit their limit, trying to switch model");
+            return CompletableFuture.failedFuture(
+                    new RateLimitException("All available API keys used"));
+        }
+        final String currentKey = keyManager.getCurrentKey();
+        if (currentKey == null) {
+            LOG.debug("All API keys are out of budget");
+            return CompletableFuture.failedFuture(
+                    new RateLimitException("All available API keys used"));
+        }
+        final Request request = new Request.Builder()
+                .url(urlTemplate + currentKey)
+                .post(requestBody)
+                .build();
+
+        final int keyLimitCode = 429;
+        final int permissionDenied = 403;
+
+        final CompletableFuture<Response> call = HttpCallFuture.enqueue(httpClient.newCall(request));
+        call.whenComplete((response, error) -> {
+            if (error != null) {
+                keyManager.releaseKey(currentKey);
+            }
+        });
+        return CancellableFutures.thenCompose(call, response -> {
+            try (response) {
+                if (response.isSuccessful()) {
+                    final AiResponse returnResponse = aiRequest.getAiResponse();
+                    final String textResponse = reader.read(response);
+                    returnResponse.setResponse(textResponse);
+                    keyManager.recordTokens(currentKey, tokensUsed(adapter, aiRequest, textResponse));
+                    LOG.debug("Response received from adapter");
+                    return CompletableFuture.completedFuture(returnResponse);
+                }
+                if (response.code() == keyLimitCode || response.code() == permissionDenied) {
+                    LOG.debug("Key limit hit or permission denied, trying next key");
+                    keyManager.setKeyIndex(currentKey);
+                    return attemptAsync(aiRequest, urlTemplate, requestBody, adapter, reader,
+                            attempt + 1, maxRetries);
+                }
+                // not a quota error, so it counts against the health of the service
+                LOG.debug("Gemini failed with HTTP {}, trying to switch model", response.code());
+                return CompletableFuture.failedFuture(
+                        new IOException("Gemini failed with HTTP " + response.code()));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            } finally {
+                keyManager.releaseKey(currentKey);
+            }
+        });
+    }
+
+    /**
+     * Endpoints read from the .env file on the first request, so that
+     * creating the service does not touch the file system.
+     */
+    private static final class Urls {
+        /**
+         * Loads environment variables from the .env file.
+         */
+        private static final Dotenv DOTENV = Dotenv.load();
+        /**
+         * gets the GEMINI_URL_TEMPLATE from the .env file.
+         */
+        private static final String GENERATE = DOTENV.get("GEMINI_URL");
+        /**
+         * Endpoint of the streaming API, derived from GEMINI_URL unless GEMINI_STREAM_URL is set.
+         */
+        private static final String STREAM = streamUrlTemplate();
+
+        /**
+         * Holder class.
+         */
+        private Urls() {
+        }
+
+        /**
+         * Works out the streaming endpoint.
+         * GEMINI_URL ends in ":generateContent?key=", the streaming endpoint is
+         * ":streamGenerateContent?alt=sse&key=".
+         *
+         * @return the streaming endpoint template, or null when it cannot be derived
+         */
+        private static String streamUrlTemplate() {
+            final String configured = DOTENV.get("GEMINI_STREAM_URL");
+            if (configured != null && !configured.isBlank()) {
+                return configured;
+            }
+            final String generate = ":generateContent?";
+            if (GENERATE == null || !GENERATE.contains(generate)) {
+                return null;
+            }
+            return GENERATE.replace(generate, ":streamGenerateContent?alt=sse&");
+        }
+    }
+}
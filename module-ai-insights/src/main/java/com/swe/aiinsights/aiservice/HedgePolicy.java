@@ -0,0 +1,244 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: HedgePolicy.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Decides when a request is hedged to a second service.
+ *
+ * <p>
+ *     The latency of recent requests is kept per request type. A request
+ *     that has not been answered after the configured percentile of its
+ *     type is sent to the next service as well. Hedges are paid from a
+ *     budget that grows by a fixed share of every request, so hedged
+ *     traffic never exceeds that share of the total.
+ * </p>
+ *
+ * <p>
+ *     References :
+ *         1. Dean, Barroso - The Tail at Scale, CACM 2013
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import com.swe.aiinsights.configu.EnvConfig;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per request type latency percentiles and a budget for hedged requests.
+ */
+public final class HedgePolicy {
+
+    /**
+     * Default percentile after which a request is hedged.
+     */
+    private static final double DEFAULT_PERCENTILE = 0.95;
+
+    /**
+     * Default share of requests, in percent, that may be hedged.
+     */
+    private static final double DEFAULT_BUDGET_PERCENT = 5;
+
+    /**
+     * Default number of recent latencies kept per request type.
+     */
+    private static final int DEFAULT_SAMPLES = 200;
+
+    /**
+     * Default number of latencies needed before a type is hedged.
+     */
+    private static final int DEFAULT_MIN_SAMPLES = 20;
+
+    /**
+     * Budget units of one hedge, kept integral so shares add up exactly.
+     */
+    private static final long HEDGE_COST = 1_000_000;
+
+    /**
+     * Most hedges that can be saved up for a burst of slow requests.
+     */
+    private static final long MAX_TOKENS = 10 * HEDGE_COST;
+
+    /**
+     * Percentile after which a request is hedged, between 0 and 1.
+     */
+    private final double percentile;
+
+    /**
+     * Budget units added by every request.
+     */
+    private final long tokensPerRequest;
+
+    /**
+     * Number of recent latencies kept per request type.
+     */
+    private final int samples;
+
+    /**
+     * Number of latencies needed before a type is hedged.
+     */
+    private final int minSamples;
+
+    /**
+     * Recent latencies of each request type.
+     */
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Budget units available right now.
+     */
+    private long tokens;
+
+    /**
+     * Creates a policy.
+     *
+     * @param givenPercentile percentile after which a request is hedged, between 0 and 1
+     * @param budgetPercent share of requests, in percent, that may be hedged
+     * @param givenSamples number of recent latencies kept per request type
+     * @param givenMinSamples number of latencies needed before a type is hedged
+     */
+    public HedgePolicy(final double givenPercentile, final double budgetPercent,
+                       final int givenSamples, final int givenMinSamples) {
+        if (givenPercentile <= 0 || givenPercentile > 1) {
+            throw new IllegalArgumentException("Percentile must be in (0, 1]");
+        }
+        if (givenSamples <= 0) {
+            throw new IllegalArgumentException("Samples must be positive");
+        }
+        final double hundred = 100.0;
+        this.percentile = givenPercentile;
+        this.tokensPerRequest = Math.round(budgetPercent / hundred * HEDGE_COST);
+        this.samples = givenSamples;
+        this.minSamples = Math.max(1, Math.min(givenMinSamples, givenSamples));
+    }
+
+    /**
+     * Creates the policy configured from the environment.
+     * Hedging is opt-in, it is enabled by AI_HEDGE_ENABLED=true.
+     * AI_HEDGE_PERCENTILE, AI_HEDGE_BUDGET_PERCENT, AI_HEDGE_SAMPLES and
+     * AI_HEDGE_MIN_SAMPLES override the defaults.
+     *
+     * @return the policy, or null when hedging is disabled
+     */
+    public static HedgePolicy fromEnv() {
+        if (!EnvConfig.getBoolean("AI_HEDGE_ENABLED", false)) {
+            return null;
+        }
+        return new HedgePolicy(
+                EnvConfig.getDouble("AI_HEDGE_PERCENTILE", DEFAULT_PERCENTILE),
+                EnvConfig.getDouble("AI_HEDGE_BUDGET_PERCENT", DEFAULT_BUDGET_PERCENT),
+                EnvConfig.getInt("AI_HEDGE_SAMPLES", DEFAULT_SAMPLES),
+                EnvConfig.getInt("AI_HEDGE_MIN_SAMPLES", DEFAULT_MIN_SAMPLES));
+    }
+
+    /**
+     * Records the latency of a request that was answered.
+     *
+     * @param reqType type of the request
+     * @param latencyMillis time taken to answer
+     */
+    public void record(final String reqType, final long latencyMillis) {
+        latencies.computeIfAbsent(reqType, type -> new LatencyWindow(samples)).add(latencyMillis);
+    }
+
+    /**
+     * Gets how long a request of the given type waits before it is hedged.
+     *
+     * @param reqType type of the request
+     * @return delay in millis, or -1 while too few latencies are known
+     */
+    public long hedgeDelayMillis(final String reqType) {
+        final LatencyWindow window = latencies.get(reqType);
+        if (window == null) {
+            return -1;
+        }
+        return window.percentile(percentile, minSamples);
+    }
+
+    /**
+     * Adds the share of one request to the budget.
+     */
+    public synchronized void onRequest() {
+        tokens = Math.min(MAX_TOKENS, tokens + tokensPerRequest);
+    }
+
+    /**
+     * Takes one hedge from the budget.
+     *
+     * @return true when the budget allows a hedge
+     */
+    public synchronized boolean tryHedge() {
+        if (tokens < HEDGE_COST) {
+            return false;
+        }
+        tokens -= HEDGE_COST;
+        return true;
+    }
+
+    /**
+     * Ring of the most recent latencies of one request type.
+     */
+    private static final class LatencyWindow {
+        /**
+         * Recent latencies.
+         */
+        private final long[] values;
+
+        /**
+         * Slot written next.
+         */
+        private int next;
+
+        /**
+         * Number of latencies held.
+         */
+        private int count;
+
+        /**
+         * Creates an empty window.
+         *
+         * @param size number of latencies kept
+         */
+        LatencyWindow(final int size) {
+            this.values = new long[size];
+        }
+
+        /**
+         * Adds a latency, replacing the oldest once the window is full.
+         *
+         * @param latencyMillis the latency
+         */
+        synchronized void add(final long latencyMillis) {
+            values[next] = latencyMillis;
+            next = (next + 1) % values.length;
+            count = Math.min(count + 1, values.length);
+        }
+
+        /**
+         * Gets a percentile of the latencies held.
+         *
+         * @param fraction the percentile, between 0 and 1
+         * @param minCount number of latencies needed
+         * @return the percentile, or -1 when fewer latencies are held
+         */
+        synchronized long percentile(final double fraction, final int minCount) {
+            if (count < minCount) {
+                return -1;
+            }
+            final long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            final int rank = (int) Math.ceil(fraction * count) - 1;
+            return sorted[Math.max(0, rank)];
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: HttpCallFuture.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Bridges OkHttp callbacks to CompletableFuture.
+ *
+ * <p>
+ * References
+ *      1. https://square.github.io/okhttp/recipes/#asynchronous-get-kt-java
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs an OkHttp call on the dispatcher and exposes it as a future.
+ */
+final class HttpCallFuture {
+
+    private HttpCallFuture() { }
+
+    /**
+     * Enqueues the call. The caller owns the response and must close it.
+     * Cancelling the returned future cancels the HTTP call.
+     *
+     * @param call call to run
+     * @return future completed with the HTTP response
+     */
+    static CompletableFuture<Response> enqueue(final Call call) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(final Call failedCall, final IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(final Call doneCall, final Response response) {
+                if (!future.complete(response)) {
+                    // nobody is waiting for the response any more
+                    response.close();
+                }
+            }
+        });
+        return future;
+    }
+}
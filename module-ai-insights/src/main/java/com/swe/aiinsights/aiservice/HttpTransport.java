@@ -0,0 +1,188 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: HttpTransport.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Shared HTTP transport for all LLM services.
+ *
+ * <p>
+ *     All services derive their clients from one OkHttpClient, so they share
+ *     one connection pool and one dispatcher. Concurrent Gemini calls reuse
+ *     warm TLS connections, and HTTP/2 is negotiated through ALPN when the
+ *     endpoint supports it (plain http endpoints such as a local Ollama stay
+ *     on HTTP/1.1).
+ * </p>
+ * <p>
+ *     Settings (environment or .env):
+ *     AI_HTTP_MAX_IDLE_CONNECTIONS, AI_HTTP_KEEP_ALIVE_SECONDS,
+ *     AI_HTTP_MAX_REQUESTS, AI_HTTP_MAX_REQUESTS_PER_HOST, AI_HTTP2_ENABLED.
+ * </p>
+ * <p>
+ *     References
+ *      1. https://square.github.io/okhttp/features/connections/
+ *      2. https://square.github.io/okhttp/5.x/okhttp/okhttp3/-dispatcher/
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.logging.CommonLogger;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the connection pool and dispatcher used by every LLM service.
+ */
+public final class HttpTransport {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(HttpTransport.class);
+
+    /**
+     * Default number of idle connections kept in the pool.
+     */
+    private static final int DEFAULT_MAX_IDLE = 32;
+
+    /**
+     * Default keep-alive of idle connections in seconds.
+     */
+    private static final int DEFAULT_KEEP_ALIVE_SECONDS = 300;
+
+    /**
+     * Default limit of concurrent calls over all hosts.
+     */
+    private static final int DEFAULT_MAX_REQUESTS = 256;
+
+    /**
+     * Default limit of concurrent calls to a single host.
+     * OkHttp's own default of 5 would queue Gemini calls behind each other.
+     */
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+
+    /**
+     * Transport shared by the default services.
+     */
+    private static volatile HttpTransport shared;
+
+    /**
+     * Base client holding the shared pool and dispatcher.
+     */
+    private final OkHttpClient baseClient;
+
+    /**
+     * Creates a transport with the given limits.
+     *
+     * @param maxIdleConnections idle connections kept in the pool
+     * @param keepAliveSeconds how long an idle connection is kept
+     * @param maxRequests concurrent calls over all hosts
+     * @param maxRequestsPerHost concurrent calls to one host
+     * @param http2Enabled whether HTTP/2 may be negotiated
+     */
+    public HttpTransport(final int maxIdleConnections, final long keepAliveSeconds,
+                         final int maxRequests, final int maxRequestsPerHost,
+                         final boolean http2Enabled) {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        final List<Protocol> protocols;
+        if (http2Enabled) {
+            protocols = List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+        } else {
+            protocols = List.of(Protocol.HTTP_1_1);
+        }
+
+        this.baseClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .dispatcher(dispatcher)
+                .protocols(protocols)
+                .build();
+        LOG.info("HttpTransport initialized: idle={}, keepAlive={}s, maxRequests={}, perHost={}, http2={}",
+                maxIdleConnections, keepAliveSeconds, maxRequests, maxRequestsPerHost, http2Enabled);
+    }
+
+    /**
+     * Returns the transport shared by all services, creating it from the
+     * configuration on first use.
+     *
+     * @return the shared transport
+     */
+    public static HttpTransport shared() {
+        HttpTransport localReference = shared;
+        if (localReference == null) {
+            synchronized (HttpTransport.class) {
+                localReference = shared;
+                if (localReference == null) {
+                    localReference = fromConfig();
+                    shared = localReference;
+                }
+            }
+        }
+        return localReference;
+    }
+
+    /**
+     * Builds a transport from the configured settings.
+     *
+     * @return a new transport
+     */
+    private static HttpTransport fromConfig() {
+        return new HttpTransport(
+                EnvConfig.getInt("AI_HTTP_MAX_IDLE_CONNECTIONS", DEFAULT_MAX_IDLE),
+                EnvConfig.getInt("AI_HTTP_KEEP_ALIVE_SECONDS", DEFAULT_KEEP_ALIVE_SECONDS),
+                EnvConfig.getInt("AI_HTTP_MAX_REQUESTS", DEFAULT_MAX_REQUESTS),
+                EnvConfig.getInt("AI_HTTP_MAX_REQUESTS_PER_HOST", DEFAULT_MAX_REQUESTS_PER_HOST),
+                EnvConfig.getBoolean("AI_HTTP2_ENABLED", true));
+    }
+
+    /**
+     * Returns a client with service specific timeouts.
+     * The client shares the connection pool and dispatcher of this transport.
+     *
+     * @param connectTimeout connect timeout in seconds
+     * @param readTimeout read timeout in seconds
+     * @param writeTimeout write timeout in seconds
+     * @return client backed by the shared pool
+     */
+    public OkHttpClient client(final long connectTimeout, final long readTimeout,
+                               final long writeTimeout) {
+        return baseClient.newBuilder()
+                .connectTimeout(connectTimeout, TimeUnit.SECONDS)
+                .readTimeout(readTimeout, TimeUnit.SECONDS)
+                .writeTimeout(writeTimeout, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the shared connection pool.
+     *
+     * @return the connection pool
+     */
+    public ConnectionPool connectionPool() {
+        return baseClient.connectionPool();
+    }
+
+    /**
+     * Returns the shared dispatcher.
+     *
+     * @return the dispatcher
+     */
+    public Dispatcher dispatcher() {
+        return baseClient.dispatcher();
+    }
+}
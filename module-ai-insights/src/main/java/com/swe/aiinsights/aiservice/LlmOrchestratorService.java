@@ -8,9 +8,29 @@
  */
 
 /**
- * Switches between cloud models and local LLMs when rate limit is hit.
+ * Switches between cloud models and local LLMs when a service is unhealthy.
  * 
  * <p>
+ *     Every service is guarded by a circuit breaker. Each request goes to the
+ *     most preferred service whose breaker admits it, and fails over to the
+ *     next one on any IOException. A rate limit opens the breaker at once,
+ *     other failures and slow calls open it through the rolling window.
+ *     Once the cool-down is over a probe request is sent to the service, so
+ *     traffic returns to the preferred service when it has recovered. The
+ *     probe is given up after the probe deadline of the breaker and fails
+ *     over like any other IOException. Services without a non-blocking
+ *     variant are called on a worker executor, so their probe is bounded
+ *     by the deadline too and a failover never blocks the thread that
+ *     completed the previous attempt.
+ * </p>
+ *
+ * <p>
+ *     Hedging is opt-in. When enabled, a non-streaming request that is still
+ *     unanswered after a latency percentile of its type is also sent to the
+ *     next service, and the first answer wins.
+ * </p>
+ *
+ * <p>
  *     References :
  * </p>
  *
@@ -22,10 +42,23 @@
 
 package com.swe.aiinsights.aiservice;
 
+import com.swe.aiinsights.configu.AsyncConfig;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.response.AiResponse;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import com.swe.aiinsights.customexceptions.RateLimitException;
 import com.swe.aiinsights.logging.CommonLogger;
 import org.slf4j.Logger;
@@ -34,15 +67,27 @@ import org.slf4j.Logger;
  * Acts as an orchestrator to provide an LLM Service.
  */
 
-public class LlmOrchestratorService implements LlmService {
+public class LlmOrchestratorService implements StreamingLlmService {
     /**
      * List of all LLMs in order of preference.
      */
     private final List<LlmService> llmServices;
     /**
-     * Index of the currently used service.
+     * Circuit breaker of each service, in the same order as the services.
+     */
+    private final List<CircuitBreaker> breakers;
+    /**
+     * Decides when a request is hedged, null when hedging is disabled.
+     */
+    private final HedgePolicy hedgePolicy;
+    /**
+     * Runs the calls to services that only have a blocking variant.
+     */
+    private final Executor blockingExecutor;
+    /**
+     * Used by requests that are never abandoned.
      */
-    private volatile int activeServiceIndex = 0;
+    private static final BooleanSupplier NEVER_ABANDONED = () -> false;
 
     /**
      * Get the log file path.
@@ -51,62 +96,548 @@ public class LlmOrchestratorService implements LlmService {
 
     /**
      * This constructor takes a list of LlmService instances in the order of execution needed.
+     * Each service gets a circuit breaker configured from the environment,
+     * hedging is configured from the environment as well.
      * @param services all the services available
      */
     public LlmOrchestratorService(final List<LlmService> services) {
+        this(services, CircuitBreaker::fromEnv, HedgePolicy.fromEnv());
+    }
+
+    /**
+     * Creates the orchestrator with the given breakers and without hedging.
+     * @param services all the services available, in order of preference
+     * @param breakerFactory creates the breaker of each service
+     */
+    public LlmOrchestratorService(final List<LlmService> services,
+                                  final Supplier<CircuitBreaker> breakerFactory) {
+        this(services, breakerFactory, null);
+    }
+
+    /**
+     * Creates the orchestrator with the given breakers and hedge policy.
+     * @param services all the services available, in order of preference
+     * @param breakerFactory creates the breaker of each service
+     * @param policy decides when a request is hedged, null disables hedging
+     */
+    public LlmOrchestratorService(final List<LlmService> services,
+                                  final Supplier<CircuitBreaker> breakerFactory,
+                                  final HedgePolicy policy) {
+        this(services, breakerFactory, policy, null);
+    }
+
+    /**
+     * Creates the orchestrator with the given breakers, hedge policy and
+     * executor for blocking services.
+     * @param services all the services available, in order of preference
+     * @param breakerFactory creates the breaker of each service
+     * @param policy decides when a request is hedged, null disables hedging
+     * @param executor runs the calls to blocking services, null for the executor of AI_EXECUTOR_MODE
+     */
+    public LlmOrchestratorService(final List<LlmService> services,
+                                  final Supplier<CircuitBreaker> breakerFactory,
+                                  final HedgePolicy policy,
+                                  final Executor executor) {
         if (services == null || services.isEmpty()) {
             throw new IllegalArgumentException("Provide a list of LLM Services !!!!");
         }
         this.llmServices = services;
+        this.breakers = new ArrayList<>(services.size());
+        for (int i = 0; i < services.size(); i++) {
+            breakers.add(breakerFactory.get());
+        }
+        this.hedgePolicy = policy;
+        this.blockingExecutor = executor == null ? DefaultExecutor.INSTANCE : executor;
         LOG.info("LlmOrchestratorService initialized with {} services", services.size());
     }
 
     /**
-     * Tries the active a service. If it fails due to a RateLimitException,
-     * it switches to the next service in the list and retries the request.
+     * Executor for blocking services, created on first use.
+     */
+    private static final class DefaultExecutor {
+        /**
+         * Executor of the mode chosen by AI_EXECUTOR_MODE.
+         */
+        private static final Executor INSTANCE = AsyncConfig.aiExecutor(AsyncConfig.configuredMode());
+
+        private DefaultExecutor() { }
+    }
+
+    /**
+     * Gets the health of every service, in order of preference.
+     * @return health of each service
+     */
+    public List<CircuitBreaker.Health> getServiceHealth() {
+        final List<CircuitBreaker.Health> health = new ArrayList<>(breakers.size());
+        for (final CircuitBreaker breaker : breakers) {
+            health.add(breaker.health());
+        }
+        return health;
+    }
+
+    /**
+     * Tries the most preferred service that is healthy. If it fails with an
+     * IOException, it switches to the next healthy service in the list and
+     * retries the request.
      * {@inheritDoc}
      */
     @Override
     public AiResponse runProcess(final RequestGeneraliser request) throws IOException {
-        
-        // Start from the currently active service index
-        final int startingIndex = activeServiceIndex;
-        
-        for (int i = startingIndex; i < llmServices.size(); i++) {
-            final LlmService currentService = llmServices.get(i);
-            final String serviceName = currentService.getClass().getSimpleName();
 
-//            System.out.println("INFO: Attempting service: "
-//                    + serviceName + " for request: " + request.getReqType());
+        Admission admitted = nextAdmitted(0);
+        while (admitted != null) {
+            final int index = admitted.index();
+            final LlmService currentService = llmServices.get(index);
+            final CircuitBreaker breaker = breakers.get(index);
+            final String serviceName = currentService.getClass().getSimpleName();
             LOG.info("Attempting service: {} for request: {}", serviceName, request.getReqType());
-            
+
+            final long start = System.nanoTime();
             try {
                 // process the request with the current service
-                final AiResponse response = currentService.runProcess(request);
-                
-                // If successful, update the active index if a switch occurred
-                if (i != startingIndex) {
-                    // Switch was successful, permanently use this new service
-                    activeServiceIndex = i; 
-//                    System.out.println("SUCCESS: Permanently switched to service: " + serviceName);
-                    LOG.info("Permanently switched to service: {}", serviceName);
-                }
+                final AiResponse response = admitted.probe()
+                        ? awaitProbe(currentService, request, breaker.getProbeTimeoutMillis())
+                        : currentService.runProcess(request);
+                breaker.onSuccess(admitted.permit(), elapsedMillis(start));
                 return response;
 
             } catch (RateLimitException e) {
-                // Rate limit exception is hit, move to next service in the list.
-//                System.err.println("WARNING: Service " + serviceName +
-//                        " failed due to rate limit. Attempting next service.");
+                // the service is out of quota, leave it alone until the cool-down is over
+                breaker.trip();
                 LOG.warn("Service {} failed due to rate limit. Attempting next service.", serviceName);
-
-                // Here we set the last AI service to local LLM
-                // It will not throw Rate limit exception.
+            } catch (IOException e) {
+                breaker.onFailure(admitted.permit(), elapsedMillis(start));
+                LOG.warn("Service {} failed: {}. Attempting next service.", serviceName, e.getMessage());
+            } catch (RuntimeException e) {
+                breaker.onFailure(admitted.permit(), elapsedMillis(start));
+                throw e;
             }
+            admitted = nextAdmitted(index + 1);
         }
-        
-        // Should be unreachable, because last one will be local LLM
-        // but included for safety incase any other exception occurs.
+
         LOG.error("All configured LLM services failed to process the request.");
         throw new IOException("All configured LLM services failed to process the request.");
     }
-}
\ No newline at end of file
+
+    /**
+     * Non-blocking variant of runProcess.
+     * The failover to the next service is chained on the future of the
+     * previous one, so no thread waits while a service is being tried.
+     * The request is hedged when hedging is enabled.
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser request) {
+        if (hedgePolicy == null) {
+            return tryServiceAsync(request, 0, this::callService, NEVER_ABANDONED);
+        }
+        return new HedgedCall(request).start();
+    }
+
+    /**
+     * Streaming variant of runProcessAsync.
+     * The request only fails over while no chunk has reached the caller; a
+     * service failing mid-stream ends the request with its error, so the
+     * caller never receives a mix of two answers.
+     * Streaming requests are not hedged for the same reason.
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessStreaming(final RequestGeneraliser request,
+                                                             final Consumer<String> onChunk) {
+        final AtomicBoolean delivered = new AtomicBoolean();
+        final Consumer<String> tracked = chunk -> {
+            delivered.set(true);
+            onChunk.accept(chunk);
+        };
+        return tryServiceAsync(request, 0,
+                (service, req) -> streamService(service, req, tracked), delivered::get);
+    }
+
+    /**
+     * Tries the first healthy service from the given index and falls over
+     * to the next healthy one on an IOException.
+     *
+     * @param request the generalised request
+     * @param from index of the first service that may be tried
+     * @param caller sends the request to one service
+     * @param abandoned tells when the answer is no longer needed
+     * @return future completed with the response of the first successful service
+     */
+    private CompletableFuture<AiResponse> tryServiceAsync(
+            final RequestGeneraliser request,
+            final int from,
+            final BiFunction<LlmService, RequestGeneraliser, CompletableFuture<AiResponse>> caller,
+            final BooleanSupplier abandoned) {
+        if (abandoned.getAsBoolean()) {
+            return CompletableFuture.failedFuture(new CancellationException("Request already answered"));
+        }
+        final Admission admitted = nextAdmitted(from);
+        if (admitted == null) {
+            LOG.error("All configured LLM services failed to process the request.");
+            return CompletableFuture.failedFuture(
+                    new IOException("All configured LLM services failed to process the request."));
+        }
+        return attemptAsync(request, admitted, caller, abandoned);
+    }
+
+    /**
+     * Sends the request to a service whose breaker already admitted it and
+     * falls over to the next healthy one on an IOException.
+     *
+     * @param request the generalised request
+     * @param admitted the admitted service
+     * @param caller sends the request to one service
+     * @param abandoned tells when the request must not be sent to another service
+     * @return future completed with the response of the first successful service
+     */
+    private CompletableFuture<AiResponse> attemptAsync(
+            final RequestGeneraliser request,
+            final Admission admitted,
+            final BiFunction<LlmService, RequestGeneraliser, CompletableFuture<AiResponse>> caller,
+            final BooleanSupplier abandoned) {
+        final int index = admitted.index();
+        final LlmService currentService = llmServices.get(index);
+        final CircuitBreaker breaker = breakers.get(index);
+        final String serviceName = currentService.getClass().getSimpleName();
+        LOG.info("Attempting service: {} for request: {}", serviceName, request.getReqType());
+
+        final long start = System.nanoTime();
+        final CompletableFuture<AiResponse> attempt;
+        try {
+            final CompletableFuture<AiResponse> call = caller.apply(currentService, request);
+            attempt = admitted.probe() ? withDeadline(call, breaker.getProbeTimeoutMillis()) : call;
+        } catch (RuntimeException e) {
+            breaker.onFailure(admitted.permit(), elapsedMillis(start));
+            return CompletableFuture.failedFuture(e);
+        }
+        // cancelling the returned future cancels the attempt and the failover after it
+        return CancellableFutures.handleCompose(attempt, (response, error) -> {
+            if (error == null) {
+                breaker.onSuccess(admitted.permit(), elapsedMillis(start));
+                return CompletableFuture.completedFuture(response);
+            }
+            final Throwable cause = unwrap(error);
+            if (cause instanceof CancellationException) {
+                // the call was given up, it says nothing about the health of the service
+                breaker.release(admitted.permit());
+                return CompletableFuture.failedFuture(cause);
+            }
+            if (cause instanceof RateLimitException) {
+                breaker.trip();
+            } else {
+                breaker.onFailure(admitted.permit(), elapsedMillis(start));
+            }
+            if (abandoned.getAsBoolean()) {
+                // answered elsewhere, or part of this answer already reached the caller
+                return CompletableFuture.failedFuture(cause);
+            }
+            if (cause instanceof RateLimitException) {
+                LOG.warn("Service {} failed due to rate limit. Attempting next service.", serviceName);
+                return tryServiceAsync(request, index + 1, caller, abandoned);
+            }
+            if (cause instanceof IOException) {
+                LOG.warn("Service {} failed: {}. Attempting next service.",
+                        serviceName, cause.getMessage());
+                return tryServiceAsync(request, index + 1, caller, abandoned);
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * One hedged request: the primary attempt, and a second attempt on the
+     * next service once the primary is slower than the hedge threshold.
+     * The first answer wins. The loser is cancelled down to its HTTP call
+     * and is not failed over any more.
+     */
+    private final class HedgedCall {
+        /**
+         * The generalised request.
+         */
+        private final RequestGeneraliser request;
+        /**
+         * Completed with the first answer, or the last error.
+         */
+        private final CompletableFuture<AiResponse> result = new CompletableFuture<>();
+        /**
+         * Attempts still running.
+         */
+        private final AtomicInteger pending = new AtomicInteger(1);
+        /**
+         * The primary attempt, null until it is sent.
+         */
+        private volatile CompletableFuture<AiResponse> primary;
+        /**
+         * The hedge attempt, null until it is sent.
+         */
+        private volatile CompletableFuture<AiResponse> hedge;
+
+        /**
+         * Creates the call.
+         *
+         * @param givenRequest the generalised request
+         */
+        HedgedCall(final RequestGeneraliser givenRequest) {
+            this.request = givenRequest;
+        }
+
+        /**
+         * Sends the primary attempt and schedules the hedge.
+         *
+         * @return future completed with the first answer
+         */
+        CompletableFuture<AiResponse> start() {
+            final String reqType = request.getReqType();
+            hedgePolicy.onRequest();
+            final long delay = hedgePolicy.hedgeDelayMillis(reqType);
+            final Admission admitted = nextAdmitted(0);
+            if (admitted == null) {
+                LOG.error("All configured LLM services failed to process the request.");
+                return CompletableFuture.failedFuture(
+                        new IOException("All configured LLM services failed to process the request."));
+            }
+            final int index = admitted.index();
+            final long begin = System.nanoTime();
+            final CompletableFuture<AiResponse> attempt =
+                    attemptAsync(request, admitted, LlmOrchestratorService.this::callService, result::isDone);
+            primary = attempt;
+            // the primary latency is recorded even when it loses, so the percentile is not biased;
+            // a primary cancelled because the hedge won took at least as long as it ran
+            attempt.whenComplete((response, error) -> {
+                if (error == null || attempt.isCancelled()) {
+                    hedgePolicy.record(reqType, elapsedMillis(begin));
+                }
+            });
+            attempt.whenComplete(this::onOutcome);
+            if (delay >= 0 && index + 1 < llmServices.size()) {
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                        .execute(() -> sendHedge(index + 1));
+            }
+            return result;
+        }
+
+        /**
+         * Sends the hedge when the primary is still running and the budget allows it.
+         *
+         * @param from index of the first service the hedge may go to
+         */
+        private void sendHedge(final int from) {
+            if (result.isDone() || !hedgePolicy.tryHedge()) {
+                return;
+            }
+            LOG.info("Hedging request: {}", request.getReqType());
+            pending.incrementAndGet();
+            // the hedge gets a copy so the two services do not write into one response
+            final CompletableFuture<AiResponse> attempt = tryServiceAsync(request.copy(), from,
+                    LlmOrchestratorService.this::callService, result::isDone);
+            hedge = attempt;
+            if (result.isDone()) {
+                // the primary answered while the hedge was being sent
+                attempt.cancel(true);
+            }
+            attempt.whenComplete(this::onOutcome);
+        }
+
+        /**
+         * Completes the result with the first answer, or with the error of
+         * the last attempt when all of them failed.
+         *
+         * @param response answer of an attempt
+         * @param error error of an attempt
+         */
+        private void onOutcome(final AiResponse response, final Throwable error) {
+            if (error == null) {
+                if (result.complete(response)) {
+                    cancelIfRunning(primary);
+                    cancelIfRunning(hedge);
+                }
+                return;
+            }
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(unwrap(error));
+            }
+        }
+
+        /**
+         * Cancels an attempt that lost, the winner is already done.
+         *
+         * @param attempt the attempt, null when it was not sent
+         */
+        private void cancelIfRunning(final CompletableFuture<AiResponse> attempt) {
+            if (attempt != null && !attempt.isDone()) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A service whose breaker let a call through.
+     *
+     * @param index index of the service
+     * @param permit permit the breaker gave the call
+     */
+    private record Admission(int index, CircuitBreaker.Permit permit) {
+        /**
+         * Tells whether the call is the probe of a half-open breaker.
+         *
+         * @return true for a probe
+         */
+        boolean probe() {
+            return permit == CircuitBreaker.Permit.PROBE;
+        }
+    }
+
+    /**
+     * Finds the most preferred service from the given index whose breaker
+     * admits a call.
+     *
+     * @param from index of the first service that may be used
+     * @return the admitted service, or null when none is admitted
+     */
+    private Admission nextAdmitted(final int from) {
+        for (int i = from; i < llmServices.size(); i++) {
+            final CircuitBreaker.Permit permit = breakers.get(i).acquire();
+            if (permit != CircuitBreaker.Permit.REFUSED) {
+                return new Admission(i, permit);
+            }
+            LOG.debug("Skipping service {}, its circuit is open",
+                    llmServices.get(i).getClass().getSimpleName());
+        }
+        return null;
+    }
+
+    /**
+     * Bounds a probe call by the probe deadline.
+     * A probe still running at the deadline is cancelled and fails with an
+     * IOException, so the breaker opens again and the request fails over.
+     *
+     * @param call the probe call
+     * @param timeoutMillis deadline of the probe
+     * @return future completed like the call, or with an IOException at the deadline
+     */
+    private static CompletableFuture<AiResponse> withDeadline(final CompletableFuture<AiResponse> call,
+                                                              final long timeoutMillis) {
+        final CompletableFuture<AiResponse> bounded = new CompletableFuture<>();
+        final AtomicBoolean expired = new AtomicBoolean();
+        call.whenComplete((response, error) -> {
+            if (expired.get()) {
+                // cancelled at the deadline, the deadline error is reported instead
+                return;
+            }
+            if (error != null) {
+                bounded.completeExceptionally(error);
+            } else {
+                bounded.complete(response);
+            }
+        });
+        CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (call.isDone() || !expired.compareAndSet(false, true)) {
+                return;
+            }
+            // the call is cancelled before the failover starts, so it never runs next to it
+            call.cancel(true);
+            bounded.completeExceptionally(new IOException("Probe got no answer within " + timeoutMillis + " ms"));
+        });
+        bounded.whenComplete((response, error) -> {
+            if (bounded.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return bounded;
+    }
+
+    /**
+     * Sends a probe and waits for it up to the probe deadline.
+     * A blocking service runs on the blocking executor, the probe gives up
+     * waiting at the deadline even though the worker stays blocked until
+     * the service returns.
+     *
+     * @param service the probed service
+     * @param request the generalised request
+     * @param timeoutMillis deadline of the probe
+     * @return the response of the service
+     * @throws IOException if the service failed or missed the deadline
+     */
+    private AiResponse awaitProbe(final LlmService service, final RequestGeneraliser request,
+                                         final long timeoutMillis) throws IOException {
+        try {
+            return withDeadline(callService(service, request), timeoutMillis).join();
+        } catch (CompletionException e) {
+            final Throwable cause = unwrap(e);
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Gets the time passed since the given start.
+     *
+     * @param start start in nanoseconds
+     * @return elapsed time in milliseconds
+     */
+    private static long elapsedMillis(final long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Calls a service through its non-blocking variant when it has one,
+     * otherwise runs its blocking variant on the blocking executor.
+     *
+     * @param service the service to call
+     * @param request the generalised request
+     * @return future completed with the response of the service
+     */
+    private CompletableFuture<AiResponse> callService(final LlmService service,
+                                                      final RequestGeneraliser request) {
+        if (service instanceof AsyncLlmService asyncService) {
+            return asyncService.runProcessAsync(request);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.runProcess(request);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, blockingExecutor);
+    }
+
+    /**
+     * Streams from a service when it supports streaming, otherwise the whole
+     * answer is passed on as a single chunk.
+     *
+     * @param service the service to call
+     * @param request the generalised request
+     * @param onChunk receives the partial texts
+     * @return future completed with the response of the service
+     */
+    private CompletableFuture<AiResponse> streamService(final LlmService service,
+                                                        final RequestGeneraliser request,
+                                                        final Consumer<String> onChunk) {
+        if (service instanceof StreamingLlmService streamingService) {
+            return streamingService.runProcessStreaming(request, onChunk);
+        }
+        return callService(service, request).thenApply(response -> {
+            onChunk.accept(response.getResponse());
+            return response;
+        });
+    }
+
+    /**
+     * Removes the CompletionException wrapper added by future chaining.
+     *
+     * @param error error from a future
+     * @return the original error
+     */
+    private static Throwable unwrap(final Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+}
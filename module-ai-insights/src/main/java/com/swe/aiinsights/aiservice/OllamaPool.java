@@ -0,0 +1,539 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: OllamaPool.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Spreads requests over several Ollama instances.
+ *
+ * <p>
+ *     Each instance has a concurrency limit matching the capacity of its
+ *     host and an exponentially weighted moving average of its latency.
+ *     A request goes to the instance with a free slot that is expected to
+ *     finish it first, that is the lowest average latency times the
+ *     requests it is already running. When every slot is taken the request
+ *     waits in a bounded queue and is sent as soon as a slot frees up.
+ *     A request that fails on one instance is retried on an instance it
+ *     has not tried yet, unless part of a streamed answer already reached
+ *     the caller; the failure counts as a long latency so traffic moves
+ *     away from an instance that is down. Cancelling the answer of a
+ *     request takes it out of the queue, or cancels its HTTP call when it
+ *     was already sent.
+ * </p>
+ *
+ * <p>
+ *     OLLAMA_URLS lists the instances separated by commas. An entry may end
+ *     in "|n" to give that instance a concurrency limit of n, otherwise
+ *     OLLAMA_MAX_CONCURRENCY applies.
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ * @editedby Nandhana Sunil
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.logging.CommonLogger;
+import com.swe.aiinsights.response.AiResponse;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Least expected latency routing over a set of Ollama instances.
+ */
+public final class OllamaPool implements StreamingLlmService {
+
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(OllamaPool.class);
+
+    /**
+     * Default number of concurrent requests per instance.
+     */
+    private static final int DEFAULT_MAX_CONCURRENCY = 2;
+
+    /**
+     * Default number of requests waiting for a free slot.
+     */
+    private static final int DEFAULT_QUEUE_LIMIT = 256;
+
+    /**
+     * Default weight of the newest latency in the moving average.
+     */
+    private static final double DEFAULT_EWMA_ALPHA = 0.3;
+
+    /**
+     * Latency recorded for a failed request.
+     */
+    private static final long FAILURE_PENALTY_MILLIS = 30_000;
+
+    /**
+     * Separates an instance from its concurrency limit in OLLAMA_URLS.
+     */
+    private static final String LIMIT_SEPARATOR = "|";
+
+    /**
+     * Instances of the pool.
+     */
+    private final List<Endpoint> endpoints;
+
+    /**
+     * Requests waiting for a free slot, oldest first.
+     */
+    private final ConcurrentLinkedDeque<Waiter> waiting = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Number of requests in the waiting queue.
+     */
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    /**
+     * Most requests that may wait for a free slot.
+     */
+    private final int queueLimit;
+
+    /**
+     * Weight of the newest latency in the moving average.
+     */
+    private final double alpha;
+
+    /**
+     * One Ollama instance of the pool.
+     */
+    public static final class Endpoint {
+        /**
+         * Name of the instance used in logs.
+         */
+        private final String name;
+
+        /**
+         * Service sending requests to the instance.
+         */
+        private final StreamingLlmService service;
+
+        /**
+         * Most requests the instance runs at once.
+         */
+        private final int maxConcurrency;
+
+        /**
+         * Requests the instance is running.
+         */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * Moving average of the latency in millis, 0 until the first request finished.
+         */
+        private double ewmaMillis;
+
+        /**
+         * Creates an instance.
+         *
+         * @param givenName name of the instance used in logs
+         * @param givenService service sending requests to the instance
+         * @param givenMaxConcurrency most requests the instance runs at once
+         */
+        public Endpoint(final String givenName, final StreamingLlmService givenService,
+                        final int givenMaxConcurrency) {
+            if (givenMaxConcurrency <= 0) {
+                throw new IllegalArgumentException("Concurrency limit must be positive");
+            }
+            this.name = givenName;
+            this.service = givenService;
+            this.maxConcurrency = givenMaxConcurrency;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Gets the moving average of the latency.
+         *
+         * @return latency in millis, 0 until the first request finished
+         */
+        public synchronized double getEwmaMillis() {
+            return ewmaMillis;
+        }
+
+        /**
+         * Takes a slot when one is free.
+         *
+         * @return true when a slot was taken
+         */
+        private boolean tryAcquire() {
+            int current = inFlight.get();
+            while (current < maxConcurrency) {
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                current = inFlight.get();
+            }
+            return false;
+        }
+
+        /**
+         * Gets the time in which the instance is expected to finish one more request.
+         *
+         * @return the expected time in millis
+         */
+        private double expectedMillis() {
+            return getEwmaMillis() * (inFlight.get() + 1);
+        }
+
+        /**
+         * Adds a latency to the moving average.
+         *
+         * @param latencyMillis latency of a finished request
+         * @param weight weight of the newest latency
+         */
+        private synchronized void recordLatency(final long latencyMillis, final double weight) {
+            if (ewmaMillis == 0) {
+                ewmaMillis = latencyMillis;
+            } else {
+                ewmaMillis = weight * latencyMillis + (1 - weight) * ewmaMillis;
+            }
+        }
+    }
+
+    /**
+     * A request waiting for a free slot.
+     *
+     * @param request the generalised request
+     * @param caller sends the request to one instance
+     * @param result completed with the answer of the instance
+     * @param tried instances the request already failed on
+     * @param delivered tells whether part of the answer already reached the caller
+     */
+    private record Waiter(RequestGeneraliser request,
+                          BiFunction<StreamingLlmService, RequestGeneraliser, CompletableFuture<AiResponse>> caller,
+                          CompletableFuture<AiResponse> result,
+                          Set<Endpoint> tried,
+                          BooleanSupplier delivered) {
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param givenEndpoints instances of the pool
+     * @param givenQueueLimit most requests that may wait for a free slot
+     * @param givenAlpha weight of the newest latency in the moving average
+     */
+    public OllamaPool(final List<Endpoint> givenEndpoints, final int givenQueueLimit,
+                      final double givenAlpha) {
+        if (givenEndpoints == null || givenEndpoints.isEmpty()) {
+            throw new IllegalArgumentException("Provide at least one Ollama instance");
+        }
+        this.endpoints = List.copyOf(givenEndpoints);
+        this.queueLimit = givenQueueLimit;
+        this.alpha = givenAlpha;
+        LOG.info("OllamaPool initialized with {} instances", endpoints.size());
+    }
+
+    /**
+     * Creates a pool over the instances listed in OLLAMA_URLS.
+     * OLLAMA_MAX_CONCURRENCY, OLLAMA_QUEUE_LIMIT and OLLAMA_EWMA_ALPHA
+     * override the defaults.
+     *
+     * @param transport shared connection pool and dispatcher
+     * @return the pool, or null when OLLAMA_URLS is not set
+     */
+    public static OllamaPool fromEnv(final HttpTransport transport) {
+        final String urls = EnvConfig.getString("OLLAMA_URLS", "");
+        if (urls.isBlank()) {
+            return null;
+        }
+        final int defaultLimit = EnvConfig.getInt("OLLAMA_MAX_CONCURRENCY", DEFAULT_MAX_CONCURRENCY);
+        final List<Endpoint> endpoints = new ArrayList<>();
+        for (final String entry : urls.split(",")) {
+            final String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String url = trimmed;
+            int limit = defaultLimit;
+            final int separator = trimmed.lastIndexOf(LIMIT_SEPARATOR);
+            if (separator > 0) {
+                url = trimmed.substring(0, separator).trim();
+                try {
+                    limit = Integer.parseInt(trimmed.substring(separator + 1).trim());
+                } catch (NumberFormatException e) {
+                    LOG.warn("Invalid concurrency limit in OLLAMA_URLS entry {}, using {}", trimmed, defaultLimit);
+                }
+            }
+            endpoints.add(new Endpoint(url, new OllamaService(transport, url), limit));
+        }
+        if (endpoints.isEmpty()) {
+            return null;
+        }
+        return new OllamaPool(endpoints,
+                EnvConfig.getInt("OLLAMA_QUEUE_LIMIT", DEFAULT_QUEUE_LIMIT),
+                EnvConfig.getDouble("OLLAMA_EWMA_ALPHA", DEFAULT_EWMA_ALPHA));
+    }
+
+    /**
+     * Gets the instances of the pool.
+     *
+     * @return the instances, in configuration order
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Blocks until the instance chosen for the request answered.
+     */
+    @Override
+    public AiResponse runProcess(final RequestGeneraliser aiRequest) throws IOException {
+        try {
+            return runProcessAsync(aiRequest).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for Ollama", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Ollama request failed", e.getCause());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser aiRequest) {
+        return submit(aiRequest, AsyncLlmService::runProcessAsync, () -> false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessStreaming(final RequestGeneraliser aiRequest,
+                                                             final Consumer<String> onChunk) {
+        final AtomicBoolean delivered = new AtomicBoolean();
+        return submit(aiRequest, (service, request) -> service.runProcessStreaming(request, chunk -> {
+            delivered.set(true);
+            onChunk.accept(chunk);
+        }), delivered::get);
+    }
+
+    /**
+     * Queues the request and sends it when an instance has a free slot.
+     *
+     * @param aiRequest the generalised request
+     * @param caller sends the request to one instance
+     * @param delivered tells whether part of the answer already reached the caller
+     * @return future completed with the answer of the instance
+     */
+    private CompletableFuture<AiResponse> submit(
+            final RequestGeneraliser aiRequest,
+            final BiFunction<StreamingLlmService, RequestGeneraliser, CompletableFuture<AiResponse>> caller,
+            final BooleanSupplier delivered) {
+        if (waitingCount.incrementAndGet() > queueLimit) {
+            waitingCount.decrementAndGet();
+            LOG.warn("All Ollama instances are saturated, rejecting request: {}", aiRequest.getReqType());
+            return CompletableFuture.failedFuture(new IOException("All Ollama instances are saturated"));
+        }
+        final CompletableFuture<AiResponse> result = new CompletableFuture<>();
+        waiting.addLast(new Waiter(aiRequest, caller, result, Set.of(), delivered));
+        result.whenComplete((response, error) -> {
+            // a request cancelled while it waits gives its place in the queue back
+            if (result.isCancelled() && waiting.removeIf(waiter -> waiter.result() == result)) {
+                waitingCount.decrementAndGet();
+            }
+        });
+        dispatch();
+        return result;
+    }
+
+    /**
+     * Sends waiting requests while instances have free slots.
+     * A request stays in the queue until it is sent, so a slot freed by a
+     * concurrent request is seen by the dispatch that request runs. A
+     * request that may not use any free instance does not hold back the
+     * requests behind it.
+     */
+    private void dispatch() {
+        boolean sent = true;
+        while (sent && hasFreeSlot()) {
+            sent = false;
+            for (final Waiter waiter : waiting) {
+                if (waiter.result().isDone()) {
+                    if (waiting.remove(waiter)) {
+                        waitingCount.decrementAndGet();
+                    }
+                    continue;
+                }
+                final Endpoint endpoint = acquireBest(waiter.tried());
+                if (endpoint == null) {
+                    continue;
+                }
+                if (!waiting.remove(waiter)) {
+                    // a concurrent dispatch sent it first
+                    endpoint.inFlight.decrementAndGet();
+                    sent = true;
+                    continue;
+                }
+                waitingCount.decrementAndGet();
+                send(endpoint, waiter);
+                sent = true;
+            }
+        }
+    }
+
+    /**
+     * Sends a request to an instance whose slot was already taken.
+     *
+     * @param endpoint the instance
+     * @param waiter the request
+     */
+    private void send(final Endpoint endpoint, final Waiter waiter) {
+        LOG.debug("Routing request {} to Ollama instance {}", waiter.request().getReqType(), endpoint.getName());
+        final long start = System.nanoTime();
+        CompletableFuture<AiResponse> attempt;
+        try {
+            attempt = waiter.caller().apply(endpoint.service, waiter.request());
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<AiResponse> call = attempt;
+        // cancelling the answer cancels the HTTP call and frees the slot
+        waiter.result().whenComplete((response, error) -> {
+            if (waiter.result().isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        attempt.whenComplete((response, error) -> {
+            final long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            endpoint.recordLatency(error == null ? latency : Math.max(latency, FAILURE_PENALTY_MILLIS), alpha);
+            endpoint.inFlight.decrementAndGet();
+            if (error == null) {
+                waiter.result().complete(response);
+            } else if (isRetryable(waiter, endpoint, error)) {
+                LOG.warn("Ollama instance {} failed, retrying on another instance", endpoint.getName());
+                final Set<Endpoint> tried = new HashSet<>(waiter.tried());
+                tried.add(endpoint);
+                waitingCount.incrementAndGet();
+                waiting.addFirst(new Waiter(waiter.request(), waiter.caller(), waiter.result(),
+                        Set.copyOf(tried), waiter.delivered()));
+            } else {
+                waiter.result().completeExceptionally(error);
+            }
+            dispatch();
+        });
+    }
+
+    /**
+     * Checks whether a failed request may be sent to another instance.
+     * A streamed answer is not retried once part of it reached the caller,
+     * a retry would repeat that part.
+     *
+     * @param waiter the request
+     * @param failed the instance it failed on
+     * @param error the failure
+     * @return true when the request is still wanted, the failure is an I/O failure
+     *     and an instance is left to try
+     */
+    private boolean isRetryable(final Waiter waiter, final Endpoint failed, final Throwable error) {
+        if (waiter.result().isDone() || !isIoFailure(error) || waiter.delivered().getAsBoolean()) {
+            return false;
+        }
+        for (final Endpoint endpoint : endpoints) {
+            if (endpoint != failed && !waiter.tried().contains(endpoint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes a slot on the instance expected to finish a new request first.
+     *
+     * @param excluded instances the request may not go to
+     * @return the instance, or null when every slot it may use is taken
+     */
+    private Endpoint acquireBest(final Set<Endpoint> excluded) {
+        while (true) {
+            Endpoint best = null;
+            double bestScore = Double.MAX_VALUE;
+            for (final Endpoint endpoint : endpoints) {
+                if (excluded.contains(endpoint) || endpoint.getInFlight() >= endpoint.getMaxConcurrency()) {
+                    continue;
+                }
+                final double score = endpoint.expectedMillis();
+                // before latencies are known the least loaded instance wins
+                if (score < bestScore
+                        || score == bestScore && endpoint.getInFlight() < best.getInFlight()) {
+                    best = endpoint;
+                    bestScore = score;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            if (best.tryAcquire()) {
+                return best;
+            }
+            // another request took the slot first, look again
+        }
+    }
+
+    /**
+     * Checks whether an error is an I/O failure of the instance.
+     *
+     * @param error error of a request, possibly wrapped by future chaining
+     * @return true for an IOException
+     */
+    private static boolean isIoFailure(final Throwable error) {
+        final Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        return cause instanceof IOException;
+    }
+
+    /**
+     * Checks whether any instance has a free slot.
+     *
+     * @return true when a slot is free
+     */
+    private boolean hasFreeSlot() {
+        for (final Endpoint endpoint : endpoints) {
+            if (endpoint.getInFlight() < endpoint.getMaxConcurrency()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
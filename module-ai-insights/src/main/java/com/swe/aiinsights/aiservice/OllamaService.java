@@ -26,8 +26,8 @@ package com.swe.aiinsights.aiservice;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.modeladapter.ModelAdapter;
 import com.swe.aiinsights.modeladapter.OllamaAdapter;
+import com.swe.aiinsights.modeladapter.StreamingModelAdapter;
 import io.github.cdimascio.dotenv.Dotenv;
-import okhttp3.MediaType;
 import okhttp3.Response;
 import okhttp3.Request;
 import okhttp3.OkHttpClient;
@@ -39,13 +39,14 @@ import org.slf4j.Logger;
 
 
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Ollama Service builds the request and calls the AI api.
  * Receives the AI response.
  */
-public class OllamaService implements LlmService {
+public class OllamaService implements StreamingLlmService {
 
     /**
      * Get the log file path.
@@ -53,33 +54,45 @@ public class OllamaService implements LlmService {
     private static final Logger LOG = CommonLogger.getLogger(OllamaService.class);
 
     /**
-     * Loads environment variables from the .env file.
+     * http client for the requests.
      */
-    private static Dotenv dotenv = Dotenv.load();
+    private final OkHttpClient httpClient;
     /**
-     * gets the OLLAMA_URL from the .env file.
+     * Endpoint of the Ollama instance served by this service,
+     * null for the OLLAMA_URL of the .env file.
      */
-    private static final String OLLAMA_URL = dotenv.get("OLLAMA_URL");
+    private final String ollamaUrl;
+
+
     /**
-     * Sets the Media type used for JSON requests.
+     * Creates the service using the transport shared by all LLM services.
      */
-    private static final MediaType JSON =
-            MediaType.get("application/json; charset=utf-8");
+    public OllamaService() {
+        this(HttpTransport.shared());
+    }
+
     /**
-     * http client for the requests.
+     * Creates the service using the given transport.
+     *
+     * @param transport shared connection pool and dispatcher
      */
-    private final OkHttpClient httpClient;
-
+    public OllamaService(final HttpTransport transport) {
+        this(transport, null);
+    }
 
-    public OllamaService() {
+    /**
+     * Creates the service for one Ollama instance using the given transport.
+     *
+     * @param transport shared connection pool and dispatcher
+     * @param url endpoint of the Ollama instance, null for the OLLAMA_URL of the .env file
+     */
+    public OllamaService(final HttpTransport transport, final String url) {
         final int timeout = 200;
 
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(timeout, TimeUnit.SECONDS)
-                .readTimeout(timeout, TimeUnit.SECONDS)
-                .writeTimeout(timeout, TimeUnit.SECONDS)
-                .build();
-        LOG.info("OllamaService initialized with timeout: {} seconds", timeout);
+        this.httpClient = transport.client(timeout, timeout, timeout);
+        this.ollamaUrl = url;
+        LOG.info("OllamaService initialized for {} with timeout: {} seconds",
+                url == null ? "OLLAMA_URL" : url, timeout);
     }
 
     /**
@@ -92,14 +105,11 @@ public class OllamaService implements LlmService {
         final AiResponse returnResponse = aiRequest.getAiResponse();
 
         final ModelAdapter adapter = new OllamaAdapter();
-        final String jsonRequestBody = adapter.buildRequest(aiRequest);
-
-        LOG.debug("RequestString recieved");
-
         // ---- Send request to Ollama ----
-        final RequestBody body = RequestBody.create(jsonRequestBody, JSON);
+        // the json is written to the connection while the request is sent
+        final RequestBody body = adapter.requestBody(aiRequest);
         final Request request = new Request.Builder()
-                .url(OLLAMA_URL)
+                .url(endpoint())
                 .post(body)
                 .build();
 
@@ -122,4 +132,97 @@ public class OllamaService implements LlmService {
             return returnResponse;
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser aiRequest) {
+        final ModelAdapter adapter = new OllamaAdapter();
+        final Request request = new Request.Builder()
+                .url(endpoint())
+                .post(adapter.requestBody(aiRequest))
+                .build();
+
+        final CompletableFuture<Response> call = HttpCallFuture.enqueue(httpClient.newCall(request));
+        return CancellableFutures.thenCompose(call, response -> {
+            try (response) {
+                LOG.debug("Response code: {}", response.code());
+                if (!response.isSuccessful()) {
+                    final String errorBody = response.body() == null ? "" : response.body().string();
+                    LOG.error("Ollama API failed - Code: {}, Error: {}", response.code(), errorBody);
+                    return CompletableFuture.failedFuture(new IOException(
+                            "Unexpected code " + response + " - " + errorBody));
+                }
+                final AiResponse returnResponse = aiRequest.getAiResponse();
+                returnResponse.setResponse(adapter.getResponse(response));
+                LOG.info("Ollama API completed successfully");
+                return CompletableFuture.completedFuture(returnResponse);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * Ollama is asked for an NDJSON stream, one token batch per line.
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessStreaming(final RequestGeneraliser aiRequest,
+                                                             final Consumer<String> onChunk) {
+        final StreamingModelAdapter adapter = new OllamaAdapter();
+        final Request request = new Request.Builder()
+                .url(endpoint())
+                .post(adapter.streamingRequestBody(aiRequest))
+                .build();
+
+        final CompletableFuture<Response> call = HttpCallFuture.enqueue(httpClient.newCall(request));
+        return CancellableFutures.thenCompose(call, response -> {
+            try (response) {
+                if (!response.isSuccessful()) {
+                    final String errorBody = response.body() == null ? "" : response.body().string();
+                    LOG.error("Ollama stream failed - Code: {}, Error: {}", response.code(), errorBody);
+                    return CompletableFuture.failedFuture(new IOException(
+                            "Unexpected code " + response + " - " + errorBody));
+                }
+                final AiResponse returnResponse = aiRequest.getAiResponse();
+                returnResponse.setResponse(StreamDrainer.drain(response, adapter, onChunk));
+                LOG.info("Ollama stream completed successfully");
+                return CompletableFuture.completedFuture(returnResponse);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * Gets the endpoint requests are sent to.
+     * The .env file is only read when the first request is sent.
+     *
+     * @return endpoint of the Ollama instance
+     */
+    private String endpoint() {
+        if (ollamaUrl != null) {
+            return ollamaUrl;
+        }
+        return DefaultUrl.OLLAMA_URL;
+    }
+
+    /**
+     * Endpoint read from the .env file on first use, so that creating the
+     * service does not touch the file system.
+     */
+    private static final class DefaultUrl {
+        /**
+         * gets the OLLAMA_URL from the .env file.
+         */
+        private static final String OLLAMA_URL = Dotenv.load().get("OLLAMA_URL");
+
+        /**
+         * Holder class.
+         */
+        private DefaultUrl() {
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: StreamDrainer.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import com.swe.aiinsights.logging.CommonLogger;
+import com.swe.aiinsights.modeladapter.StreamingModelAdapter;
+import okhttp3.Response;
+import okio.BufferedSource;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Reads a line based streamed response and hands every partial text to a consumer.
+ */
+final class StreamDrainer {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(StreamDrainer.class);
+
+    private StreamDrainer() { }
+
+    /**
+     * Reads the response body line by line until it ends.
+     *
+     * @param response the streamed HTTP response
+     * @param adapter adapter that understands one line of the stream
+     * @param onChunk receives the partial texts in order
+     * @return the full text of the response
+     * @throws IOException if reading fails or the stream reports an error
+     */
+    static String drain(final Response response, final StreamingModelAdapter adapter,
+                        final Consumer<String> onChunk) throws IOException {
+        if (response.body() == null) {
+            throw new IOException("Streamed response has no body");
+        }
+        final StringBuilder fullText = new StringBuilder();
+        final BufferedSource source = response.body().source();
+        String line = source.readUtf8Line();
+        while (line != null) {
+            if (!line.isEmpty()) {
+                final String chunk = adapter.parseStreamLine(line);
+                if (chunk != null && !chunk.isEmpty()) {
+                    fullText.append(chunk);
+                    deliver(onChunk, chunk);
+                }
+            }
+            line = source.readUtf8Line();
+        }
+        return fullText.toString();
+    }
+
+    /**
+     * Passes a chunk to the consumer. A failing consumer does not stop the stream.
+     *
+     * @param onChunk the consumer
+     * @param chunk partial text
+     */
+    private static void deliver(final Consumer<String> onChunk, final String chunk) {
+        try {
+            onChunk.accept(chunk);
+        } catch (RuntimeException e) {
+            LOG.warn("Chunk consumer failed: {}", e.getMessage());
+        }
+    }
+}
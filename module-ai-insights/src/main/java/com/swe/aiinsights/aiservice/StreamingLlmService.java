@@ -0,0 +1,38 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: StreamingLlmService.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.aiservice
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Interface for AI services that hand out partial output while the model is generating.
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.aiservice;
+
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.response.AiResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * LLM service that can stream the model output.
+ */
+public interface StreamingLlmService extends AsyncLlmService {
+    /**
+     * Sends the request and passes every partial text to the consumer as it arrives.
+     * The returned future is completed with the full text once the stream ends.
+     *
+     * @param request holds the request of the user
+     * @param onChunk receives the partial texts in order
+     * @return future completed with the full response from AI
+     */
+    CompletableFuture<AiResponse> runProcessStreaming(RequestGeneraliser request,
+                                                      Consumer<String> onChunk);
+}
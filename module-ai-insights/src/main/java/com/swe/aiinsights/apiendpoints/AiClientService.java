@@ -18,11 +18,38 @@ package com.swe.aiinsights.apiendpoints;
 
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.swe.aiinsights.cache.CacheMetrics;
+import com.swe.aiinsights.cache.PerceptualHash;
+import com.swe.aiinsights.cache.SnapshotIndex;
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.data.ImagePreprocessor;
+import com.swe.aiinsights.data.TileDiff;
 import com.swe.aiinsights.data.WhiteBoardData;
+import com.swe.aiinsights.parser.RegulariserParser;
+import com.swe.aiinsights.regulariser.GeometricRegulariser;
 import com.swe.aiinsights.request.AiRequestable;
+import com.swe.aiinsights.retrieval.Bm25Index;
 import com.swe.aiinsights.request.RequestFactory;
-
+import com.swe.aiinsights.sentiment.LexiconSentiment;
+import com.swe.aiinsights.sentiment.SentimentEngine;
+import com.swe.aiinsights.sentiment.SentimentTimeline;
+import com.swe.aiinsights.session.BoardState;
+import com.swe.aiinsights.session.MeetingSession;
+import com.swe.aiinsights.session.MeetingSessionStore;
+import com.swe.aiinsights.summariser.IncrementalSummariser;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import com.swe.aiinsights.logging.CommonLogger;
 import org.slf4j.Logger;
 
@@ -34,6 +61,8 @@ import java.io.IOException;
 /**
  * AI client service.
  * contains the api endpoints for all the services offered by the AI module.
+ * Summary and Q&A state is kept per meeting, calls without a meeting id
+ * use a default meeting.
  */
 
 public class AiClientService {
@@ -43,6 +72,71 @@ public class AiClientService {
     private static final Logger LOG = CommonLogger.getLogger(AiClientService.class);
 
 
+    /**
+     * Default number of shapes sent to the AI in one batch.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 25;
+
+    /**
+     * Default largest amount of chat text summarised in one request.
+     */
+    private static final int DEFAULT_SUMMARY_WINDOW_CHARS = 8000;
+
+    /**
+     * Default number of window summaries kept before they are rolled up.
+     */
+    private static final int DEFAULT_WINDOWS_PER_ROLLUP = 4;
+
+    /**
+     * Default idle time in minutes after which a meeting session is dropped.
+     */
+    private static final long DEFAULT_IDLE_MINUTES = 120;
+
+    /**
+     * Default number of chat passages given as context to a question.
+     */
+    private static final int DEFAULT_QA_TOP_K = 8;
+
+    /**
+     * Default size budget of the context of a question.
+     */
+    private static final int DEFAULT_QA_CONTEXT_CHARS = 4000;
+
+    /**
+     * Default number of chat passages indexed per meeting.
+     */
+    private static final int DEFAULT_QA_MAX_PASSAGES = 20_000;
+
+    /**
+     * Default side of a tile compared between two board snapshots, in pixels.
+     */
+    private static final int DEFAULT_BOARD_TILE_SIZE = 64;
+
+    /**
+     * Default number of changed regions sent separately.
+     */
+    private static final int DEFAULT_BOARD_MAX_REGIONS = 4;
+
+    /**
+     * Default share of the board above which a change is described from scratch.
+     */
+    private static final double DEFAULT_BOARD_MAX_CHANGED_SHARE = 0.5;
+
+    /**
+     * Default number of messages from which AUTO scores sentiment locally.
+     */
+    private static final int DEFAULT_SENTIMENT_LOCAL_MIN_MESSAGES = 200;
+
+    /**
+     * Meeting used by the calls that do not name one.
+     */
+    private static final String DEFAULT_MEETING = "default";
+
+    /**
+     * Mapper used to reduce shapes before batching.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * Executor used to run async AI calls.
      */
@@ -52,23 +146,71 @@ public class AiClientService {
      */
     private final RequestFactory factory = new RequestFactory();
     /**
-     * Accumulates all summaries.
+     * Answers clear strokes without calling the LLM.
      */
-    private String accumulatedSummary = "";
-
+    private final GeometricRegulariser geometricRegulariser = new GeometricRegulariser();
     /**
-     * Tracks last update to accumulated summary.
-     * Ensures summaries are processed sequentially.
+     * Whether clear strokes are regularised locally, set by AI_REGULARISE_LOCAL.
      */
-    private CompletableFuture<Void> lastSummaryUpdate =
-            CompletableFuture.completedFuture(null);
-
+    private final boolean localRegularisation = EnvConfig.getBoolean("AI_REGULARISE_LOCAL", true);
+    /**
+     * Most shapes sent to the AI in one batch, set by AI_REGULARISE_BATCH_SIZE.
+     */
+    private final int batchSize = Math.max(1, EnvConfig.getInt("AI_REGULARISE_BATCH_SIZE", DEFAULT_BATCH_SIZE));
+    /**
+     * Most chat passages given as context to a question, set by AI_QA_TOP_K.
+     */
+    private final int qaTopK = EnvConfig.getInt("AI_QA_TOP_K", DEFAULT_QA_TOP_K);
+    /**
+     * Size budget of the context of a question, set by AI_QA_MAX_CONTEXT_CHARS.
+     */
+    private final int qaMaxContextChars = EnvConfig.getInt("AI_QA_MAX_CONTEXT_CHARS", DEFAULT_QA_CONTEXT_CHARS);
+    /**
+     * Whether images are read from their file while the request is sent, set by AI_STREAM_IMAGES.
+     */
+    private final boolean streamImages = EnvConfig.getBoolean("AI_STREAM_IMAGES", true);
+    /**
+     * Downscales and re-encodes images before they are described, set by AI_IMAGE_*.
+     */
+    private final ImagePreprocessor imagePreprocessor = ImagePreprocessor.fromEnv();
+    /**
+     * Hit and miss counters of the snapshot indexes of all meetings.
+     */
+    private final CacheMetrics snapshotMetrics = new CacheMetrics();
+    /**
+     * Side of a tile compared between two board snapshots, set by AI_BOARD_TILE_SIZE.
+     */
+    private final int boardTileSize = Math.max(1, EnvConfig.getInt("AI_BOARD_TILE_SIZE", DEFAULT_BOARD_TILE_SIZE));
+    /**
+     * Most changed regions sent separately, more are merged, set by AI_BOARD_MAX_REGIONS.
+     */
+    private final int boardMaxRegions =
+            Math.max(1, EnvConfig.getInt("AI_BOARD_MAX_REGIONS", DEFAULT_BOARD_MAX_REGIONS));
+    /**
+     * Share of the board above which a change is described from scratch, set by AI_BOARD_MAX_CHANGED_SHARE.
+     */
+    private final double boardMaxChangedShare =
+            EnvConfig.getDouble("AI_BOARD_MAX_CHANGED_SHARE", DEFAULT_BOARD_MAX_CHANGED_SHARE);
+    /**
+     * Scores chat sentiment without calling the LLM.
+     */
+    private final LexiconSentiment lexiconSentiment = new LexiconSentiment();
+    /**
+     * Engine used when a sentiment call does not choose one, set by AI_SENTIMENT_ENGINE.
+     */
+    private final SentimentEngine defaultSentimentEngine =
+            SentimentEngine.fromString(EnvConfig.getString("AI_SENTIMENT_ENGINE", "AUTO"));
     /**
-     * Tracks last Q&A operation.
-     * Ensures questions run sequentially.
+     * Number of messages from which AUTO scores sentiment locally, set by AI_SENTIMENT_LOCAL_MIN_MESSAGES.
      */
-    private CompletableFuture<Void> lastQaUpdate =
-            CompletableFuture.completedFuture(null);
+    private final int sentimentLocalMinMessages =
+            EnvConfig.getInt("AI_SENTIMENT_LOCAL_MIN_MESSAGES", DEFAULT_SENTIMENT_LOCAL_MIN_MESSAGES);
+    /**
+     * Summary and Q&A state of every meeting served by this node.
+     */
+    private final MeetingSessionStore sessions = new MeetingSessionStore(
+            this::newSession,
+            TimeUnit.MINUTES.toMillis(EnvConfig.getLong("AI_SESSION_IDLE_MINUTES", DEFAULT_IDLE_MINUTES)));
 
 
     /**
@@ -79,25 +221,191 @@ public class AiClientService {
      */
     public CompletableFuture<String> describe(final String file) {
         LOG.info("Received image describe request for file: {}", file);
+        return describeImage(null, file, null);
+    }
+
+    /**
+     * Interprets an uploaded image and streams the description while it is generated.
+     *
+     * @param file uploaded image file (from client)
+     * @param onChunk receives the partial description in order
+     * @return full textual description of the image
+     */
+    public CompletableFuture<String> describe(final String file, final Consumer<String> onChunk) {
+        LOG.info("Received streaming image describe request for file: {}", file);
+        return describeImage(null, file, onChunk);
+    }
+
+    /**
+     * Interprets a snapshot of a meeting, reusing the description of a
+     * near-identical snapshot of the same meeting when there is one.
+     *
+     * @param meetingId identifier of the meeting
+     * @param file uploaded image file (from client)
+     * @return textual description of the image
+     */
+    public CompletableFuture<String> describeSnapshot(final String meetingId, final String file) {
+        LOG.info("Received snapshot describe request for meeting {} with file: {}", meetingId, file);
+        return describeImage(sessions.get(meetingId).getSnapshots(), file, null);
+    }
 
+    /**
+     * Interprets a snapshot of a meeting and streams the description while it is generated,
+     * reusing the description of a near-identical snapshot of the same meeting when there is one.
+     *
+     * @param meetingId identifier of the meeting
+     * @param file uploaded image file (from client)
+     * @param onChunk receives the partial description in order
+     * @return full textual description of the image
+     */
+    public CompletableFuture<String> describeSnapshot(final String meetingId, final String file,
+                                                      final Consumer<String> onChunk) {
+        LOG.info("Received streaming snapshot describe request for meeting {} with file: {}", meetingId, file);
+        return describeImage(sessions.get(meetingId).getSnapshots(), file, onChunk);
+    }
+
+    /**
+     * Interprets an image, looking it up in a snapshot index first.
+     *
+     * @param snapshots snapshot index of the meeting, or null for no lookup
+     * @param file uploaded image file (from client)
+     * @param onChunk receives the partial description in order, or null for no streaming
+     * @return full textual description of the image
+     */
+    private CompletableFuture<String> describeImage(final SnapshotIndex snapshots, final String file,
+                                                    final Consumer<String> onChunk) {
         try {
             // Pass file path to your existing data class
-            final WhiteBoardData data = new WhiteBoardData(file);
+            final WhiteBoardData data = imagePreprocessor.prepare(new WhiteBoardData(file, streamImages));
             LOG.debug("Created WhiteBoardData for file {}", file);
 
+            final PerceptualHash.Fingerprint fingerprint = snapshots == null ? null : fingerprint(data);
+            final String known = fingerprint == null
+                    ? null
+                    : snapshots.find(fingerprint.perceptual(), fingerprint.exact());
+            if (known != null) {
+                LOG.info("Reusing the description of a near-identical snapshot for file: {}", file);
+                if (onChunk != null) {
+                    onChunk.accept(known);
+                }
+                return CompletableFuture.completedFuture(known);
+            }
+
             final AiRequestable interpreterRequest = factory.getRequest("DESC", data);
             LOG.debug("Built AI request for image interpretation (DESC)");
 
             LOG.info("Submitting image interpretation request to AI executor");
-            return ASYNC_AI_EXECUTOR.execute(interpreterRequest);
+            return rememberSnapshot(snapshots, fingerprint, dispatch(interpreterRequest, onChunk));
         } catch (IOException e) {
             LOG.error("Failed to execute image describe() for file: {}", file, e);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Describes the whiteboard of a meeting from its latest snapshot.
+     * Only the tiles that changed since the previous snapshot of the same
+     * meeting are sent, together with the description so far, and the
+     * model returns the updated description of the whole board. The first
+     * snapshot, and changes covering most of the board, are described in full.
+     *
+     * @param meetingId identifier of the meeting
+     * @param file latest snapshot of the board
+     * @return description of the whole board
+     */
+    public CompletableFuture<String> describeBoard(final String meetingId, final String file) {
+        LOG.info("Received board describe request for meeting {} with file: {}", meetingId, file);
+        return sessions.get(meetingId).getBoard().update(previous -> describeChange(file, previous));
+    }
+
+    /**
+     * Describes a new snapshot of a board.
+     *
+     * @param file the new snapshot
+     * @param previous the last described snapshot
+     * @return the new snapshot with the description of the whole board
+     */
+    private CompletableFuture<BoardState.Snapshot> describeChange(final String file,
+                                                                  final BoardState.Snapshot previous) {
+        try {
+            final WhiteBoardData data = imagePreprocessor.prepare(new WhiteBoardData(file, streamImages));
+            final BufferedImage current;
+            try (InputStream in = data.openImage()) {
+                current = ImageIO.read(in);
+            }
+            if (current == null || previous.image() == null) {
+                return describeWhole(data, current);
+            }
+            final List<Rectangle> regions =
+                    TileDiff.changedRegions(previous.image(), current, boardTileSize, boardMaxRegions);
+            if (regions.isEmpty()) {
+                LOG.info("Board unchanged, keeping its description");
+                return CompletableFuture.completedFuture(new BoardState.Snapshot(current, previous.description()));
+            }
+            final double share = TileDiff.coverage(regions, current.getWidth(), current.getHeight());
+            if (share > boardMaxChangedShare) {
+                LOG.info("{} of the board changed, describing it in full", share);
+                return describeWhole(data, current);
+            }
+
+            final ByteArrayOutputStream packed = new ByteArrayOutputStream();
+            ImageIO.write(TileDiff.pack(current, regions), "png", packed);
+            final AiRequestable changeRequest = factory.getRequest("DESC",
+                    new WhiteBoardData(packed.toByteArray(), "image/png"),
+                    changePrompt(previous.description(), regions, current.getWidth(), current.getHeight()));
+            LOG.info("Submitting {} changed board regions ({} bytes) to AI executor", regions.size(), packed.size());
+            return ASYNC_AI_EXECUTOR.execute(changeRequest)
+                    .thenApply(description -> new BoardState.Snapshot(current, description));
+        } catch (IOException e) {
+            LOG.error("Failed to describe board snapshot: {}", file, e);
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
+    }
+
+    /**
+     * Describes a whole snapshot.
+     *
+     * @param data the snapshot
+     * @param image the decoded snapshot, null when it cannot be decoded
+     * @return the snapshot with its description
+     * @throws IOException if the request cannot be built
+     */
+    private CompletableFuture<BoardState.Snapshot> describeWhole(final WhiteBoardData data,
+                                                                 final BufferedImage image) throws IOException {
+        return ASYNC_AI_EXECUTOR.execute(factory.getRequest("DESC", data))
+                .thenApply(description -> new BoardState.Snapshot(image, description));
+    }
+
+    /**
+     * Builds the prompt asking to merge changed regions into a board description.
+     *
+     * @param description description of the board so far
+     * @param regions changed regions, in the order they are packed
+     * @param width width of the board
+     * @param height height of the board
+     * @return the prompt
+     */
+    private static String changePrompt(final String description, final List<Rectangle> regions,
+                                       final int width, final int height) {
+        final StringBuilder prompt = new StringBuilder()
+                .append("This is the current description of a whiteboard of ")
+                .append(width).append('x').append(height).append(" pixels:\n")
+                .append(description)
+                .append("\n\nThe image shows only the parts of the board that changed, placed left to right:\n");
+        for (int i = 0; i < regions.size(); i++) {
+            final Rectangle region = regions.get(i);
+            prompt.append(i + 1).append(". ").append(region.width).append('x').append(region.height)
+                    .append(" pixels at x=").append(region.x).append(", y=").append(region.y).append('\n');
+        }
+        return prompt.append("Everything outside these parts is unchanged. ")
+                .append("Reply with the updated description of the whole board only.")
+                .toString();
+    }
+
     /**
      * Regularises a set of input points to produce a smoother output.
+     * Strokes that are clearly a line, rectangle, triangle or ellipse are
+     * answered locally, the others are sent to the LLM.
      *
      * @param points JSON string containing the points data
      * @return regularised point data as a response
@@ -105,6 +413,123 @@ public class AiClientService {
     public  CompletableFuture<String> regularise(final String points) {
         LOG.info("Received regularisation request");
 
+        if (localRegularisation) {
+            final String local = geometricRegulariser.regularise(points);
+            if (local != null) {
+                return CompletableFuture.completedFuture(local);
+            }
+        }
+        return regulariseWithAi(points);
+    }
+
+    /**
+     * Regularises many shapes, sending all strokes that cannot be answered
+     * locally to the AI in batches of AI_REGULARISE_BATCH_SIZE.
+     * Shapes missing from the batch answer or malformed in it are retried
+     * on their own.
+     *
+     * @param shapes JSON strings of the shapes, each with its ShapeId and Points
+     * @return one future per shape, in the order of the input
+     */
+    public List<CompletableFuture<String>> regulariseBatch(final List<String> shapes) {
+        LOG.info("Received batch regularisation request for {} shapes", shapes.size());
+
+        final List<CompletableFuture<String>> results = new ArrayList<>(shapes.size());
+        final List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < shapes.size(); i++) {
+            final String local = localRegularisation
+                    ? geometricRegulariser.regularise(shapes.get(i)) : null;
+            if (local != null) {
+                results.add(CompletableFuture.completedFuture(local));
+            } else {
+                results.add(null);
+                pending.add(i);
+            }
+        }
+        LOG.info("{} of {} shapes regularised locally", shapes.size() - pending.size(), shapes.size());
+
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            final List<Integer> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            if (chunk.size() == 1) {
+                results.set(chunk.get(0), regulariseWithAi(shapes.get(chunk.get(0))));
+                continue;
+            }
+            final List<String> inputs = new ArrayList<>(chunk.size());
+            for (final int index : chunk) {
+                inputs.add(shapes.get(index));
+            }
+            final List<CompletableFuture<String>> outputs = sendBatch(inputs);
+            for (int k = 0; k < chunk.size(); k++) {
+                results.set(chunk.get(k), outputs.get(k));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Sends one batch of shapes to the AI and splits the answer per shape.
+     *
+     * @param inputs JSON strings of the shapes
+     * @return one future per shape
+     */
+    private List<CompletableFuture<String>> sendBatch(final List<String> inputs) {
+        CompletableFuture<List<String>> parsed;
+        try {
+            final List<String> compact = new ArrayList<>(inputs.size());
+            for (final String input : inputs) {
+                compact.add(compactShape(input));
+            }
+            final AiRequestable batchRequest = factory.getRequest("REGBATCH", compact);
+            LOG.info("Submitting batch regularisation request for {} shapes", inputs.size());
+            parsed = ASYNC_AI_EXECUTOR.execute(batchRequest)
+                    .thenApply(response -> new RegulariserParser().parseBatch(inputs, response));
+        } catch (Exception e) {
+            LOG.error("Batch regularisation failed, regularising shapes one by one", e);
+            parsed = CompletableFuture.failedFuture(e);
+        }
+
+        final List<CompletableFuture<String>> outputs = new ArrayList<>(inputs.size());
+        for (int k = 0; k < inputs.size(); k++) {
+            final int position = k;
+            final String input = inputs.get(k);
+            outputs.add(parsed
+                    .handle((list, error) -> error == null ? list.get(position) : null)
+                    .thenCompose(output -> output != null
+                            ? CompletableFuture.completedFuture(output)
+                            : regulariseWithAi(input)));
+        }
+        return outputs;
+    }
+
+    /**
+     * Keeps only the ShapeId and Points of a shape, the metadata is restored
+     * from the original input when the answer is parsed.
+     *
+     * @param shape JSON string of the shape
+     * @return the reduced shape, or the shape itself if it is not valid JSON
+     */
+    private static String compactShape(final String shape) {
+        try {
+            final JsonNode node = MAPPER.readTree(shape);
+            if (node == null || !node.isObject()) {
+                return shape;
+            }
+            final ObjectNode compact = MAPPER.createObjectNode();
+            compact.set("ShapeId", node.get("ShapeId"));
+            compact.set("Points", node.get("Points"));
+            return compact.toString();
+        } catch (IOException e) {
+            return shape;
+        }
+    }
+
+    /**
+     * Sends a single shape to the AI for regularisation.
+     *
+     * @param points JSON string containing the points data
+     * @return regularised point data as a response
+     */
+    private CompletableFuture<String> regulariseWithAi(final String points) {
         try {
             LOG.debug("Regularisation payload: received");
 
@@ -128,7 +553,30 @@ public class AiClientService {
      */
     public  CompletableFuture<String> sentiment(
             final JsonNode chatData) {
-        LOG.info("Received sentiment analysis request");
+        return sentiment(chatData, defaultSentimentEngine);
+    }
+
+    /**
+     * API for sentiment analysis with a chosen engine.
+     * The lexicon engine answers on the calling thread in the same
+     * [{time, sentiment}] format as the LLM.
+     *
+     * @param chatData JSON object containing the chat data
+     * @param engine LOCAL, LLM, or AUTO for the local engine on large chats
+     * @return a list float values to plot in the sentiment graph.
+     */
+    public CompletableFuture<String> sentiment(final JsonNode chatData, final SentimentEngine engine) {
+        LOG.info("Received sentiment analysis request ({})", engine);
+
+        final int messages = chatData == null ? 0 : chatData.path("messages").size();
+        if (engine == SentimentEngine.LOCAL
+                || engine == SentimentEngine.AUTO && messages >= sentimentLocalMinMessages) {
+            final long start = System.nanoTime();
+            final String scores = lexiconSentiment.analyse(chatData);
+            LOG.info("Scored {} messages locally in {} us", messages,
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return CompletableFuture.completedFuture(scores);
+        }
 
         try {
             LOG.debug("Chat data received for sentiment analysis");
@@ -147,6 +595,39 @@ public class AiClientService {
     }
 
 
+    /**
+     * Refreshes the sentiment graph of a meeting.
+     * Only messages not scored by an earlier call for the same meeting are
+     * sent to be scored, the result holds every message scored so far.
+     *
+     * @param meetingId identifier of the meeting
+     * @param chatData JSON object containing the chat of the meeting so far
+     * @return sentiment of every scored message, in time order
+     */
+    public CompletableFuture<String> sentiment(final String meetingId, final JsonNode chatData) {
+        return sentiment(meetingId, chatData, defaultSentimentEngine);
+    }
+
+    /**
+     * Refreshes the sentiment graph of a meeting with a chosen engine.
+     * AUTO picks an engine on the first refresh of the meeting, from the size
+     * of its chat, and keeps it, so one graph is never scored by two engines.
+     *
+     * @param meetingId identifier of the meeting
+     * @param chatData JSON object containing the chat of the meeting so far
+     * @param engine LOCAL, LLM, or AUTO for the local engine on large chats
+     * @return sentiment of every scored message, in time order
+     */
+    public CompletableFuture<String> sentiment(final String meetingId, final JsonNode chatData,
+                                               final SentimentEngine engine) {
+        LOG.info("Received sentiment refresh for meeting {}", meetingId);
+        final SentimentTimeline timeline = sessions.get(meetingId).getSentimentTimeline();
+        final SentimentEngine chosen = engine != SentimentEngine.AUTO ? engine : timeline.resolveAuto(() ->
+                chatData.path("messages").size() >= sentimentLocalMinMessages
+                        ? SentimentEngine.LOCAL : SentimentEngine.LLM);
+        return timeline.refresh(chatData, newMessages -> sentiment(newMessages, chosen));
+    }
+
     /**
      * Summarises chat content asynchronously.
      *
@@ -155,44 +636,42 @@ public class AiClientService {
      */
     public CompletableFuture<String> summariseText(
             final String jsonContent) {
-        LOG.info("Received request: summariseText()");
+        return summariseText(jsonContent, null);
+    }
 
-        try {
+    /**
+     * Summarises chat content asynchronously and streams the summary of the
+     * new chat while it is generated.
+     *
+     * @param jsonContent chat json
+     * @param onChunk receives the partial summary in order, may be null
+     * @return updated accumulated summary
+     */
+    public CompletableFuture<String> summariseText(
+            final String jsonContent, final Consumer<String> onChunk) {
+        return summariseText(DEFAULT_MEETING, jsonContent, onChunk);
+    }
 
-            lastSummaryUpdate =
-                    lastSummaryUpdate.thenCompose(v -> {
-                        LOG.info("Preparing content for summarisation");
-
-                        // Prepare content for summarization
-                        final String contentToSummarise;
-
-                        if (accumulatedSummary == null || accumulatedSummary.isEmpty()) {
-                            contentToSummarise = jsonContent;
-                        } else {
-                            contentToSummarise = "Previous Summary: " + accumulatedSummary
-                                    + "\n\nNew Chat Data: " + jsonContent;
-                        }
-                        AiRequestable requestSummarise = null;
-                        try {
-                            requestSummarise = factory.getRequest(
-                                    "SUM", contentToSummarise);
-                        } catch (IOException e) {
-                            LOG.error("Failed to build summarisation request", e);
-                            throw new RuntimeException(e);
-                        }
-                        LOG.info("Dispatching summarisation request");
-                        final CompletableFuture<String> future =
-                                ASYNC_AI_EXECUTOR.execute(requestSummarise);
-
-                        return future.thenApply(response -> {
-                            LOG.info("Summary updated successfully");
-                            accumulatedSummary = response;
-                            return null;
-                        });
-                    });
+    /**
+     * Summarises chat content of a meeting asynchronously.
+     * Chunks arriving while a summary of the same meeting is in flight are
+     * summarised together in the next round; meetings never wait for each other.
+     *
+     * @param meetingId identifier of the meeting
+     * @param jsonContent chat json
+     * @param onChunk receives the partial summary in order, may be null
+     * @return updated summary of the meeting
+     */
+    public CompletableFuture<String> summariseText(final String meetingId,
+            final String jsonContent, final Consumer<String> onChunk) {
+        LOG.info("Received request: summariseText() for meeting {}", meetingId);
 
-            return lastSummaryUpdate.thenApply(v ->
-                    accumulatedSummary);
+        try {
+            return sessions.get(meetingId).summarise(jsonContent, onChunk)
+                    .thenApply(updated -> {
+                        LOG.info("Summary of meeting {} updated successfully", meetingId);
+                        return updated;
+                    });
 
         } catch (Exception e) {
             LOG.error("Unexpected error in summariseText()", e);
@@ -200,59 +679,138 @@ public class AiClientService {
         }
     }
 
+    /**
+     * Creates the state of a new meeting.
+     *
+     * @param meetingId identifier of the meeting
+     * @return the new session
+     */
+    private MeetingSession newSession(final String meetingId) {
+        LOG.info("Starting session for meeting {}", meetingId);
+        return new MeetingSession(meetingId,
+                new IncrementalSummariser(
+                        this::requestSummary,
+                        EnvConfig.getInt("AI_SUMMARY_MAX_WINDOW_CHARS", DEFAULT_SUMMARY_WINDOW_CHARS),
+                        EnvConfig.getInt("AI_SUMMARY_WINDOWS_PER_ROLLUP", DEFAULT_WINDOWS_PER_ROLLUP)),
+                new Bm25Index(EnvConfig.getInt("AI_QA_MAX_PASSAGES", DEFAULT_QA_MAX_PASSAGES)),
+                SnapshotIndex.fromEnv(snapshotMetrics));
+    }
+
+    /**
+     * Sends one summarisation request.
+     *
+     * @param contentToSummarise chat data, optionally preceded by a previous summary
+     * @param onChunk receives the partial summary in order, may be null
+     * @return the summary
+     */
+    private CompletableFuture<String> requestSummary(final String contentToSummarise,
+                                                     final Consumer<String> onChunk) {
+        final AiRequestable requestSummarise;
+        try {
+            requestSummarise = factory.getRequest("SUM", contentToSummarise);
+        } catch (IOException e) {
+            LOG.error("Failed to build summarisation request", e);
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
+        LOG.info("Dispatching summarisation request");
+        return dispatch(requestSummarise, onChunk);
+    }
+
     /**
      * Clears accumulated summaries.
      *
      * @return success message
      */
     public CompletableFuture<String> clearSummary() {
-        LOG.info("Clearing accumulated summary");
-        accumulatedSummary = "";
+        return clearSummary(DEFAULT_MEETING);
+    }
+
+    /**
+     * Clears the summary of a meeting.
+     *
+     * @param meetingId identifier of the meeting
+     * @return success message
+     */
+    public CompletableFuture<String> clearSummary(final String meetingId) {
+        LOG.info("Clearing summary of meeting {}", meetingId);
+        sessions.get(meetingId).clear();
         return CompletableFuture.completedFuture(
                 "Summary cleared successfully"
         );
     }
 
+    /**
+     * Drops all state of a meeting that has ended.
+     *
+     * @param meetingId identifier of the meeting
+     */
+    public void endMeeting(final String meetingId) {
+        LOG.info("Ending session of meeting {}", meetingId);
+        sessions.remove(meetingId);
+    }
 
+    /**
+     * Returns the number of meetings with state on this node.
+     *
+     * @return number of meeting sessions
+     */
+    public int getActiveMeetingCount() {
+        return sessions.size();
+    }
 
     /**
-     * Answers a question using accumulated summary.
+     * Answers a question about the default meeting.
      *
      * @param question user question
      * @return AI response
      */
     public CompletableFuture<String> answerQuestion(
             final String question) {
-        LOG.info("Received request: answerQuestion()");
+        return answerQuestion(question, null);
+    }
+
+    /**
+     * Answers a question about the default meeting and streams the answer
+     * while it is generated.
+     *
+     * @param question user question
+     * @param onChunk receives the partial answer in order, may be null
+     * @return AI response
+     */
+    public CompletableFuture<String> answerQuestion(
+            final String question, final Consumer<String> onChunk) {
+        return answerQuestion(DEFAULT_MEETING, question, onChunk);
+    }
+
+    /**
+     * Answers a question about a meeting from its summary so far and the
+     * chat passages most relevant to the question.
+     * Does not wait for summaries in flight; chat is searchable as soon as
+     * it was submitted for summarisation.
+     *
+     * @param meetingId identifier of the meeting
+     * @param question user question
+     * @param onChunk receives the partial answer in order, may be null
+     * @return AI response
+     */
+    public CompletableFuture<String> answerQuestion(final String meetingId,
+            final String question, final Consumer<String> onChunk) {
+        LOG.info("Received request: answerQuestion() for meeting {}", meetingId);
         LOG.info("Question received: {}", question);
 
         try {
-
-            final CompletableFuture<String> qaFuture =
-                    lastSummaryUpdate.thenCompose(v ->
-                            lastQaUpdate.thenCompose(v2 -> {
-                                AiRequestable req = null;
-                                try {
-                                    final String accSum;
-                                    if (accumulatedSummary != null) {
-                                        accSum = accumulatedSummary;
-                                    } else {
-                                        accSum = null;
-                                    }
-                                    req = factory.getRequest("QNA",
-                                            question, accumulatedSummary);
-                                } catch (IOException e) {
-                                    LOG.error("Failed to build Q&A request", e);
-                                    throw new RuntimeException(e);
-                                }
-
-                                LOG.info("Dispatching Q&A request to executor");
-                                return ASYNC_AI_EXECUTOR.execute(
-                                        req);
-                            })
-                    );
-
-            return qaFuture;
+            final String context = sessions.get(meetingId)
+                    .questionContext(question, qaTopK, qaMaxContextChars);
+            final AiRequestable req;
+            try {
+                req = factory.getRequest("QNA", question, context);
+            } catch (IOException e) {
+                LOG.error("Failed to build Q&A request", e);
+                return CompletableFuture.failedFuture(new RuntimeException(e));
+            }
+
+            LOG.info("Dispatching Q&A request to executor");
+            return dispatch(req, onChunk);
 
         } catch (Exception e) {
             LOG.error("Unexpected error in answerQuestion()", e);
@@ -283,4 +841,73 @@ public class AiClientService {
             throw new RuntimeException(e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the hit and miss counters of the response cache.
+     *
+     * @return cache counters, or null when caching is switched off
+     */
+    public CacheMetrics getCacheMetrics() {
+        return ASYNC_AI_EXECUTOR.getCacheMetrics();
+    }
+
+    /**
+     * Returns the hit and miss counters of the near-duplicate snapshot lookup.
+     *
+     * @return snapshot counters, or null when the lookup is switched off
+     */
+    public CacheMetrics getSnapshotMetrics() {
+        return SnapshotIndex.isEnabled() ? snapshotMetrics : null;
+    }
+
+    /**
+     * Computes the perceptual and exact hash of a snapshot.
+     *
+     * @param data the snapshot
+     * @return the hashes, or null when the image cannot be decoded
+     */
+    private static PerceptualHash.Fingerprint fingerprint(final WhiteBoardData data) {
+        try {
+            return PerceptualHash.fingerprint(data);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not hash snapshot, describing it without lookup", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the description of a snapshot once it arrives.
+     *
+     * @param snapshots snapshot index of the meeting, or null
+     * @param fingerprint hashes of the snapshot, or null
+     * @param description the pending description
+     * @return the same description
+     */
+    private static CompletableFuture<String> rememberSnapshot(final SnapshotIndex snapshots,
+                                                              final PerceptualHash.Fingerprint fingerprint,
+                                                              final CompletableFuture<String> description) {
+        if (snapshots != null && fingerprint != null) {
+            description.thenAccept(text -> {
+                if (text != null) {
+                    snapshots.put(fingerprint.perceptual(), fingerprint.exact(), text);
+                }
+            });
+        }
+        return description;
+    }
+
+    /**
+     * Sends a request to the executor, streaming when a consumer is given.
+     *
+     * @param request the AI request
+     * @param onChunk receives the partial output, or null for no streaming
+     * @return AI response
+     */
+    private static CompletableFuture<String> dispatch(
+            final AiRequestable request, final Consumer<String> onChunk) {
+        if (onChunk == null) {
+            return ASYNC_AI_EXECUTOR.execute(request);
+        }
+        return ASYNC_AI_EXECUTOR.executeStreaming(request, onChunk);
+    }
+}
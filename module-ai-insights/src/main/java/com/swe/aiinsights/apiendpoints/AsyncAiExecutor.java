@@ -16,18 +16,31 @@
 
 package com.swe.aiinsights.apiendpoints;
 
+import com.swe.aiinsights.aiservice.AsyncLlmService;
+import com.swe.aiinsights.aiservice.CircuitBreaker;
 import com.swe.aiinsights.aiservice.GeminiService;
+import com.swe.aiinsights.aiservice.HedgePolicy;
+import com.swe.aiinsights.aiservice.HttpTransport;
 import com.swe.aiinsights.aiservice.LlmService;
+import com.swe.aiinsights.aiservice.OllamaPool;
 import com.swe.aiinsights.aiservice.OllamaService;
+import com.swe.aiinsights.aiservice.StreamingLlmService;
 import com.swe.aiinsights.aiservice.LlmOrchestratorService;
+import com.swe.aiinsights.cache.CacheMetrics;
+import com.swe.aiinsights.cache.CachingLlmService;
+import com.swe.aiinsights.cache.ResponseCache;
 import com.swe.aiinsights.configu.AsyncConfig;
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.generaliser.RequestFingerprint;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.request.AiRequestable;
 import com.swe.aiinsights.response.AiResponse;
 import java.util.List;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import com.swe.aiinsights.logging.CommonLogger;
 import org.slf4j.Logger;
@@ -43,25 +56,158 @@ public class AsyncAiExecutor {
 
     /**
      * Shared async executor for running AI tasks.
+     * The mode is chosen by AI_EXECUTOR_MODE. The default orchestrator runs
+     * its blocking services on it as well; non-blocking services hold no
+     * thread of it while the model answers.
      */
-    private static final Executor AI_EXECUTOR = AsyncConfig.aiExecutor();
+    private static final Executor AI_EXECUTOR =
+            AsyncConfig.aiExecutor(AsyncConfig.configuredMode());
     /**
      * Orchestrates between Gemini and Ollama services.
      */
-    private final LlmService llmService = new LlmOrchestratorService(
-        List.of(
-            new GeminiService(), // 1. Primary
-            new OllamaService() // 2. Fallback
-        )
-    );
+    private final LlmService llmService;
+
+    /**
+     * Executor on which requests of this instance run.
+     */
+    private final Executor aiExecutor;
+
+    /**
+     * Shares one upstream call between identical requests in flight.
+     * Switched off with AI_COALESCE_ENABLED=false.
+     */
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
+    /**
+     * Whether identical in-flight requests are coalesced.
+     */
+    private final boolean coalescingEnabled = EnvConfig.getBoolean("AI_COALESCE_ENABLED", true);
+
+    /**
+     * Orchestrator shared by all executors created with the default constructor.
+     */
+    private static volatile LlmService defaultService;
+
+    /**
+     * Creates the executor with Gemini as primary and Ollama as fallback.
+     */
+    public AsyncAiExecutor() {
+        this(defaultService(), AI_EXECUTOR);
+    }
+
+    /**
+     * Returns the orchestrator shared by all default executors,
+     * creating it on first use.
+     * Unless AI_CACHE_ENABLED is false, the orchestrator sits behind the
+     * response cache.
+     *
+     * @return the shared orchestrator
+     */
+    private static LlmService defaultService() {
+        LlmService localReference = defaultService;
+        if (localReference == null) {
+            synchronized (AsyncAiExecutor.class) {
+                localReference = defaultService;
+                if (localReference == null) {
+                    final HttpTransport transport = HttpTransport.shared();
+                    // several local instances are pooled when OLLAMA_URLS lists them
+                    final OllamaPool ollamaPool = OllamaPool.fromEnv(transport);
+                    final LlmService fallback = ollamaPool == null ? new OllamaService(transport) : ollamaPool;
+                    localReference = new LlmOrchestratorService(
+                            List.of(
+                                new GeminiService(transport), // 1. Primary
+                                fallback // 2. Fallback
+                            ),
+                            CircuitBreaker::fromEnv,
+                            HedgePolicy.fromEnv(),
+                            // a blocking service in the chain runs on the executor of AI_EXECUTOR_MODE
+                            AI_EXECUTOR
+                    );
+                    if (EnvConfig.getBoolean("AI_CACHE_ENABLED", true)) {
+                        localReference = new CachingLlmService(localReference, ResponseCache.fromEnv());
+                    }
+                    defaultService = localReference;
+                }
+            }
+        }
+        return localReference;
+    }
+
+    /**
+     * Creates the executor with a given service and executor.
+     *
+     * @param service the LLM service answering the requests
+     * @param executor executor on which the requests run
+     */
+    public AsyncAiExecutor(final LlmService service, final Executor executor) {
+        this.llmService = service;
+        this.aiExecutor = executor;
+    }
 
     /**
      * Executes an AI request asynchronously and returns the model output as a future.
+     * Identical requests already in flight share the same upstream call.
      *
      * @param req the AI request object
      * @return future containing the AI model's response string
      */
     public CompletableFuture<String> execute(final AiRequestable req) {
+        if (!coalescingEnabled) {
+            return executeUpstream(req);
+        }
+        final String key;
+        try {
+            key = requestKey(req);
+        } catch (RuntimeException e) {
+            LOG.error("Could not fingerprint request: {}", e.getMessage(), e);
+            return executeUpstream(req);
+        }
+        return coalescer.coalesce(key, () -> executeUpstream(req));
+    }
+
+    /**
+     * Returns the single-flight layer of this executor.
+     *
+     * @return the request coalescer
+     */
+    public RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Returns the counters of the response cache in front of the service.
+     *
+     * @return cache counters, or null when the service is not cached
+     */
+    public CacheMetrics getCacheMetrics() {
+        if (llmService instanceof CachingLlmService cachingService) {
+            return cachingService.getCache().getMetrics();
+        }
+        return null;
+    }
+
+    /**
+     * Builds the coalescing key of a request from its type, prompt and input.
+     *
+     * @param req the AI request object
+     * @return key shared by identical requests
+     */
+    private static String requestKey(final AiRequestable req) {
+        final Object input = req.getInput();
+        return RequestFingerprint.of(req.getReqType(), req.getContext(),
+                input == null ? null : input.toString());
+    }
+
+    /**
+     * Sends the request to the LLM service.
+     *
+     * @param req the AI request object
+     * @return future containing the AI model's response string
+     */
+    private CompletableFuture<String> executeUpstream(final AiRequestable req) {
+        if (llmService instanceof AsyncLlmService asyncService) {
+            return executeNonBlocking(asyncService, req);
+        }
         return CompletableFuture.supplyAsync(() -> {
             try {
                 LOG.debug("Creating RequestGeneralised...");
@@ -82,8 +228,91 @@ public class AsyncAiExecutor {
                     throw new RuntimeException(e);
                 }
 
-            }, AI_EXECUTOR
+            }, aiExecutor
         );
     }
 
+    /**
+     * Runs the request on a non-blocking service.
+     * No worker thread is held while the model is answering; the output is
+     * formatted on the thread that completes the HTTP call.
+     *
+     * @param service the non-blocking LLM service
+     * @param req the AI request object
+     * @return future containing the AI model's response string
+     */
+    private CompletableFuture<String> executeNonBlocking(final AsyncLlmService service,
+                                                         final AiRequestable req) {
+        final RequestGeneraliser general;
+        try {
+            LOG.debug("Creating RequestGeneralised...");
+            general = new RequestGeneraliser(req);
+        } catch (Exception e) {
+            LOG.error("Unexpected exception in execute: {}", e.getMessage(), e);
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
+
+        LOG.debug("Calling llmService.runProcessAsync()...");
+        return service.runProcessAsync(general)
+                .handle((aiResponse, error) -> formatResult(general, aiResponse, error));
+    }
+
+    /**
+     * Executes an AI request and streams the model output while it is generated.
+     * The chunks are the raw model text; the returned future holds the
+     * formatted output once the stream ends, exactly as execute would.
+     * Services that cannot stream deliver their answer as one chunk.
+     *
+     * @param req the AI request object
+     * @param onChunk receives the partial texts in order
+     * @return future containing the AI model's response string
+     */
+    public CompletableFuture<String> executeStreaming(final AiRequestable req,
+                                                      final Consumer<String> onChunk) {
+        if (!(llmService instanceof StreamingLlmService streamingService)) {
+            return execute(req).thenApply(response -> {
+                onChunk.accept(response);
+                return response;
+            });
+        }
+        final RequestGeneraliser general;
+        try {
+            general = new RequestGeneraliser(req);
+        } catch (Exception e) {
+            LOG.error("Unexpected exception in executeStreaming: {}", e.getMessage(), e);
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
+
+        LOG.debug("Calling llmService.runProcessStreaming()...");
+        return streamingService.runProcessStreaming(general, onChunk)
+                .handle((aiResponse, error) -> formatResult(general, aiResponse, error));
+    }
+
+    /**
+     * Formats the result of a non-blocking call, wrapping failures the same
+     * way as the blocking path.
+     *
+     * @param general the generalised request
+     * @param aiResponse response of the service, null on failure
+     * @param error failure of the service, null on success
+     * @return the formatted output
+     */
+    private static String formatResult(final RequestGeneraliser general,
+                                       final AiResponse aiResponse,
+                                       final Throwable error) {
+        if (error != null) {
+            final Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            LOG.error("Exception in execute: {}", cause.getMessage(), cause);
+            throw new RuntimeException(cause);
+        }
+        try {
+            final String response = general.formatOutput(aiResponse);
+            LOG.debug("Received response");
+            return response;
+        } catch (IOException e) {
+            LOG.error("IOException in execute: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
 }
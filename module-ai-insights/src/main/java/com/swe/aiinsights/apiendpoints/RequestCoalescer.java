@@ -0,0 +1,124 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: RequestCoalescer.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.apiendpoints
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Single-flight layer for identical AI requests.
+ *
+ * <p>
+ *     When several clients send the same request while it is still being
+ *     answered, only the first one reaches the LLM. The others share its
+ *     result. Once the call completes, the entry is removed, so a later
+ *     identical request makes a fresh call.
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.apiendpoints;
+
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight future between identical requests.
+ */
+public final class RequestCoalescer {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(RequestCoalescer.class);
+
+    /**
+     * Futures of the requests currently in flight, by request key.
+     */
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Number of requests that started an upstream call.
+     */
+    private final AtomicLong upstreamCalls = new AtomicLong();
+
+    /**
+     * Number of requests that joined a call already in flight.
+     */
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    /**
+     * Returns the in-flight future for the key, or starts the call.
+     * Every caller gets its own copy of the shared future, so one caller
+     * cancelling its copy does not affect the others.
+     *
+     * @param key identifies identical requests
+     * @param call starts the upstream call
+     * @return future containing the response string
+     * @throws RuntimeException thrown by the call when it cannot be started
+     */
+    public CompletableFuture<String> coalesce(final String key,
+                                              final Supplier<CompletableFuture<String>> call) {
+        final CompletableFuture<String> shared = new CompletableFuture<>();
+        final CompletableFuture<String> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalescedCalls.incrementAndGet();
+            LOG.debug("Joining in-flight request {}", key);
+            return existing.copy();
+        }
+
+        upstreamCalls.incrementAndGet();
+        try {
+            call.get().whenComplete((response, error) -> {
+                inFlight.remove(key, shared);
+                if (error != null) {
+                    shared.completeExceptionally(error);
+                } else {
+                    shared.complete(response);
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. a rejected execution, surfaced to the caller like before
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+            throw e;
+        }
+        return shared.copy();
+    }
+
+    /**
+     * Returns the number of requests that started an upstream call.
+     *
+     * @return count of upstream calls
+     */
+    public long getUpstreamCalls() {
+        return upstreamCalls.get();
+    }
+
+    /**
+     * Returns the number of requests served by a call already in flight.
+     *
+     * @return count of coalesced calls
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    /**
+     * Returns the number of distinct requests in flight.
+     *
+     * @return count of in-flight requests
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: CacheMetrics.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.cache
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit and miss counters of the response cache.
+ */
+public final class CacheMetrics {
+    /**
+     * Lookups answered by the in-heap tier.
+     */
+    private final AtomicLong memoryHits = new AtomicLong();
+
+    /**
+     * Lookups answered by the disk tier.
+     */
+    private final AtomicLong diskHits = new AtomicLong();
+
+    /**
+     * Lookups answered by neither tier.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Entries removed because of size limits or expiry.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Entries written to the cache.
+     */
+    private final AtomicLong puts = new AtomicLong();
+
+    void recordMemoryHit() {
+        memoryHits.incrementAndGet();
+    }
+
+    void recordDiskHit() {
+        diskHits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    void recordPut() {
+        puts.incrementAndGet();
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getPuts() {
+        return puts.get();
+    }
+
+    /**
+     * Returns the share of lookups answered by either tier.
+     *
+     * @return hit ratio between 0 and 1, 0 when nothing was looked up
+     */
+    public double getHitRatio() {
+        final long hits = memoryHits.get() + diskHits.get();
+        final long total = hits + misses.get();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheMetrics{memoryHits=" + getMemoryHits()
+                + ", diskHits=" + getDiskHits()
+                + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions()
+                + ", puts=" + getPuts() + "}";
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: CachingLlmService.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.cache
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Answers repeated requests from the response cache.
+ *
+ * <p>
+ *     The prompts of regularisation, description, insights and action item
+ *     requests are constant, so the same input gives an answer that is
+ *     good enough to reuse. Such requests are looked up by a fingerprint
+ *     of their type, prompt and input before the wrapped service is called.
+ *     Summaries and questions depend on meeting state and are passed through.
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.swe.aiinsights.aiservice.AsyncLlmService;
+import com.swe.aiinsights.aiservice.LlmService;
+import com.swe.aiinsights.aiservice.StreamingLlmService;
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.generaliser.RequestFingerprint;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.logging.CommonLogger;
+import com.swe.aiinsights.response.AiResponse;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Decorator consulting the response cache before the wrapped service.
+ */
+public final class CachingLlmService implements StreamingLlmService {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(CachingLlmService.class);
+
+    /**
+     * Request types cached unless AI_CACHE_TYPES says otherwise.
+     */
+    private static final String DEFAULT_TYPES = "REG,DESC,INS,ACTION";
+
+    /**
+     * Service answering cache misses.
+     */
+    private final LlmService delegate;
+
+    /**
+     * Cache of earlier answers.
+     */
+    private final ResponseCache cache;
+
+    /**
+     * Request types whose answers are cached.
+     */
+    private final Set<String> cacheableTypes;
+
+    /**
+     * Creates the decorator caching the types listed in AI_CACHE_TYPES.
+     *
+     * @param service service answering cache misses
+     * @param responseCache cache of earlier answers
+     */
+    public CachingLlmService(final LlmService service, final ResponseCache responseCache) {
+        this(service, responseCache, parseTypes(EnvConfig.getString("AI_CACHE_TYPES", DEFAULT_TYPES)));
+    }
+
+    /**
+     * Creates the decorator caching the given types.
+     *
+     * @param service service answering cache misses
+     * @param responseCache cache of earlier answers
+     * @param types request types whose answers are cached
+     */
+    public CachingLlmService(final LlmService service, final ResponseCache responseCache,
+                             final Set<String> types) {
+        this.delegate = service;
+        this.cache = responseCache;
+        this.cacheableTypes = Set.copyOf(types);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AiResponse runProcess(final RequestGeneraliser aiRequest) throws IOException {
+        final String key = keyOf(aiRequest);
+        if (key != null && fromCache(aiRequest, key) != null) {
+            return aiRequest.getAiResponse();
+        }
+        final AiResponse response = delegate.runProcess(aiRequest);
+        store(aiRequest, key, response);
+        return response;
+    }
+
+    /**
+     * {@inheritDoc}
+     * A wrapped service that is not asynchronous is called on the calling thread.
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser aiRequest) {
+        final String key = keyOf(aiRequest);
+        if (key != null && fromCache(aiRequest, key) != null) {
+            return CompletableFuture.completedFuture(aiRequest.getAiResponse());
+        }
+        return fetchAsync(aiRequest, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * A cache hit is delivered as a single chunk.
+     */
+    @Override
+    public CompletableFuture<AiResponse> runProcessStreaming(final RequestGeneraliser aiRequest,
+                                                             final Consumer<String> onChunk) {
+        final String key = keyOf(aiRequest);
+        if (key != null) {
+            final String cached = fromCache(aiRequest, key);
+            if (cached != null) {
+                onChunk.accept(cached);
+                return CompletableFuture.completedFuture(aiRequest.getAiResponse());
+            }
+        }
+        if (!(delegate instanceof StreamingLlmService streamingService)) {
+            return fetchAsync(aiRequest, key).thenApply(response -> {
+                onChunk.accept(response.getResponse());
+                return response;
+            });
+        }
+        return streamingService.runProcessStreaming(aiRequest, onChunk).thenApply(response -> {
+            store(aiRequest, key, response);
+            return response;
+        });
+    }
+
+    /**
+     * Returns the cache of this decorator.
+     *
+     * @return the response cache
+     */
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Fills the response of the request from the cache.
+     *
+     * @param aiRequest the generalised request
+     * @param key fingerprint of the request
+     * @return the cached text, or null on a miss
+     */
+    private String fromCache(final RequestGeneraliser aiRequest, final String key) {
+        final String cached = cache.get(key);
+        if (cached != null) {
+            LOG.debug("Answering {} request from cache", aiRequest.getReqType());
+            aiRequest.getAiResponse().setResponse(cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Caches a successful answer.
+     * An answer the output parser rejects is not kept, so a malformed answer
+     * is not handed out again for the whole time to live.
+     *
+     * @param aiRequest the generalised request, formats the answer
+     * @param key fingerprint of the request, null when not cacheable
+     * @param response answer of the wrapped service
+     */
+    private void store(final RequestGeneraliser aiRequest, final String key, final AiResponse response) {
+        if (key == null || response == null || response.getResponse() == null) {
+            return;
+        }
+        try {
+            aiRequest.formatOutput(response);
+        } catch (JsonProcessingException | RuntimeException e) {
+            LOG.warn("Not caching malformed {} answer: {}", aiRequest.getReqType(), e.getMessage());
+            return;
+        }
+        cache.put(key, response.getResponse());
+    }
+
+    /**
+     * Asks the wrapped service and caches its answer.
+     *
+     * @param aiRequest the generalised request
+     * @param key fingerprint of the request, null when not cacheable
+     * @return future completed with the answer
+     */
+    private CompletableFuture<AiResponse> fetchAsync(final RequestGeneraliser aiRequest, final String key) {
+        final CompletableFuture<AiResponse> upstream;
+        if (delegate instanceof AsyncLlmService asyncService) {
+            upstream = asyncService.runProcessAsync(aiRequest);
+        } else {
+            upstream = callBlocking(aiRequest);
+        }
+        return upstream.thenApply(response -> {
+            store(aiRequest, key, response);
+            return response;
+        });
+    }
+
+    /**
+     * Calls a blocking service and wraps the outcome in a future.
+     *
+     * @param aiRequest the generalised request
+     * @return completed or failed future
+     */
+    private CompletableFuture<AiResponse> callBlocking(final RequestGeneraliser aiRequest) {
+        try {
+            return CompletableFuture.completedFuture(delegate.runProcess(aiRequest));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Builds the cache key of a request.
+     *
+     * @param aiRequest the generalised request
+     * @return fingerprint of type, prompt and input, or null when not cacheable
+     */
+    private String keyOf(final RequestGeneraliser aiRequest) {
+        final String type = aiRequest.getReqType();
+        if (type == null || !cacheableTypes.contains(type)) {
+            return null;
+        }
+        String imgData = aiRequest.getImgData();
+        if (imgData == null && aiRequest.getImage() != null) {
+            // a streamed image is identified by the hash of its bytes
+            try {
+                imgData = "sha256:" + aiRequest.getImage().getContentHash();
+            } catch (IOException e) {
+                LOG.warn("Cannot hash the image, the request is not cached", e);
+                return null;
+            }
+        }
+        return RequestFingerprint.of(type, aiRequest.getPrompt(),
+                aiRequest.getTextData(), imgData);
+    }
+
+    /**
+     * Parses a comma separated list of request types.
+     *
+     * @param types comma separated request types
+     * @return the set of types
+     */
+    private static Set<String> parseTypes(final String types) {
+        return Arrays.stream(types.split(","))
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
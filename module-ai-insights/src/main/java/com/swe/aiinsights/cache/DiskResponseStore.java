@@ -0,0 +1,351 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: DiskResponseStore.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.cache
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * On-disk tier of the response cache.
+ *
+ * <p>
+ *     Every entry is one file named after the request fingerprint. The file
+ *     starts with the time of storing (8 bytes) followed by the UTF-8 text.
+ *     Files are read through a memory mapping, so a hit does not copy the
+ *     file through a heap buffer first. Files are written to a temporary
+ *     name and moved into place, so readers never see half an entry.
+ * </p>
+ * <p>
+ *     Cached answers hold meeting content, so the directory is created
+ *     readable by its owner only, and a directory owned by another user
+ *     is refused rather than read from or written to.
+ * </p>
+ * <p>
+ *     References
+ *     1. https://docs.oracle.com/en/java/javase/21/docs/api/java.base/java/nio/channels/FileChannel.html
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.cache;
+
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Memory-mapped file store with a time to live and a size limit.
+ */
+final class DiskResponseStore {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(DiskResponseStore.class);
+
+    /**
+     * Extension of entry files.
+     */
+    private static final String SUFFIX = ".entry";
+
+    /**
+     * Size of the header holding the time of storing.
+     */
+    private static final int HEADER_BYTES = Long.BYTES;
+
+    /**
+     * Eviction frees space down to this share of the limit.
+     */
+    private static final double EVICTION_TARGET = 0.9;
+
+    /**
+     * Permissions of the directory on POSIX file systems.
+     */
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * Directory holding the entry files.
+     */
+    private final Path directory;
+
+    /**
+     * Maximum total size of the entry files in bytes.
+     */
+    private final long maxBytes;
+
+    /**
+     * Time to live of an entry in milliseconds.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Counters shared with the other tier.
+     */
+    private final CacheMetrics metrics;
+
+    /**
+     * Current total size of the entry files in bytes.
+     */
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    /**
+     * Creates the disk tier and measures the entries already on disk.
+     *
+     * @param dir directory holding the entry files
+     * @param maxSize maximum total size in bytes
+     * @param ttl time to live of an entry in milliseconds
+     * @param cacheMetrics counters to update
+     * @throws IOException if the directory cannot be created or belongs to another user
+     */
+    DiskResponseStore(final Path dir, final long maxSize, final long ttl,
+                      final CacheMetrics cacheMetrics) throws IOException {
+        this.directory = privateDirectory(dir);
+        this.maxBytes = maxSize;
+        this.ttlMillis = ttl;
+        this.metrics = cacheMetrics;
+        for (final Path file : listEntries()) {
+            totalBytes.addAndGet(sizeOf(file));
+        }
+        LOG.info("Disk response cache at {} holds {} bytes", directory, totalBytes.get());
+    }
+
+    /**
+     * Creates the directory readable by its owner only, or checks an existing one.
+     *
+     * @param dir the directory
+     * @return the directory
+     * @throws IOException if it cannot be created, is not a directory or belongs to another user
+     */
+    private static Path privateDirectory(final Path dir) throws IOException {
+        final boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (Files.notExists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            final Path parent = dir.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try {
+                if (posix) {
+                    Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+                } else {
+                    Files.createDirectory(dir);
+                }
+            } catch (FileAlreadyExistsException e) {
+                // created by someone else in the meantime, checked below
+                LOG.debug("Cache directory {} appeared while creating it", dir);
+            }
+        }
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException(dir + " is not a directory");
+        }
+        final UserPrincipal owner = Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS);
+        final UserPrincipal user = dir.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(user)) {
+            throw new IOException(dir + " belongs to " + owner.getName());
+        }
+        if (posix && !Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).equals(OWNER_ONLY)) {
+            Files.setPosixFilePermissions(dir, OWNER_ONLY);
+        }
+        return dir;
+    }
+
+    /**
+     * Looks up a live entry.
+     *
+     * @param key request fingerprint
+     * @param now current time in epoch millis
+     * @return the cached value, or null
+     */
+    String get(final String key, final long now) {
+        final Path file = fileFor(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return null;
+            }
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final long storedAt = mapped.getLong();
+            if (now - storedAt > ttlMillis) {
+                remove(file);
+                return null;
+            }
+            return StandardCharsets.UTF_8.decode(mapped).toString();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Could not read cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores an entry and evicts the oldest entries when over the size limit.
+     *
+     * @param key request fingerprint
+     * @param value response to cache
+     * @param storedAt time of storing in epoch millis
+     */
+    void put(final String key, final String value, final long storedAt) {
+        final byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + text.length);
+        buffer.putLong(storedAt).put(text).flip();
+
+        final Path target = fileFor(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, key, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            final long previous = sizeOf(target);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            totalBytes.addAndGet(HEADER_BYTES + text.length - previous);
+        } catch (IOException e) {
+            LOG.warn("Could not write cache entry {}: {}", key, e.getMessage());
+            return;
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+        if (totalBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Deletes the least recently written entries until the store is below
+     * its target size.
+     */
+    private synchronized void evict() {
+        final long target = (long) (maxBytes * EVICTION_TARGET);
+        if (totalBytes.get() <= target) {
+            return;
+        }
+        final List<Path> files = listEntries();
+        files.sort(Comparator.comparingLong(DiskResponseStore::lastModified));
+        for (final Path file : files) {
+            if (totalBytes.get() <= target) {
+                break;
+            }
+            remove(file);
+        }
+    }
+
+    /**
+     * Deletes one entry file.
+     *
+     * @param file entry file
+     */
+    private void remove(final Path file) {
+        final long size = sizeOf(file);
+        try {
+            if (Files.deleteIfExists(file)) {
+                totalBytes.addAndGet(-size);
+                metrics.recordEviction();
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not delete cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes a temporary file left by a failed write.
+     *
+     * @param temp the temporary file
+     */
+    private static void deleteQuietly(final Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOG.warn("Could not delete temporary cache file {}: {}", temp, e.getMessage());
+        }
+    }
+
+    /**
+     * Lists the entry files.
+     *
+     * @return entry files, empty on error
+     */
+    private List<Path> listEntries() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files.filter(f -> f.toString().endsWith(SUFFIX)).toList());
+        } catch (IOException e) {
+            LOG.warn("Could not list cache directory {}: {}", directory, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Returns the total size of the entry files.
+     *
+     * @return size in bytes
+     */
+    long sizeInBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Returns the file of an entry.
+     *
+     * @param key request fingerprint
+     * @return path of the entry file
+     */
+    private Path fileFor(final String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    /**
+     * Returns the size of a file, 0 if it does not exist.
+     *
+     * @param file the file
+     * @return size in bytes
+     */
+    private static long sizeOf(final Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the modification time of a file, 0 if it does not exist.
+     *
+     * @param file the file
+     * @return modification time in epoch millis
+     */
+    private static long lastModified(final Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
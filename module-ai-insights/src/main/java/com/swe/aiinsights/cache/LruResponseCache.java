@@ -0,0 +1,127 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: LruResponseCache.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.cache
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * In-heap tier of the response cache.
+ *
+ * <p>
+ *     References
+ *     1. https://docs.oracle.com/en/java/javase/21/docs/api/java.base/java/util/LinkedHashMap.html
+ *          (removeEldestEntry for LRU caches)
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used map with a time to live per entry.
+ */
+final class LruResponseCache {
+    /**
+     * Load factor of the backing map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Entries in access order, the eldest is evicted first.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Time to live of an entry in milliseconds.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Counters shared with the other tier.
+     */
+    private final CacheMetrics metrics;
+
+    /**
+     * Cached value and the time it was stored.
+     *
+     * @param value cached response
+     * @param storedAt time of storing in epoch millis
+     */
+    private record Entry(String value, long storedAt) { }
+
+    /**
+     * Creates the in-heap tier.
+     *
+     * @param maxEntries number of entries kept
+     * @param ttl time to live of an entry in milliseconds
+     * @param cacheMetrics counters to update
+     */
+    LruResponseCache(final int maxEntries, final long ttl, final CacheMetrics cacheMetrics) {
+        this.ttlMillis = ttl;
+        this.metrics = cacheMetrics;
+        this.entries = new LinkedHashMap<>(maxEntries, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                final boolean evict = size() > maxEntries;
+                if (evict) {
+                    metrics.recordEviction();
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Looks up a live entry.
+     *
+     * @param key request fingerprint
+     * @param now current time in epoch millis
+     * @return the cached value, or null
+     */
+    synchronized String get(final String key, final long now) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (now - entry.storedAt() > ttlMillis) {
+            entries.remove(key);
+            metrics.recordEviction();
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * Stores an entry.
+     *
+     * @param key request fingerprint
+     * @param value response to cache
+     * @param storedAt time of storing in epoch millis
+     */
+    synchronized void put(final String key, final String value, final long storedAt) {
+        entries.put(key, new Entry(value, storedAt));
+    }
+
+    /**
+     * Returns the number of entries held.
+     *
+     * @return entry count
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all entries.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: PerceptualHash.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.cache
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Difference hash of an image.
+ *
+ * <p>
+ * The image is reduced to a 9 x 8 grid of average brightness and every
+ * cell is compared with its right neighbour, giving 64 bits. Snapshots
+ * that differ by a cursor or a single stroke change only a few bits,
+ * so the Hamming distance between two hashes tells how alike the
+ * images look.
+ * </p>
+ *
+ * <p>
+ * References:
+ *     1. N. Krawetz - Kind of Like That, hackerfactor.com, 2013
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.cache;
+
+import com.swe.aiinsights.data.WhiteBoardData;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Computes 64 bit difference hashes of images.
+ */
+public final class PerceptualHash {
+
+    /**
+     * Columns of the brightness grid, one more than the bits per row.
+     */
+    private static final int GRID_WIDTH = 9;
+
+    /**
+     * Rows of the brightness grid.
+     */
+    private static final int GRID_HEIGHT = 8;
+
+    /**
+     * Weights of red, green and blue in the brightness, in thousandths.
+     */
+    private static final int[] LUMA = {299, 587, 114};
+
+    /**
+     * Divisor of the weighted brightness.
+     */
+    private static final int LUMA_SCALE = 1000;
+
+    /**
+     * Mask of one colour channel.
+     */
+    private static final int CHANNEL = 0xFF;
+
+    /**
+     * Shift of the red channel.
+     */
+    private static final int RED_SHIFT = 16;
+
+    /**
+     * Shift of the green channel.
+     */
+    private static final int GREEN_SHIFT = 8;
+
+    /**
+     * Offset basis of the 64 bit FNV-1a hash of the pixels.
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    /**
+     * Prime of the 64 bit FNV-1a hash of the pixels.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Perceptual and exact hash of one image.
+     *
+     * @param perceptual difference hash, alike for alike images
+     * @param exact hash of the size and every pixel, equal only for equal images
+     */
+    public record Fingerprint(long perceptual, long exact) { }
+
+    private PerceptualHash() { }
+
+    /**
+     * Hashes an image file.
+     *
+     * @param data the image
+     * @return the hash, or null when the image cannot be decoded
+     * @throws IOException if the image cannot be read
+     */
+    public static Long of(final WhiteBoardData data) throws IOException {
+        final BufferedImage image = decode(data);
+        if (image == null) {
+            return null;
+        }
+        return dHash(image);
+    }
+
+    /**
+     * Hashes an image file both perceptually and exactly.
+     *
+     * @param data the image
+     * @return the hashes, or null when the image cannot be decoded
+     * @throws IOException if the image cannot be read
+     */
+    public static Fingerprint fingerprint(final WhiteBoardData data) throws IOException {
+        final BufferedImage image = decode(data);
+        if (image == null) {
+            return null;
+        }
+        return new Fingerprint(dHash(image), exactHash(image));
+    }
+
+    /**
+     * Hashes a decoded image.
+     *
+     * @param image the image
+     * @return the 64 bit difference hash
+     */
+    public static long dHash(final BufferedImage image) {
+        final double[][] grid = brightnessGrid(image);
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (grid[y][x] > grid[y][x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes the size and every pixel of a decoded image.
+     *
+     * @param image the image
+     * @return the 64 bit FNV-1a hash of the pixels
+     */
+    public static long exactHash(final BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        long hash = (FNV_OFFSET ^ width) * FNV_PRIME;
+        hash = (hash ^ height) * FNV_PRIME;
+        final int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (final int pixel : row) {
+                hash = (hash ^ pixel) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Counts the bits in which two hashes differ.
+     *
+     * @param first a hash
+     * @param second another hash
+     * @return the Hamming distance, between 0 and 64
+     */
+    public static int distance(final long first, final long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    /**
+     * Decodes an image file.
+     *
+     * @param data the image
+     * @return the image, or null when it cannot be decoded
+     * @throws IOException if the image cannot be read
+     */
+    private static BufferedImage decode(final WhiteBoardData data) throws IOException {
+        try (InputStream in = data.openImage()) {
+            return ImageIO.read(new MemoryCacheImageInputStream(in));
+        }
+    }
+
+    /**
+     * Averages the brightness of the image over the cells of the grid.
+     * Every pixel is counted, so a thin stroke still changes its cell.
+     *
+     * @param image the image
+     * @return average brightness of every cell
+     */
+    private static double[][] brightnessGrid(final BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final double[][] sum = new double[GRID_HEIGHT][GRID_WIDTH];
+        final long[][] count = new long[GRID_HEIGHT][GRID_WIDTH];
+        final int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            final int cellY = (int) ((long) y * GRID_HEIGHT / height);
+            for (int x = 0; x < width; x++) {
+                final int cellX = (int) ((long) x * GRID_WIDTH / width);
+                sum[cellY][cellX] += brightness(row[x]);
+                count[cellY][cellX]++;
+            }
+        }
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH; x++) {
+                if (count[y][x] > 0) {
+                    sum[y][x] /= count[y][x];
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Gets the brightness of a pixel, transparent pixels count as white.
+     *
+     * @param argb the pixel
+     * @return brightness between 0 and 255
+     */
+    private static double brightness(final int argb) {
+        final int alphaShift = 24;
+        final int alpha = argb >>> alphaShift;
+        final int red = argb >> RED_SHIFT & CHANNEL;
+        final int green = argb >> GREEN_SHIFT & CHANNEL;
+        final int blue = argb & CHANNEL;
+        final double luma = (double) (LUMA[0] * red + LUMA[1] * green + LUMA[2] * blue) / LUMA_SCALE;
+        // blend on white like the canvas does
+        return (luma * alpha + CHANNEL * (CHANNEL - alpha)) / CHANNEL;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: ResponseCache.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.cache
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Two-tier cache of AI responses keyed by request fingerprint.
+ *
+ * <p>
+ *     Lookups go to the in-heap LRU first and then to the disk store.
+ *     A disk hit is promoted into the heap so repeated hits stay cheap.
+ *     Writes go to both tiers.
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.cache;
+
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * In-heap LRU in front of an optional memory-mapped disk store.
+ */
+public final class ResponseCache {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(ResponseCache.class);
+
+    /**
+     * Default time to live of an entry in seconds (one day).
+     */
+    private static final long DEFAULT_TTL_SECONDS = 86_400;
+
+    /**
+     * Default number of entries held in heap.
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 512;
+
+    /**
+     * Default size limit of the disk store in bytes (256 MB).
+     */
+    private static final long DEFAULT_DISK_MAX_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Name of the disk store directory inside the user cache directory.
+     */
+    private static final String DIR_NAME = "swe-ai-insights";
+
+    /**
+     * Hit, miss and eviction counters of both tiers.
+     */
+    private final CacheMetrics metrics = new CacheMetrics();
+
+    /**
+     * In-heap tier.
+     */
+    private final LruResponseCache memory;
+
+    /**
+     * Disk tier, null when running in heap only.
+     */
+    private final DiskResponseStore disk;
+
+    /**
+     * Source of the current time in epoch millis.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Creates a cache with both tiers.
+     * Falls back to the heap only when the directory cannot be used.
+     *
+     * @param maxEntries number of entries kept in heap
+     * @param ttlMillis time to live of an entry in milliseconds
+     * @param directory directory of the disk store, null for heap only
+     * @param diskMaxBytes size limit of the disk store in bytes
+     */
+    public ResponseCache(final int maxEntries, final long ttlMillis,
+                         final Path directory, final long diskMaxBytes) {
+        this(maxEntries, ttlMillis, directory, diskMaxBytes, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a cache with a given clock.
+     *
+     * @param maxEntries number of entries kept in heap
+     * @param ttlMillis time to live of an entry in milliseconds
+     * @param directory directory of the disk store, null for heap only
+     * @param diskMaxBytes size limit of the disk store in bytes
+     * @param givenClock source of the current time in epoch millis
+     */
+    ResponseCache(final int maxEntries, final long ttlMillis, final Path directory,
+                  final long diskMaxBytes, final LongSupplier givenClock) {
+        this.memory = new LruResponseCache(maxEntries, ttlMillis, metrics);
+        this.clock = givenClock;
+        DiskResponseStore store = null;
+        if (directory != null) {
+            try {
+                store = new DiskResponseStore(directory, diskMaxBytes, ttlMillis, metrics);
+            } catch (IOException e) {
+                LOG.warn("Disk response cache disabled, {} not usable: {}", directory, e.getMessage());
+            }
+        }
+        this.disk = store;
+    }
+
+    /**
+     * Creates a cache configured by AI_CACHE_TTL_SECONDS, AI_CACHE_MAX_ENTRIES,
+     * AI_CACHE_DIR and AI_CACHE_DISK_MAX_BYTES.
+     * A blank AI_CACHE_DIR keeps the cache in heap only.
+     *
+     * @return the configured cache
+     */
+    public static ResponseCache fromEnv() {
+        final long ttlSeconds = EnvConfig.getLong("AI_CACHE_TTL_SECONDS", DEFAULT_TTL_SECONDS);
+        final int maxEntries = EnvConfig.getInt("AI_CACHE_MAX_ENTRIES", DEFAULT_MAX_ENTRIES);
+        final String dir = EnvConfig.getString("AI_CACHE_DIR", defaultDirectory().toString());
+        final long diskMaxBytes = EnvConfig.getLong("AI_CACHE_DISK_MAX_BYTES", DEFAULT_DISK_MAX_BYTES);
+        return new ResponseCache(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds),
+                dir.isBlank() ? null : Path.of(dir), diskMaxBytes);
+    }
+
+    /**
+     * Gets the default directory of the disk store.
+     * It lies in the cache directory of the user, XDG_CACHE_HOME or
+     * ~/.cache, and not in the shared temporary directory where another
+     * user could create it first.
+     *
+     * @return the directory
+     */
+    private static Path defaultDirectory() {
+        final String xdgCache = EnvConfig.getString("XDG_CACHE_HOME", "");
+        if (!xdgCache.isEmpty() && Path.of(xdgCache).isAbsolute()) {
+            return Path.of(xdgCache, DIR_NAME);
+        }
+        return Path.of(System.getProperty("user.home"), ".cache", DIR_NAME);
+    }
+
+    /**
+     * Looks up a response.
+     *
+     * @param key request fingerprint
+     * @return the cached response, or null
+     */
+    public String get(final String key) {
+        final long now = clock.getAsLong();
+        final String inHeap = memory.get(key, now);
+        if (inHeap != null) {
+            metrics.recordMemoryHit();
+            return inHeap;
+        }
+        if (disk != null) {
+            final String onDisk = disk.get(key, now);
+            if (onDisk != null) {
+                metrics.recordDiskHit();
+                memory.put(key, onDisk, now);
+                return onDisk;
+            }
+        }
+        metrics.recordMiss();
+        return null;
+    }
+
+    /**
+     * Stores a response in both tiers.
+     *
+     * @param key request fingerprint
+     * @param value response to cache
+     */
+    public void put(final String key, final String value) {
+        final long now = clock.getAsLong();
+        memory.put(key, value, now);
+        if (disk != null) {
+            disk.put(key, value, now);
+        }
+        metrics.recordPut();
+    }
+
+    /**
+     * Returns the counters of this cache.
+     *
+     * @return hit, miss and eviction counters
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of entries held in heap.
+     *
+     * @return entry count
+     */
+    public int memorySize() {
+        return memory.size();
+    }
+
+    /**
+     * Returns the size of the disk store.
+     *
+     * @return size in bytes, 0 when running in heap only
+     */
+    public long diskSizeInBytes() {
+        return disk == null ? 0 : disk.sizeInBytes();
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: SnapshotIndex.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.cache
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Descriptions of recent whiteboard snapshots, looked up by likeness.
+ *
+ * <p>
+ * A board is described again after every few strokes, and most snapshots
+ * only differ from the last one by a cursor or a single stroke. The
+ * response cache keys on the exact bytes and misses all of them, so
+ * snapshots are also indexed by their perceptual hash and the description
+ * of the nearest one within a Hamming distance is reused.
+ * </p>
+ *
+ * <p>
+ * An index holds the snapshots of one meeting only. A nearly blank board
+ * has a hash close to zero, so every such board is within the distance of
+ * every other; a snapshot whose hash is that close to the blank one is only
+ * matched by a snapshot with exactly the same pixels.
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.cache;
+
+import com.swe.aiinsights.configu.EnvConfig;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded least-recently-used index of descriptions by perceptual hash.
+ */
+public final class SnapshotIndex {
+    /**
+     * Default largest Hamming distance of two snapshots treated as the same.
+     */
+    private static final int DEFAULT_THRESHOLD = 5;
+
+    /**
+     * Default number of snapshots kept.
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 128;
+
+    /**
+     * Default time to live of a description in minutes.
+     */
+    private static final long DEFAULT_TTL_MINUTES = 30;
+
+    /**
+     * Load factor of the backing map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Snapshots in access order, the eldest is evicted first.
+     */
+    private final LinkedHashMap<Long, Entry> entries;
+
+    /**
+     * Largest Hamming distance of two snapshots treated as the same.
+     */
+    private final int threshold;
+
+    /**
+     * Time to live of a description in milliseconds.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Source of the current time in epoch millis.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Hit and miss counters of the lookups.
+     */
+    private final CacheMetrics metrics;
+
+    /**
+     * Description of a snapshot and the time it was stored.
+     *
+     * @param description the description
+     * @param exact hash of the pixels of the snapshot
+     * @param storedAt time of storing in epoch millis
+     */
+    private record Entry(String description, long exact, long storedAt) { }
+
+    /**
+     * Creates the index.
+     *
+     * @param maxEntries number of snapshots kept
+     * @param givenThreshold largest Hamming distance of two snapshots treated as the same
+     * @param ttl time to live of a description in milliseconds
+     * @param givenClock source of the current time in epoch millis
+     */
+    public SnapshotIndex(final int maxEntries, final int givenThreshold,
+                         final long ttl, final LongSupplier givenClock) {
+        this(maxEntries, givenThreshold, ttl, givenClock, new CacheMetrics());
+    }
+
+    /**
+     * Creates the index counting its lookups in shared counters.
+     *
+     * @param maxEntries number of snapshots kept
+     * @param givenThreshold largest Hamming distance of two snapshots treated as the same
+     * @param ttl time to live of a description in milliseconds
+     * @param givenClock source of the current time in epoch millis
+     * @param givenMetrics counters of the lookups, shared by the indexes of all meetings
+     */
+    public SnapshotIndex(final int maxEntries, final int givenThreshold, final long ttl,
+                         final LongSupplier givenClock, final CacheMetrics givenMetrics) {
+        this.threshold = givenThreshold;
+        this.metrics = givenMetrics;
+        this.ttlMillis = ttl;
+        this.clock = givenClock;
+        this.entries = new LinkedHashMap<>(maxEntries, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Entry> eldest) {
+                final boolean evict = size() > maxEntries;
+                if (evict) {
+                    metrics.recordEviction();
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Creates the index of one meeting from AI_SNAPSHOT_DEDUP, AI_SNAPSHOT_HAMMING_THRESHOLD,
+     * AI_SNAPSHOT_MAX_ENTRIES and AI_SNAPSHOT_TTL_MINUTES.
+     *
+     * @param sharedMetrics counters of the lookups, shared by the indexes of all meetings
+     * @return the index, or null when near-duplicate lookup is switched off
+     */
+    public static SnapshotIndex fromEnv(final CacheMetrics sharedMetrics) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return new SnapshotIndex(
+                EnvConfig.getInt("AI_SNAPSHOT_MAX_ENTRIES", DEFAULT_MAX_ENTRIES),
+                EnvConfig.getInt("AI_SNAPSHOT_HAMMING_THRESHOLD", DEFAULT_THRESHOLD),
+                TimeUnit.MINUTES.toMillis(EnvConfig.getLong("AI_SNAPSHOT_TTL_MINUTES", DEFAULT_TTL_MINUTES)),
+                System::currentTimeMillis,
+                sharedMetrics);
+    }
+
+    /**
+     * Returns whether near-duplicate lookup is switched on by AI_SNAPSHOT_DEDUP.
+     *
+     * @return true if snapshots are indexed
+     */
+    public static boolean isEnabled() {
+        return EnvConfig.getBoolean("AI_SNAPSHOT_DEDUP", true);
+    }
+
+    /**
+     * Finds the description of the most alike live snapshot.
+     *
+     * @param hash perceptual hash of the snapshot
+     * @param exact hash of the pixels of the snapshot
+     * @return the description, or null when no snapshot is within the threshold
+     */
+    public synchronized String find(final long hash, final long exact) {
+        final long now = clock.getAsLong();
+        Long nearest = null;
+        int nearestDistance = Integer.MAX_VALUE;
+        final Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Long, Entry> candidate = it.next();
+            if (now - candidate.getValue().storedAt() > ttlMillis) {
+                it.remove();
+                metrics.recordEviction();
+                continue;
+            }
+            final int distance = PerceptualHash.distance(hash, candidate.getKey());
+            if (distance > threshold || distance >= nearestDistance) {
+                continue;
+            }
+            if ((isNearBlank(hash) || isNearBlank(candidate.getKey()))
+                    && candidate.getValue().exact() != exact) {
+                continue;
+            }
+            nearest = candidate.getKey();
+            nearestDistance = distance;
+        }
+        if (nearest == null) {
+            metrics.recordMiss();
+            return null;
+        }
+        metrics.recordMemoryHit();
+        // marks the entry as recently used
+        return entries.get(nearest).description();
+    }
+
+    /**
+     * Stores the description of a snapshot.
+     *
+     * @param hash perceptual hash of the snapshot
+     * @param exact hash of the pixels of the snapshot
+     * @param description the description
+     */
+    public synchronized void put(final long hash, final long exact, final String description) {
+        entries.put(hash, new Entry(description, exact, clock.getAsLong()));
+        metrics.recordPut();
+    }
+
+    /**
+     * Returns whether a hash is within the threshold of the hash of a blank board.
+     *
+     * @param hash perceptual hash of a snapshot
+     * @return true if the hash tells too little about the board to match it by likeness
+     */
+    private boolean isNearBlank(final long hash) {
+        return Long.bitCount(hash) <= threshold;
+    }
+
+    /**
+     * Returns the number of snapshots held.
+     *
+     * @return entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the hit and miss counters of the lookups.
+     *
+     * @return the counters
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+}
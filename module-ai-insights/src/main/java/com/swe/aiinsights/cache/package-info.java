@@ -0,0 +1,4 @@
+/**
+ * Caches of AI responses, so identical requests are not sent to the LLM again.
+ */
+package com.swe.aiinsights.cache;
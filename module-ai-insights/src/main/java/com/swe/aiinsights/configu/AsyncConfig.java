@@ -11,6 +11,20 @@
  * Provides configuration for asynchronous AI execution.
  * This includes creation of a thread pool used for AI-related tasks.
  *
+ * <p>
+ * Two modes are available. The default is a fixed pool of platform threads.
+ * The virtual mode runs every request on its own virtual thread, which
+ * suits requests that spend most of their time blocked on the LLM call.
+ * </p>
+ *
+ * <p>
+ * The mode only matters for blocking work. Gemini, Ollama and the
+ * orchestrator over them are non-blocking: their requests wait on the
+ * HTTP dispatcher and hold no thread of this executor. It runs the
+ * requests of a blocking LlmService, and the calls the orchestrator makes
+ * to a blocking service in its chain.
+ * </p>
+ *
  * @author Berelli Gouthami
  * @editedby Abhirami R Iyer
  */
@@ -35,6 +49,47 @@ public class AsyncConfig {
     private static final Logger LOG =
             CommonLogger.getLogger(AsyncConfig.class);
 
+    /**
+     * Default number of AI requests running at once in virtual mode.
+     */
+    private static final int DEFAULT_VIRTUAL_CONCURRENCY = 256;
+
+    /**
+     * Reads the executor mode from AI_EXECUTOR_MODE (platform or virtual).
+     *
+     * @return the configured mode, PLATFORM by default
+     */
+    public static ExecutorMode configuredMode() {
+        return ExecutorMode.fromString(EnvConfig.getString("AI_EXECUTOR_MODE", "platform"));
+    }
+
+    /**
+     * Creates the executor for the given mode.
+     * The concurrency limit of the virtual mode is read from AI_MAX_CONCURRENCY.
+     *
+     * @param mode kind of executor to create
+     * @return a configured executor
+     */
+    public static Executor aiExecutor(final ExecutorMode mode) {
+        if (mode == ExecutorMode.VIRTUAL) {
+            return virtualAiExecutor(
+                    EnvConfig.getInt("AI_MAX_CONCURRENCY", DEFAULT_VIRTUAL_CONCURRENCY));
+        }
+        return aiExecutor();
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor for AI-related tasks.
+     * Requests above the limit wait for a permit instead of being rejected.
+     *
+     * @param maxConcurrency maximum number of requests running at once
+     * @return a configured executor
+     */
+    public static Executor virtualAiExecutor(final int maxConcurrency) {
+        LOG.info("Initializing virtual AI Executor: maxConcurrency={}", maxConcurrency);
+        return new BoundedVirtualExecutor(maxConcurrency);
+    }
+
     /**
      * Creates and configures a thread pool for AI-related tasks.
      *
@@ -0,0 +1,109 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: BoundedVirtualExecutor.java
+ *  Owner: Berelli Gouthami
+ *  Roll Number : 112201003
+ *  Module : com.swe.aiinsights.configu
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Virtual thread executor with a cap on concurrently running tasks.
+ *
+ * <p>
+ *     Every submitted task gets its own virtual thread, so a task that is
+ *     blocked on an HTTP call only costs a few KB of heap. Instead of a
+ *     bounded queue, a semaphore limits how many tasks run at once; tasks
+ *     above the limit park on the semaphore and are never rejected.
+ * </p>
+ * <p>
+ *     References
+ *     1. https://openjdk.org/jeps/444
+ * </p>
+ *
+ * @author Berelli Gouthami
+ */
+
+package com.swe.aiinsights.configu;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor running each task on a new virtual thread.
+ */
+public final class BoundedVirtualExecutor implements Executor {
+    /**
+     * Limits the number of tasks running at the same time.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Maximum number of tasks running at the same time.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * Creates named virtual threads.
+     */
+    private final ThreadFactory threadFactory;
+
+    /**
+     * Creates the executor.
+     *
+     * @param concurrencyLimit maximum number of tasks running at once
+     */
+    public BoundedVirtualExecutor(final int concurrencyLimit) {
+        if (concurrencyLimit <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+        this.maxConcurrency = concurrencyLimit;
+        this.permits = new Semaphore(concurrencyLimit, true);
+        this.threadFactory = Thread.ofVirtual().name("AI-VWorker-", 0).factory();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(final Runnable task) {
+        final Thread thread = threadFactory.newThread(() -> {
+            // the task must run eventually, otherwise its future never completes
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+        thread.start();
+    }
+
+    /**
+     * Returns the configured concurrency limit.
+     *
+     * @return maximum number of tasks running at once
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns how many tasks are running right now.
+     *
+     * @return number of tasks holding a permit
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Returns how many tasks are waiting for a permit.
+     *
+     * @return approximate number of waiting tasks
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: EnvConfig.java
+ *  Owner: Berelli Gouthami
+ *  Roll Number : 112201003
+ *  Module : com.swe.aiinsights.configu
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Reads tunable settings of the AI module.
+ *
+ * <p>
+ *     A setting is looked up in the process environment first and then in
+ *     the .env file, in the same order CloudFunctionLibrary uses for
+ *     CLOUD_BASE_URL. A missing .env file is not an error here, every
+ *     setting has a default. The .env file is read once, on the first
+ *     lookup that needs it.
+ * </p>
+ *
+ * @author Berelli Gouthami
+ */
+
+package com.swe.aiinsights.configu;
+
+import com.swe.aiinsights.logging.CommonLogger;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.slf4j.Logger;
+
+/**
+ * Lookup of optional configuration values with defaults.
+ */
+public final class EnvConfig {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(EnvConfig.class);
+
+    /**
+     * Contents of the .env file, null until it was read.
+     */
+    private static volatile Dotenv dotenv;
+
+    private EnvConfig() { }
+
+    /**
+     * Returns the raw value of a setting.
+     *
+     * @param key name of the setting
+     * @param defaultValue value used when the setting is absent
+     * @return configured value or the default
+     */
+    public static String getString(final String key, final String defaultValue) {
+        final String fromEnv = System.getenv(key);
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return fromEnv.trim();
+        }
+        try {
+            final Dotenv file = dotenv();
+            final String fromFile = file == null ? null : file.get(key);
+            if (fromFile != null && !fromFile.isBlank()) {
+                return fromFile.trim();
+            }
+        } catch (Exception e) {
+            LOG.debug("Could not read {} from .env, using default", key);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the contents of the .env file, reading it on first use.
+     * A failed read is not kept, the next lookup tries again.
+     *
+     * @return the contents, or null when the file could not be read
+     */
+    private static Dotenv dotenv() {
+        Dotenv localReference = dotenv;
+        if (localReference == null) {
+            synchronized (EnvConfig.class) {
+                localReference = dotenv;
+                if (localReference == null) {
+                    final Dotenv.DotenvBuilder builder = Dotenv.configure();
+                    localReference = builder == null ? null : builder.ignoreIfMissing().load();
+                    dotenv = localReference;
+                }
+            }
+        }
+        return localReference;
+    }
+
+    /**
+     * Returns an integer setting.
+     *
+     * @param key name of the setting
+     * @param defaultValue value used when the setting is absent or invalid
+     * @return configured value or the default
+     */
+    public static int getInt(final String key, final int defaultValue) {
+        final String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid integer for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a long setting.
+     *
+     * @param key name of the setting
+     * @param defaultValue value used when the setting is absent or invalid
+     * @return configured value or the default
+     */
+    public static long getLong(final String key, final long defaultValue) {
+        final String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid long for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a decimal setting.
+     *
+     * @param key name of the setting
+     * @param defaultValue value used when the setting is absent or invalid
+     * @return configured value or the default
+     */
+    public static double getDouble(final String key, final double defaultValue) {
+        final String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid number for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a boolean setting.
+     *
+     * @param key name of the setting
+     * @param defaultValue value used when the setting is absent
+     * @return configured value or the default
+     */
+    public static boolean getBoolean(final String key, final boolean defaultValue) {
+        final String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
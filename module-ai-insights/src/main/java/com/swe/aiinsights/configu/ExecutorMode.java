@@ -0,0 +1,37 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: ExecutorMode.java
+ *  Owner: Berelli Gouthami
+ *  Roll Number : 112201003
+ *  Module : com.swe.aiinsights.configu
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights.configu;
+
+/**
+ * Kinds of executors that can run AI requests.
+ */
+public enum ExecutorMode {
+    /**
+     * Fixed pool of platform threads with a bounded queue.
+     */
+    PLATFORM,
+    /**
+     * One virtual thread per request, bounded by a concurrency limit.
+     */
+    VIRTUAL;
+
+    /**
+     * Parses the mode from a configuration value.
+     *
+     * @param value configured value, case-insensitive
+     * @return matching mode, PLATFORM when the value is unknown
+     */
+    public static ExecutorMode fromString(final String value) {
+        if (value != null && "virtual".equalsIgnoreCase(value.trim())) {
+            return VIRTUAL;
+        }
+        return PLATFORM;
+    }
+}
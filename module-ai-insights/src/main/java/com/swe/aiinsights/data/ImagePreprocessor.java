@@ -0,0 +1,430 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: ImagePreprocessor.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.data
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Prepares whiteboard snapshots before they are described.
+ *
+ * <p>
+ * Whiteboard exports can be far larger than what the model looks at.
+ * Images are downscaled to a maximum dimension and can be re-encoded as
+ * a palette PNG or a JPEG, so less is uploaded and fewer image tokens
+ * are billed. Processed images are kept by the hash of the original
+ * bytes, so a snapshot described twice is only processed once.
+ * </p>
+ *
+ * <p>
+ * References:
+ *     1. https://ai.google.dev/gemini-api/docs/image-understanding
+ *     2. https://docs.oracle.com/en/java/javase/21/docs/api/java.desktop/javax/imageio/ImageIO.html
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.data;
+
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downscales and re-encodes images, keeping the results by content hash.
+ */
+public final class ImagePreprocessor {
+
+    /**
+     * Encoding of the processed image.
+     */
+    public enum Format {
+        /**
+         * Keeps the encoding of the original, only downscaled images are re-encoded.
+         */
+        ORIGINAL,
+        /**
+         * Full colour PNG.
+         */
+        PNG,
+        /**
+         * PNG with a 256 colour palette, small for drawings with few colours.
+         */
+        PALETTE_PNG,
+        /**
+         * JPEG with the configured quality, small for photos.
+         */
+        JPEG;
+
+        /**
+         * Parses a format name, ignoring case.
+         *
+         * @param name name of the format
+         * @return the format, ORIGINAL for an unknown name
+         */
+        public static Format fromName(final String name) {
+            if (name != null) {
+                for (final Format format : values()) {
+                    if (format.name().equalsIgnoreCase(name.trim())) {
+                        return format;
+                    }
+                }
+            }
+            return ORIGINAL;
+        }
+    }
+
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(ImagePreprocessor.class);
+
+    /**
+     * Default longest side of a processed image in pixels.
+     */
+    private static final int DEFAULT_MAX_DIMENSION = 1536;
+
+    /**
+     * Default JPEG quality, between 0 and 1.
+     */
+    private static final double DEFAULT_JPEG_QUALITY = 0.85;
+
+    /**
+     * Default size of the processed images kept.
+     */
+    private static final long DEFAULT_CACHE_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Load factor of the cache map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Initial capacity of the cache map.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Processed image, or no bytes when the original is sent as it is.
+     *
+     * @param bytes encoded image, null to send the original
+     * @param mimeType media type of the encoded image
+     */
+    private record Processed(byte[] bytes, String mimeType) {
+        /**
+         * Gets the size counted against the cache budget.
+         *
+         * @return size in bytes
+         */
+        long size() {
+            return bytes == null ? 0 : bytes.length;
+        }
+    }
+
+    /**
+     * Longest side of a processed image, 0 or less to keep the size.
+     */
+    private final int maxDimension;
+
+    /**
+     * Encoding of the processed image.
+     */
+    private final Format format;
+
+    /**
+     * JPEG quality, between 0 and 1.
+     */
+    private final float jpegQuality;
+
+    /**
+     * Most bytes of processed images kept.
+     */
+    private final long maxCacheBytes;
+
+    /**
+     * Processed images by hash of the original, in access order.
+     */
+    private final LinkedHashMap<String, Processed> cache =
+            new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    /**
+     * Bytes of processed images kept.
+     */
+    private long cachedBytes;
+
+    /**
+     * Creates a preprocessor.
+     *
+     * @param givenMaxDimension longest side of a processed image, 0 or less to keep the size
+     * @param givenFormat encoding of the processed image
+     * @param givenJpegQuality JPEG quality, between 0 and 1
+     * @param givenMaxCacheBytes most bytes of processed images kept
+     */
+    public ImagePreprocessor(final int givenMaxDimension, final Format givenFormat,
+                             final double givenJpegQuality, final long givenMaxCacheBytes) {
+        if (givenJpegQuality <= 0 || givenJpegQuality > 1) {
+            throw new IllegalArgumentException("JPEG quality must be in (0, 1]");
+        }
+        this.maxDimension = givenMaxDimension;
+        this.format = givenFormat;
+        this.jpegQuality = (float) givenJpegQuality;
+        this.maxCacheBytes = givenMaxCacheBytes;
+    }
+
+    /**
+     * Creates the preprocessor configured from the environment.
+     * AI_IMAGE_MAX_DIMENSION, AI_IMAGE_FORMAT (ORIGINAL, PNG, PALETTE_PNG or
+     * JPEG), AI_IMAGE_JPEG_QUALITY and AI_IMAGE_CACHE_BYTES override the defaults.
+     *
+     * @return the preprocessor
+     */
+    public static ImagePreprocessor fromEnv() {
+        return new ImagePreprocessor(
+                EnvConfig.getInt("AI_IMAGE_MAX_DIMENSION", DEFAULT_MAX_DIMENSION),
+                Format.fromName(EnvConfig.getString("AI_IMAGE_FORMAT", Format.ORIGINAL.name())),
+                EnvConfig.getDouble("AI_IMAGE_JPEG_QUALITY", DEFAULT_JPEG_QUALITY),
+                EnvConfig.getLong("AI_IMAGE_CACHE_BYTES", DEFAULT_CACHE_BYTES));
+    }
+
+    /**
+     * Prepares an image to be described.
+     * Images that cannot be decoded, or that would not get smaller, are
+     * returned unchanged.
+     *
+     * @param original the image as uploaded
+     * @return the processed image held in memory, or the original
+     * @throws IOException if the image cannot be read
+     */
+    public WhiteBoardData prepare(final WhiteBoardData original) throws IOException {
+        if (maxDimension <= 0 && format == Format.ORIGINAL) {
+            return original;
+        }
+        final String hash = original.getContentHash();
+        Processed processed = cached(hash);
+        if (processed == null) {
+            processed = process(original);
+            store(hash, processed);
+        }
+        if (processed.bytes() == null) {
+            return original;
+        }
+        return new WhiteBoardData(processed.bytes(), processed.mimeType());
+    }
+
+    /**
+     * Gets the bytes of processed images kept.
+     *
+     * @return size of the cache in bytes
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * Decodes, downscales and re-encodes an image.
+     *
+     * @param original the image as uploaded
+     * @return the processed image, with no bytes when the original is kept
+     * @throws IOException if the image cannot be read
+     */
+    private Processed process(final WhiteBoardData original) throws IOException {
+        final long start = System.nanoTime();
+        final BufferedImage image;
+        final long originalSize;
+        try (InputStream in = original.openImage()) {
+            final byte[] bytes = in.readAllBytes();
+            originalSize = bytes.length;
+            // decoded in memory, without the disk cache of ImageIO
+            image = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes)));
+        }
+        if (image == null) {
+            LOG.info("Image format not readable, sending the original");
+            return new Processed(null, original.getMimeType());
+        }
+
+        final int longest = Math.max(image.getWidth(), image.getHeight());
+        final boolean downscale = maxDimension > 0 && longest > maxDimension;
+        if (!downscale && format == Format.ORIGINAL) {
+            return new Processed(null, original.getMimeType());
+        }
+        final Format target = format == Format.ORIGINAL ? formatOf(original.getMimeType()) : format;
+        final BufferedImage scaled = downscale ? downscale(image, maxDimension) : image;
+        final Processed encoded = encode(scaled, target);
+
+        LOG.debug("Processed {}x{} image of {} bytes into {} bytes of {} in {} ms",
+                image.getWidth(), image.getHeight(), originalSize, encoded.size(), encoded.mimeType(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (!downscale && encoded.size() >= originalSize) {
+            return new Processed(null, original.getMimeType());
+        }
+        return encoded;
+    }
+
+    /**
+     * Picks the encoding matching a media type.
+     *
+     * @param mimeType media type of the original
+     * @return JPEG for JPEG originals, PNG otherwise
+     */
+    private static Format formatOf(final String mimeType) {
+        if ("image/jpeg".equals(mimeType)) {
+            return Format.JPEG;
+        }
+        return Format.PNG;
+    }
+
+    /**
+     * Scales an image down so that its longest side fits.
+     * The size is halved in steps before the last step, which keeps thin
+     * strokes visible where a single bilinear step would drop them.
+     *
+     * @param image the image
+     * @param longestSide longest side of the result
+     * @return the scaled image
+     */
+    private static BufferedImage downscale(final BufferedImage image, final int longestSide) {
+        final double scale = (double) longestSide / Math.max(image.getWidth(), image.getHeight());
+        final int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        final int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            final BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    /**
+     * Encodes an image.
+     *
+     * @param image the image
+     * @param target the encoding
+     * @return the encoded image
+     * @throws IOException if the image cannot be encoded
+     */
+    private Processed encode(final BufferedImage image, final Format target) throws IOException {
+        switch (target) {
+            case JPEG:
+                return new Processed(write(flatten(image, BufferedImage.TYPE_INT_RGB), "jpeg", jpegQuality),
+                        "image/jpeg");
+            case PALETTE_PNG:
+                return new Processed(write(flatten(image, BufferedImage.TYPE_BYTE_INDEXED), "png", -1),
+                        "image/png");
+            default:
+                return new Processed(write(image, "png", -1), "image/png");
+        }
+    }
+
+    /**
+     * Draws an image on a white background, for encodings without transparency.
+     *
+     * @param image the image
+     * @param type type of the result
+     * @return the image without transparency
+     */
+    private static BufferedImage flatten(final BufferedImage image, final int type) {
+        final BufferedImage flat = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        final Graphics2D graphics = flat.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return flat;
+    }
+
+    /**
+     * Writes an image in memory, without the disk cache of ImageIO.
+     *
+     * @param image the image
+     * @param formatName ImageIO format name
+     * @param quality compression quality, less than 0 for the default
+     * @return the encoded bytes
+     * @throws IOException if no writer is available or writing fails
+     */
+    private static byte[] write(final BufferedImage image, final String formatName,
+                                final float quality) throws IOException {
+        final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + formatName.toUpperCase(Locale.ROOT));
+        }
+        final ImageWriter writer = writers.next();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            if (quality >= 0 && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Looks up a processed image.
+     *
+     * @param hash hash of the original
+     * @return the processed image, or null
+     */
+    private synchronized Processed cached(final String hash) {
+        return cache.get(hash);
+    }
+
+    /**
+     * Keeps a processed image, evicting the least recently used ones over budget.
+     *
+     * @param hash hash of the original
+     * @param processed the processed image
+     */
+    private synchronized void store(final String hash, final Processed processed) {
+        if (processed.size() > maxCacheBytes) {
+            return;
+        }
+        final Processed previous = cache.put(hash, processed);
+        if (previous != null) {
+            cachedBytes -= previous.size();
+        }
+        cachedBytes += processed.size();
+        final Iterator<Map.Entry<String, Processed>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: TileDiff.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.data
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Finds the parts of a whiteboard that changed between two snapshots.
+ *
+ * <p>
+ * Both snapshots are cut into square tiles and a tile is changed when
+ * one of its pixels moved by more than a small tolerance, so that
+ * re-encoding noise is ignored. Touching changed tiles are grouped into
+ * regions, and the regions are packed side by side into one image that
+ * is small when the change is small.
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.data;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Tile based difference of two whiteboard snapshots.
+ */
+public final class TileDiff {
+    /**
+     * Largest change of a colour channel that is not counted as a change.
+     */
+    private static final int TOLERANCE = 24;
+
+    /**
+     * Mask of one colour channel.
+     */
+    private static final int CHANNEL = 0xFF;
+
+    /**
+     * Shifts of the alpha, red, green and blue channels.
+     */
+    private static final int[] SHIFTS = {24, 16, 8, 0};
+
+    /**
+     * Gap between two regions in a packed image, in pixels.
+     */
+    private static final int GAP = 8;
+
+    private TileDiff() { }
+
+    /**
+     * Finds the regions that changed.
+     * Snapshots of different sizes are treated as changed everywhere.
+     *
+     * @param previous the earlier snapshot
+     * @param current the later snapshot
+     * @param tileSize side of a tile in pixels
+     * @param maxRegions most regions returned, more are merged into one
+     * @return the changed regions in reading order, empty when nothing changed
+     */
+    public static List<Rectangle> changedRegions(final BufferedImage previous, final BufferedImage current,
+                                                 final int tileSize, final int maxRegions) {
+        final int width = current.getWidth();
+        final int height = current.getHeight();
+        if (previous.getWidth() != width || previous.getHeight() != height) {
+            return List.of(new Rectangle(0, 0, width, height));
+        }
+        final int columns = (width + tileSize - 1) / tileSize;
+        final int rows = (height + tileSize - 1) / tileSize;
+        final boolean[][] changed = changedTiles(previous, current, tileSize, columns, rows);
+
+        final List<Rectangle> regions = new ArrayList<>();
+        final boolean[][] seen = new boolean[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (changed[row][column] && !seen[row][column]) {
+                    final Rectangle tiles = group(changed, seen, row, column);
+                    regions.add(new Rectangle(tiles.x * tileSize, tiles.y * tileSize,
+                            tiles.width * tileSize, tiles.height * tileSize)
+                            .intersection(new Rectangle(0, 0, width, height)));
+                }
+            }
+        }
+        if (regions.size() > maxRegions) {
+            Rectangle union = regions.get(0);
+            for (final Rectangle region : regions) {
+                union = union.union(region);
+            }
+            return List.of(union);
+        }
+        return regions;
+    }
+
+    /**
+     * Gets the share of the canvas covered by the regions.
+     *
+     * @param regions the regions, overlapping parts are counted twice
+     * @param width width of the canvas
+     * @param height height of the canvas
+     * @return share between 0 and 1
+     */
+    public static double coverage(final List<Rectangle> regions, final int width, final int height) {
+        long area = 0;
+        for (final Rectangle region : regions) {
+            area += (long) region.width * region.height;
+        }
+        return (double) area / ((long) width * height);
+    }
+
+    /**
+     * Packs the regions of an image side by side, left to right in the
+     * order given, on a white background.
+     *
+     * @param image the snapshot
+     * @param regions regions to copy
+     * @return the packed image
+     */
+    public static BufferedImage pack(final BufferedImage image, final List<Rectangle> regions) {
+        int width = 0;
+        int height = 0;
+        for (final Rectangle region : regions) {
+            width += region.width + GAP;
+            height = Math.max(height, region.height);
+        }
+        final BufferedImage packed = new BufferedImage(Math.max(1, width - GAP), Math.max(1, height),
+                BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = packed.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, packed.getWidth(), packed.getHeight());
+            int x = 0;
+            for (final Rectangle region : regions) {
+                graphics.drawImage(image.getSubimage(region.x, region.y, region.width, region.height), x, 0, null);
+                x += region.width + GAP;
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return packed;
+    }
+
+    /**
+     * Marks the tiles holding a changed pixel.
+     *
+     * @param previous the earlier snapshot
+     * @param current the later snapshot
+     * @param tileSize side of a tile in pixels
+     * @param columns tiles per row
+     * @param rows rows of tiles
+     * @return changed flag of every tile
+     */
+    private static boolean[][] changedTiles(final BufferedImage previous, final BufferedImage current,
+                                            final int tileSize, final int columns, final int rows) {
+        final int width = current.getWidth();
+        final boolean[][] changed = new boolean[rows][columns];
+        final int[] before = new int[width];
+        final int[] after = new int[width];
+        for (int y = 0; y < current.getHeight(); y++) {
+            previous.getRGB(0, y, width, 1, before, 0, width);
+            current.getRGB(0, y, width, 1, after, 0, width);
+            final boolean[] tileRow = changed[y / tileSize];
+            for (int x = 0; x < width; x++) {
+                if (!tileRow[x / tileSize] && differs(before[x], after[x])) {
+                    tileRow[x / tileSize] = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Compares two pixels channel by channel.
+     *
+     * @param first a pixel
+     * @param second another pixel
+     * @return true if a channel differs by more than the tolerance
+     */
+    private static boolean differs(final int first, final int second) {
+        if (first == second) {
+            return false;
+        }
+        for (final int shift : SHIFTS) {
+            if (Math.abs((first >>> shift & CHANNEL) - (second >>> shift & CHANNEL)) > TOLERANCE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the changed tiles touching a tile, diagonals included.
+     *
+     * @param changed changed flag of every tile
+     * @param seen tiles already grouped, updated
+     * @param startRow row of the first tile
+     * @param startColumn column of the first tile
+     * @return bounds of the group in tiles
+     */
+    private static Rectangle group(final boolean[][] changed, final boolean[][] seen,
+                                   final int startRow, final int startColumn) {
+        final Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[] {startRow, startColumn});
+        seen[startRow][startColumn] = true;
+        Rectangle bounds = new Rectangle(startColumn, startRow, 1, 1);
+        while (!pending.isEmpty()) {
+            final int[] tile = pending.pop();
+            bounds = bounds.union(new Rectangle(tile[1], tile[0], 1, 1));
+            for (int row = tile[0] - 1; row <= tile[0] + 1; row++) {
+                for (int column = tile[1] - 1; column <= tile[1] + 1; column++) {
+                    if (row >= 0 && row < changed.length && column >= 0 && column < changed[row].length
+                            && changed[row][column] && !seen[row][column]) {
+                        seen[row][column] = true;
+                        pending.push(new int[] {row, column});
+                    }
+                }
+            }
+        }
+        return bounds;
+    }
+}
@@ -10,6 +10,12 @@
 /**
  * To store the snapshot of whiteboard sent by the Canvas team.
  *
+ * <p>
+ * In streamed mode only the path is kept. The image is Base64 encoded
+ * while the request body is written, so a large snapshot is never held
+ * on the heap as a whole.
+ * </p>
+ *
  * @author Abhirami R Iyer
  */
 
@@ -17,11 +23,19 @@ package com.swe.aiinsights.data;
 
 import com.swe.aiinsights.logging.CommonLogger;
 import org.slf4j.Logger;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
 
 /**
  * Represents an image file to be sent to the AI.
@@ -43,6 +57,26 @@ public class WhiteBoardData {
      */
     private Path imgFile;
 
+    /**
+     * Processed image held in memory, null when the image is read from its file.
+     */
+    private byte[] imageBytes;
+
+    /**
+     * Media type of the image, such as image/png.
+     */
+    private final String mimeType;
+
+    /**
+     * Whether the image is read from the file when it is sent.
+     */
+    private final boolean streamed;
+
+    /**
+     * SHA-256 of the image bytes, computed on first use in streamed mode.
+     */
+    private volatile String contentHash;
+
     /**
      * Constructs a WhiteBoardData object by reading the image file.
      *
@@ -53,20 +87,144 @@ public class WhiteBoardData {
         // accesses the image and encodes it to string(png bytes)
         LOG.info("Reading the image, converting it to Base64");
         this.imgFile = Paths.get(img);
+        this.mimeType = mimeTypeOf(imgFile);
+        this.streamed = false;
         final byte[] pngBytes = Files.readAllBytes(imgFile);
         this.content = Base64.getEncoder().encodeToString(pngBytes);
     }
 
+    /**
+     * Constructs a WhiteBoardData object for the image file.
+     * In streamed mode only the path is kept and the file is read when
+     * the request is sent.
+     *
+     * @param img Path to the image file.
+     * @param stream whether the image is read when it is sent
+     * @throws IOException if the file cannot be read.
+     */
+    public WhiteBoardData(final String img, final boolean stream) throws IOException {
+        this.imgFile = Paths.get(img);
+        this.mimeType = mimeTypeOf(imgFile);
+        this.streamed = stream;
+        if (stream) {
+            LOG.info("Keeping the image path, the image is encoded when it is sent");
+            if (!Files.isReadable(imgFile) || Files.isDirectory(imgFile)) {
+                throw new IOException("Cannot read image " + imgFile);
+            }
+        } else {
+            LOG.info("Reading the image, converting it to Base64");
+            this.content = Base64.getEncoder().encodeToString(Files.readAllBytes(imgFile));
+        }
+    }
+
+    /**
+     * Constructs a WhiteBoardData object for an image processed in memory.
+     * The bytes are encoded while the request is sent, like in streamed mode.
+     *
+     * @param bytes the encoded image, not copied
+     * @param givenMimeType media type of the image, such as image/jpeg
+     */
+    public WhiteBoardData(final byte[] bytes, final String givenMimeType) {
+        this.imageBytes = bytes;
+        this.mimeType = givenMimeType;
+        this.streamed = true;
+    }
+
     /**
      * Returns the Base64 encoded content of the image.
+     * In streamed mode the file is read and encoded on every call.
      *
      * @return Base64 encoded image content.
+     * @throws IOException if reading the file fails.
      */
     public String getContent() throws IOException {
         // to get the string content
+        if (this.content == null && streamed) {
+            try (InputStream in = openImage()) {
+                return Base64.getEncoder().encodeToString(in.readAllBytes());
+            }
+        }
         return this.content;
     }
 
+    /**
+     * Tells whether the image is read from the file when it is sent.
+     *
+     * @return true in streamed mode, when no content was set
+     */
+    public boolean isStreamed() {
+        return streamed && this.content == null;
+    }
+
+    /**
+     * Opens the image bytes, to be encoded while the request is written.
+     *
+     * @return stream of the raw image bytes, closed by the caller
+     * @throws IOException if the file cannot be opened.
+     */
+    public InputStream openImage() throws IOException {
+        if (imageBytes != null) {
+            return new ByteArrayInputStream(imageBytes);
+        }
+        return Files.newInputStream(imgFile);
+    }
+
+    /**
+     * Returns the media type of the image.
+     *
+     * @return media type such as image/png
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Works out the media type of an image from its file name.
+     *
+     * @param file the image file
+     * @return the media type, image/png when the name gives no hint
+     */
+    private static String mimeTypeOf(final Path file) {
+        final Path name = file.getFileName();
+        final String lower = name == null ? "" : name.toString().toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "image/jpeg";
+        }
+        if (lower.endsWith(".webp")) {
+            return "image/webp";
+        }
+        if (lower.endsWith(".gif")) {
+            return "image/gif";
+        }
+        return "image/png";
+    }
+
+    /**
+     * Returns a hash identifying the image, without keeping the image.
+     * The file is read once and the hash is kept.
+     *
+     * @return hex encoded SHA-256 of the image bytes
+     * @throws IOException if reading the file fails.
+     */
+    public String getContentHash() throws IOException {
+        String hash = contentHash;
+        if (hash == null) {
+            final MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // every JRE ships SHA-256
+                throw new IllegalStateException(e);
+            }
+            try (InputStream in = new DigestInputStream(openImage(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+            contentHash = hash;
+        }
+        return hash;
+    }
+
     /**
      * Sets the Base64 content of the image(if not read from the path).
      *
@@ -0,0 +1,89 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: RequestFingerprint.java
+ *  Owner: Berelli Gouthami
+ *  Roll Number : 112201003
+ *  Module : com.swe.aiinsights.generaliser
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Content hash identifying an AI request.
+ *
+ * <p>
+ * Two requests with the same type, prompt and input data get the same
+ * fingerprint, no matter which request object carries them.
+ * </p>
+ *
+ * <p>
+ * References:
+ *     1. https://docs.oracle.com/en/java/javase/21/docs/api/java.base/java/security/MessageDigest.html
+ * </p>
+ *
+ * @author Berelli Gouthami
+ */
+
+package com.swe.aiinsights.generaliser;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes SHA-256 fingerprints of requests.
+ */
+public final class RequestFingerprint {
+
+    private RequestFingerprint() { }
+
+    /**
+     * Fingerprints a request from its parts.
+     * Every part is length prefixed so that moving text from one part to
+     * another changes the fingerprint.
+     *
+     * @param parts request type, prompt, input data... (null parts allowed)
+     * @return hex encoded SHA-256 of the parts
+     */
+    public static String of(final String... parts) {
+        final MessageDigest digest = newDigest();
+        for (final String part : parts) {
+            if (part == null) {
+                update(digest, -1);
+                continue;
+            }
+            final byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            update(digest, bytes.length);
+            digest.update(bytes);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return a new digest
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Feeds an int into the digest.
+     *
+     * @param digest the digest
+     * @param value value to add
+     */
+    private static void update(final MessageDigest digest, final int value) {
+        final int byteBits = 8;
+        final int intBytes = 4;
+        for (int i = intBytes - 1; i >= 0; i--) {
+            digest.update((byte) (value >>> (i * byteBits)));
+        }
+    }
+}
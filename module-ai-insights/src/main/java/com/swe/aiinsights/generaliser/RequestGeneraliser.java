@@ -35,9 +35,11 @@
 package com.swe.aiinsights.generaliser;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.swe.aiinsights.data.WhiteBoardData;
 import com.swe.aiinsights.logging.CommonLogger;
 import com.swe.aiinsights.parser.RegulariserParser;
 import com.swe.aiinsights.parser.InsightsParser;
+import com.swe.aiinsights.request.AiDescriptionRequest;
 import com.swe.aiinsights.request.AiRequestable;
 import com.swe.aiinsights.response.AiResponse;
 import com.swe.aiinsights.response.InterpreterResponse;
@@ -74,6 +76,14 @@ public class RequestGeneraliser {
      * Holds supporting image data if any.
      */
     private String imgData;
+    /**
+     * Holds the image read from its file while the request is sent, if any.
+     */
+    private WhiteBoardData image;
+    /**
+     * Holds the media type of the image, null when unknown.
+     */
+    private String imgMimeType;
     /**
      * Holds the reqType of that generalised request.
      */
@@ -86,7 +96,7 @@ public class RequestGeneraliser {
      * Allowed request kinds.
      */
     private ArrayList<String> registeredKeys = new ArrayList<>(
-            List.of("DESC", "REG", "INS", "SUM", "ACTION", "QNA"));
+            List.of("DESC", "REG", "REGBATCH", "INS", "SUM", "ACTION", "QNA"));
 
 
     public RequestGeneraliser(final AiRequestable request) {
@@ -98,33 +108,69 @@ public class RequestGeneraliser {
 
         this.reqType = request.getReqType();
         if (Objects.equals(reqType, "DESC")) {
-            setImgData((String) request.getInput());
+            final WhiteBoardData whiteboard = request instanceof AiDescriptionRequest description
+                    ? description.getImage() : null;
+            if (whiteboard != null) {
+                this.imgMimeType = whiteboard.getMimeType();
+            }
+            if (whiteboard != null && whiteboard.isStreamed()) {
+                // only the path is kept, adapters encode the image while writing the body
+                this.image = whiteboard;
+            } else {
+                setImgData((String) request.getInput());
+            }
         } else {
             setTextData(request.getInput().toString());
         }
-        switch (this.reqType) {
+        aiResponse = newResponse(reqType);
+    }
+
+    /**
+     * Creates a copy of the given request with a response of its own.
+     * @param other request to copy
+     */
+    private RequestGeneraliser(final RequestGeneraliser other) {
+        this.prompt = other.prompt;
+        this.textData = other.textData;
+        this.imgData = other.imgData;
+        this.image = other.image;
+        this.imgMimeType = other.imgMimeType;
+        this.reqType = other.reqType;
+        this.aiResponse = newResponse(other.reqType);
+    }
+
+    /**
+     * Copies the request, so that it can be sent to a second service
+     * without both services writing into the same response.
+     * @return the copy
+     */
+    public RequestGeneraliser copy() {
+        return new RequestGeneraliser(this);
+    }
+
+    /**
+     * Creates the empty response of a request type.
+     * @param type the request type
+     * @return the response, null for an unknown type
+     */
+    private static AiResponse newResponse(final String type) {
+        switch (type) {
             case "DESC" :
-                aiResponse = new InterpreterResponse();
-                break;
+                return new InterpreterResponse();
             case "REG":
-                aiResponse = new RegulariserResponse();
-                break;
+            case "REGBATCH":
+                return new RegulariserResponse();
             case "SUM" :
-                aiResponse = new SummariserResponse();
-                break;
+                return new SummariserResponse();
             case "INS" :
-                aiResponse = new InsightsResponse();
-                break;
+                return new InsightsResponse();
             case "ACTION" :
-                aiResponse = new ActionItemsResponse();
-                break;
+                return new ActionItemsResponse();
             case "QNA" :
-                aiResponse = new QuestionAnswerResponse();
-                break;
+                return new QuestionAnswerResponse();
             default:
                 // this case is not reachable
-                aiResponse = null;
-                break;
+                return null;
         }
     }
 
@@ -132,6 +178,22 @@ public class RequestGeneraliser {
         return imgData;
     }
 
+    /**
+     * Gets the image that is encoded while the request is sent.
+     * @return the streamed image, null when the image is in getImgData
+     */
+    public WhiteBoardData getImage() {
+        return image;
+    }
+
+    /**
+     * Gets the media type of the image.
+     * @return media type such as image/jpeg, null when unknown
+     */
+    public String getImgMimeType() {
+        return imgMimeType;
+    }
+
     public String getPrompt() {
         return prompt;
     }
@@ -10,6 +10,25 @@
 /**
  * <p>
  *     Used to get Gemini key list from cloud.
+ *     Each key carries a client side quota modelled on the Gemini rate
+ *     limits, so requests are spread over the keys that still have budget
+ *     instead of learning about an exhausted key from a 429.
+ *     Concurrent requests are scheduled over all healthy keys, round robin
+ *     or to the key with the fewest requests in flight, so throughput
+ *     grows with the number of keys.
+ * </p>
+ *
+ * <p>
+ *     The key list is fetched in the background, so creating the manager
+ *     never waits for the cloud. Until the cloud answers, the keys of the
+ *     last on-disk snapshot are used.
+ * </p>
+ *
+ * <p>
+ *     The key list is fetched again on a schedule and when every key is out
+ *     of budget, so keys added to the cloud are used without a restart.
+ *     The new list replaces the old one as a whole and keys that stay keep
+ *     their quota and the requests in flight.
  * </p>
  * @author : Nandhana Sunil
  */
@@ -18,16 +37,27 @@ package com.swe.aiinsights.getkeys;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swe.aiinsights.configu.EnvConfig;
 import com.swe.aiinsights.logging.CommonLogger;
 import com.swe.cloud.datastructures.Entity;
 import com.swe.cloud.datastructures.TimeRange;
 import com.swe.cloud.functionlibrary.CloudFunctionLibrary;
 import org.slf4j.Logger;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
 /**
  * The key manager class to get Gemini Key from cloud.
@@ -37,73 +67,259 @@ public final class GeminiKeyManager {
      * Get the log file path.
      */
     private static final Logger LOG = CommonLogger.getLogger(GeminiKeyManager.class);
+
+    /**
+     * Number of trailing characters of a key shown in metrics.
+     */
+    private static final int LABEL_SUFFIX = 4;
+
+    /**
+     * Default time between two fetches of the key list.
+     */
+    private static final long DEFAULT_REFRESH_SECONDS = 600;
+
+    /**
+     * Least time between two fetches started because every key was out of budget.
+     */
+    private static final long EXHAUSTED_REFRESH_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
     /**
-     * THe cloud function library which will fetch the keys.
+     * Daemon thread shared by every manager to fetch the key list again.
+     * A fetch only starts the cloud call, so one thread serves them all.
      */
-    private final CloudFunctionLibrary cloud;
+    private static final ScheduledExecutorService REFRESH_TIMER =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread t = new Thread(r);
+                t.setName("Gemini-Key-Refresh");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Keys in use and their quotas, replaced as a whole when a new key list arrives.
+     *
+     * @param keys the API keys
+     * @param quotas quota of each key, in the same order as the keys
+     */
+    private record KeyRing(List<String> keys, List<KeyQuota> quotas) {
+    }
 
     /**
-     * The list of string of apiKeys.
+     * Keys in use, empty until the first key list arrived.
      */
-    private final List<String> apiKeys;
+    private volatile KeyRing ring = new KeyRing(List.of(), List.of());
 
     /**
-     * Current index of the api Key used.
+     * Rate limits applied to every key.
      */
-    private final AtomicInteger apiKeyIndex = new AtomicInteger(0);
+    private final KeyLimits limits;
+
+    /**
+     * Where the key list is cached for the next start.
+     */
+    private final KeySnapshot snapshot;
+
+    /**
+     * How concurrent requests are spread over the keys.
+     */
+    private final KeyScheduling scheduling;
+
+    /**
+     * Source of the current time in millis.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Fetches the key list.
+     */
+    private final KeySource source;
+
+    /**
+     * Fetch of the key list in progress, or the last one.
+     */
+    private final AtomicReference<CompletableFuture<Integer>> pendingFetch = new AtomicReference<>();
+
+    /**
+     * Time the last fetch of the key list started.
+     */
+    private volatile long lastFetch;
+
+    /**
+     * Completed once keys are available, from the snapshot or the cloud.
+     */
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    /**
+     * Position from which the next key is looked for, so requests are spread over the keys.
+     */
+    private final AtomicInteger cursor = new AtomicInteger(0);
 
     /**
      * Constructor to create the key manager.
+     * The key list is fetched from the cloud in the background.
+     * GEMINI_RPM, GEMINI_TPM, GEMINI_RPD and GEMINI_KEY_RESET_SECONDS
+     * describe the quota of each key, GEMINI_KEY_SCHEDULING picks
+     * ROUND_ROBIN or LEAST_USED and AI_KEY_SNAPSHOT_FILE the snapshot.
+     * The key list is fetched again every GEMINI_KEY_REFRESH_SECONDS, 0 turns
+     * the schedule off.
      */
     public GeminiKeyManager() {
+        this(GeminiKeyManager::getKeyList, KeySnapshot.fromEnv(), KeyLimits.fromEnv(),
+                GeminiKeyManager::nowMillis,
+                KeyScheduling.fromName(
+                        EnvConfig.getString("GEMINI_KEY_SCHEDULING", KeyScheduling.LEAST_USED.name())));
+        scheduleRefresh(EnvConfig.getLong("GEMINI_KEY_REFRESH_SECONDS", DEFAULT_REFRESH_SECONDS));
+    }
+
+    /**
+     * Creates the key manager over the given keys.
+     * @param keys the API keys
+     * @param rpm requests per minute of a key
+     * @param tpm tokens per minute of a key
+     * @param rpd requests per day of a key, 0 for no daily limit
+     * @param givenResetMillis time a key that got a 429 is left alone
+     * @param givenClock source of the current time in millis
+     */
+    public GeminiKeyManager(final List<String> keys, final int rpm, final long tpm, final int rpd,
+                            final long givenResetMillis, final LongSupplier givenClock) {
+        this(keys, rpm, tpm, rpd, givenResetMillis, givenClock, KeyScheduling.LEAST_USED);
+    }
+
+    /**
+     * Creates the key manager over the given keys with the given scheduling.
+     * @param keys the API keys
+     * @param rpm requests per minute of a key
+     * @param tpm tokens per minute of a key
+     * @param rpd requests per day of a key, 0 for no daily limit
+     * @param givenResetMillis time a key that got a 429 is left alone
+     * @param givenClock source of the current time in millis
+     * @param givenScheduling how concurrent requests are spread over the keys
+     */
+    public GeminiKeyManager(final List<String> keys, final int rpm, final long tpm, final int rpd,
+                            final long givenResetMillis, final LongSupplier givenClock,
+                            final KeyScheduling givenScheduling) {
+        this(() -> CompletableFuture.completedFuture(keys), new KeySnapshot(null),
+                new KeyLimits(rpm, tpm, rpd, givenResetMillis), givenClock, givenScheduling);
+    }
+
+    /**
+     * Creates the key manager and starts fetching the keys.
+     * Returns without waiting for the source. The key list is fetched again
+     * when every key is out of budget or refresh is called.
+     * @param givenSource fetches the key list
+     * @param givenSnapshot where the key list is cached for the next start
+     * @param givenLimits rate limits applied to every key
+     * @param givenClock source of the current time in millis
+     * @param givenScheduling how concurrent requests are spread over the keys
+     */
+    public GeminiKeyManager(final KeySource givenSource, final KeySnapshot givenSnapshot,
+                            final KeyLimits givenLimits, final LongSupplier givenClock,
+                            final KeyScheduling givenScheduling) {
         LOG.info("Constructing Key manager");
-        this.cloud = new CloudFunctionLibrary();
-        this.apiKeys = Collections.unmodifiableList(getKeyList());
+        this.snapshot = givenSnapshot;
+        this.limits = givenLimits;
+        this.clock = givenClock;
+        this.scheduling = givenScheduling;
+        this.source = givenSource;
+
+        final List<String> cached = snapshot.read();
+        if (!cached.isEmpty()) {
+            LOG.info("Using {} keys from the snapshot until the cloud answers", cached.size());
+            install(cached);
+        }
+        refresh();
     }
 
     /**
-     * Get the next key available.
-     * @return thw next key available
+     * Tells whether the manager is still waiting for its first key list.
+     * @return true until keys are available
+     */
+    public boolean isStarting() {
+        return ring.keys().isEmpty();
+    }
+
+    /**
+     * Gets a future completed once keys are available.
+     * @return the readiness future
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    /**
+     * Get the next key that has budget left, taking one request from its budget.
+     * The key counts as in flight until releaseKey is called for it.
+     * @return the next key available, or null when every key is out of budget
      */
     public String getCurrentKey() {
         LOG.info("Fetching current key");
-        final int index = apiKeyIndex.get();
-        return apiKeys.get(Math.abs(index));
+        final KeyRing current = ring;
+        final int size = current.keys().size();
+        if (size == 0) {
+            refreshWhenExhausted();
+            return null;
+        }
+        final long now = clock.getAsLong();
+        final int start = Math.floorMod(cursor.getAndIncrement(), size);
+        for (final int index : candidateOrder(current, start)) {
+            if (current.quotas().get(index).tryAcquire(now)) {
+                return current.keys().get(index);
+            }
+        }
+        LOG.warn("All Gemini keys are out of budget");
+        refreshWhenExhausted();
+        return null;
+    }
+
+    /**
+     * Ends a request sent with a key returned by getCurrentKey.
+     * @param key the key used
+     */
+    public void releaseKey(final String key) {
+        final KeyQuota quota = quotaOf(key);
+        if (quota != null) {
+            quota.release();
+        }
     }
 
     /**
-     * Using compare and swap, get the currently used keys index.
+     * Marks a key as exhausted after the server answered with a 429 or 403.
+     * The key is used again once the reset window is over.
      * @param expiredKey the expired key - max token count reached
      */
     public void setKeyIndex(final String expiredKey) {
-        LOG.debug("Fetching currently used key using compare and swap");
-        final int currentIndex = apiKeyIndex.get();
-        final String currentKey = apiKeys.get(Math.abs(currentIndex));
-        if (currentKey.equals(expiredKey)) {
-            apiKeyIndex.compareAndSet(currentIndex, currentIndex + 1);
-            System.out.println(apiKeyIndex);
+        final KeyQuota quota = quotaOf(expiredKey);
+        if (quota == null) {
+            return;
         }
+        LOG.debug("Blocking key {} for {} ms", label(expiredKey), limits.resetMillis());
+        quota.block(clock.getAsLong(), limits.resetMillis());
     }
 
     /**
-            * This method is used to get the list of API Keys.
-     * @return list of Gemini API KEYS
+     * Charges the tokens used by a request to the key that sent it.
+     * @param key the key used
+     * @param tokens tokens used by the request and its answer
      */
-    private List<String> getKeyList() {
-        final Entity req = new Entity("AI_INSIGHT", "credentials", "gemini_list", "Key",
-                -1, new TimeRange(0, 0), null
-        );
+    public void recordTokens(final String key, final long tokens) {
+        final KeyQuota quota = quotaOf(key);
+        if (quota != null) {
+            quota.chargeTokens(tokens, clock.getAsLong());
+        }
+    }
 
-        final AtomicReference<Object> keyList = new AtomicReference<>();
-        LOG.debug("Getting key list from Cloud");
-        cloud.cloudGet(req).thenAccept(response -> {
-            final ObjectMapper objectMapper = new ObjectMapper();
-            keyList.set(objectMapper.convertValue(
-                    response.data(),
-                    new TypeReference<List<String>>() { }
-            ));
-        }).join();
-        return (List<String>) keyList.get();
+    /**
+     * Gets the budget left on every key, keys are masked.
+     * @return remaining budget of each key
+     */
+    public List<KeyQuota.Remaining> getRemainingQuota() {
+        final long now = clock.getAsLong();
+        final List<KeyQuota> quotas = ring.quotas();
+        final List<KeyQuota.Remaining> remaining = new ArrayList<>(quotas.size());
+        for (final KeyQuota quota : quotas) {
+            remaining.add(quota.remaining(now));
+        }
+        return remaining;
     }
 
     /**
@@ -111,6 +327,181 @@ public final class GeminiKeyManager {
      * @return number of keys in the key list
      */
     public int getNumberOfKeys() {
-        return this.apiKeys.size();
+        return ring.keys().size();
+    }
+
+    /**
+     * Fetches the key list again, the result replaces the keys in use.
+     * Keys that stay keep their quota, requests in flight are not affected.
+     * A fetch already in progress is joined instead of starting another one.
+     * @return future completed with the number of keys in use after the fetch
+     */
+    public CompletableFuture<Integer> refresh() {
+        final CompletableFuture<Integer> running = pendingFetch.get();
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+        final CompletableFuture<Integer> next = new CompletableFuture<>();
+        if (!pendingFetch.compareAndSet(running, next)) {
+            return pendingFetch.get();
+        }
+        lastFetch = clock.getAsLong();
+        final CompletableFuture<List<String>> fetched;
+        try {
+            fetched = source.fetch();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not start fetching the Gemini keys", e);
+            next.complete(getNumberOfKeys());
+            return next;
+        }
+        fetched.whenComplete((keys, error) -> {
+            if (error != null || keys == null || keys.isEmpty()) {
+                LOG.warn("Could not fetch the Gemini keys, {} keys stay in use", getNumberOfKeys());
+            } else {
+                install(keys);
+                snapshot.write(keys);
+                LOG.info("Gemini keys loaded: {}", keys.size());
+            }
+            next.complete(getNumberOfKeys());
+        });
+        return next;
+    }
+
+    /**
+     * Fetches the key list again when every key is out of budget,
+     * at most once every EXHAUSTED_REFRESH_MILLIS.
+     */
+    private void refreshWhenExhausted() {
+        if (clock.getAsLong() - lastFetch >= EXHAUSTED_REFRESH_MILLIS) {
+            LOG.info("Fetching the Gemini keys again, no key has budget left");
+            refresh();
+        }
+    }
+
+    /**
+     * Fetches the key list again at a fixed delay on the shared refresh thread.
+     * The task only holds a weak reference to the manager and cancels itself
+     * once the manager is gone, so a discarded manager leaves nothing running.
+     * @param periodSeconds time between two fetches, 0 or less turns the schedule off
+     */
+    private void scheduleRefresh(final long periodSeconds) {
+        if (periodSeconds <= 0) {
+            return;
+        }
+        final WeakReference<GeminiKeyManager> owner = new WeakReference<>(this);
+        final AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        task.set(REFRESH_TIMER.scheduleWithFixedDelay(() -> {
+            final GeminiKeyManager manager = owner.get();
+            if (manager == null) {
+                task.get().cancel(false);
+                return;
+            }
+            manager.refresh();
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS));
+        LOG.info("Gemini keys are fetched again every {} seconds", periodSeconds);
+    }
+
+    /**
+     * Puts a key list in use with a single swap of the ring.
+     * Keys that were already in use keep their quota.
+     * @param keys the API keys
+     */
+    private synchronized void install(final List<String> keys) {
+        final KeyRing previous = ring;
+        final long now = clock.getAsLong();
+        final List<String> copy = List.copyOf(keys);
+        final List<KeyQuota> quotas = new ArrayList<>(copy.size());
+        for (final String key : copy) {
+            final int old = previous.keys().indexOf(key);
+            if (old >= 0) {
+                quotas.add(previous.quotas().get(old));
+            } else {
+                quotas.add(new KeyQuota(label(key), limits.rpm(), limits.tpm(), limits.rpd(), now));
+            }
+        }
+        ring = new KeyRing(copy, Collections.unmodifiableList(quotas));
+        if (!copy.isEmpty()) {
+            ready.complete(null);
+        }
+    }
+
+    /**
+     * Finds the quota of a key in use.
+     * @param key the API key
+     * @return the quota, or null for a key not in use
+     */
+    private KeyQuota quotaOf(final String key) {
+        final KeyRing current = ring;
+        final int index = current.keys().indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        return current.quotas().get(index);
+    }
+
+    /**
+     * Orders the keys in which budget is looked for.
+     * Round robin starts at the rotating cursor, least used sorts by the
+     * requests in flight and breaks ties from the cursor.
+     * @param current keys in use
+     * @param start position of the cursor
+     * @return key indexes in the order they are tried
+     */
+    private Integer[] candidateOrder(final KeyRing current, final int start) {
+        final int size = current.keys().size();
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (start + i) % size;
+        }
+        if (scheduling == KeyScheduling.LEAST_USED) {
+            final int[] inFlight = new int[size];
+            for (int i = 0; i < size; i++) {
+                inFlight[i] = current.quotas().get(i).getInFlight();
+            }
+            // stable sort keeps the rotation among keys with equal load
+            Arrays.sort(order, Comparator.comparingInt(index -> inFlight[index]));
+        }
+        return order;
+    }
+
+    /**
+     * Masks a key so that it can be logged.
+     * @param key the API key
+     * @return the last characters of the key
+     */
+    private static String label(final String key) {
+        if (key == null || key.length() <= LABEL_SUFFIX) {
+            return "****";
+        }
+        return "****" + key.substring(key.length() - LABEL_SUFFIX);
+    }
+
+    /**
+     * Gets a monotonic time in millis.
+     * @return the time
+     */
+    private static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * This method is used to get the list of API Keys.
+     * The request is sent without waiting for the answer.
+     * @return future completed with the list of Gemini API KEYS
+     */
+    private static CompletableFuture<List<String>> getKeyList() {
+        final Entity req = new Entity("AI_INSIGHT", "credentials", "gemini_list", "Key",
+                -1, new TimeRange(0, 0), null
+        );
+
+        LOG.debug("Getting key list from Cloud");
+        final CloudFunctionLibrary cloud = new CloudFunctionLibrary();
+        return cloud.cloudGet(req).thenApply(response -> {
+            final ObjectMapper objectMapper = new ObjectMapper();
+            return objectMapper.convertValue(
+                    response.data(),
+                    new TypeReference<List<String>>() { }
+            );
+        });
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: KeyLimits.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.getkeys
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * <p>
+ *     Rate limits applied to every Gemini key.
+ * </p>
+ * @author : Nandhana Sunil
+ */
+
+package com.swe.aiinsights.getkeys;
+
+import com.swe.aiinsights.configu.EnvConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quota of one key as configured for the tier the keys belong to.
+ *
+ * @param rpm requests per minute
+ * @param tpm tokens per minute
+ * @param rpd requests per day, 0 for no daily limit
+ * @param resetMillis time a key that got a 429 is left alone
+ */
+public record KeyLimits(int rpm, long tpm, int rpd, long resetMillis) {
+
+    /**
+     * Default requests per minute of a key.
+     */
+    private static final int DEFAULT_RPM = 15;
+
+    /**
+     * Default tokens per minute of a key.
+     */
+    private static final long DEFAULT_TPM = 1_000_000;
+
+    /**
+     * Default requests per day of a key, 0 for no daily limit.
+     */
+    private static final int DEFAULT_RPD = 0;
+
+    /**
+     * Default time a key that got a 429 is left alone, in seconds.
+     */
+    private static final long DEFAULT_RESET_SECONDS = 60;
+
+    /**
+     * Reads the limits from GEMINI_RPM, GEMINI_TPM, GEMINI_RPD and GEMINI_KEY_RESET_SECONDS.
+     * @return the configured limits
+     */
+    public static KeyLimits fromEnv() {
+        return new KeyLimits(
+                EnvConfig.getInt("GEMINI_RPM", DEFAULT_RPM),
+                EnvConfig.getLong("GEMINI_TPM", DEFAULT_TPM),
+                EnvConfig.getInt("GEMINI_RPD", DEFAULT_RPD),
+                TimeUnit.SECONDS.toMillis(EnvConfig.getLong("GEMINI_KEY_RESET_SECONDS", DEFAULT_RESET_SECONDS)));
+    }
+}
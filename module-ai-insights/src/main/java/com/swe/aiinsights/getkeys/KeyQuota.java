@@ -0,0 +1,246 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: KeyQuota.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.getkeys
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * <p>
+ *     Client side model of the quota of one Gemini API key.
+ *     Requests per minute, tokens per minute and requests per day are kept
+ *     as token buckets that refill continuously, so a key is only used
+ *     while it has budget left. A key that still got a 429 is blocked for
+ *     the reset window.
+ * </p>
+ *
+ * <p>
+ *     References :
+ *         1. https://ai.google.dev/gemini-api/docs/rate-limits
+ * </p>
+ * @author : Nandhana Sunil
+ */
+
+package com.swe.aiinsights.getkeys;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits and remaining budget of one API key.
+ */
+public final class KeyQuota {
+
+    /**
+     * Remaining budget of a key at one point in time.
+     *
+     * @param label masked name of the key
+     * @param requestsPerMinute requests left in the per minute budget
+     * @param tokensPerMinute tokens left in the per minute budget
+     * @param requestsPerDay requests left in the per day budget, -1 when unlimited
+     * @param blockedForMillis time until a key that got a 429 is used again
+     * @param inFlight requests currently sent with the key
+     */
+    public record Remaining(String label, long requestsPerMinute, long tokensPerMinute,
+                            long requestsPerDay, long blockedForMillis, int inFlight) {
+    }
+
+    /**
+     * One minute in millis.
+     */
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * One day in millis.
+     */
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Masked name of the key, safe to log.
+     */
+    private final String label;
+
+    /**
+     * Requests per minute.
+     */
+    private final Bucket requestsPerMinute;
+
+    /**
+     * Tokens per minute.
+     */
+    private final Bucket tokensPerMinute;
+
+    /**
+     * Requests per day, null when there is no daily limit.
+     */
+    private final Bucket requestsPerDay;
+
+    /**
+     * Time until which the key is blocked after a 429.
+     */
+    private long blockedUntil;
+
+    /**
+     * Requests currently sent with the key.
+     */
+    private int inFlight;
+
+    /**
+     * Creates the quota of a key with full budgets.
+     *
+     * @param givenLabel masked name of the key
+     * @param rpm requests per minute
+     * @param tpm tokens per minute
+     * @param rpd requests per day, 0 for no daily limit
+     * @param now current time in millis
+     */
+    public KeyQuota(final String givenLabel, final long rpm, final long tpm, final long rpd, final long now) {
+        this.label = givenLabel;
+        this.requestsPerMinute = new Bucket(rpm, MINUTE, now);
+        this.tokensPerMinute = new Bucket(tpm, MINUTE, now);
+        this.requestsPerDay = rpd > 0 ? new Bucket(rpd, DAY, now) : null;
+    }
+
+    /**
+     * Takes one request from the budget when the key has budget left.
+     * Tokens are charged after the request with chargeTokens, so the token
+     * budget only has to be positive here.
+     *
+     * @param now current time in millis
+     * @return true when the key may be used
+     */
+    public synchronized boolean tryAcquire(final long now) {
+        if (now < blockedUntil) {
+            return false;
+        }
+        if (requestsPerMinute.available(now) < 1 || tokensPerMinute.available(now) <= 0) {
+            return false;
+        }
+        if (requestsPerDay != null && requestsPerDay.available(now) < 1) {
+            return false;
+        }
+        requestsPerMinute.take(1);
+        if (requestsPerDay != null) {
+            requestsPerDay.take(1);
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Ends a request taken with tryAcquire.
+     */
+    public synchronized void release() {
+        if (inFlight > 0) {
+            inFlight--;
+        }
+    }
+
+    /**
+     * Gets the requests currently sent with the key.
+     *
+     * @return requests in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Charges the tokens used by a request, the budget may go negative.
+     *
+     * @param tokens tokens used
+     * @param now current time in millis
+     */
+    public synchronized void chargeTokens(final long tokens, final long now) {
+        tokensPerMinute.available(now);
+        tokensPerMinute.take(tokens);
+    }
+
+    /**
+     * Blocks the key after the server reported it exhausted.
+     *
+     * @param now current time in millis
+     * @param resetMillis time after which the key is tried again
+     */
+    public synchronized void block(final long now, final long resetMillis) {
+        blockedUntil = now + resetMillis;
+    }
+
+    /**
+     * Gets the budget left.
+     *
+     * @param now current time in millis
+     * @return the remaining budget
+     */
+    public synchronized Remaining remaining(final long now) {
+        return new Remaining(label,
+                (long) requestsPerMinute.available(now),
+                (long) tokensPerMinute.available(now),
+                requestsPerDay == null ? -1 : (long) requestsPerDay.available(now),
+                Math.max(0, blockedUntil - now),
+                inFlight);
+    }
+
+    /**
+     * Token bucket refilled continuously up to its capacity.
+     */
+    private static final class Bucket {
+        /**
+         * Most units the bucket holds.
+         */
+        private final double capacity;
+
+        /**
+         * Units added per millisecond.
+         */
+        private final double refillPerMilli;
+
+        /**
+         * Units held, negative after an overdraft.
+         */
+        private double units;
+
+        /**
+         * Time of the last refill.
+         */
+        private long lastRefill;
+
+        /**
+         * Creates a full bucket.
+         *
+         * @param limit units allowed per period
+         * @param periodMillis length of the period
+         * @param now current time in millis
+         */
+        Bucket(final long limit, final long periodMillis, final long now) {
+            this.capacity = limit;
+            this.refillPerMilli = (double) limit / periodMillis;
+            this.units = limit;
+            this.lastRefill = now;
+        }
+
+        /**
+         * Refills the bucket and gets the units held.
+         *
+         * @param now current time in millis
+         * @return units held
+         */
+        double available(final long now) {
+            if (now > lastRefill) {
+                units = Math.min(capacity, units + (now - lastRefill) * refillPerMilli);
+                lastRefill = now;
+            }
+            return units;
+        }
+
+        /**
+         * Takes units from the bucket.
+         *
+         * @param amount units taken
+         */
+        void take(final double amount) {
+            units -= amount;
+        }
+    }
+}
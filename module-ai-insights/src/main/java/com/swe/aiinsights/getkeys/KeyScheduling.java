@@ -0,0 +1,46 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: KeyScheduling.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.getkeys
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * <p>
+ *     Ways of spreading concurrent requests over the Gemini keys.
+ * </p>
+ * @author : Nandhana Sunil
+ */
+
+package com.swe.aiinsights.getkeys;
+
+import java.util.Locale;
+
+/**
+ * How the key manager picks the key of the next request.
+ */
+public enum KeyScheduling {
+    /**
+     * Keys take turns.
+     */
+    ROUND_ROBIN,
+    /**
+     * The key with the fewest requests in flight is used.
+     */
+    LEAST_USED;
+
+    /**
+     * Parses a configured scheduling, ignoring case.
+     * @param name name of the scheduling
+     * @return the scheduling, LEAST_USED when the name is unknown
+     */
+    public static KeyScheduling fromName(final String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return LEAST_USED;
+        }
+    }
+}
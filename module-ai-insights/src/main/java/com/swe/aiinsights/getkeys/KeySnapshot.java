@@ -0,0 +1,153 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: KeySnapshot.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.getkeys
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * <p>
+ *     On-disk copy of the last key list fetched from the cloud.
+ *     It is read on a cold start so Gemini can be used before the cloud
+ *     answered. The file is written atomically and, where the file system
+ *     supports it, is readable by its owner only.
+ * </p>
+ * @author : Nandhana Sunil
+ */
+
+package com.swe.aiinsights.getkeys;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+/**
+ * Reads and writes the cached key list.
+ */
+public final class KeySnapshot {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(KeySnapshot.class);
+
+    /**
+     * Reads and writes the json file.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Default location of the snapshot.
+     */
+    private static final String DEFAULT_FILE = Path.of(System.getProperty("user.home"),
+            ".swe-ai-insights", "gemini-keys.json").toString();
+
+    /**
+     * The snapshot file, null when snapshots are disabled.
+     */
+    private final Path file;
+
+    /**
+     * Creates a snapshot kept in the given file.
+     * @param givenFile the snapshot file, null disables the snapshot
+     */
+    public KeySnapshot(final Path givenFile) {
+        this.file = givenFile;
+    }
+
+    /**
+     * Creates the snapshot configured by AI_KEY_SNAPSHOT_FILE.
+     * A blank value disables the snapshot.
+     * @return the snapshot
+     */
+    public static KeySnapshot fromEnv() {
+        final String configured = EnvConfig.getString("AI_KEY_SNAPSHOT_FILE", DEFAULT_FILE);
+        if (configured == null || configured.isBlank()) {
+            return new KeySnapshot(null);
+        }
+        return new KeySnapshot(Path.of(configured));
+    }
+
+    /**
+     * Reads the keys of the last snapshot.
+     * @return the keys, empty when there is no usable snapshot
+     */
+    public List<String> read() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return List.of();
+        }
+        try {
+            final List<String> keys = MAPPER.readValue(file.toFile(), new TypeReference<List<String>>() { });
+            return keys == null ? List.of() : List.copyOf(keys);
+        } catch (IOException | NullPointerException e) {
+            LOG.warn("Ignoring unreadable key snapshot {}", file);
+            return List.of();
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the given keys.
+     * @param keys the keys
+     */
+    public void write(final List<String> keys) {
+        if (file == null) {
+            return;
+        }
+        Path temp = null;
+        try {
+            final Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, "gemini-keys", ".tmp");
+            restrictToOwner(temp);
+            MAPPER.writeValue(temp.toFile(), keys);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOG.debug("Key snapshot written with {} keys", keys.size());
+        } catch (IOException e) {
+            LOG.warn("Could not write key snapshot {}", file, e);
+        } finally {
+            // a temporary file left behind would hold the keys, it is gone once moved
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    /**
+     * Deletes a temporary snapshot file, logging instead of failing.
+     * @param temp the temporary file
+     */
+    private static void deleteQuietly(final Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOG.warn("Could not delete temporary key snapshot {}: {}", temp, e.getMessage());
+        }
+    }
+
+    /**
+     * Makes a file readable and writable by its owner only.
+     * @param path the file
+     */
+    private static void restrictToOwner(final Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            LOG.debug("File system does not support POSIX permissions for {}", path);
+        }
+    }
+}
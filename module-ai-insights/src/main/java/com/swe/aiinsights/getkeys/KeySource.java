@@ -0,0 +1,32 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: KeySource.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.getkeys
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * <p>
+ *     Where the key manager gets the Gemini keys from.
+ * </p>
+ * @author : Nandhana Sunil
+ */
+
+package com.swe.aiinsights.getkeys;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fetches the list of Gemini API keys without blocking the caller.
+ */
+@FunctionalInterface
+public interface KeySource {
+    /**
+     * Starts fetching the keys.
+     * @return future completed with the keys
+     */
+    CompletableFuture<List<String>> fetch();
+}
@@ -27,67 +27,134 @@
 
 package com.swe.aiinsights.modeladapter;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.swe.aiinsights.data.WhiteBoardData;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.logging.CommonLogger;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Implements the ModelAdapter interface.
  * Converts the generalised request to Json specific to Gemini.
  * Also gets the AI response
  */
-public class GeminiAdapter implements ModelAdapter {
+public class GeminiAdapter implements StreamingModelAdapter {
     /**
      * Get the log file path.
      */
     private static final Logger LOG =
             CommonLogger.getLogger(GeminiAdapter.class);
 
+    /**
+     * Prefix of the lines carrying data in a server-sent event stream.
+     */
+    private static final String SSE_DATA_PREFIX = "data:";
+
+    /**
+     * Shared factory for the incremental parsing of streamed events.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Media type sent when the request does not name one.
+     */
+    private static final String DEFAULT_MIME_TYPE = "image/png";
+
+    /**
+     * Tokens Gemini reported for the last answer read, -1 until it reports them.
+     */
+    private volatile long totalTokenCount = -1;
+
     /**
      * {@inheritDoc}
      */
     @Override
     public String buildRequest(final RequestGeneraliser request)
             throws JsonProcessingException {
+        try {
+            return JsonRequestBody.toJson(generator -> writeRequest(request, generator));
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new JsonGenerationException(e, null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RequestBody requestBody(final RequestGeneraliser request) {
+        return new JsonRequestBody(generator -> writeRequest(request, generator));
+    }
 
+    /**
+     * Writes the Gemini request json.
+     * The image is copied from the request into the generator buffers
+     * without building a tree or a second string.
+     * @param request the generalised request
+     * @param generator generator the json is written to
+     * @throws IOException in case the json cannot be written
+     */
+    private static void writeRequest(final RequestGeneraliser request,
+                                     final JsonGenerator generator) throws IOException {
         LOG.info("Building request in Gemini format");
-        final ObjectMapper objectMapper = new ObjectMapper();
-        final ObjectNode rootNode =
-                objectMapper.createObjectNode();
-        final ArrayNode contentsArray =
-                rootNode.putArray("contents");
-        final ObjectNode contentNode =
-                contentsArray.addObject();
-        final ArrayNode partsArray =
-                contentNode.putArray("parts");
+        final String prompt = request.getPrompt();
+        final String imgData = request.getImgData();
+        final WhiteBoardData image = imgData == null ? request.getImage() : null;
+        final String textData = imgData == null && image == null ? request.getTextData() : null;
+
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("contents");
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("parts");
 
         // to add the prompt to the request,
         // describe image as this is for image interpretation
-        partsArray.addObject().put("text", request.getPrompt());
-        if (request.getImgData() != null) {
+        generator.writeStartObject();
+        generator.writeStringField("text", prompt);
+        generator.writeEndObject();
+        if (imgData != null || image != null) {
             LOG.info("Embedding image in Gemini request");
-            final ObjectNode inlineDataNode =
-                    partsArray.addObject().putObject("inlineData");
-
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("inlineData");
             // add the image into the request body
-            inlineDataNode.put("mimeType", "image/png");
-            inlineDataNode.put("data", request.getImgData());
-        } else if (request.getTextData() != null) {
+            final String mimeType = request.getImgMimeType();
+            generator.writeStringField("mimeType", mimeType == null ? DEFAULT_MIME_TYPE : mimeType);
+            if (imgData != null) {
+                generator.writeStringField("data", imgData);
+            } else {
+                generator.writeFieldName("data");
+                // Base64 encoded while the file is read, the length is not needed
+                try (InputStream in = image.openImage()) {
+                    generator.writeBinary(in, -1);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } else if (textData != null) {
             LOG.info("Embedding text input data in the Gemini request");
-            partsArray.addObject().put("text", request.getTextData());
+            generator.writeStartObject();
+            generator.writeStringField("text", textData);
+            generator.writeEndObject();
         }
 
-        // Convert it to a json string
-        return objectMapper.writerWithDefaultPrettyPrinter(
-        ).writeValueAsString(rootNode);
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
     }
 
     /**
@@ -102,6 +169,10 @@ public class GeminiAdapter implements ModelAdapter {
                 objectMapper.readTree(response.body().charStream());
         final JsonNode textNode =
                 responseJson.at("/candidates/0/content/parts/0/text");
+        final JsonNode totalNode = responseJson.at("/usageMetadata/totalTokenCount");
+        if (totalNode.isNumber()) {
+            totalTokenCount = totalNode.asLong();
+        }
 
         // if the response is a text
         if (textNode.isTextual()) {
@@ -116,4 +187,70 @@ public class GeminiAdapter implements ModelAdapter {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * The body is the same as for generateContent, only the endpoint differs.
+     */
+    @Override
+    public String buildStreamingRequest(final RequestGeneraliser request)
+            throws JsonProcessingException {
+        return buildRequest(request);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The body is the same as for generateContent, only the endpoint differs.
+     */
+    @Override
+    public RequestBody streamingRequestBody(final RequestGeneraliser request) {
+        return requestBody(request);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Lines of the streamGenerateContent SSE stream look like
+     * data: {"candidates": [{"content": {"parts": [{"text": "..."}]}}]}.
+     * All text parts of the event are joined. The token count of the
+     * usageMetadata, sent with the last events, is kept.
+     */
+    @Override
+    public String parseStreamLine(final String line) throws IOException {
+        if (!line.startsWith(SSE_DATA_PREFIX)) {
+            return null;
+        }
+        final String data = line.substring(SSE_DATA_PREFIX.length()).trim();
+        if (data.isEmpty()) {
+            return null;
+        }
+        StringBuilder text = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            JsonToken token = parser.nextToken();
+            while (token != null) {
+                if (token == JsonToken.FIELD_NAME && "text".equals(parser.currentName())
+                        && parser.nextToken() == JsonToken.VALUE_STRING) {
+                    if (text == null) {
+                        text = new StringBuilder();
+                    }
+                    text.append(parser.getText());
+                } else if (token == JsonToken.FIELD_NAME && "totalTokenCount".equals(parser.currentName())
+                        && parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+                    totalTokenCount = parser.getLongValue();
+                }
+                token = parser.nextToken();
+            }
+        }
+        if (text == null) {
+            return null;
+        }
+        return text.toString();
+    }
+
+    /**
+     * Gets the tokens Gemini counted for the last answer read, prompt, image and answer together.
+     *
+     * @return usageMetadata.totalTokenCount, or -1 when the answer did not report it
+     */
+    public long getTotalTokenCount() {
+        return totalTokenCount;
+    }
 }
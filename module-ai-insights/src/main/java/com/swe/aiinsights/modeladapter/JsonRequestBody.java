@@ -0,0 +1,126 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: JsonRequestBody.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.modeladapter
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * <p>
+ * Request body whose json is written straight to the connection.
+ * Requests can carry a multi-megabyte base64 image, building them as a
+ * tree and then as a string held the whole payload in memory several
+ * times over. The body is generated again every time OkHttp sends it, so
+ * nothing but the generator buffers is kept.
+ * </p>
+ *
+ * <p>
+ * References:
+ *     1. https://square.github.io/okhttp/recipes/#post-streaming-kt-java
+ *     2. https://github.com/FasterXML/jackson-core
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.modeladapter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * OkHttp request body generated with a shared JsonGenerator factory.
+ */
+public final class JsonRequestBody extends RequestBody {
+
+    /**
+     * Writes the json of a request.
+     */
+    @FunctionalInterface
+    public interface JsonWriter {
+        /**
+         * Writes the json.
+         * @param generator generator the json is written to
+         * @throws IOException in case the json cannot be written
+         */
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Sets the Media type used for JSON requests.
+     */
+    private static final MediaType JSON =
+            MediaType.get("application/json; charset=utf-8");
+
+    /**
+     * Shared factory, the connection is left open when a generator is closed.
+     */
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    /**
+     * Writes the json of the request.
+     */
+    private final JsonWriter writer;
+
+    /**
+     * Creates the body.
+     * @param givenWriter writes the json of the request
+     */
+    public JsonRequestBody(final JsonWriter givenWriter) {
+        this.writer = givenWriter;
+    }
+
+    /**
+     * Writes the json into a string, for callers that need the whole text.
+     * @param writer writes the json
+     * @return the json
+     * @throws IOException in case the json cannot be written
+     */
+    public static String toJson(final JsonWriter writer) throws IOException {
+        final StringWriter out = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            writer.write(generator);
+        }
+        return out.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The length is not known before the json is written, the body is sent chunked.
+     */
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTo(final BufferedSink sink) throws IOException {
+        // the generator leaves the sink open, it belongs to OkHttp
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(sink.outputStream(), JsonEncoding.UTF8)) {
+            writer.write(generator);
+        }
+    }
+}
@@ -11,6 +11,7 @@ package com.swe.aiinsights.modeladapter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 
 import java.io.IOException;
@@ -28,6 +29,15 @@ public interface ModelAdapter {
      */
     String buildRequest(RequestGeneraliser req) throws JsonProcessingException;
 
+    /**
+     * Gets the request body specific to the model.
+     * The json is written to the connection when the request is sent,
+     * without building it as a string first.
+     * @param req the generalised request
+     * @return the request body
+     */
+    RequestBody requestBody(RequestGeneraliser req);
+
     /**
      * Fetches the text response at a location in the AI response json specific to AI model.
      * @param response response from AI.
@@ -31,24 +31,30 @@
 
 package com.swe.aiinsights.modeladapter;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.swe.aiinsights.data.WhiteBoardData;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.logging.CommonLogger;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Implements the ModelAdapter interface.
  * Converts the generalised request to Json specific to Ollama models.
  * Also gets the AI response
  */
-public class OllamaAdapter implements ModelAdapter {
+public class OllamaAdapter implements StreamingModelAdapter {
 
     /**
      * Get the log file path.
@@ -56,41 +62,111 @@ public class OllamaAdapter implements ModelAdapter {
     private static final Logger LOG =
             CommonLogger.getLogger(OllamaAdapter.class);
 
+    /**
+     * Shared factory for the incremental parsing of streamed lines.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     /**
      * {@inheritDoc}
      */
     @Override
     public String buildRequest(final RequestGeneraliser request) throws JsonProcessingException {
+        return buildRequest(request, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Ollama then answers with one json object per line (NDJSON).
+     */
+    @Override
+    public String buildStreamingRequest(final RequestGeneraliser request) throws JsonProcessingException {
+        return buildRequest(request, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RequestBody requestBody(final RequestGeneraliser request) {
+        return new JsonRequestBody(generator -> writeRequest(request, false, generator));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Ollama then answers with one json object per line (NDJSON).
+     */
+    @Override
+    public RequestBody streamingRequestBody(final RequestGeneraliser request) {
+        return new JsonRequestBody(generator -> writeRequest(request, true, generator));
+    }
+
+    /**
+     * Builds the Ollama request json.
+     * @param request the generalised request
+     * @param stream whether Ollama should stream its output
+     * @return json format of the request
+     * @throws JsonProcessingException in case of an error in processing json
+     */
+    private String buildRequest(final RequestGeneraliser request, final boolean stream)
+            throws JsonProcessingException {
+        try {
+            return JsonRequestBody.toJson(generator -> writeRequest(request, stream, generator));
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new JsonGenerationException(e, null);
+        }
+    }
+
+    /**
+     * Writes the Ollama request json.
+     * The image is copied from the request into the generator buffers
+     * without building a tree or a second string.
+     * @param request the generalised request
+     * @param stream whether Ollama should stream its output
+     * @param generator generator the json is written to
+     * @throws IOException in case the json cannot be written
+     */
+    private static void writeRequest(final RequestGeneraliser request, final boolean stream,
+                                     final JsonGenerator generator) throws IOException {
         LOG.info("Building Ollama-specific request Json");
         final int maxPromptTokens = 16384;
         final double modelTemperature = 0.2;
         final double modelTop = 0.9;
 
-        final ObjectMapper objectMapper = new ObjectMapper();
-        final ObjectNode root = objectMapper.createObjectNode();
-        root.put("model", "gemma3");
-        root.put("prompt", request.getPrompt() + request.getTextData());
-        final ObjectNode options = objectMapper.createObjectNode();
-        options.put("num_ctx", maxPromptTokens);
-        options.put("temperature", modelTemperature);
-        options.put("top_p", modelTop);
+        final String textData = request.getTextData();
+        final String imgData = request.getImgData();
+        final WhiteBoardData image = imgData == null ? request.getImage() : null;
 
-        root.set("options", options);
+        generator.writeStartObject();
+        generator.writeStringField("model", "gemma3");
+        generator.writeStringField("prompt", request.getPrompt() + textData);
+        generator.writeObjectFieldStart("options");
+        generator.writeNumberField("num_ctx", maxPromptTokens);
+        generator.writeNumberField("temperature", modelTemperature);
+        generator.writeNumberField("top_p", modelTop);
+        generator.writeEndObject();
 
-        root.put("stream", false);
+        generator.writeBooleanField("stream", stream);
 
-        final String imgData = request.getImgData();
         if (imgData != null) {
             LOG.info("Embedding images in the Ollama request");
-            final ArrayNode images = root.putArray("images");
-            images.add(request.getImgData());
+            generator.writeArrayFieldStart("images");
+            generator.writeString(imgData);
+        } else if (image != null) {
+            LOG.info("Streaming the image into the Ollama request");
+            generator.writeArrayFieldStart("images");
+            // Base64 encoded while the file is read, the length is not needed
+            try (InputStream in = image.openImage()) {
+                generator.writeBinary(in, -1);
+            }
         } else {
-            final ArrayNode input = root.putArray("inputData");
-            input.add(request.getTextData());
+            generator.writeArrayFieldStart("inputData");
+            generator.writeString(textData);
         }
-
-        return objectMapper.writeValueAsString(root);
-
+        generator.writeEndArray();
+        generator.writeEndObject();
     }
 
     /**
@@ -115,4 +191,31 @@ public class OllamaAdapter implements ModelAdapter {
 
         return textNode.asText();
     }
+
+    /**
+     * {@inheritDoc}
+     * Each line looks like {"response": "...", "done": false}.
+     */
+    @Override
+    public String parseStreamLine(final String line) throws IOException {
+        String text = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                parser.nextToken();
+                if ("response".equals(field)) {
+                    text = parser.getValueAsString();
+                } else if ("error".equals(field)) {
+                    LOG.error("Ollama stream reported an error: {}", parser.getValueAsString());
+                    throw new IOException("Ollama stream error: " + parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return text;
+    }
 }
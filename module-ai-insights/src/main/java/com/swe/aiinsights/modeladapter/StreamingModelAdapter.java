@@ -0,0 +1,45 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: StreamingModelAdapter.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.modeladapter
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights.modeladapter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import okhttp3.RequestBody;
+
+import java.io.IOException;
+
+/**
+ * Interface for adapters of AI models that can stream their output.
+ */
+public interface StreamingModelAdapter extends ModelAdapter {
+
+    /**
+     * Builds the request string asking the model to stream its output.
+     * @param req the generalised request
+     * @return a string - json format of the streaming request specific to that model
+     * @throws JsonProcessingException in case of an error in processing json
+     */
+    String buildStreamingRequest(RequestGeneraliser req) throws JsonProcessingException;
+
+    /**
+     * Gets the request body asking the model to stream its output.
+     * @param req the generalised request
+     * @return the request body
+     */
+    RequestBody streamingRequestBody(RequestGeneraliser req);
+
+    /**
+     * Extracts the text carried by one line of the streamed response.
+     * @param line one line of the response body
+     * @return the partial text, or null if the line carries no text
+     * @throws IOException in case the line reports an error
+     */
+    String parseStreamLine(String line) throws IOException;
+}
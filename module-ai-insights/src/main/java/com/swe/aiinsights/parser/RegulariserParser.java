@@ -34,6 +34,11 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.swe.aiinsights.logging.CommonLogger;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This parser cleans AI output, validates JSON structure.
  */
@@ -98,6 +103,118 @@ public class RegulariserParser {
         return mapper.writeValueAsString(finalNode);
     }
 
+    /**
+     * Splits the answer to a batch regularisation request into one output
+     * per shape, matching entries by ShapeId.
+     * Each entry goes through parseInput, so metadata is restored from the
+     * input shape. Shapes without a usable entry are returned as null, so the
+     * caller can retry them on their own.
+     *
+     * @param inputJsonStrings the original input JSON of every shape.
+     * @param aiResponse       the raw AI response.
+     * @return regularised JSON per input shape, null where the entry is unusable.
+     */
+    public List<String> parseBatch(final List<String> inputJsonStrings, final String aiResponse) {
+        LOG.info("Starting batch regularisation output parsing");
+        final ObjectMapper mapper = new ObjectMapper();
+        final Map<String, JsonNode> entries = indexByShapeId(
+                parseBatchSafely(mapper, cleanBatchResponse(aiResponse)));
+
+        final List<String> outputs = new ArrayList<>(inputJsonStrings.size());
+        for (final String inputJsonString : inputJsonStrings) {
+            outputs.add(parseEntry(mapper, inputJsonString, entries));
+        }
+        return outputs;
+    }
+
+    /**
+     * Regularises one shape of a batch.
+     *
+     * @param mapper          the ObjectMapper instance.
+     * @param inputJsonString the original input JSON of the shape.
+     * @param entries         entries of the AI response by ShapeId.
+     * @return regularised JSON, or null if the entry is missing or malformed.
+     */
+    private String parseEntry(final ObjectMapper mapper, final String inputJsonString,
+                              final Map<String, JsonNode> entries) {
+        try {
+            final JsonNode input = mapper.readTree(inputJsonString);
+            final JsonNode entry = entries.get(input.path("ShapeId").asText());
+            if (entry == null || !entry.path("Points").isArray() || entry.get("Points").size() < 2) {
+                LOG.info("No usable batch entry for shape {}", input.path("ShapeId").asText());
+                return null;
+            }
+            return parseInput(inputJsonString, entry.toString());
+        } catch (Exception ex) {
+            LOG.error("Error in parsing batch entry", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Removes markdown fences around a JSON array and trims whitespace.
+     *
+     * @param aiResponse raw AI response.
+     * @return cleaned JSON-like string.
+     */
+    private String cleanBatchResponse(final String aiResponse) {
+        if (aiResponse == null) {
+            return "";
+        }
+        return aiResponse.trim()
+                .replace("```json", "")
+                .replace("```", "")
+                .trim();
+    }
+
+    /**
+     * Parses a batch AI response safely without throwing.
+     * Accepts a bare array or an object wrapping the array.
+     *
+     * @param mapper    the ObjectMapper instance.
+     * @param cleanedAI cleaned AI JSON.
+     * @return the array of entries, or null on failure.
+     */
+    private ArrayNode parseBatchSafely(final ObjectMapper mapper, final String cleanedAI) {
+        try {
+            final JsonNode node = mapper.readTree(cleanedAI);
+            if (node != null && node.isArray()) {
+                return (ArrayNode) node;
+            }
+            if (node != null && node.isObject()) {
+                for (final JsonNode child : node) {
+                    if (child.isArray()) {
+                        return (ArrayNode) child;
+                    }
+                }
+            }
+            LOG.info("Response not a json array for batch regularisation request");
+            return null;
+        } catch (Exception ex) {
+            LOG.error("Error in parsing batch AI output", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Indexes the entries of a batch response by ShapeId.
+     *
+     * @param entries the entries, may be null.
+     * @return entries by ShapeId.
+     */
+    private Map<String, JsonNode> indexByShapeId(final ArrayNode entries) {
+        final Map<String, JsonNode> byId = new HashMap<>();
+        if (entries == null) {
+            return byId;
+        }
+        for (final JsonNode entry : entries) {
+            if (entry.isObject() && entry.has("ShapeId")) {
+                byId.putIfAbsent(entry.get("ShapeId").asText(), entry);
+            }
+        }
+        return byId;
+    }
+
     /**
      * Removes markdown fences and trims whitespace.
      *
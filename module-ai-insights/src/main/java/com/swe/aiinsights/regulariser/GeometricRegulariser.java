@@ -0,0 +1,350 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: GeometricRegulariser.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.regulariser
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Deterministic regulariser for freehand strokes.
+ *
+ * <p>
+ *     Classifies a stroke as STRAIGHTLINE, RECTANGLE, TRIANGLE or ELLIPSE
+ *     from its geometry and answers in the same JSON shape as
+ *     RegulariserParser. Every shape gets a score between 0 and 1. The
+ *     stroke is answered locally only when the best score passes the
+ *     confidence threshold and clearly beats the runner-up; otherwise the
+ *     caller falls back to the LLM.
+ * </p>
+ * <p>
+ *     Features used:
+ *     - straightness (chord over path length) of open strokes,
+ *     - fill ratio (polygon area over bounding box area), about 1 for
+ *       rectangles, pi/4 for ellipses and 1/2 for triangles,
+ *     - corner count from the turning angle of the resampled stroke,
+ *     - mean radial error against the ellipse inscribed in the bounding box.
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.regulariser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.swe.aiinsights.configu.EnvConfig;
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Recognises simple shapes in strokes without calling a model.
+ */
+public class GeometricRegulariser {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(GeometricRegulariser.class);
+
+    /**
+     * Shared mapper, thread safe once configured.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Default smallest score answered locally.
+     */
+    private static final double DEFAULT_THRESHOLD = 0.6;
+
+    /**
+     * Smallest lead of the best score over the runner-up.
+     */
+    private static final double MIN_MARGIN = 0.25;
+
+    /**
+     * Points the stroke is resampled to before corners are counted.
+     */
+    private static final int RESAMPLE_COUNT = 64;
+
+    /**
+     * Points each chord spans when measuring the turning angle.
+     */
+    private static final int CORNER_SPAN = 4;
+
+    /**
+     * Smallest turn counted as a corner (55 degrees).
+     */
+    private static final double MIN_CORNER_TURN = Math.toRadians(55);
+
+    /**
+     * A stroke is closed when its end gap is below this share of the path.
+     */
+    private static final double CLOSED_GAP = 0.15;
+
+    /**
+     * Straightness from which an open stroke starts to count as a line.
+     */
+    private static final double LINE_STRAIGHTNESS = 0.9;
+
+    /**
+     * Straightness range over which the line score rises from 0 to 1.
+     */
+    private static final double LINE_STRAIGHTNESS_RANGE = 0.07;
+
+    /**
+     * Fill ratio of a rectangle as drawn by hand, slightly tilted and wobbly.
+     */
+    private static final double RECTANGLE_FILL = 0.94;
+
+    /**
+     * Tolerance on the fill ratio of a rectangle, wider than for the other
+     * shapes since four corners already rule out ellipses.
+     */
+    private static final double RECTANGLE_TOLERANCE = 0.2;
+
+    /**
+     * Fill ratio of an ideal ellipse.
+     */
+    private static final double ELLIPSE_FILL = Math.PI / 4;
+
+    /**
+     * Fill ratio of a triangle touching all sides of its bounding box.
+     */
+    private static final double TRIANGLE_FILL = 0.5;
+
+    /**
+     * Tolerance on the fill ratio.
+     */
+    private static final double FILL_TOLERANCE = 0.12;
+
+    /**
+     * Tolerance on the mean radial error of an ellipse.
+     */
+    private static final double ELLIPSE_TOLERANCE = 0.12;
+
+    /**
+     * Fewest points a stroke needs to be classified.
+     */
+    private static final int MIN_POINTS = 5;
+
+    /**
+     * Number of corners of a triangle.
+     */
+    private static final int TRIANGLE_CORNERS = 3;
+
+    /**
+     * Number of corners of a rectangle.
+     */
+    private static final int RECTANGLE_CORNERS = 4;
+
+    /**
+     * Smallest score answered locally.
+     */
+    private final double threshold;
+
+    /**
+     * Creates a regulariser with the threshold from AI_REGULARISE_CONFIDENCE.
+     */
+    public GeometricRegulariser() {
+        this(EnvConfig.getDouble("AI_REGULARISE_CONFIDENCE", DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * Creates a regulariser with a given threshold.
+     *
+     * @param confidenceThreshold smallest score answered locally
+     */
+    public GeometricRegulariser(final double confidenceThreshold) {
+        this.threshold = confidenceThreshold;
+    }
+
+    /**
+     * Regularises a shape given in the canvas JSON format.
+     *
+     * @param inputJsonString the shape with its Points and metadata
+     * @return the regularised shape, or null when the stroke should go to the LLM
+     */
+    public String regularise(final String inputJsonString) {
+        final JsonNode input;
+        try {
+            input = MAPPER.readTree(inputJsonString);
+        } catch (Exception e) {
+            LOG.debug("Regularisation input is not JSON, leaving it to the LLM");
+            return null;
+        }
+        if (input == null || !input.path("Points").isArray()
+                || !input.has("ShapeId") || !input.has("Color") || !input.has("Thickness")
+                || !input.has("CreatedBy") || !input.has("LastModifiedBy") || !input.has("IsDeleted")) {
+            return null;
+        }
+
+        final ShapeFit fit = fit((ArrayNode) input.get("Points"));
+        if (fit == null) {
+            return null;
+        }
+        LOG.info("Regularised stroke locally as {} ({})", fit.type(), fit.confidence());
+        return toJson(input, fit);
+    }
+
+    /**
+     * Fits a shape to a Points array of {"X", "Y"} objects.
+     *
+     * @param points the stroke
+     * @return the shape, or null when no shape is clear enough
+     */
+    public ShapeFit fit(final ArrayNode points) {
+        final int n = points.size();
+        if (n < MIN_POINTS) {
+            return null;
+        }
+        final double[] xs = new double[n];
+        final double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            final JsonNode point = points.get(i);
+            if (!point.path("X").isNumber() || !point.path("Y").isNumber()) {
+                return null;
+            }
+            xs[i] = point.get("X").asDouble();
+            ys[i] = point.get("Y").asDouble();
+        }
+        return fit(xs, ys);
+    }
+
+    /**
+     * Fits a shape to a stroke.
+     *
+     * @param xs x coordinates
+     * @param ys y coordinates
+     * @return the shape, or null when no shape is clear enough
+     */
+    public ShapeFit fit(final double[] xs, final double[] ys) {
+        final int n = xs.length;
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        final double path = StrokeGeometry.pathLength(xs, ys);
+        if (path == 0) {
+            return null;
+        }
+        final double gap = Math.hypot(xs[n - 1] - xs[0], ys[n - 1] - ys[0]);
+
+        if (gap > CLOSED_GAP * path) {
+            final double lineScore = clamp((gap / path - LINE_STRAIGHTNESS) / LINE_STRAIGHTNESS_RANGE);
+            if (lineScore < threshold) {
+                return null;
+            }
+            return new ShapeFit("STRAIGHTLINE", lineScore, xs[0], ys[0], xs[n - 1], ys[n - 1]);
+        }
+        if (maxX == minX || maxY == minY) {
+            return null;
+        }
+
+        final double fill = StrokeGeometry.polygonArea(xs, ys) / ((maxX - minX) * (maxY - minY));
+        final int corners = countCorners(xs, ys);
+        final double ellipseError = StrokeGeometry.ellipseError(xs, ys, minX, minY, maxX, maxY);
+
+        final double rectangle = corners == RECTANGLE_CORNERS
+                ? closeness(fill, RECTANGLE_FILL, RECTANGLE_TOLERANCE) : 0;
+        final double triangle = corners == TRIANGLE_CORNERS
+                ? closeness(fill, TRIANGLE_FILL, FILL_TOLERANCE) : 0;
+        final double ellipse = Math.min(closeness(fill, ELLIPSE_FILL, FILL_TOLERANCE),
+                clamp(1 - ellipseError / ELLIPSE_TOLERANCE));
+
+        final String[] types = {"RECTANGLE", "TRIANGLE", "ELLIPSE"};
+        final double[] scores = {rectangle, triangle, ellipse};
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        double runnerUp = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (i != best) {
+                runnerUp = Math.max(runnerUp, scores[i]);
+            }
+        }
+        if (scores[best] < threshold || scores[best] - runnerUp < MIN_MARGIN) {
+            LOG.debug("Ambiguous stroke: rectangle {}, triangle {}, ellipse {}", rectangle, triangle, ellipse);
+            return null;
+        }
+        return new ShapeFit(types[best], scores[best], minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Counts the corners of a closed stroke after resampling it, with the
+     * loop closed so the seam is treated like any other point.
+     *
+     * @param xs x coordinates
+     * @param ys y coordinates
+     * @return number of corners
+     */
+    private static int countCorners(final double[] xs, final double[] ys) {
+        final int n = xs.length;
+        final double[] loopX = Arrays.copyOf(xs, n + 1);
+        final double[] loopY = Arrays.copyOf(ys, n + 1);
+        loopX[n] = xs[0];
+        loopY[n] = ys[0];
+        final double[][] resampled = StrokeGeometry.resample(loopX, loopY, RESAMPLE_COUNT + 1);
+        return StrokeGeometry.countCorners(
+                Arrays.copyOf(resampled[0], RESAMPLE_COUNT),
+                Arrays.copyOf(resampled[1], RESAMPLE_COUNT),
+                CORNER_SPAN, MIN_CORNER_TURN);
+    }
+
+    /**
+     * Builds the output JSON, copying the metadata of the input.
+     *
+     * @param input the input shape
+     * @param fit the recognised shape
+     * @return the regularised shape as JSON
+     */
+    private static String toJson(final JsonNode input, final ShapeFit fit) {
+        final ObjectNode output = MAPPER.createObjectNode();
+        output.put("ShapeId", input.get("ShapeId").asText());
+        output.put("Type", fit.type());
+        final ArrayNode points = output.putArray("Points");
+        points.addObject().put("X", fit.x1()).put("Y", fit.y1());
+        points.addObject().put("X", fit.x2()).put("Y", fit.y2());
+        output.put("Color", input.get("Color").asText());
+        output.put("Thickness", input.get("Thickness").asInt());
+        output.put("CreatedBy", input.get("CreatedBy").asText());
+        output.put("LastModifiedBy", input.get("LastModifiedBy").asText());
+        output.put("IsDeleted", input.get("IsDeleted").asBoolean());
+        return output.toString();
+    }
+
+    /**
+     * Scores how close a value is to a target.
+     *
+     * @param value measured value
+     * @param target ideal value
+     * @param tolerance distance at which the score reaches 0
+     * @return score between 0 and 1
+     */
+    private static double closeness(final double value, final double target, final double tolerance) {
+        return clamp(1 - Math.abs(value - target) / tolerance);
+    }
+
+    /**
+     * Clamps a value into [0, 1].
+     *
+     * @param value the value
+     * @return the clamped value
+     */
+    private static double clamp(final double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: ShapeFit.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.regulariser
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights.regulariser;
+
+/**
+ * Shape recognised in a stroke and the two points describing it.
+ * For closed shapes the points are the top-left and bottom-right corners
+ * of the bounding box, for a straight line they are its end points.
+ *
+ * @param type ELLIPSE, TRIANGLE, RECTANGLE or STRAIGHTLINE
+ * @param confidence score of the recognised shape, between 0 and 1
+ * @param x1 x of the first point
+ * @param y1 y of the first point
+ * @param x2 x of the second point
+ * @param y2 y of the second point
+ */
+public record ShapeFit(String type, double confidence,
+                       double x1, double y1, double x2, double y2) {
+}
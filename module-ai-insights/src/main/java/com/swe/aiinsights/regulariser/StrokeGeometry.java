@@ -0,0 +1,193 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: StrokeGeometry.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.regulariser
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Geometric measures of a freehand stroke.
+ *
+ * <p>
+ *     References
+ *     1. Wobbrock, Wilson, Li - Gestures without Libraries, Toolkits or
+ *        Training: A $1 Recognizer for User Interface Prototypes (resampling)
+ *     2. https://en.wikipedia.org/wiki/Shoelace_formula
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.regulariser;
+
+/**
+ * Static helpers over strokes given as parallel coordinate arrays.
+ */
+final class StrokeGeometry {
+
+    /**
+     * Utility class.
+     */
+    private StrokeGeometry() {
+    }
+
+    /**
+     * Length of the path through all points.
+     *
+     * @param xs x coordinates
+     * @param ys y coordinates
+     * @return path length
+     */
+    static double pathLength(final double[] xs, final double[] ys) {
+        double length = 0;
+        for (int i = 1; i < xs.length; i++) {
+            length += Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+        }
+        return length;
+    }
+
+    /**
+     * Area enclosed by the stroke, treating it as a closed polygon.
+     *
+     * @param xs x coordinates
+     * @param ys y coordinates
+     * @return absolute area
+     */
+    static double polygonArea(final double[] xs, final double[] ys) {
+        double twiceArea = 0;
+        final int n = xs.length;
+        for (int i = 0; i < n; i++) {
+            final int next = (i + 1) % n;
+            twiceArea += xs[i] * ys[next] - xs[next] * ys[i];
+        }
+        return Math.abs(twiceArea) / 2;
+    }
+
+    /**
+     * Resamples the stroke into points spaced equally along the path.
+     *
+     * @param xs x coordinates
+     * @param ys y coordinates
+     * @param count number of points wanted
+     * @return resampled points, x in row 0 and y in row 1
+     */
+    static double[][] resample(final double[] xs, final double[] ys, final int count) {
+        final double[] outX = new double[count];
+        final double[] outY = new double[count];
+        final double step = pathLength(xs, ys) / (count - 1);
+        outX[0] = xs[0];
+        outY[0] = ys[0];
+        int filled = 1;
+        double carried = 0;
+        double prevX = xs[0];
+        double prevY = ys[0];
+        for (int i = 1; i < xs.length && filled < count; i++) {
+            double segment = Math.hypot(xs[i] - prevX, ys[i] - prevY);
+            while (carried + segment >= step && filled < count && segment > 0) {
+                final double t = (step - carried) / segment;
+                prevX += t * (xs[i] - prevX);
+                prevY += t * (ys[i] - prevY);
+                outX[filled] = prevX;
+                outY[filled] = prevY;
+                filled++;
+                segment = Math.hypot(xs[i] - prevX, ys[i] - prevY);
+                carried = 0;
+            }
+            carried += segment;
+            prevX = xs[i];
+            prevY = ys[i];
+        }
+        while (filled < count) {
+            outX[filled] = xs[xs.length - 1];
+            outY[filled] = ys[ys.length - 1];
+            filled++;
+        }
+        return new double[][] {outX, outY};
+    }
+
+    /**
+     * Counts the corners of a closed stroke.
+     * A corner is a local maximum of the turning angle between the chords
+     * reaching {@code span} points back and forward.
+     *
+     * @param xs resampled x coordinates
+     * @param ys resampled y coordinates
+     * @param span number of points each chord spans
+     * @param minTurn smallest turn in radians counted as a corner
+     * @return number of corners
+     */
+    static int countCorners(final double[] xs, final double[] ys,
+                            final int span, final double minTurn) {
+        final int n = xs.length;
+        final double[] turn = new double[n];
+        for (int i = 0; i < n; i++) {
+            final int back = Math.floorMod(i - span, n);
+            final int ahead = (i + span) % n;
+            final double inAngle = Math.atan2(ys[i] - ys[back], xs[i] - xs[back]);
+            final double outAngle = Math.atan2(ys[ahead] - ys[i], xs[ahead] - xs[i]);
+            turn[i] = Math.abs(normalise(outAngle - inAngle));
+        }
+        int corners = 0;
+        for (int i = 0; i < n; i++) {
+            if (turn[i] < minTurn) {
+                continue;
+            }
+            boolean isPeak = true;
+            for (int d = 1; d <= span && isPeak; d++) {
+                // ties go to the earlier point so a flat peak counts once
+                isPeak = turn[Math.floorMod(i - d, n)] < turn[i]
+                        && turn[(i + d) % n] <= turn[i];
+            }
+            if (isPeak) {
+                corners++;
+            }
+        }
+        return corners;
+    }
+
+    /**
+     * Mean distance of the points from the axis-aligned ellipse inscribed in
+     * the bounding box, in units of the ellipse radius.
+     *
+     * @param xs x coordinates
+     * @param ys y coordinates
+     * @param minX left of the bounding box
+     * @param minY top of the bounding box
+     * @param maxX right of the bounding box
+     * @param maxY bottom of the bounding box
+     * @return mean relative radial error
+     */
+    static double ellipseError(final double[] xs, final double[] ys,
+                               final double minX, final double minY,
+                               final double maxX, final double maxY) {
+        final double cx = (minX + maxX) / 2;
+        final double cy = (minY + maxY) / 2;
+        final double rx = (maxX - minX) / 2;
+        final double ry = (maxY - minY) / 2;
+        double error = 0;
+        for (int i = 0; i < xs.length; i++) {
+            final double r = Math.hypot((xs[i] - cx) / rx, (ys[i] - cy) / ry);
+            error += Math.abs(r - 1);
+        }
+        return error / xs.length;
+    }
+
+    /**
+     * Wraps an angle into (-pi, pi].
+     *
+     * @param angle angle in radians
+     * @return the same direction within (-pi, pi]
+     */
+    private static double normalise(final double angle) {
+        double wrapped = angle;
+        while (wrapped > Math.PI) {
+            wrapped -= 2 * Math.PI;
+        }
+        while (wrapped <= -Math.PI) {
+            wrapped += 2 * Math.PI;
+        }
+        return wrapped;
+    }
+}
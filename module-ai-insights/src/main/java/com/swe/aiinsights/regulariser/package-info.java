@@ -0,0 +1,4 @@
+/**
+ * In-process shape regularisation, answering clear strokes without the LLM.
+ */
+package com.swe.aiinsights.regulariser;
@@ -0,0 +1,117 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: AiBatchRegularisationRequest.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights.request
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Regularisation request for many shapes at once.
+ * <p>
+ * The shapes are sent as one JSON array with a single copy of the prompt,
+ * and the model answers with one object per ShapeId.
+ * </p>
+ *
+ * @author Abhirami R Iyer
+ */
+
+package com.swe.aiinsights.request;
+
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AiBatchRegularisationRequest class inherits the AiRequestable.
+ * Stores the metadata of the request to be made to the AI.
+ */
+public class AiBatchRegularisationRequest implements AiRequestable<String> {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG =
+            CommonLogger.getLogger(AiBatchRegularisationRequest.class);
+    /**
+     * metadata would store prompt, and other
+     * details of the request like the content.
+     */
+    private final Map<String, String> metaData;
+    /**
+     * holds the type of request.
+     * type = "REGBATCH"
+     */
+    private final String type = "REGBATCH";
+
+    /**
+     * Constructs the request for a list of shapes.
+     *
+     * @param shapes JSON strings of the shapes, each with its ShapeId and Points
+     */
+    public AiBatchRegularisationRequest(final List<String> shapes) {
+        metaData = new HashMap<>();
+        metaData.put("InputData", "[" + String.join(",", shapes) + "]");
+        metaData.put("RequestPrompt", """
+        You are given a JSON array of shapes. Each shape has a "ShapeId" and a list of
+        2D points under "Points" representing a freehand drawing.
+       \s
+        For EACH shape, independently:
+        1. Use ONLY the points of that shape.
+        2. Identify the geometric shape that best matches those points.
+           Allowed values (case-sensitive): ELLIPSE, TRIANGLE, RECTANGLE, STRAIGHTLINE.
+        3. Compute the axis-aligned bounding box of that shape.
+        4. Output EXACTLY TWO points: the top-left and the bottom-right coordinate.
+       \s
+        Return ONLY a JSON array with one object per input shape, in the same order:
+       \s
+        [
+          {
+            "ShapeId": "<ShapeId copied exactly from the input>",
+            "type": "<OneOf: ELLIPSE | TRIANGLE | RECTANGLE | STRAIGHTLINE>",
+            "Points": [
+              { "X": <number>, "Y": <number> },
+              { "X": <number>, "Y": <number> }
+            ]
+          }
+        ]
+       \s
+        STRICT RULES:
+        - Every input ShapeId appears EXACTLY once in the output.
+        - "Points" must contain EXACTLY 2 elements per shape.
+        - Do not output any other fields. Metadata is restored by the caller.
+        - Output must be valid JSON. No explanations. No additional text.
+       \s
+        The shapes are given below.\s""");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getContext() {
+        LOG.info("Fetching batch regularisation prompt");
+        return metaData.get("RequestPrompt");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getInput() {
+        LOG.info("Fetching input json array of shapes.");
+        return metaData.get("InputData");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getReqType() {
+        LOG.info("Fetching Request type -- batch regularisation");
+        return type;
+    }
+}
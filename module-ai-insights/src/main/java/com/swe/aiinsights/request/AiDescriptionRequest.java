@@ -45,6 +45,10 @@ public class AiDescriptionRequest implements AiRequestable {
      * type = "DESC"
      */
     private String type;
+    /**
+     * The whiteboard image, read from its file when it is sent in streamed mode.
+     */
+    private final WhiteBoardData image;
 
     /**
      * Constructs an AIDescriptionRequest.
@@ -58,9 +62,10 @@ public class AiDescriptionRequest implements AiRequestable {
         // adding the prompt(default prompt for interpretation)
         LOG.info("Creating Description Request..");
         metaData = new HashMap<>();
-        metaData.put("InputData", inputData.getContent());
+        metaData.put("InputData", inputOf(inputData));
         metaData.put("RequestPrompt", "Describe this image in detail");
         type = "DESC";
+        image = inputData;
     }
 
     /**
@@ -76,8 +81,33 @@ public class AiDescriptionRequest implements AiRequestable {
         // adding the prompt (if given by the user).
         LOG.info("Creating Description Request..");
         metaData = new HashMap<>();
-        metaData.put("InputData", inputData.getContent());
+        metaData.put("InputData", inputOf(inputData));
         metaData.put("RequestPrompt", prompt);
+        type = "DESC";
+        image = inputData;
+    }
+
+    /**
+     * Gets the input stored for the image.
+     * A streamed image is stored as the hash of its bytes, so identical
+     * requests are still recognised without keeping the image.
+     * @param inputData the image data
+     * @return Base64 content, or the hash of a streamed image
+     * @throws IOException in case the image cannot be read
+     */
+    private static String inputOf(final WhiteBoardData inputData) throws IOException {
+        if (inputData.isStreamed()) {
+            return "sha256:" + inputData.getContentHash();
+        }
+        return inputData.getContent();
+    }
+
+    /**
+     * Gets the whiteboard image of the request.
+     * @return the image data
+     */
+    public WhiteBoardData getImage() {
+        return image;
     }
 
 
@@ -21,7 +21,7 @@ import java.util.Map;
 
 /**
  * A request object for Question & Answer operations.
- * Contains both the user's question and the accumulated summary.
+ * Contains both the user's question and the meeting context.
  */
 public class AiQuestionAnswerRequest implements AiRequestable<String> {
     /**
@@ -43,7 +43,7 @@ public class AiQuestionAnswerRequest implements AiRequestable<String> {
      * Constructs a Q&A request with question and accumulated summary.
      *
      * @param question the user question
-     * @param accumulatedSummary the accumulated chat summary
+     * @param accumulatedSummary the meeting summary and relevant chat excerpts
      */
     public AiQuestionAnswerRequest(
             final String question,
@@ -58,22 +58,22 @@ public class AiQuestionAnswerRequest implements AiRequestable<String> {
         final String prompt =
                 "You are an intelligent Q&A system.\n"
                         + "You will receive two things:\n"
-                        + "1. ACCUMULATED_SUMMARY – this contains "
-                        + "collected information.\n"
+                        + "1. MEETING_CONTEXT – the meeting summary so far "
+                        + "and the chat excerpts most relevant to the question.\n"
                         + "2. USER_QUESTION – the question asked by the user.\n\n"
                         + "Your task:\n"
                         + "- First decide if the USER_QUESTION requires "
-                        + "information from the ACCUMULATED_SUMMARY.\n"
+                        + "information from the MEETING_CONTEXT.\n"
                         + "(Ignore this decision in your final answer — "
                         + "do NOT output classification.)\n"
                         + "- If the answer can be found in the "
-                        + "ACCUMULATED_SUMMARY, use only that.\n"
-                        + "- If the summary does not contain the answer, "
+                        + "MEETING_CONTEXT, use only that.\n"
+                        + "- If the context does not contain the answer, "
                         + "reply exactly:\n"
                         + "\"The information is missing from the context.\"\n"
-                        + "- If the question does NOT require the summary, "
+                        + "- If the question does NOT require the context, "
                         + "answer normally using general knowledge.\n\n"
-                        + "ACCUMULATED_SUMMARY:\n"
+                        + "MEETING_CONTEXT:\n"
                         + accumulatedSummary + "\n\n"
                         + "USER_QUESTION:\n"
                         + question;
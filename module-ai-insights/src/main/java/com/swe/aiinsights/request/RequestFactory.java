@@ -16,6 +16,7 @@ import com.swe.aiinsights.logging.CommonLogger;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Class factory to generate various requests.
@@ -41,13 +42,23 @@ public class RequestFactory {
             case "DESC" :
                 LOG.info("Creating description request");
                 final WhiteBoardData data = (WhiteBoardData) args[0];
-                request = new AiDescriptionRequest(data);
+                if (args.length > 1) {
+                    request = new AiDescriptionRequest(data, (String) args[1]);
+                } else {
+                    request = new AiDescriptionRequest(data);
+                }
                 break;
             case "REG" :
                 LOG.info("Creating regularisation request");
                 final String points = (String) args[0];
                 request = new AiRegularisationRequest(points);
                 break;
+            case "REGBATCH" :
+                LOG.info("Creating batch regularisation request");
+                @SuppressWarnings("unchecked")
+                final List<String> shapes = (List<String>) args[0];
+                request = new AiBatchRegularisationRequest(shapes);
+                break;
             case "INS" :
                 LOG.info("Creating insights request");
                 final JsonNode chatData = (JsonNode) args[0];
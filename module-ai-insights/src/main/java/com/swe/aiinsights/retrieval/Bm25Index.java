@@ -0,0 +1,227 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: Bm25Index.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.retrieval
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Keyword index over passages ranked with Okapi BM25.
+ *
+ * <p>
+ *     References
+ *     1. Robertson, Zaragoza - The Probabilistic Relevance Framework:
+ *        BM25 and Beyond
+ *     2. https://en.wikipedia.org/wiki/Okapi_BM25
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.retrieval;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Inverted index with BM25 scoring, keeping the newest passages only.
+ */
+public final class Bm25Index {
+    /**
+     * Term frequency saturation.
+     */
+    private static final double K1 = 1.2;
+
+    /**
+     * Length normalisation.
+     */
+    private static final double B = 0.75;
+
+    /**
+     * Words too common to help ranking.
+     */
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "did", "do", "does", "for",
+            "from", "had", "has", "have", "he", "her", "his", "i", "in", "is", "it", "its", "me",
+            "my", "of", "on", "or", "our", "she", "so", "that", "the", "their", "them", "they",
+            "this", "to", "was", "we", "were", "what", "when", "where", "which", "who", "why",
+            "will", "with", "you", "your");
+
+    /**
+     * A stored passage.
+     *
+     * @param text the passage
+     * @param length number of indexed terms
+     * @param termFrequencies occurrences of every term
+     */
+    private record Passage(String text, int length, Map<String, Integer> termFrequencies) { }
+
+    /**
+     * A passage and its score.
+     *
+     * @param id passage id
+     * @param score BM25 score
+     */
+    private record Scored(int id, double score) { }
+
+    /**
+     * Passages by id.
+     */
+    private final Map<Integer, Passage> passages = new HashMap<>();
+
+    /**
+     * Ids of the passages holding each term.
+     */
+    private final Map<String, Deque<Integer>> postings = new HashMap<>();
+
+    /**
+     * Passage ids, oldest first.
+     */
+    private final Deque<Integer> order = new ArrayDeque<>();
+
+    /**
+     * Most passages kept.
+     */
+    private final int maxPassages;
+
+    /**
+     * Id of the next passage.
+     */
+    private int nextId;
+
+    /**
+     * Sum of the lengths of all passages.
+     */
+    private long totalLength;
+
+    /**
+     * Creates an index.
+     *
+     * @param capacity most passages kept, the oldest are dropped first
+     */
+    public Bm25Index(final int capacity) {
+        this.maxPassages = Math.max(1, capacity);
+    }
+
+    /**
+     * Adds a passage.
+     *
+     * @param text the passage
+     */
+    public synchronized void add(final String text) {
+        final List<String> terms = tokenize(text);
+        if (terms.isEmpty()) {
+            return;
+        }
+        final Map<String, Integer> frequencies = new HashMap<>();
+        for (final String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        final int id = nextId++;
+        passages.put(id, new Passage(text, terms.size(), frequencies));
+        for (final String term : frequencies.keySet()) {
+            postings.computeIfAbsent(term, t -> new ArrayDeque<>()).addLast(id);
+        }
+        order.addLast(id);
+        totalLength += terms.size();
+        while (passages.size() > maxPassages) {
+            removeOldest();
+        }
+    }
+
+    /**
+     * Returns the passages most relevant to a query, best first.
+     *
+     * @param query the query
+     * @param limit most passages returned
+     * @return matching passages, empty when nothing matches
+     */
+    public synchronized List<String> search(final String query, final int limit) {
+        if (passages.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        final double averageLength = (double) totalLength / passages.size();
+        final Map<Integer, Double> scores = new HashMap<>();
+        for (final String term : Set.copyOf(tokenize(query))) {
+            final Deque<Integer> ids = postings.get(term);
+            if (ids == null) {
+                continue;
+            }
+            final double idf = Math.log(1 + (passages.size() - ids.size() + 0.5) / (ids.size() + 0.5));
+            for (final int id : ids) {
+                final Passage passage = passages.get(id);
+                final int tf = passage.termFrequencies().get(term);
+                final double norm = tf + K1 * (1 - B + B * passage.length() / averageLength);
+                scores.merge(id, idf * tf * (K1 + 1) / norm, Double::sum);
+            }
+        }
+
+        final PriorityQueue<Scored> best = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+        for (final Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            best.add(new Scored(entry.getKey(), entry.getValue()));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        final List<String> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            results.add(0, passages.get(best.poll().id()).text());
+        }
+        return results;
+    }
+
+    /**
+     * Returns the number of passages held.
+     *
+     * @return passage count
+     */
+    public synchronized int size() {
+        return passages.size();
+    }
+
+    /**
+     * Drops the oldest passage.
+     */
+    private void removeOldest() {
+        final int id = order.removeFirst();
+        final Passage passage = passages.remove(id);
+        totalLength -= passage.length();
+        for (final String term : passage.termFrequencies().keySet()) {
+            final Deque<Integer> ids = postings.get(term);
+            // ids are appended in order, so the oldest is at the front
+            ids.removeFirst();
+            if (ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Splits text into lower case terms without stop words.
+     *
+     * @param text the text
+     * @return the terms in order
+     */
+    static List<String> tokenize(final String text) {
+        final List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (final String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: ChatPassages.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.retrieval
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Turns chat chunks into passages for the retrieval index.
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.retrieval;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits chat JSON into one passage per message.
+ */
+public final class ChatPassages {
+    /**
+     * Shared mapper, thread safe once configured.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Utility class.
+     */
+    private ChatPassages() {
+    }
+
+    /**
+     * Splits a chat chunk into passages.
+     * A chunk with a "messages" array gives one passage per message, written
+     * as "sender: text". Any other chunk is cut into pieces of at most
+     * maxChars at whitespace.
+     *
+     * @param chunk chat chunk, usually JSON
+     * @param maxChars longest plain text passage
+     * @return the passages in order
+     */
+    public static List<String> split(final String chunk, final int maxChars) {
+        final List<String> passages = new ArrayList<>();
+        if (chunk == null || chunk.isBlank()) {
+            return passages;
+        }
+        try {
+            final JsonNode messages = MAPPER.readTree(chunk).path("messages");
+            if (messages.isArray()) {
+                for (final JsonNode message : messages) {
+                    final String text = message.path("message").asText(message.path("text").asText(""));
+                    if (text.isBlank()) {
+                        continue;
+                    }
+                    final String from = message.path("from").asText("");
+                    passages.add(from.isEmpty() ? text : from + ": " + text);
+                }
+                return passages;
+            }
+        } catch (Exception e) {
+            // not JSON, indexed as plain text
+        }
+        return splitPlain(chunk, maxChars);
+    }
+
+    /**
+     * Cuts plain text into pieces of at most maxChars at whitespace.
+     *
+     * @param text the text
+     * @param maxChars longest piece
+     * @return the pieces in order
+     */
+    private static List<String> splitPlain(final String text, final int maxChars) {
+        final List<String> pieces = new ArrayList<>();
+        final StringBuilder current = new StringBuilder();
+        for (final String word : text.trim().split("\\s+")) {
+            if (current.length() > 0 && current.length() + word.length() + 1 > maxChars) {
+                pieces.add(current.toString());
+                current.setLength(0);
+            }
+            if (current.length() > 0) {
+                current.append(' ');
+            }
+            current.append(word);
+        }
+        if (current.length() > 0) {
+            pieces.add(current.toString());
+        }
+        return pieces;
+    }
+}
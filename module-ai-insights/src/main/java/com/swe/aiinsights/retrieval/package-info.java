@@ -0,0 +1,4 @@
+/**
+ * In-process retrieval over meeting chat, used to ground Q&A.
+ */
+package com.swe.aiinsights.retrieval;
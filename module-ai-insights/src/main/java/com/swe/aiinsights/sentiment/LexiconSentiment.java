@@ -0,0 +1,414 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: LexiconSentiment.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.sentiment
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Rule based sentiment scorer for chat messages.
+ *
+ * <p>
+ *     Follows the rules of VADER. Every word found in the lexicon brings
+ *     its valence, which is
+ *     - raised or lowered by an intensifier ("very", "slightly") in the
+ *       three words before it, less the further away it is,
+ *     - flipped and damped by a negation ("not", "don't", "never") in the
+ *       three words before it,
+ *     - raised when written in capitals inside a message that is not,
+ *     - halved before a "but" and raised by half after it.
+ *     Exclamation and question marks add emphasis, and the sum is
+ *     normalised to a compound score between -1 and 1, reported on the
+ *     [-10, 10] scale of the insights graph.
+ * </p>
+ *
+ * <p>
+ *     References
+ *     1. C. Hutto and E. Gilbert - VADER: A Parsimonious Rule-based Model
+ *        for Sentiment Analysis of Social Media Text, ICWSM 2014
+ *     2. https://github.com/cjhutto/vaderSentiment
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.sentiment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Scores the sentiment of chat messages without calling a model.
+ */
+public class LexiconSentiment {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(LexiconSentiment.class);
+
+    /**
+     * Shared mapper, thread safe once configured.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Class path of the default lexicon.
+     */
+    private static final String LEXICON_RESOURCE = "/sentiment/lexicon.tsv";
+
+    /**
+     * Valence added by an intensifier.
+     */
+    private static final double BOOST = 0.293;
+
+    /**
+     * Valence added by a word in capitals.
+     */
+    private static final double CAPS_BOOST = 0.733;
+
+    /**
+     * Factor applied to a negated word.
+     */
+    private static final double NEGATION = -0.74;
+
+    /**
+     * Weight of an intensifier one, two and three words before a word.
+     */
+    private static final double[] DISTANCE_WEIGHT = {1.0, 0.95, 0.9};
+
+    /**
+     * Factor applied to words before a "but".
+     */
+    private static final double BEFORE_BUT = 0.5;
+
+    /**
+     * Factor applied to words after a "but".
+     */
+    private static final double AFTER_BUT = 1.5;
+
+    /**
+     * Emphasis added by every exclamation mark.
+     */
+    private static final double EXCLAMATION_BOOST = 0.292;
+
+    /**
+     * Most exclamation marks counted.
+     */
+    private static final int MAX_EXCLAMATIONS = 4;
+
+    /**
+     * Emphasis added by every question mark, when there is more than one.
+     */
+    private static final double QUESTION_BOOST = 0.18;
+
+    /**
+     * Emphasis of more than three question marks.
+     */
+    private static final double MAX_QUESTION_BOOST = 0.96;
+
+    /**
+     * Most question marks counted one by one.
+     */
+    private static final int MAX_QUESTIONS = 3;
+
+    /**
+     * Normalisation constant of the compound score.
+     */
+    private static final double ALPHA = 15;
+
+    /**
+     * Upper end of the reported scale.
+     */
+    private static final double SCALE = 10;
+
+    /**
+     * Punctuation at either end of a word.
+     */
+    private static final Pattern EDGE_PUNCTUATION = Pattern.compile("^\\p{Punct}+|\\p{Punct}+$");
+
+    /**
+     * Words raising the valence of the word after them.
+     */
+    private static final Set<String> INTENSIFIERS = Set.of(
+            "absolutely", "amazingly", "awfully", "completely", "deeply", "enormously", "entirely",
+            "especially", "exceptionally", "extremely", "fully", "greatly", "highly", "hugely",
+            "incredibly", "intensely", "most", "particularly", "quite", "really", "remarkably", "so",
+            "super", "thoroughly", "totally", "tremendously", "truly", "unbelievably", "utterly", "very");
+
+    /**
+     * Words lowering the valence of the word after them.
+     */
+    private static final Set<String> DAMPENERS = Set.of(
+            "almost", "barely", "hardly", "kinda", "less", "little", "marginally", "occasionally",
+            "partly", "scarcely", "slightly", "somewhat", "sorta");
+
+    /**
+     * Words negating the word after them, besides those ending in n't.
+     */
+    private static final Set<String> NEGATIONS = Set.of(
+            "aint", "arent", "cannot", "cant", "couldnt", "didnt", "doesnt", "dont", "hadnt", "hasnt",
+            "havent", "isnt", "neither", "never", "no", "none", "nope", "nor", "not", "nothing",
+            "nowhere", "rarely", "seldom", "shouldnt", "wasnt", "werent", "without", "wont", "wouldnt");
+
+    /**
+     * Valence of every known word, in lower case.
+     */
+    private final Map<String, Double> lexicon;
+
+    /**
+     * Creates the scorer with the bundled lexicon.
+     */
+    public LexiconSentiment() {
+        this(loadLexicon());
+    }
+
+    /**
+     * Creates the scorer with a given lexicon.
+     *
+     * @param givenLexicon valence of every known word, words in lower case
+     */
+    public LexiconSentiment(final Map<String, Double> givenLexicon) {
+        this.lexicon = Map.copyOf(givenLexicon);
+    }
+
+    /**
+     * Scores every message of a chat.
+     * Messages without a timestamp cannot be placed on the graph and are left out.
+     *
+     * @param chatData chat json with a "messages" array
+     * @return json array of {time, sentiment}, in the format of InsightsParser
+     */
+    public String analyse(final JsonNode chatData) {
+        final ArrayNode scores = MAPPER.createArrayNode();
+        for (final JsonNode message : chatData.path("messages")) {
+            final String time = message.path("timestamp").asText(message.path("time").asText(""));
+            if (time.isEmpty()) {
+                continue;
+            }
+            final String text = message.path("message").asText(message.path("text").asText(""));
+            scores.addObject()
+                    .put("time", time)
+                    .put("sentiment", (float) toScale(score(text)));
+        }
+        return scores.toString();
+    }
+
+    /**
+     * Computes the compound score of a message.
+     *
+     * @param text the message
+     * @return score between -1 (most negative) and 1 (most positive)
+     */
+    public double score(final String text) {
+        final String[] raw = text.trim().split("\\s+");
+        final String[] words = new String[raw.length];
+        int capitalised = 0;
+        for (int i = 0; i < raw.length; i++) {
+            words[i] = normalise(raw[i]);
+            if (isShouting(raw[i])) {
+                capitalised++;
+            }
+        }
+        // capitals only stand out when the message is not all in capitals
+        final boolean mixedCase = capitalised > 0 && capitalised < raw.length;
+
+        final double[] valences = new double[raw.length];
+        int butAt = -1;
+        for (int i = 0; i < raw.length; i++) {
+            if ("but".equals(words[i]) && butAt < 0) {
+                butAt = i;
+            }
+            valences[i] = valence(raw, words, i, mixedCase);
+        }
+
+        double sum = 0;
+        for (int i = 0; i < valences.length; i++) {
+            double valence = valences[i];
+            if (butAt >= 0 && i < butAt) {
+                valence *= BEFORE_BUT;
+            } else if (butAt >= 0 && i > butAt) {
+                valence *= AFTER_BUT;
+            }
+            sum += valence;
+        }
+        if (sum != 0) {
+            sum += Math.signum(sum) * punctuationEmphasis(text);
+        }
+        return sum / Math.sqrt(sum * sum + ALPHA);
+    }
+
+    /**
+     * Converts a compound score to the scale of the insights graph.
+     *
+     * @param compound score between -1 and 1
+     * @return score between -10 and 10, rounded to one decimal
+     */
+    public static double toScale(final double compound) {
+        return Math.round(compound * SCALE * SCALE) / SCALE;
+    }
+
+    /**
+     * Computes the valence of one word in its context.
+     *
+     * @param raw words as written
+     * @param words words in lower case without punctuation
+     * @param index position of the word
+     * @param mixedCase whether words in capitals stand out
+     * @return the valence, 0 for words outside the lexicon
+     */
+    private double valence(final String[] raw, final String[] words, final int index, final boolean mixedCase) {
+        Double known = lexicon.get(words[index]);
+        if (known == null) {
+            // emoticons lose their characters when punctuation is stripped
+            known = lexicon.get(raw[index]);
+        }
+        if (known == null || known == 0 || isModifier(words[index])) {
+            return 0;
+        }
+        final double sign = Math.signum(known);
+        double valence = known;
+        if (mixedCase && isShouting(raw[index])) {
+            valence += sign * CAPS_BOOST;
+        }
+        boolean negated = false;
+        for (int distance = 1; distance <= DISTANCE_WEIGHT.length && index - distance >= 0; distance++) {
+            final String before = words[index - distance];
+            double boost = 0;
+            if (INTENSIFIERS.contains(before)) {
+                boost = BOOST;
+            } else if (DAMPENERS.contains(before)) {
+                boost = -BOOST;
+            }
+            if (boost != 0) {
+                if (mixedCase && isShouting(raw[index - distance])) {
+                    boost += Math.signum(boost) * CAPS_BOOST;
+                }
+                valence += sign * boost * DISTANCE_WEIGHT[distance - 1];
+            }
+            negated |= isNegation(before);
+        }
+        if (negated) {
+            valence *= NEGATION;
+        }
+        return valence;
+    }
+
+    /**
+     * Computes the emphasis of exclamation and question marks.
+     *
+     * @param text the message
+     * @return emphasis added to the size of the sum
+     */
+    private static double punctuationEmphasis(final String text) {
+        int exclamations = 0;
+        int questions = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '!') {
+                exclamations++;
+            } else if (text.charAt(i) == '?') {
+                questions++;
+            }
+        }
+        double emphasis = Math.min(exclamations, MAX_EXCLAMATIONS) * EXCLAMATION_BOOST;
+        if (questions > MAX_QUESTIONS) {
+            emphasis += MAX_QUESTION_BOOST;
+        } else if (questions > 1) {
+            emphasis += questions * QUESTION_BOOST;
+        }
+        return emphasis;
+    }
+
+    /**
+     * Lower cases a word and strips the punctuation around it.
+     *
+     * @param word the word as written
+     * @return the normalised word
+     */
+    private static String normalise(final String word) {
+        return EDGE_PUNCTUATION.matcher(word.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+
+    /**
+     * Checks whether a word is written in capitals.
+     *
+     * @param word the word as written
+     * @return true for words of two letters or more in capitals
+     */
+    private static boolean isShouting(final String word) {
+        int letters = 0;
+        for (int i = 0; i < word.length(); i++) {
+            final char c = word.charAt(i);
+            if (Character.isLowerCase(c)) {
+                return false;
+            }
+            if (Character.isLetter(c)) {
+                letters++;
+            }
+        }
+        return letters > 1;
+    }
+
+    /**
+     * Checks whether a word negates the words after it.
+     *
+     * @param word normalised word
+     * @return true for negations
+     */
+    private static boolean isNegation(final String word) {
+        return NEGATIONS.contains(word) || word.endsWith("n't") || word.endsWith("n\u2019t");
+    }
+
+    /**
+     * Checks whether a word only changes the words after it.
+     *
+     * @param word normalised word
+     * @return true for intensifiers and dampeners
+     */
+    private static boolean isModifier(final String word) {
+        return INTENSIFIERS.contains(word) || DAMPENERS.contains(word);
+    }
+
+    /**
+     * Reads the bundled lexicon.
+     *
+     * @return valence of every word
+     */
+    private static Map<String, Double> loadLexicon() {
+        final Map<String, Double> words = new HashMap<>();
+        try (InputStream in = LexiconSentiment.class.getResourceAsStream(LEXICON_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing sentiment lexicon " + LEXICON_RESOURCE);
+            }
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                final String[] fields = line.split("\t");
+                words.put(fields[0], Double.parseDouble(fields[1]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOG.info("Loaded sentiment lexicon with {} words", words.size());
+        return words;
+    }
+}
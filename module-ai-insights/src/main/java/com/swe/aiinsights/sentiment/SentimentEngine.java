@@ -0,0 +1,45 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: SentimentEngine.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.sentiment
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights.sentiment;
+
+/**
+ * Ways the sentiment of a chat can be scored.
+ */
+public enum SentimentEngine {
+    /**
+     * Local scorer for large chats, the LLM otherwise.
+     */
+    AUTO,
+    /**
+     * In-process lexicon scorer.
+     */
+    LOCAL,
+    /**
+     * Sentiment request sent to the LLM.
+     */
+    LLM;
+
+    /**
+     * Parses the engine from a configuration value.
+     *
+     * @param value configured value, case-insensitive
+     * @return matching engine, AUTO when the value is unknown
+     */
+    public static SentimentEngine fromString(final String value) {
+        if (value != null) {
+            for (final SentimentEngine engine : values()) {
+                if (engine.name().equalsIgnoreCase(value.trim())) {
+                    return engine;
+                }
+            }
+        }
+        return AUTO;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: SentimentTimeline.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.sentiment
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Sentiment series of one meeting, scored one new message at a time.
+ *
+ * <p>
+ *     The graph is refreshed with the whole chat of the meeting every time,
+ *     so scoring all of it again made a meeting cost quadratic in its
+ *     length. The timeline remembers which messages it has scored and only
+ *     hands the others to the scorer, then merges their scores into a series
+ *     ordered by timestamp. Refreshes are chained, so a message is never
+ *     scored twice by two refreshes running at once.
+ * </p>
+ *
+ * <p>
+ *     Scores are placed by the timestamp of the message sent, not by the
+ *     time the scorer echoes, which a model does not always write the same
+ *     way. A message counts as scored only once a score came back for it.
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.sentiment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Scores of the messages of a meeting by timestamp.
+ */
+public final class SentimentTimeline {
+    /**
+     * Shared mapper, thread safe once configured.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Time of day a model may echo instead of the full timestamp, such as 9:05.
+     */
+    private static final DateTimeFormatter TIME_OF_DAY = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    /**
+     * A message handed to the scorer.
+     *
+     * @param key identifies the message
+     * @param time timestamp as sent
+     * @param at parsed timestamp
+     */
+    private record Pending(String key, String time, Instant at) {
+    }
+
+    /**
+     * Score of one message.
+     *
+     * @param time timestamp of the message as sent
+     * @param sentiment the score
+     */
+    private record Score(String time, float sentiment) {
+    }
+
+    /**
+     * Scores by parsed timestamp, in the order the messages were sent.
+     */
+    private final TreeMap<Instant, List<Score>> series = new TreeMap<>();
+
+    /**
+     * Messages already scored.
+     */
+    private final Set<String> scored = new HashSet<>();
+
+    /**
+     * Completes once the latest refresh is done.
+     */
+    private CompletableFuture<Void> lastRefresh = CompletableFuture.completedFuture(null);
+
+    /**
+     * Engine AUTO resolved to for this timeline, null until chosen.
+     */
+    private SentimentEngine autoEngine;
+
+    /**
+     * Gets the engine AUTO stands for in this timeline, choosing it on the first call.
+     * The engines do not judge alike, so one graph is never scored by both.
+     *
+     * @param choice picks the engine the first time
+     * @return LOCAL or LLM, the same for the whole meeting
+     */
+    public synchronized SentimentEngine resolveAuto(final Supplier<SentimentEngine> choice) {
+        if (autoEngine == null) {
+            autoEngine = choice.get();
+        }
+        return autoEngine;
+    }
+
+    /**
+     * Scores the messages of a chat not scored before and returns the whole series.
+     * Messages without a readable timestamp cannot be placed on the graph and are left out.
+     *
+     * @param chatData chat json with a "messages" array, usually the whole chat so far
+     * @param scorer scores a chat json, answering in the [{time, sentiment}] format
+     * @return json array of {time, sentiment} of every scored message, in time order
+     */
+    public synchronized CompletableFuture<String> refresh(
+            final JsonNode chatData, final Function<JsonNode, CompletableFuture<String>> scorer) {
+        final CompletableFuture<String> refreshed = lastRefresh
+                .thenCompose(ignored -> scoreNew(chatData, scorer));
+        // a failed refresh must not block the ones queued after it
+        lastRefresh = refreshed.handle((value, error) -> null);
+        return refreshed;
+    }
+
+    /**
+     * Sends the messages not scored before to the scorer.
+     *
+     * @param chatData chat json with a "messages" array
+     * @param scorer scores a chat json
+     * @return the merged series
+     */
+    private CompletableFuture<String> scoreNew(final JsonNode chatData,
+                                               final Function<JsonNode, CompletableFuture<String>> scorer) {
+        final ArrayNode fresh = MAPPER.createArrayNode();
+        final List<Pending> pending = new ArrayList<>();
+        synchronized (this) {
+            final Set<String> seen = new HashSet<>();
+            for (final JsonNode message : chatData.path("messages")) {
+                final String time = timeOf(message);
+                final Instant at = parseInstant(time);
+                if (at == null) {
+                    continue;
+                }
+                final String key = time + '\n' + message.path("from").asText("") + '\n'
+                        + message.path("message").asText(message.path("text").asText(""));
+                if (!scored.contains(key) && seen.add(key)) {
+                    fresh.add(message);
+                    pending.add(new Pending(key, time, at));
+                }
+            }
+        }
+        if (fresh.isEmpty()) {
+            return CompletableFuture.completedFuture(toJson());
+        }
+        final ObjectNode newChat = MAPPER.createObjectNode();
+        newChat.set("messages", fresh);
+        return scorer.apply(newChat).thenApply(scores -> {
+            merge(scores, pending);
+            return toJson();
+        });
+    }
+
+    /**
+     * Adds the scores of new messages to the series.
+     * Each score goes to the first message sent at the time it names.
+     * Messages the scorer skipped stay unscored and are sent again by the
+     * next refresh.
+     *
+     * @param scores json array of {time, sentiment}
+     * @param pending the messages sent to the scorer, in chat order
+     */
+    private synchronized void merge(final String scores, final List<Pending> pending) {
+        final JsonNode entries;
+        try {
+            entries = MAPPER.readTree(scores);
+        } catch (JsonProcessingException e) {
+            throw new CompletionException(e);
+        }
+        final List<Pending> unmatched = new ArrayList<>(pending);
+        for (final JsonNode entry : entries) {
+            final Pending message = takeMatch(unmatched, entry.path("time").asText(""));
+            if (message == null) {
+                continue;
+            }
+            series.computeIfAbsent(message.at(), at -> new ArrayList<>(1))
+                    .add(new Score(message.time(), (float) entry.path("sentiment").asDouble()));
+            scored.add(message.key());
+        }
+    }
+
+    /**
+     * Removes and returns the first message sent at the given time.
+     * The time is compared as written first, then as an instant, then as
+     * a time of day in UTC.
+     *
+     * @param unmatched messages without a score yet, in chat order
+     * @param time time echoed by the scorer
+     * @return the message, or null when none was sent at that time
+     */
+    private static Pending takeMatch(final List<Pending> unmatched, final String time) {
+        Pending match = null;
+        for (final Pending message : unmatched) {
+            if (message.time().equals(time)) {
+                match = message;
+                break;
+            }
+        }
+        if (match == null) {
+            match = matchParsed(unmatched, time);
+        }
+        if (match != null) {
+            unmatched.remove(match);
+        }
+        return match;
+    }
+
+    /**
+     * Finds the first message sent at a time written differently from its timestamp.
+     *
+     * @param unmatched messages without a score yet, in chat order
+     * @param time time echoed by the scorer
+     * @return the message, or null
+     */
+    private static Pending matchParsed(final List<Pending> unmatched, final String time) {
+        final Instant at = parseInstant(time);
+        final LocalTime timeOfDay = at == null ? parseTimeOfDay(time) : null;
+        if (at == null && timeOfDay == null) {
+            return null;
+        }
+        final Iterator<Pending> messages = unmatched.iterator();
+        while (messages.hasNext()) {
+            final Pending message = messages.next();
+            if (at != null && at.equals(message.at())) {
+                return message;
+            }
+            if (timeOfDay != null) {
+                final LocalTime sent = LocalTime.ofInstant(message.at(), ZoneOffset.UTC);
+                final boolean sameMinute = sent.truncatedTo(ChronoUnit.MINUTES)
+                        .equals(timeOfDay.truncatedTo(ChronoUnit.MINUTES));
+                if (sameMinute && (timeOfDay.getSecond() == 0 || timeOfDay.getSecond() == sent.getSecond())) {
+                    return message;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the series.
+     *
+     * @return json array of {time, sentiment}, in time order
+     */
+    private synchronized String toJson() {
+        final ArrayNode out = MAPPER.createArrayNode();
+        for (final Map.Entry<Instant, List<Score>> point : series.entrySet()) {
+            for (final Score score : point.getValue()) {
+                out.addObject().put("time", score.time()).put("sentiment", score.sentiment());
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Gets the timestamp of a message as sent.
+     *
+     * @param message the message
+     * @return the timestamp, empty when there is none
+     */
+    private static String timeOf(final JsonNode message) {
+        return message.path("timestamp").asText(message.path("time").asText(""));
+    }
+
+    /**
+     * Parses an ISO-8601 timestamp, one without an offset is taken as UTC.
+     *
+     * @param time the timestamp
+     * @return the instant, or null when the text is not a timestamp
+     */
+    private static Instant parseInstant(final String time) {
+        if (time.isEmpty()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(time).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(time).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException notLocal) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Parses a time of day such as 9:05 or 09:05:30.
+     *
+     * @param time the text
+     * @return the time of day, or null
+     */
+    private static LocalTime parseTimeOfDay(final String time) {
+        try {
+            return LocalTime.parse(time.trim(), TIME_OF_DAY);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of messages scored.
+     *
+     * @return message count
+     */
+    public synchronized int size() {
+        return scored.size();
+    }
+
+    /**
+     * Returns whether no refresh is in flight.
+     *
+     * @return true if the timeline can be dropped without losing work
+     */
+    public synchronized boolean isQuiet() {
+        return lastRefresh.isDone();
+    }
+}
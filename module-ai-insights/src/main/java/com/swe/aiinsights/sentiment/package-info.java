@@ -0,0 +1,4 @@
+/**
+ * In-process sentiment scoring of meeting chat.
+ */
+package com.swe.aiinsights.sentiment;
@@ -0,0 +1,82 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: BoardState.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.session
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Last described snapshot of the whiteboard of a meeting.
+ *
+ * <p>
+ *     Updates are chained, each one starts from the snapshot left by the
+ *     one before it, so a change is never diffed against a board that is
+ *     about to be replaced. A failed update leaves the board as it was.
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.session;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Whiteboard image and its description, updated one change at a time.
+ */
+public final class BoardState {
+
+    /**
+     * A described snapshot of the board.
+     *
+     * @param image the snapshot, null before the first one or when it could not be decoded
+     * @param description description of the whole board
+     */
+    public record Snapshot(BufferedImage image, String description) { }
+
+    /**
+     * Latest described snapshot.
+     */
+    private volatile Snapshot current = new Snapshot(null, "");
+
+    /**
+     * Completes once the latest update is done.
+     */
+    private CompletableFuture<Void> lastUpdate = CompletableFuture.completedFuture(null);
+
+    /**
+     * Queues an update of the board.
+     *
+     * @param step computes the next snapshot from the current one
+     * @return future completed with the description of the whole board
+     */
+    public synchronized CompletableFuture<String> update(
+            final Function<Snapshot, CompletableFuture<Snapshot>> step) {
+        final CompletableFuture<String> updated = lastUpdate
+                .thenCompose(ignored -> step.apply(current))
+                .thenApply(next -> {
+                    current = next;
+                    return next.description();
+                });
+        // a failed update must not block the ones queued after it
+        lastUpdate = updated.handle((value, error) -> null);
+        return updated;
+    }
+
+    /**
+     * Returns whether no update is in flight.
+     *
+     * @return true if the board can be dropped without losing work
+     */
+    public synchronized boolean isQuiet() {
+        return lastUpdate.isDone();
+    }
+
+    public String getDescription() {
+        return current.description();
+    }
+}
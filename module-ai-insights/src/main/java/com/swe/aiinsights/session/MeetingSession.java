@@ -0,0 +1,214 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: MeetingSession.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.session
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Summary, Q&A, whiteboard and sentiment state of one meeting.
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.session;
+
+import com.swe.aiinsights.cache.SnapshotIndex;
+import com.swe.aiinsights.retrieval.Bm25Index;
+import com.swe.aiinsights.retrieval.ChatPassages;
+import com.swe.aiinsights.sentiment.SentimentTimeline;
+import com.swe.aiinsights.summariser.IncrementalSummariser;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * State of a meeting, independent of every other meeting.
+ */
+public final class MeetingSession {
+    /**
+     * Longest passage cut from chat that is not in the messages format.
+     */
+    private static final int PLAIN_PASSAGE_CHARS = 500;
+
+    /**
+     * Identifier of the meeting.
+     */
+    private final String meetingId;
+
+    /**
+     * Summariser holding the summary of this meeting.
+     */
+    private final IncrementalSummariser summariser;
+
+    /**
+     * Raw chat of the meeting, searched to answer questions.
+     */
+    private final Bm25Index chatIndex;
+
+    /**
+     * Last described snapshot of the whiteboard.
+     */
+    private final BoardState board = new BoardState();
+
+    /**
+     * Descriptions of recent snapshots of this meeting, null when near-duplicate lookup is off.
+     */
+    private final SnapshotIndex snapshots;
+
+    /**
+     * Sentiment of the messages scored so far.
+     */
+    private final SentimentTimeline sentimentTimeline = new SentimentTimeline();
+
+    /**
+     * Latest summary of the meeting.
+     */
+    private volatile String summary = "";
+
+    /**
+     * Completes once the latest summarisation of this meeting is done.
+     */
+    private volatile CompletableFuture<Void> lastSummaryUpdate =
+            CompletableFuture.completedFuture(null);
+
+    /**
+     * Time of the last use in epoch millis.
+     */
+    private volatile long lastAccess;
+
+    /**
+     * Creates the state of a meeting.
+     *
+     * @param id identifier of the meeting
+     * @param meetingSummariser summariser dedicated to this meeting
+     * @param index retrieval index dedicated to this meeting
+     */
+    public MeetingSession(final String id, final IncrementalSummariser meetingSummariser,
+                          final Bm25Index index) {
+        this(id, meetingSummariser, index, null);
+    }
+
+    /**
+     * Creates the state of a meeting that reuses descriptions of its own recent snapshots.
+     *
+     * @param id identifier of the meeting
+     * @param meetingSummariser summariser dedicated to this meeting
+     * @param index retrieval index dedicated to this meeting
+     * @param snapshotIndex snapshot index dedicated to this meeting, or null
+     */
+    public MeetingSession(final String id, final IncrementalSummariser meetingSummariser,
+                          final Bm25Index index, final SnapshotIndex snapshotIndex) {
+        this.meetingId = id;
+        this.summariser = meetingSummariser;
+        this.chatIndex = index;
+        this.snapshots = snapshotIndex;
+    }
+
+    /**
+     * Adds chat to the summary of this meeting.
+     * The chat is searchable by questions right away, before it is summarised.
+     *
+     * @param chunk new chat data
+     * @param onChunk receives the partial summary in order, may be null
+     * @return future completed with the updated summary
+     */
+    public CompletableFuture<String> summarise(final String chunk, final Consumer<String> onChunk) {
+        for (final String passage : ChatPassages.split(chunk, PLAIN_PASSAGE_CHARS)) {
+            chatIndex.add(passage);
+        }
+        final CompletableFuture<String> updated = summariser.submit(chunk, onChunk)
+                .thenApply(newSummary -> {
+                    summary = newSummary;
+                    return newSummary;
+                });
+        // a failed summary must not fail the questions waiting for it
+        lastSummaryUpdate = updated.handle((value, error) -> null);
+        return updated;
+    }
+
+    /**
+     * Builds the context for a question: the summary so far followed by the
+     * chat passages most relevant to the question, within a size budget.
+     * Does not wait for summaries in flight.
+     *
+     * @param question the question
+     * @param topK most passages included
+     * @param maxChars size budget of the context
+     * @return the context
+     */
+    public String questionContext(final String question, final int topK, final int maxChars) {
+        final StringBuilder context = new StringBuilder();
+        final String currentSummary = summary;
+        if (!currentSummary.isEmpty()) {
+            final int summaryBudget = maxChars / 2;
+            context.append("Meeting summary:\n")
+                    .append(currentSummary, 0, Math.min(currentSummary.length(), summaryBudget))
+                    .append("\n\n");
+        }
+        final List<String> passages = chatIndex.search(question, topK);
+        if (!passages.isEmpty()) {
+            context.append("Relevant chat excerpts:\n");
+            for (final String passage : passages) {
+                if (context.length() + passage.length() + 3 > maxChars) {
+                    break;
+                }
+                context.append("- ").append(passage).append('\n');
+            }
+        }
+        return context.toString().trim();
+    }
+
+    /**
+     * Forgets the summary of this meeting.
+     */
+    public void clear() {
+        summariser.clear();
+        summary = "";
+    }
+
+    /**
+     * Returns whether no summarisation, board update or sentiment refresh of this meeting is in flight.
+     *
+     * @return true if the session can be dropped without losing work
+     */
+    public boolean isQuiet() {
+        return lastSummaryUpdate.isDone() && board.isQuiet() && sentimentTimeline.isQuiet();
+    }
+
+    /**
+     * Records a use of the session.
+     *
+     * @param now current time in epoch millis
+     */
+    void touch(final long now) {
+        lastAccess = now;
+    }
+
+    public String getMeetingId() {
+        return meetingId;
+    }
+
+    public BoardState getBoard() {
+        return board;
+    }
+
+    public SnapshotIndex getSnapshots() {
+        return snapshots;
+    }
+
+    public SentimentTimeline getSentimentTimeline() {
+        return sentimentTimeline;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: MeetingSessionStore.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.session
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Store of meeting sessions keyed by meeting id.
+ *
+ * <p>
+ *     Sessions are created on first use. Sessions left idle for longer than
+ *     the idle timeout, with no summarisation in flight, are dropped by a
+ *     sweep that runs at most every quarter of the timeout when the store is
+ *     used, so no extra thread is needed.
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.session;
+
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrent map of meeting sessions with idle eviction.
+ */
+public final class MeetingSessionStore {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(MeetingSessionStore.class);
+
+    /**
+     * Share of the idle timeout between two sweeps.
+     */
+    private static final int SWEEPS_PER_TIMEOUT = 4;
+
+    /**
+     * Sessions by meeting id.
+     */
+    private final Map<String, MeetingSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the session of a new meeting.
+     */
+    private final Function<String, MeetingSession> sessionFactory;
+
+    /**
+     * Idle time after which a session is dropped, in milliseconds.
+     */
+    private final long idleMillis;
+
+    /**
+     * Source of the current time in epoch millis.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Time of the last sweep in epoch millis.
+     */
+    private final AtomicLong lastSweep;
+
+    /**
+     * Creates the store.
+     *
+     * @param factory creates the session of a new meeting
+     * @param idleTimeoutMillis idle time after which a session is dropped
+     */
+    public MeetingSessionStore(final Function<String, MeetingSession> factory,
+                               final long idleTimeoutMillis) {
+        this(factory, idleTimeoutMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates the store with a given clock.
+     *
+     * @param factory creates the session of a new meeting
+     * @param idleTimeoutMillis idle time after which a session is dropped
+     * @param givenClock source of the current time in epoch millis
+     */
+    public MeetingSessionStore(final Function<String, MeetingSession> factory,
+                               final long idleTimeoutMillis, final LongSupplier givenClock) {
+        this.sessionFactory = factory;
+        this.idleMillis = idleTimeoutMillis;
+        this.clock = givenClock;
+        this.lastSweep = new AtomicLong(givenClock.getAsLong());
+    }
+
+    /**
+     * Returns the session of a meeting, creating it on first use.
+     *
+     * @param meetingId identifier of the meeting
+     * @return the session of the meeting
+     */
+    public MeetingSession get(final String meetingId) {
+        final long now = clock.getAsLong();
+        sweepIfDue(now);
+        return sessions.compute(meetingId, (id, existing) -> {
+            final MeetingSession session = existing == null ? sessionFactory.apply(id) : existing;
+            session.touch(now);
+            return session;
+        });
+    }
+
+    /**
+     * Drops the session of a meeting.
+     *
+     * @param meetingId identifier of the meeting
+     * @return the dropped session, or null if there was none
+     */
+    public MeetingSession remove(final String meetingId) {
+        return sessions.remove(meetingId);
+    }
+
+    /**
+     * Returns the number of sessions held.
+     *
+     * @return session count
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Drops every quiet session idle for longer than the timeout.
+     *
+     * @return number of sessions dropped
+     */
+    public int evictIdle() {
+        final long now = clock.getAsLong();
+        int evicted = 0;
+        for (final String meetingId : sessions.keySet()) {
+            final MeetingSession[] dropped = new MeetingSession[1];
+            sessions.computeIfPresent(meetingId, (id, session) -> {
+                if (now - session.getLastAccess() > idleMillis && session.isQuiet()) {
+                    dropped[0] = session;
+                    return null;
+                }
+                return session;
+            });
+            if (dropped[0] != null) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            LOG.info("Evicted {} idle meeting sessions, {} left", evicted, sessions.size());
+        }
+        return evicted;
+    }
+
+    /**
+     * Sweeps idle sessions when the last sweep is old enough.
+     *
+     * @param now current time in epoch millis
+     */
+    private void sweepIfDue(final long now) {
+        final long last = lastSweep.get();
+        if (now - last >= idleMillis / SWEEPS_PER_TIMEOUT && lastSweep.compareAndSet(last, now)) {
+            evictIdle();
+        }
+    }
+}
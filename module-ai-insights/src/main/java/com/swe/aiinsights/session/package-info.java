@@ -0,0 +1,4 @@
+/**
+ * Per-meeting state, so one node can serve many meetings at once.
+ */
+package com.swe.aiinsights.session;
@@ -0,0 +1,327 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: IncrementalSummariser.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights.summariser
+ * -----------------------------------------------------------------------------
+ */
+
+/**
+ * Keeps a meeting summary up to date without re-sending the whole history.
+ *
+ * <p>
+ *     Chat chunks that arrive while a summary is being generated are queued
+ *     and summarised together in the next round, so a burst of chunks costs
+ *     one round instead of one request each. Each round summarises only the
+ *     new chat, split into windows of bounded size. Once enough window
+ *     summaries have piled up they are folded into a rollup summary.
+ *     No prompt holds more than the rollup and a fixed number of window
+ *     summaries, however long the meeting runs.
+ * </p>
+ *
+ * <p>
+ *     When a window cannot be summarised, the callers of the round get the
+ *     error and the chunks not summarised yet go back to the front of the
+ *     queue, so the next round covers them instead of losing them.
+ * </p>
+ *
+ * @author Nandhana Sunil
+ */
+
+package com.swe.aiinsights.summariser;
+
+import com.swe.aiinsights.logging.CommonLogger;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Coalescing, hierarchical summariser over a summarisation call.
+ */
+public class IncrementalSummariser {
+    /**
+     * Get the log file path.
+     */
+    private static final Logger LOG = CommonLogger.getLogger(IncrementalSummariser.class);
+
+    /**
+     * Separator between summaries and chunks joined into one text.
+     */
+    private static final String SEPARATOR = "\n\n";
+
+    /**
+     * Sends one summarisation prompt input and streams the answer to the
+     * consumer, which may be null.
+     */
+    private final BiFunction<String, Consumer<String>, CompletableFuture<String>> summariseCall;
+
+    /**
+     * Largest amount of chat text summarised in one window.
+     */
+    private final int maxWindowChars;
+
+    /**
+     * Number of window summaries kept before they are rolled up.
+     */
+    private final int windowsPerRollup;
+
+    /**
+     * Chunks received since the last round started.
+     */
+    private final List<String> pendingChunks = new ArrayList<>();
+
+    /**
+     * Callers waiting for the pending chunks to be summarised.
+     */
+    private final List<CompletableFuture<String>> pendingWaiters = new ArrayList<>();
+
+    /**
+     * Consumers of the streamed text of the next round.
+     */
+    private final List<Consumer<String>> pendingConsumers = new ArrayList<>();
+
+    /**
+     * Summaries of the windows since the last rollup.
+     */
+    private final List<String> windowSummaries = new ArrayList<>();
+
+    /**
+     * Summary of all windows rolled up so far.
+     */
+    private String rollup = "";
+
+    /**
+     * Whether a round is being generated.
+     */
+    private boolean roundInFlight;
+
+    /**
+     * Incremented on clear, so rounds started before it are dropped.
+     */
+    private long generation;
+
+    /**
+     * Creates the summariser.
+     *
+     * @param call sends a summarisation prompt input, streaming to the consumer if not null
+     * @param windowChars largest amount of chat text summarised in one window
+     * @param rollupEvery number of window summaries kept before they are rolled up
+     */
+    public IncrementalSummariser(final BiFunction<String, Consumer<String>, CompletableFuture<String>> call,
+                                 final int windowChars, final int rollupEvery) {
+        this.summariseCall = call;
+        this.maxWindowChars = Math.max(1, windowChars);
+        this.windowsPerRollup = Math.max(1, rollupEvery);
+    }
+
+    /**
+     * Adds a chat chunk to the summary.
+     *
+     * @param chunk new chat data
+     * @param onChunk receives the streamed text of the round covering this chunk, may be null
+     * @return future completed with the whole summary once the chunk is covered
+     */
+    public CompletableFuture<String> submit(final String chunk, final Consumer<String> onChunk) {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final boolean startRound;
+        synchronized (this) {
+            pendingChunks.add(chunk);
+            pendingWaiters.add(result);
+            if (onChunk != null) {
+                pendingConsumers.add(onChunk);
+            }
+            startRound = !roundInFlight;
+            roundInFlight = true;
+        }
+        if (startRound) {
+            runRound();
+        } else {
+            LOG.info("Summary in flight, chunk queued for the next round");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the summary built so far.
+     *
+     * @return rollup followed by the newer window summaries
+     */
+    public synchronized String currentSummary() {
+        final List<String> parts = new ArrayList<>();
+        if (!rollup.isEmpty()) {
+            parts.add(rollup);
+        }
+        parts.addAll(windowSummaries);
+        return String.join(SEPARATOR, parts);
+    }
+
+    /**
+     * Forgets the summary. Rounds already in flight finish but are not kept.
+     */
+    public synchronized void clear() {
+        generation++;
+        rollup = "";
+        windowSummaries.clear();
+    }
+
+    /**
+     * Summarises everything pending, then starts the next round if more
+     * chunks arrived in the meantime.
+     */
+    private void runRound() {
+        final List<String> chunks;
+        final List<CompletableFuture<String>> waiters;
+        final List<Consumer<String>> consumers;
+        final long roundGeneration;
+        synchronized (this) {
+            chunks = new ArrayList<>(pendingChunks);
+            waiters = new ArrayList<>(pendingWaiters);
+            consumers = new ArrayList<>(pendingConsumers);
+            pendingChunks.clear();
+            pendingWaiters.clear();
+            pendingConsumers.clear();
+            roundGeneration = generation;
+        }
+        LOG.info("Summarising {} chat chunks", chunks.size());
+        final Consumer<String> fanOut = consumers.isEmpty() ? null : text -> consumers.forEach(c -> c.accept(text));
+
+        final List<List<String>> windows = windows(chunks);
+        final AtomicInteger summarised = new AtomicInteger();
+        CompletableFuture<Void> round = CompletableFuture.completedFuture(null);
+        for (final List<String> window : windows) {
+            final String text = String.join(SEPARATOR, window);
+            round = round.thenCompose(v -> summariseCall.apply(text, fanOut))
+                    .thenAccept(summary -> {
+                        addWindow(summary, roundGeneration);
+                        summarised.incrementAndGet();
+                    });
+        }
+        round.thenCompose(v -> rollUpIfNeeded(roundGeneration))
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        requeue(windows.subList(summarised.get(), windows.size()), roundGeneration);
+                    }
+                    final String summary = currentSummary();
+                    for (final CompletableFuture<String> waiter : waiters) {
+                        if (error == null) {
+                            waiter.complete(summary);
+                        } else {
+                            waiter.completeExceptionally(error);
+                        }
+                    }
+                    finishRound();
+                });
+    }
+
+    /**
+     * Puts the chunks of windows that were not summarised back at the
+     * front of the queue, ahead of the chunks that arrived since.
+     *
+     * @param windows windows left when the round failed
+     * @param roundGeneration generation the round was started in
+     */
+    private synchronized void requeue(final List<List<String>> windows, final long roundGeneration) {
+        if (roundGeneration != generation || windows.isEmpty()) {
+            return;
+        }
+        final List<String> chunks = new ArrayList<>();
+        windows.forEach(chunks::addAll);
+        LOG.warn("Summary round failed, {} chat chunks kept for the next round", chunks.size());
+        pendingChunks.addAll(0, chunks);
+    }
+
+    /**
+     * Starts the next round if a caller is waiting, otherwise goes idle.
+     * Chunks kept from a failed round wait for the next submitted chunk,
+     * so a failing model is not retried in a loop.
+     */
+    private void finishRound() {
+        synchronized (this) {
+            if (pendingWaiters.isEmpty()) {
+                roundInFlight = false;
+                return;
+            }
+        }
+        runRound();
+    }
+
+    /**
+     * Splits chunks into windows of at most maxWindowChars, never splitting
+     * a chunk.
+     *
+     * @param chunks the chunks in arrival order
+     * @return the chunks of each window, in order
+     */
+    private List<List<String>> windows(final List<String> chunks) {
+        final List<List<String>> windows = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int length = 0;
+        for (final String chunk : chunks) {
+            if (!current.isEmpty() && length + chunk.length() > maxWindowChars) {
+                windows.add(current);
+                current = new ArrayList<>();
+                length = 0;
+            }
+            if (!current.isEmpty()) {
+                length += SEPARATOR.length();
+            }
+            current.add(chunk);
+            length += chunk.length();
+        }
+        if (!current.isEmpty()) {
+            windows.add(current);
+        }
+        return windows;
+    }
+
+    /**
+     * Keeps the summary of a window.
+     *
+     * @param summary summary of the window
+     * @param roundGeneration generation the round was started in
+     */
+    private synchronized void addWindow(final String summary, final long roundGeneration) {
+        if (roundGeneration == generation && summary != null && !summary.isBlank()) {
+            windowSummaries.add(summary.trim());
+        }
+    }
+
+    /**
+     * Folds the window summaries into the rollup once there are enough.
+     *
+     * @param roundGeneration generation the round was started in
+     * @return future completed once the rollup is updated
+     */
+    private CompletableFuture<Void> rollUpIfNeeded(final long roundGeneration) {
+        final String content;
+        final int folded;
+        synchronized (this) {
+            if (roundGeneration != generation || windowSummaries.size() < windowsPerRollup) {
+                return CompletableFuture.completedFuture(null);
+            }
+            folded = windowSummaries.size();
+            final String newer = String.join(SEPARATOR, windowSummaries);
+            content = rollup.isEmpty()
+                    ? newer
+                    : "Previous Summary: " + rollup + SEPARATOR + "New Chat Data: " + newer;
+        }
+        LOG.info("Rolling up {} window summaries", folded);
+        return summariseCall.apply(content, null).thenAccept(summary -> {
+            synchronized (this) {
+                if (roundGeneration == generation && summary != null && !summary.isBlank()) {
+                    rollup = summary.trim();
+                    windowSummaries.subList(0, folded).clear();
+                }
+            }
+        }).exceptionally(error -> {
+            LOG.warn("Rollup failed, keeping window summaries: {}", error.getMessage());
+            return null;
+        });
+    }
+}
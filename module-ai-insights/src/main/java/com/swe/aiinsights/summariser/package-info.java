@@ -0,0 +1,4 @@
+/**
+ * Incremental summarisation of meeting chat.
+ */
+package com.swe.aiinsights.summariser;
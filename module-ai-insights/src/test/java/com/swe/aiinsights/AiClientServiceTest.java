@@ -13,6 +13,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.swe.aiinsights.apiendpoints.AiClientService;
 import com.swe.aiinsights.request.RequestFactory;
+import com.swe.aiinsights.sentiment.SentimentEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,6 +22,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -29,10 +31,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -113,6 +118,32 @@ class AiClientServiceTest {
     }
 
 
+    /**
+     * Clear strokes in a batch are answered without building any AI request.
+     * @throws Exception part of the batch regularise function of client service
+     */
+    @Test
+    void testRegulariseBatchAnswersClearStrokesLocally() throws Exception {
+        final RequestFactory mockFactory = mock(RequestFactory.class);
+        final var factoryField = AiClientService.class.getDeclaredField("factory");
+        factoryField.setAccessible(true);
+        factoryField.set(aiClientService, mockFactory);
+
+        final String rectangle = "{\"ShapeId\": \"s%d\", \"Points\": ["
+                + "{\"X\":10,\"Y\":10},{\"X\":60,\"Y\":10},{\"X\":110,\"Y\":10},{\"X\":110,\"Y\":50},"
+                + "{\"X\":110,\"Y\":90},{\"X\":60,\"Y\":90},{\"X\":10,\"Y\":90},{\"X\":10,\"Y\":50},"
+                + "{\"X\":10,\"Y\":12}], \"Color\": \"#FF000000\", \"Thickness\": 2,"
+                + " \"CreatedBy\": \"u\", \"LastModifiedBy\": \"u\", \"IsDeleted\": false}";
+
+        final List<CompletableFuture<String>> results = aiClientService.regulariseBatch(
+                List.of(String.format(rectangle, 1), String.format(rectangle, 2)));
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isDone());
+        assertEquals("s2", objectMapper.readTree(results.get(1).get()).get("ShapeId").asText());
+        verify(mockFactory, never()).getRequest(anyString(), any());
+    }
+
     @Test
     void testSentimentWithValidChatData() throws Exception {
         final JsonNode chatData = objectMapper.readTree("{\"messages\":[{\"text\":\"Hello\"}]}");
@@ -120,6 +151,23 @@ class AiClientServiceTest {
         assertNotNull(result);
     }
 
+    @Test
+    void testLocalSentimentDoesNotCallTheAi() throws Exception {
+        final RequestFactory mockFactory = mock(RequestFactory.class);
+        final var factoryField = AiClientService.class.getDeclaredField("factory");
+        factoryField.setAccessible(true);
+        factoryField.set(aiClientService, mockFactory);
+        final JsonNode chatData = objectMapper.readTree(
+                "{\"messages\":[{\"timestamp\":\"2025-11-12T09:00:00Z\",\"message\":\"Great work!\"}]}");
+
+        final String result = aiClientService.sentiment(chatData, SentimentEngine.LOCAL).get(1, TimeUnit.SECONDS);
+
+        final JsonNode scores = objectMapper.readTree(result);
+        assertEquals("2025-11-12T09:00:00Z", scores.get(0).get("time").asText());
+        assertTrue(scores.get(0).get("sentiment").asDouble() > 0);
+        verify(mockFactory, never()).getRequest(anyString(), any());
+    }
+
     @Test
     void testSentimentCatchesIOException() throws Exception {
         final RequestFactory mockFactory = mock(RequestFactory.class);
@@ -141,11 +189,9 @@ class AiClientServiceTest {
     }
 
     @Test
-    void testSummariseTextWithPreviousSummary() throws Exception {
-        // Set accumulated summary to simulate existing summary
-        final var summaryField = AiClientService.class.getDeclaredField("accumulatedSummary");
-        summaryField.setAccessible(true);
-        summaryField.set(aiClientService, "Existing summary");
+    void testSummariseTextWithPreviousSummary() {
+        // summarise twice to simulate existing summary
+        aiClientService.summariseText("{\"chat\":\"Meeting notes\"}");
 
         final CompletableFuture<String> result = aiClientService.summariseText("{\"chat\":\"New data\"}");
         assertNotNull(result);
@@ -182,16 +228,22 @@ class AiClientServiceTest {
     }
 
     @Test
-    void testAnswerQuestionWithNullAccumulatedSummary() throws Exception {
-        // Set summary to null to test else branch
-        final var summaryField = AiClientService.class.getDeclaredField("accumulatedSummary");
-        summaryField.setAccessible(true);
-        summaryField.set(aiClientService, null);
-
-        final CompletableFuture<String> result = aiClientService.answerQuestion("What is AI?");
+    void testAnswerQuestionWithoutSummary() {
+        // a meeting that was never summarised has an empty summary
+        final CompletableFuture<String> result = aiClientService.answerQuestion("new-meeting", "What is AI?", null);
         assertNotNull(result);
     }
 
+    @Test
+    void testMeetingsKeepSeparateSessions() throws Exception {
+        aiClientService.summariseText("meeting-a", "{\"chat\":\"a\"}", null);
+        aiClientService.summariseText("meeting-b", "{\"chat\":\"b\"}", null);
+        assertEquals(2, aiClientService.getActiveMeetingCount());
+
+        aiClientService.endMeeting("meeting-a");
+        assertEquals(1, aiClientService.getActiveMeetingCount());
+    }
+
     @Test
     void testAnswerQuestionCatchesException() throws Exception {
         final RequestFactory mockFactory = mock(RequestFactory.class);
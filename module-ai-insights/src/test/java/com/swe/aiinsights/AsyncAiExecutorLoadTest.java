@@ -0,0 +1,160 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: AsyncAiExecutorLoadTest.java
+ *  Owner: Berelli Gouthami
+ *  Roll Number : 112201003
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.sun.net.httpserver.HttpServer;
+import com.swe.aiinsights.aiservice.LlmService;
+import com.swe.aiinsights.apiendpoints.AsyncAiExecutor;
+import com.swe.aiinsights.configu.AsyncConfig;
+import com.swe.aiinsights.configu.ExecutorMode;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.request.AiSummarisationRequest;
+import com.swe.aiinsights.response.AiResponse;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test comparing the platform and virtual executor modes.
+ * A local HTTP server plays the LLM and answers every call after a fixed delay.
+ */
+class AsyncAiExecutorLoadTest {
+    /**
+     * Delay of the stub LLM endpoint in milliseconds.
+     */
+    private static final int STUB_LATENCY_MS = 200;
+
+    /**
+     * Number of requests fired at once.
+     */
+    private static final int CONCURRENT_REQUESTS = 200;
+
+    /**
+     * Stub LLM endpoint.
+     */
+    private HttpServer server;
+
+    /**
+     * Service that calls the stub endpoint with a blocking HTTP call.
+     */
+    private LlmService stubService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/generate", exchange -> {
+            try {
+                Thread.sleep(STUB_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = "stub summary".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        final String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/generate";
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+        client.dispatcher().setMaxRequestsPerHost(CONCURRENT_REQUESTS);
+        stubService = request -> {
+            final Request httpRequest = new Request.Builder().url(url).build();
+            try (Response response = client.newCall(httpRequest).execute()) {
+                final AiResponse aiResponse = request.getAiResponse();
+                aiResponse.setResponse(response.body().string());
+                return aiResponse;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Fires all requests at once and counts rejected and completed ones.
+     *
+     * @param mode executor mode under test
+     * @return {completed, rejected, elapsed millis}
+     */
+    private long[] runLoad(final ExecutorMode mode) {
+        final Executor pool = AsyncConfig.aiExecutor(mode);
+        try {
+            final AsyncAiExecutor executor = new AsyncAiExecutor(stubService, pool);
+            final List<CompletableFuture<String>> futures = new ArrayList<>();
+            int rejected = 0;
+
+            final long start = System.nanoTime();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                try {
+                    futures.add(executor.execute(new AiSummarisationRequest("chat " + i)));
+                } catch (RejectedExecutionException e) {
+                    rejected++;
+                }
+            }
+            long completed = 0;
+            for (CompletableFuture<String> future : futures) {
+                if ("stub summary".equals(future.orTimeout(60, TimeUnit.SECONDS).join())) {
+                    completed++;
+                }
+            }
+            final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new long[] {completed, rejected, elapsedMs};
+        } finally {
+            if (pool instanceof ExecutorService service) {
+                service.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void testPlatformModeRejectsBeyondQueueCapacity() {
+        final long[] result = runLoad(ExecutorMode.PLATFORM);
+        // 10 threads plus a queue of 50 can hold 60 requests
+        assertTrue(result[1] > 0, "platform pool should reject part of the burst");
+        assertTrue(result[0] >= 60, "completed only " + result[0]);
+        assertEquals(CONCURRENT_REQUESTS, result[0] + result[1]);
+    }
+
+    @Test
+    void testVirtualModeCompletesWholeBurst() {
+        final long[] result = runLoad(ExecutorMode.VIRTUAL);
+        assertEquals(0, result[1]);
+        assertEquals(CONCURRENT_REQUESTS, result[0]);
+        // all calls overlap, so the burst takes a few stub latencies and not 200 of them
+        assertTrue(result[2] < (long) STUB_LATENCY_MS * CONCURRENT_REQUESTS / 10,
+                "burst took " + result[2] + " ms");
+    }
+}
@@ -9,6 +9,7 @@
 
 package com.swe.aiinsights;
 
+import com.swe.aiinsights.aiservice.AsyncLlmService;
 import com.swe.aiinsights.aiservice.LlmService;
 import com.swe.aiinsights.apiendpoints.AsyncAiExecutor;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
@@ -33,6 +34,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 
 
 /**
@@ -143,4 +146,42 @@ class AsyncAiExecutorTest {
         assertInstanceOf(RuntimeException.class, exception.getCause());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testExecuteUsesNonBlockingServiceWithoutWorkerThread() throws Exception {
+        when(mockRequest.getReqType()).thenReturn("SUM");
+        when(mockRequest.getContext()).thenReturn("test prompt");
+        when(mockRequest.getInput()).thenReturn("test data");
+        when(mockAiResponse.getResponse()).thenReturn("AI async response");
+
+        final AsyncLlmService asyncService = mock(AsyncLlmService.class);
+        when(asyncService.runProcessAsync(any(RequestGeneraliser.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockAiResponse));
+
+        // an executor that fails the test if a task is ever submitted to it
+        final AsyncAiExecutor executor = new AsyncAiExecutor(asyncService, task -> {
+            throw new AssertionError("worker thread must not be used");
+        });
+
+        assertEquals("AI async response", executor.execute(mockRequest).get());
+        verify(asyncService, never()).runProcess(any());
+    }
+
+    @Test
+    void testExecuteNonBlockingFailureIsWrapped() throws Exception {
+        when(mockRequest.getReqType()).thenReturn("SUM");
+        when(mockRequest.getContext()).thenReturn("test prompt");
+        when(mockRequest.getInput()).thenReturn("test data");
+
+        final AsyncLlmService asyncService = mock(AsyncLlmService.class);
+        when(asyncService.runProcessAsync(any(RequestGeneraliser.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Service failed")));
+
+        final AsyncAiExecutor executor = new AsyncAiExecutor(asyncService, Runnable::run);
+
+        final ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> executor.execute(mockRequest).get());
+        assertInstanceOf(RuntimeException.class, exception.getCause());
+        assertInstanceOf(IOException.class, exception.getCause().getCause());
+    }
+
+}
@@ -10,6 +10,8 @@
 package com.swe.aiinsights;
 
 import com.swe.aiinsights.configu.AsyncConfig;
+import com.swe.aiinsights.configu.BoundedVirtualExecutor;
+import com.swe.aiinsights.configu.ExecutorMode;
 import org.junit.jupiter.api.Test;
 
 import java.util.concurrent.Executor;
@@ -20,6 +22,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -85,4 +88,76 @@ class AsyncConfigTest {
         assertTrue(completed);
         assertEquals(taskCount, counter.get());
     }
-}
\ No newline at end of file
+
+    // ==================== Virtual Mode Tests ====================
+
+    @Test
+    void testAiExecutorPlatformModeReturnsThreadPool() {
+        final Executor executor = AsyncConfig.aiExecutor(ExecutorMode.PLATFORM);
+        assertTrue(executor instanceof ThreadPoolExecutor);
+    }
+
+    @Test
+    void testAiExecutorVirtualModeReturnsVirtualExecutor() {
+        final Executor executor = AsyncConfig.aiExecutor(ExecutorMode.VIRTUAL);
+        assertTrue(executor instanceof BoundedVirtualExecutor);
+    }
+
+    @Test
+    void testExecutorModeParsing() {
+        assertEquals(ExecutorMode.VIRTUAL, ExecutorMode.fromString(" Virtual "));
+        assertEquals(ExecutorMode.PLATFORM, ExecutorMode.fromString("platform"));
+        assertEquals(ExecutorMode.PLATFORM, ExecutorMode.fromString(null));
+        assertEquals(ExecutorMode.PLATFORM, ExecutorMode.fromString("unknown"));
+    }
+
+    @Test
+    void testVirtualExecutorRunsTasksOnVirtualThreads() throws InterruptedException {
+        final Executor executor = AsyncConfig.virtualAiExecutor(4);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger virtualCount = new AtomicInteger(0);
+
+        executor.execute(() -> {
+            if (Thread.currentThread().isVirtual()) {
+                virtualCount.incrementAndGet();
+            }
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, virtualCount.get());
+    }
+
+    @Test
+    void testVirtualExecutorRespectsConcurrencyLimit() throws InterruptedException {
+        final int limit = 3;
+        final int taskCount = 30;
+        final BoundedVirtualExecutor executor = new BoundedVirtualExecutor(limit);
+        final CountDownLatch latch = new CountDownLatch(taskCount);
+        final AtomicInteger running = new AtomicInteger(0);
+        final AtomicInteger maxSeen = new AtomicInteger(0);
+
+        for (int i = 0; i < taskCount; i++) {
+            executor.execute(() -> {
+                final int now = running.incrementAndGet();
+                maxSeen.accumulateAndGet(now, Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(maxSeen.get() <= limit);
+        assertEquals(limit, executor.getMaxConcurrency());
+    }
+
+    @Test
+    void testVirtualExecutorRejectsInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedVirtualExecutor(0));
+    }
+}
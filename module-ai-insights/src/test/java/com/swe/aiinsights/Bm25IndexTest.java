@@ -0,0 +1,91 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: Bm25IndexTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.retrieval.Bm25Index;
+import com.swe.aiinsights.retrieval.ChatPassages;
+import com.swe.aiinsights.session.MeetingSession;
+import com.swe.aiinsights.summariser.IncrementalSummariser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for retrieval of chat passages used to answer questions.
+ */
+class Bm25IndexTest {
+
+    @Test
+    void testRanksPassageWithQueryTermsFirst() {
+        final Bm25Index index = new Bm25Index(100);
+        index.add("alice: let us meet on friday to review the budget");
+        index.add("bob: the deployment pipeline is broken again");
+        index.add("carol: lunch was great today");
+        index.add("dave: budget review needs the finance numbers");
+
+        final List<String> hits = index.search("When is the budget review?", 2);
+        assertEquals(2, hits.size());
+        assertTrue(hits.get(0).contains("budget"));
+        assertTrue(hits.get(1).contains("budget"));
+    }
+
+    @Test
+    void testUnknownTermsFindNothing() {
+        final Bm25Index index = new Bm25Index(100);
+        index.add("alice: the release is on monday");
+        assertTrue(index.search("kubernetes", 5).isEmpty());
+        assertTrue(index.search("the", 5).isEmpty());
+    }
+
+    @Test
+    void testOldestPassagesAreEvictedAtCapacity() {
+        final Bm25Index index = new Bm25Index(2);
+        index.add("alpha release planning");
+        index.add("beta testing feedback");
+        index.add("gamma launch party");
+
+        assertEquals(2, index.size());
+        assertTrue(index.search("alpha", 5).isEmpty());
+        assertEquals(List.of("gamma launch party"), index.search("gamma", 5));
+    }
+
+    @Test
+    void testSplitsMessagesAndPlainText() {
+        final String chat = "{\"messages\":[{\"from\":\"alice\",\"to\":\"all\",\"message\":\"hello team\"},"
+                + "{\"from\":\"bob\",\"to\":\"all\",\"message\":\"ship it\"}]}";
+        assertEquals(List.of("alice: hello team", "bob: ship it"), ChatPassages.split(chat, 500));
+
+        final List<String> plain = ChatPassages.split("one two three four five six", 10);
+        assertTrue(plain.size() > 1);
+        for (final String passage : plain) {
+            assertTrue(passage.length() <= 10);
+        }
+    }
+
+    @Test
+    void testQuestionContextDoesNotWaitForSummary() {
+        final CompletableFuture<String> pending = new CompletableFuture<>();
+        final MeetingSession session = new MeetingSession("m",
+                new IncrementalSummariser((content, onChunk) -> pending, 1000, 4),
+                new Bm25Index(100));
+        session.summarise("{\"messages\":[{\"from\":\"alice\",\"message\":\"the demo is on thursday\"},"
+                + "{\"from\":\"bob\",\"message\":\"coffee machine is broken\"}]}", null);
+
+        final String context = session.questionContext("When is the demo?", 1, 4000);
+        assertFalse(pending.isDone());
+        assertTrue(context.contains("alice: the demo is on thursday"));
+        assertFalse(context.contains("coffee"));
+    }
+}
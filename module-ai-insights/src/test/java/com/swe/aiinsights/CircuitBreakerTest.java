@@ -0,0 +1,240 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: CircuitBreakerTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.aiservice.AsyncLlmService;
+import com.swe.aiinsights.aiservice.CircuitBreaker;
+import com.swe.aiinsights.aiservice.CircuitBreaker.Permit;
+import com.swe.aiinsights.aiservice.LlmOrchestratorService;
+import com.swe.aiinsights.aiservice.LlmService;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.request.AiSummarisationRequest;
+import com.swe.aiinsights.response.AiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the states of the circuit breaker.
+ */
+class CircuitBreakerTest {
+
+    private static final long COOL_DOWN = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker newBreaker() {
+        return new CircuitBreaker(10, 4, 0.5, 500, COOL_DOWN, now::get);
+    }
+
+    @Test
+    void testOpensWhenFailureRateIsReached() {
+        final CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Permit.CALL, breaker.acquire());
+            breaker.onFailure(Permit.CALL, 10);
+        }
+        // too few calls to trust the failure rate yet
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertEquals(Permit.CALL, breaker.acquire());
+        breaker.onSuccess(Permit.CALL, 10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(Permit.REFUSED, breaker.acquire());
+    }
+
+    @Test
+    void testSlowCallsCountAsFailures() {
+        final CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(breaker.acquire(), i % 2 == 0 ? 900 : 100);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testOldCallsLeaveTheWindow() {
+        final CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 12; i++) {
+            final Permit permit = breaker.acquire();
+            if (i % 4 == 0) {
+                breaker.onFailure(permit, 10);
+            } else {
+                breaker.onSuccess(permit, 10);
+            }
+        }
+        final CircuitBreaker.Health health = breaker.health();
+        assertEquals(CircuitBreaker.State.CLOSED, health.state());
+        assertEquals(10, health.calls());
+        assertEquals(10, health.averageLatencyMillis());
+        // the first failure has left the window
+        assertEquals(0.2, health.failureRate(), 1e-9);
+    }
+
+    @Test
+    void testHalfOpenLetsOneProbeThrough() {
+        final CircuitBreaker breaker = newBreaker();
+        breaker.trip();
+        assertEquals(Permit.REFUSED, breaker.acquire());
+
+        now.addAndGet(COOL_DOWN);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(Permit.PROBE, breaker.acquire());
+        assertEquals(Permit.REFUSED, breaker.acquire());
+
+        // a failed probe opens the breaker for another cool-down
+        breaker.onFailure(Permit.PROBE, 10);
+        assertEquals(Permit.REFUSED, breaker.acquire());
+        now.addAndGet(COOL_DOWN);
+        assertEquals(Permit.PROBE, breaker.acquire());
+        breaker.onSuccess(Permit.PROBE, 10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(Permit.CALL, breaker.acquire());
+        assertEquals(Permit.CALL, breaker.acquire());
+    }
+
+    @Test
+    void testOnlyTheProbeDecidesWhileHalfOpen() {
+        final CircuitBreaker breaker = newBreaker();
+        // sent while closed, it finishes after the breaker opened and cooled down
+        final Permit stale = breaker.acquire();
+        breaker.trip();
+        now.addAndGet(COOL_DOWN);
+        assertEquals(Permit.PROBE, breaker.acquire());
+
+        breaker.onSuccess(stale, 10);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(stale, 10);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.release(stale);
+        // the probe is still in flight
+        assertEquals(Permit.REFUSED, breaker.acquire());
+
+        breaker.onSuccess(Permit.PROBE, 10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testSlowProbeKeepsTheBreakerOpen() {
+        final CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 500, COOL_DOWN, 200, now::get);
+        breaker.trip();
+        now.addAndGet(COOL_DOWN);
+
+        assertEquals(Permit.PROBE, breaker.acquire());
+        assertEquals(Permit.REFUSED, breaker.acquire());
+        // below the slow-call threshold, but past the probe deadline
+        breaker.onSuccess(Permit.PROBE, 300);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(COOL_DOWN);
+        assertEquals(Permit.PROBE, breaker.acquire());
+        breaker.onSuccess(Permit.PROBE, 100);
+        assertEquals(Permit.CALL, breaker.acquire());
+    }
+
+    @Test
+    void testHangingProbeFailsOverAtItsDeadline() throws Exception {
+        final CompletableFuture<AiResponse> hanging = new CompletableFuture<>();
+        final AiStub first = new AiStub(hanging);
+        final AiStub second = new AiStub(null);
+        final CircuitBreaker firstBreaker = new CircuitBreaker(10, 4, 0.5, 60_000, COOL_DOWN, 100, now::get);
+        final List<CircuitBreaker> breakers = List.of(firstBreaker, newBreaker());
+        final AtomicLong created = new AtomicLong();
+        final LlmOrchestratorService orchestrator = new LlmOrchestratorService(List.of(first, second),
+                () -> breakers.get((int) created.getAndIncrement()));
+        firstBreaker.trip();
+        now.addAndGet(COOL_DOWN);
+
+        final RequestGeneraliser request = new RequestGeneraliser(new AiSummarisationRequest("{\"messages\":[]}"));
+        final AiResponse response = orchestrator.runProcessAsync(request).get(5, TimeUnit.SECONDS);
+
+        assertEquals("second", response.getResponse());
+        assertTrue(hanging.isCancelled());
+        assertEquals(CircuitBreaker.State.OPEN, firstBreaker.health().state());
+    }
+
+    @Test
+    void testHangingBlockingProbeFailsOverAtItsDeadline() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final LlmService blocking = request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("released");
+        };
+        final CircuitBreaker firstBreaker = new CircuitBreaker(10, 4, 0.5, 60_000, COOL_DOWN, 100, now::get);
+        final List<CircuitBreaker> breakers = List.of(firstBreaker, newBreaker());
+        final AtomicLong created = new AtomicLong();
+        final ExecutorService workers = Executors.newCachedThreadPool();
+        try {
+            final LlmOrchestratorService orchestrator = new LlmOrchestratorService(
+                    List.of(blocking, new AiStub(null)),
+                    () -> breakers.get((int) created.getAndIncrement()), null, workers);
+            firstBreaker.trip();
+            now.addAndGet(COOL_DOWN);
+
+            final RequestGeneraliser request =
+                    new RequestGeneraliser(new AiSummarisationRequest("{\"messages\":[]}"));
+            // the blocking call runs on a worker, so the caller is not held past the probe deadline
+            final AiResponse response = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return orchestrator.runProcess(request);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }).get(5, TimeUnit.SECONDS);
+
+            assertEquals("second", response.getResponse());
+            assertEquals(CircuitBreaker.State.OPEN, firstBreaker.health().state());
+        } finally {
+            release.countDown();
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Service answering with a given future, or with "second" when there is none.
+     */
+    private static final class AiStub implements AsyncLlmService {
+        private final CompletableFuture<AiResponse> answer;
+
+        AiStub(final CompletableFuture<AiResponse> givenAnswer) {
+            this.answer = givenAnswer;
+        }
+
+        @Override
+        public CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser request) {
+            if (answer != null) {
+                return answer;
+            }
+            final AiResponse response = request.getAiResponse();
+            response.setResponse("second");
+            return CompletableFuture.completedFuture(response);
+        }
+
+        @Override
+        public AiResponse runProcess(final RequestGeneraliser request) {
+            return runProcessAsync(request).join();
+        }
+    }
+}
@@ -12,10 +12,16 @@ package com.swe.aiinsights;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swe.aiinsights.data.WhiteBoardData;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.modeladapter.GeminiAdapter;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,9 +30,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
@@ -149,6 +160,23 @@ class GeminiAdapterTest {
         verify(mockResponse, times(2)).body();
     }
 
+    @Test
+    void testGetResponseKeepsReportedTokenCount() throws IOException {
+        final String jsonResponse = """
+                {
+                  "candidates": [{"content": {"parts": [{"text": "Answer"}]}}],
+                  "usageMetadata": {"promptTokenCount": 1290, "candidatesTokenCount": 10, "totalTokenCount": 1300}
+                }
+                """;
+        when(mockResponse.body()).thenReturn(mockResponseBody);
+        when(mockResponseBody.charStream()).thenReturn(new StringReader(jsonResponse));
+
+        assertEquals(-1, adapter.getTotalTokenCount());
+        adapter.getResponse(mockResponse);
+
+        assertEquals(1300, adapter.getTotalTokenCount());
+    }
+
 
     @Test
     void testGetResponseInvalidJson() throws IOException {
@@ -192,5 +220,114 @@ class GeminiAdapterTest {
         assertTrue(exception.getMessage().contains("No text in api response"));
     }
 
+    @Test
+    void testParseStreamLineJoinsTextParts() throws IOException {
+        final String line = "data: {\"candidates\": [{\"content\": {\"parts\": "
+                + "[{\"text\": \"Hello \"}, {\"text\": \"world\"}], \"role\": \"model\"}}]}";
+
+        assertEquals("Hello world", adapter.parseStreamLine(line));
+    }
+
+    @Test
+    void testParseStreamLineIgnoresNonDataLines() throws IOException {
+        assertNull(adapter.parseStreamLine("event: message"));
+        assertNull(adapter.parseStreamLine(": keep-alive"));
+        assertNull(adapter.parseStreamLine("data: "));
+    }
 
-}
\ No newline at end of file
+    @Test
+    void testParseStreamLineWithoutText() throws IOException {
+        final String line = "data: {\"usageMetadata\": {\"promptTokenCount\": 12}}";
+
+        assertNull(adapter.parseStreamLine(line));
+        assertEquals(-1, adapter.getTotalTokenCount());
+    }
+
+    @Test
+    void testParseStreamLineKeepsReportedTokenCount() throws IOException {
+        adapter.parseStreamLine("data: {\"candidates\": [{\"content\": {\"parts\": [{\"text\": \"Hi\"}]}}],"
+                + " \"usageMetadata\": {\"promptTokenCount\": 12, \"totalTokenCount\": 14}}");
+
+        assertEquals(14, adapter.getTotalTokenCount());
+    }
+
+    @Test
+    void testRequestBodyStreamsSameJsonAsBuildRequest() throws IOException {
+        when(mockRequest.getPrompt()).thenReturn("Describe this image");
+        when(mockRequest.getImgData()).thenReturn("base64ImageData");
+        lenient().when(mockRequest.getTextData()).thenReturn(null);
+
+        final RequestBody body = adapter.requestBody(mockRequest);
+        final Buffer sink = new Buffer();
+        body.writeTo(sink);
+        final String streamed = sink.readUtf8();
+
+        assertEquals(adapter.buildRequest(mockRequest), streamed);
+        assertEquals("image/png", new ObjectMapper().readTree(streamed)
+                .at("/contents/0/parts/1/inlineData/mimeType").asText());
+    }
+
+    @Test
+    void testRequestBodyDoesNotCopyLargeImage() throws IOException {
+        final int imageChars = 4 * 1024 * 1024;
+        final String image = "A".repeat(imageChars);
+        when(mockRequest.getPrompt()).thenReturn("Describe this image");
+        when(mockRequest.getImgData()).thenReturn(image);
+        lenient().when(mockRequest.getTextData()).thenReturn(null);
+
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long[] written = new long[1];
+        final ForwardingSink counting = new ForwardingSink(Okio.blackhole()) {
+            @Override
+            public void write(final Buffer source, final long byteCount) throws IOException {
+                written[0] += byteCount;
+                super.write(source, byteCount);
+            }
+        };
+        try (BufferedSink sink = Okio.buffer(counting)) {
+            // warm up the generator and the buffer recycler
+            adapter.requestBody(mockRequest).writeTo(sink);
+
+            sink.flush();
+            final long warmUp = written[0];
+            final long before = threads.getThreadAllocatedBytes(threadId);
+            final RequestBody body = adapter.requestBody(mockRequest);
+            body.writeTo(sink);
+            final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+            sink.flush();
+            assertTrue(written[0] - warmUp > imageChars);
+            // a tree plus a pretty printed string held the image several times over
+            assertTrue(allocated < imageChars / 4, "allocated " + allocated + " bytes");
+        }
+    }
+
+    @Test
+    void testStreamedImageIsEncodedWhileWriting() throws IOException {
+        final Path imageFile = Files.createTempFile("whiteboard", ".png");
+        try {
+            final byte[] imageData = new byte[10_001];
+            for (int i = 0; i < imageData.length; i++) {
+                imageData[i] = (byte) i;
+            }
+            Files.write(imageFile, imageData);
+            final WhiteBoardData image = new WhiteBoardData(imageFile.toString(), true);
+            when(mockRequest.getPrompt()).thenReturn("Describe this image");
+            when(mockRequest.getImgData()).thenReturn(null);
+            when(mockRequest.getImage()).thenReturn(image);
+            when(mockRequest.getImgMimeType()).thenReturn("image/jpeg");
+
+            final Buffer sink = new Buffer();
+            adapter.requestBody(mockRequest).writeTo(sink);
+            final JsonNode json = new ObjectMapper().readTree(sink.readUtf8());
+
+            assertEquals(Base64.getEncoder().encodeToString(imageData),
+                    json.at("/contents/0/parts/1/inlineData/data").asText());
+            assertEquals("image/jpeg", json.at("/contents/0/parts/1/inlineData/mimeType").asText());
+        } finally {
+            Files.deleteIfExists(imageFile);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: GeminiKeyManagerTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.getkeys.GeminiKeyManager;
+import com.swe.aiinsights.getkeys.KeyLimits;
+import com.swe.aiinsights.getkeys.KeyQuota;
+import com.swe.aiinsights.getkeys.KeyScheduling;
+import com.swe.aiinsights.getkeys.KeySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the client side quota of Gemini keys.
+ */
+class GeminiKeyManagerTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private GeminiKeyManager manager(final int rpm, final long tpm) {
+        return new GeminiKeyManager(List.of("key-aaaa", "key-bbbb", "key-cccc"), rpm, tpm, 0, MINUTE, now::get);
+    }
+
+    @Test
+    void testSpreadsRequestsOverKeys() {
+        final GeminiKeyManager keys = manager(10, 1_000_000);
+        final List<String> used = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            used.add(keys.getCurrentKey());
+        }
+        assertEquals(List.of("key-aaaa", "key-bbbb", "key-cccc"), used);
+    }
+
+    @Test
+    void testKeyWithoutBudgetIsSkippedUntilRefilled() {
+        final GeminiKeyManager keys = manager(2, 1_000_000);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(keys.getCurrentKey() != null);
+        }
+        // every key used its two requests of this minute, no round trip is wasted
+        assertNull(keys.getCurrentKey());
+
+        now.addAndGet(MINUTE / 2);
+        int available = 0;
+        while (keys.getCurrentKey() != null) {
+            available++;
+        }
+        assertEquals(3, available);
+    }
+
+    @Test
+    void testTokensAreCharged() {
+        final GeminiKeyManager keys = manager(100, 1000);
+        final String key = keys.getCurrentKey();
+        keys.recordTokens(key, 1500);
+        final KeyQuota.Remaining remaining = keys.getRemainingQuota().get(0);
+        assertTrue(remaining.tokensPerMinute() < 0);
+        assertEquals(99, remaining.requestsPerMinute());
+
+        // the overdrawn key is skipped until its tokens are back
+        for (int i = 0; i < 4; i++) {
+            assertFalse(key.equals(keys.getCurrentKey()));
+        }
+        // the overdraft of 500 tokens is paid back first
+        now.addAndGet(MINUTE / 2);
+        assertEquals(0, keys.getRemainingQuota().get(0).tokensPerMinute());
+        now.addAndGet(MINUTE);
+        assertEquals(1000, keys.getRemainingQuota().get(0).tokensPerMinute());
+    }
+
+    @Test
+    void testExhaustedKeyIsRestoredAfterResetWindow() {
+        final GeminiKeyManager keys = manager(100, 1_000_000);
+        keys.setKeyIndex("key-bbbb");
+        for (int i = 0; i < 6; i++) {
+            assertFalse("key-bbbb".equals(keys.getCurrentKey()));
+        }
+        final KeyQuota.Remaining blocked = keys.getRemainingQuota().get(1);
+        assertEquals("****bbbb", blocked.label());
+        assertEquals(MINUTE, blocked.blockedForMillis());
+
+        now.addAndGet(MINUTE);
+        final List<String> used = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            used.add(keys.getCurrentKey());
+        }
+        assertTrue(used.contains("key-bbbb"));
+    }
+
+    @Test
+    void testLeastUsedPrefersIdleKeys() {
+        final GeminiKeyManager keys = manager(100, 1_000_000);
+        final String first = keys.getCurrentKey();
+        final String second = keys.getCurrentKey();
+        keys.getCurrentKey();
+        keys.releaseKey(second);
+
+        // only the released key is idle, the next concurrent request gets it
+        assertEquals(second, keys.getCurrentKey());
+        keys.releaseKey(first);
+        assertEquals(first, keys.getCurrentKey());
+        assertEquals(1, keys.getRemainingQuota().get(0).inFlight());
+    }
+
+    @Test
+    void testRoundRobinIgnoresLoad() {
+        final GeminiKeyManager keys = new GeminiKeyManager(List.of("key-aaaa", "key-bbbb"),
+                100, 1_000_000, 0, MINUTE, now::get, KeyScheduling.ROUND_ROBIN);
+        assertEquals("key-aaaa", keys.getCurrentKey());
+        assertEquals("key-bbbb", keys.getCurrentKey());
+        assertEquals("key-aaaa", keys.getCurrentKey());
+        assertEquals(2, keys.getRemainingQuota().get(0).inFlight());
+        assertEquals(KeyScheduling.LEAST_USED, KeyScheduling.fromName("bogus"));
+        assertEquals(KeyScheduling.ROUND_ROBIN, KeyScheduling.fromName("round_robin"));
+    }
+
+    @Test
+    void testStartsWithoutWaitingForTheKeyList() throws Exception {
+        final Path snapshotFile = Files.createTempDirectory("gemini-keys").resolve("keys.json");
+        final CompletableFuture<List<String>> cloud = new CompletableFuture<>();
+        final KeyLimits limits = new KeyLimits(10, 1_000_000, 0, MINUTE);
+
+        final long start = System.nanoTime();
+        final GeminiKeyManager keys = new GeminiKeyManager(() -> cloud, new KeySnapshot(snapshotFile),
+                limits, now::get, KeyScheduling.LEAST_USED);
+        final long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(startupMillis < 200, "startup took " + startupMillis + " ms");
+        assertTrue(keys.isStarting());
+        assertNull(keys.getCurrentKey());
+
+        cloud.complete(List.of("key-aaaa", "key-bbbb"));
+        keys.whenReady().get(1, TimeUnit.SECONDS);
+        assertFalse(keys.isStarting());
+        assertNotNull(keys.getCurrentKey());
+        assertEquals(List.of("key-aaaa", "key-bbbb"), new KeySnapshot(snapshotFile).read());
+
+        // the next start uses the snapshot while the cloud has not answered
+        final GeminiKeyManager restarted = new GeminiKeyManager(CompletableFuture::new,
+                new KeySnapshot(snapshotFile), limits, now::get, KeyScheduling.LEAST_USED);
+        assertFalse(restarted.isStarting());
+        assertTrue(restarted.whenReady().isDone());
+        assertEquals(2, restarted.getNumberOfKeys());
+    }
+
+    @Test
+    void testFailedFetchKeepsSnapshotKeys() throws Exception {
+        final Path snapshotFile = Files.createTempDirectory("gemini-keys").resolve("keys.json");
+        new KeySnapshot(snapshotFile).write(List.of("key-aaaa"));
+
+        final GeminiKeyManager keys = new GeminiKeyManager(
+                () -> CompletableFuture.failedFuture(new IllegalStateException("offline")),
+                new KeySnapshot(snapshotFile), new KeyLimits(10, 1_000_000, 0, MINUTE),
+                now::get, KeyScheduling.LEAST_USED);
+        assertEquals("key-aaaa", keys.getCurrentKey());
+        assertEquals(List.of("key-aaaa"), new KeySnapshot(snapshotFile).read());
+    }
+
+    @Test
+    void testFailedSnapshotWriteLeavesNoKeysBehind() throws Exception {
+        final Path dir = Files.createTempDirectory("gemini-keys");
+        // a non-empty directory where the snapshot goes makes the final move fail
+        final Path snapshotFile = Files.createDirectory(dir.resolve("keys.json"));
+        Files.createFile(snapshotFile.resolve("occupied"));
+
+        new KeySnapshot(snapshotFile).write(List.of("key-aaaa"));
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(snapshotFile), files.toList());
+        }
+    }
+
+    @Test
+    void testRefreshAddsKeysAndKeepsQuota() throws Exception {
+        final List<List<String>> lists = new ArrayList<>(List.of(
+                List.of("key-aaaa"), List.of("key-aaaa", "key-bbbb")));
+        final GeminiKeyManager keys = new GeminiKeyManager(
+                () -> CompletableFuture.completedFuture(lists.remove(0)), new KeySnapshot(null),
+                new KeyLimits(2, 1_000_000, 0, MINUTE), now::get, KeyScheduling.LEAST_USED);
+        assertEquals("key-aaaa", keys.getCurrentKey());
+        assertEquals("key-aaaa", keys.getCurrentKey());
+
+        assertEquals(2, (int) keys.refresh().get(1, TimeUnit.SECONDS));
+        // the key that stayed keeps its spent budget and its requests in flight
+        final KeyQuota.Remaining kept = keys.getRemainingQuota().get(0);
+        assertEquals(0, kept.requestsPerMinute());
+        assertEquals(2, kept.inFlight());
+        assertEquals("key-bbbb", keys.getCurrentKey());
+        keys.releaseKey("key-aaaa");
+        assertEquals(1, keys.getRemainingQuota().get(0).inFlight());
+    }
+
+    @Test
+    void testExhaustedKeysTriggerRefresh() {
+        final AtomicLong fetches = new AtomicLong();
+        final GeminiKeyManager keys = new GeminiKeyManager(() -> {
+            fetches.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of("key-aaaa"));
+        }, new KeySnapshot(null), new KeyLimits(1, 1_000_000, 0, MINUTE), now::get, KeyScheduling.LEAST_USED);
+        assertEquals(1, fetches.get());
+        assertNotNull(keys.getCurrentKey());
+
+        // too soon after the last fetch
+        assertNull(keys.getCurrentKey());
+        assertEquals(1, fetches.get());
+
+        now.addAndGet(MINUTE / 4);
+        keys.setKeyIndex("key-aaaa");
+        assertNull(keys.getCurrentKey());
+        assertEquals(1, fetches.get());
+        now.addAndGet(MINUTE / 4);
+        assertNull(keys.getCurrentKey());
+        assertEquals(2, fetches.get());
+    }
+}
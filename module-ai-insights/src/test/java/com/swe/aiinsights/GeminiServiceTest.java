@@ -17,6 +17,7 @@ import com.swe.aiinsights.modeladapter.GeminiAdapter;
 import com.swe.aiinsights.response.AiResponse;
 import io.github.cdimascio.dotenv.Dotenv;
 import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.Call;
 import okhttp3.ResponseBody;
@@ -26,6 +27,8 @@ import org.mockito.Mock;
 import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -79,6 +82,10 @@ class GeminiServiceTest {
     @Mock
     private ResponseBody mockResponseBody;
 
+    private static RequestBody jsonBody(final String json) {
+        return RequestBody.create(json, null);
+    }
+
     @Test
     void testRunProcessSuccessCoversHappyPath() throws Exception {
         final int numKeys = 3;
@@ -103,7 +110,7 @@ class GeminiServiceTest {
                 try (MockedConstruction<GeminiAdapter> adapterMock = mockConstruction(
                         GeminiAdapter.class,
                         (mock, context) -> {
-                            when(mock.buildRequest(any())).thenReturn("{\"request\":\"body\"}");
+                            when(mock.requestBody(any())).thenReturn(jsonBody("{\"request\":\"body\"}"));
                             when(mock.getResponse(any())).thenReturn("AI response text");
                         })) {
 
@@ -147,7 +154,7 @@ class GeminiServiceTest {
                 try (MockedConstruction<GeminiAdapter> adapterMock = mockConstruction(
                         GeminiAdapter.class,
                         (mock, context) -> {
-                            when(mock.buildRequest(any())).thenReturn("{\"request\":\"body\"}");
+                            when(mock.requestBody(any())).thenReturn(jsonBody("{\"request\":\"body\"}"));
                             when(mock.getResponse(any())).thenReturn("Success response");
                         })) {
 
@@ -203,8 +210,7 @@ class GeminiServiceTest {
                 try (MockedConstruction<GeminiAdapter> adapterMock = mockConstruction(
                         GeminiAdapter.class,
                         (mock, context) -> {
-                            lenient().when(mock.buildRequest(any())).thenReturn(
-                                    "{\"request\":\"body\"}");
+                            lenient().when(mock.requestBody(any())).thenReturn(jsonBody("{\"request\":\"body\"}"));
                         })) {
 
                     lenient().when(mockRequestGeneraliser.getAiResponse()).thenReturn(mockAiResponse);
@@ -217,10 +223,12 @@ class GeminiServiceTest {
 
                     when(mockCall.execute()).thenReturn(errorResponse);
 
-                    // Act & Assert
-                    assertThrows(RateLimitException.class, () -> {
+                    // Act & Assert: a server error is not a quota error, it must not trip the breaker
+                    final IOException exception = assertThrows(IOException.class, () -> {
                         service.runProcess(mockRequestGeneraliser);
                     });
+                    assertFalse(exception instanceof RateLimitException);
+                    assertTrue(exception.getMessage().contains("500"));
                 }
             }
         }
@@ -251,8 +259,7 @@ class GeminiServiceTest {
                 try (MockedConstruction<GeminiAdapter> adapterMock = mockConstruction(
                         GeminiAdapter.class,
                         (mock, context) -> {
-                            lenient().when(mock.buildRequest(
-                                    any())).thenReturn("{\"request\":\"body\"}");
+                            lenient().when(mock.requestBody(any())).thenReturn(jsonBody("{\"request\":\"body\"}"));
                         })) {
 
                     lenient().when(mockRequestGeneraliser.getAiResponse()).thenReturn(mockAiResponse);
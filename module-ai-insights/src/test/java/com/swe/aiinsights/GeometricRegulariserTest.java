@@ -0,0 +1,134 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: GeometricRegulariserTest.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.swe.aiinsights.regulariser.GeometricRegulariser;
+import com.swe.aiinsights.regulariser.ShapeFit;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests and benchmark for the local shape regulariser.
+ * The corpus holds recorded strokes labelled with the expected shape,
+ * FREEHAND strokes must always be left to the LLM.
+ */
+class GeometricRegulariserTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String METADATA = """
+            "ShapeId": "c585b84a", "Type": "FREEHAND", "Color": "#FF000000", "Thickness": 2,
+            "CreatedBy": "user_default", "LastModifiedBy": "user_default", "IsDeleted": false
+            """;
+
+    private final GeometricRegulariser regulariser = new GeometricRegulariser(0.6);
+
+    private static JsonNode loadCorpus() throws IOException {
+        try (InputStream in = GeometricRegulariserTest.class.getResourceAsStream("/strokes/strokes.json")) {
+            assertNotNull(in);
+            return MAPPER.readTree(in);
+        }
+    }
+
+    @Test
+    void testCorpusAnsweredLocallyAreCorrect() throws IOException {
+        final JsonNode corpus = loadCorpus();
+        int shapes = 0;
+        int answered = 0;
+        int correct = 0;
+        for (final JsonNode stroke : corpus) {
+            final String label = stroke.get("Label").asText();
+            final ShapeFit fit = regulariser.fit((ArrayNode) stroke.get("Points"));
+            if ("FREEHAND".equals(label)) {
+                assertNull(fit, "freehand stroke must go to the LLM");
+                continue;
+            }
+            shapes++;
+            if (fit != null) {
+                answered++;
+                if (label.equals(fit.type())) {
+                    correct++;
+                }
+            }
+        }
+        assertEquals(answered, correct);
+        assertTrue(answered >= shapes * 3 / 4, "answered only " + answered + " of " + shapes);
+    }
+
+    @Test
+    void testCorpusBenchmark() throws IOException {
+        final JsonNode corpus = loadCorpus();
+        final int warmup = 20;
+        final int rounds = 50;
+        for (int i = 0; i < warmup; i++) {
+            classifyAll(corpus);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            classifyAll(corpus);
+        }
+        final double micros = (System.nanoTime() - start) / 1000.0 / (rounds * corpus.size());
+        assertTrue(micros < 1000, "took " + micros + " us per stroke");
+    }
+
+    private void classifyAll(final JsonNode corpus) {
+        for (final JsonNode stroke : corpus) {
+            regulariser.fit((ArrayNode) stroke.get("Points"));
+        }
+    }
+
+    @Test
+    void testRegulariseCopiesMetadata() throws IOException {
+        final String input = "{" + METADATA + ", \"Points\": ["
+                + "{\"X\":10,\"Y\":10},{\"X\":60,\"Y\":10},{\"X\":110,\"Y\":10},{\"X\":110,\"Y\":50},"
+                + "{\"X\":110,\"Y\":90},{\"X\":60,\"Y\":90},{\"X\":10,\"Y\":90},{\"X\":10,\"Y\":50},"
+                + "{\"X\":10,\"Y\":12}]}";
+
+        final String output = regulariser.regularise(input);
+
+        assertNotNull(output);
+        final JsonNode node = MAPPER.readTree(output);
+        assertEquals("RECTANGLE", node.get("Type").asText());
+        assertEquals("c585b84a", node.get("ShapeId").asText());
+        assertEquals(2, node.get("Thickness").asInt());
+        assertEquals(2, node.get("Points").size());
+        assertEquals(10.0, node.get("Points").get(0).get("X").asDouble());
+        assertEquals(90.0, node.get("Points").get(1).get("Y").asDouble());
+    }
+
+    @Test
+    void testStraightLineKeepsEndPoints() {
+        final ShapeFit fit = regulariser.fit(new double[] {0, 25, 50, 75, 100, 125},
+                new double[] {100, 80, 60, 40, 20, 0});
+
+        assertNotNull(fit);
+        assertEquals("STRAIGHTLINE", fit.type());
+        assertEquals(0.0, fit.x1());
+        assertEquals(100.0, fit.y1());
+        assertEquals(125.0, fit.x2());
+    }
+
+    @Test
+    void testUnusableInputIsLeftToTheLlm() {
+        assertNull(regulariser.regularise("not json"));
+        assertNull(regulariser.regularise("{\"points\":[{\"x\":10,\"y\":20}]}"));
+        assertNull(regulariser.regularise("{" + METADATA + ", \"Points\": [{\"X\":1,\"Y\":1}]}"));
+    }
+}
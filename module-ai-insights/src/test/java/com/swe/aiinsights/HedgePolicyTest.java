@@ -0,0 +1,189 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: HedgePolicyTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.aiservice.AsyncLlmService;
+import com.swe.aiinsights.aiservice.CircuitBreaker;
+import com.swe.aiinsights.aiservice.HedgePolicy;
+import com.swe.aiinsights.aiservice.LlmOrchestratorService;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.request.AiSummarisationRequest;
+import com.swe.aiinsights.response.AiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for hedged requests in the orchestrator.
+ */
+class HedgePolicyTest {
+
+    private static final int TIMEOUT = 5;
+
+    /**
+     * Service whose answers are completed by the test.
+     */
+    private static final class ControlledService implements AsyncLlmService {
+        private final String answer;
+        private final long delayMillis;
+        private int calls;
+        private CompletableFuture<AiResponse> last;
+
+        ControlledService(final String givenAnswer, final long givenDelay) {
+            this.answer = givenAnswer;
+            this.delayMillis = givenDelay;
+        }
+
+        @Override
+        public synchronized CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser request) {
+            calls++;
+            final AiResponse response = request.getAiResponse();
+            response.setResponse(answer);
+            last = CompletableFuture.supplyAsync(() -> response,
+                    CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+            return last;
+        }
+
+        @Override
+        public AiResponse runProcess(final RequestGeneraliser request) {
+            throw new UnsupportedOperationException();
+        }
+
+        synchronized int getCalls() {
+            return calls;
+        }
+
+        synchronized CompletableFuture<AiResponse> getLast() {
+            return last;
+        }
+    }
+
+    private static RequestGeneraliser summaryRequest() {
+        return new RequestGeneraliser(new AiSummarisationRequest("{\"messages\":[]}"));
+    }
+
+    private static LlmOrchestratorService orchestrator(final HedgePolicy policy,
+                                                       final ControlledService... services) {
+        return new LlmOrchestratorService(List.of(services),
+                () -> new CircuitBreaker(10, 10, 1.0, 60_000, 1000), policy);
+    }
+
+    @Test
+    void testPercentileNeedsEnoughSamples() {
+        final HedgePolicy policy = new HedgePolicy(0.9, 5, 100, 10);
+        assertEquals(-1, policy.hedgeDelayMillis("SUM"));
+        for (int i = 1; i <= 10; i++) {
+            policy.record("SUM", i * 10L);
+        }
+        assertEquals(90, policy.hedgeDelayMillis("SUM"));
+        // each request type has its own latencies
+        assertEquals(-1, policy.hedgeDelayMillis("DESC"));
+    }
+
+    @Test
+    void testBudgetCapsHedgedShare() {
+        final HedgePolicy policy = new HedgePolicy(0.9, 10, 100, 1);
+        int hedges = 0;
+        for (int i = 0; i < 100; i++) {
+            policy.onRequest();
+            if (policy.tryHedge()) {
+                hedges++;
+            }
+        }
+        assertEquals(10, hedges);
+    }
+
+    @Test
+    void testSlowPrimaryIsHedged() throws Exception {
+        final HedgePolicy policy = new HedgePolicy(0.5, 100, 10, 1);
+        policy.record("SUM", 20);
+        final ControlledService slow = new ControlledService("slow", 2000);
+        final ControlledService fast = new ControlledService("fast", 0);
+
+        final AiResponse response = orchestrator(policy, slow, fast)
+                .runProcessAsync(summaryRequest()).get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals("fast", response.getResponse());
+        assertEquals(1, slow.getCalls());
+        assertEquals(1, fast.getCalls());
+    }
+
+    @Test
+    void testLosingPrimaryIsCancelled() throws Exception {
+        final HedgePolicy policy = new HedgePolicy(0.5, 100, 10, 1);
+        policy.record("SUM", 20);
+        final ControlledService slow = new ControlledService("slow", 2000);
+        final ControlledService fast = new ControlledService("fast", 0);
+        final LlmOrchestratorService orchestrator = orchestrator(policy, slow, fast);
+
+        final AiResponse response = orchestrator.runProcessAsync(summaryRequest()).get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals("fast", response.getResponse());
+        // had it not been cancelled, the slow answer would arrive before the timeout
+        assertThrows(CancellationException.class, () -> slow.getLast().get(TIMEOUT, TimeUnit.SECONDS));
+        // a cancelled call says nothing about the health of the service
+        assertEquals(0, orchestrator.getServiceHealth().get(0).calls());
+    }
+
+    @Test
+    void testCancelledPrimaryRecordsItsLowerBound() throws Exception {
+        // one latency kept and the 100th percentile, so the delay is the last latency recorded
+        final HedgePolicy policy = new HedgePolicy(1.0, 100, 1, 1);
+        policy.record("SUM", 20);
+        final ControlledService slow = new ControlledService("slow", 2000);
+        final ControlledService hedge = new ControlledService("hedge", 300);
+
+        final AiResponse response = orchestrator(policy, slow, hedge)
+                .runProcessAsync(summaryRequest()).get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals("hedge", response.getResponse());
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        while (policy.hedgeDelayMillis("SUM") == 20 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // the primary ran for the hedge delay and the hedge latency before it was cancelled
+        final long recorded = policy.hedgeDelayMillis("SUM");
+        assertTrue(recorded >= 300, "recorded " + recorded);
+        assertTrue(recorded < 2000, "recorded " + recorded);
+    }
+
+    @Test
+    void testFastPrimaryIsNotHedged() throws Exception {
+        final HedgePolicy policy = new HedgePolicy(0.5, 100, 10, 1);
+        policy.record("SUM", 1000);
+        final ControlledService primary = new ControlledService("primary", 0);
+        final ControlledService second = new ControlledService("second", 0);
+
+        final AiResponse response = orchestrator(policy, primary, second)
+                .runProcessAsync(summaryRequest()).get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals("primary", response.getResponse());
+        assertEquals(0, second.getCalls());
+    }
+
+    @Test
+    void testNoHedgeWithoutBudget() throws Exception {
+        final HedgePolicy policy = new HedgePolicy(0.5, 0, 10, 1);
+        policy.record("SUM", 10);
+        final ControlledService slow = new ControlledService("slow", 300);
+        final ControlledService fast = new ControlledService("fast", 0);
+
+        final AiResponse response = orchestrator(policy, slow, fast)
+                .runProcessAsync(summaryRequest()).get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals("slow", response.getResponse());
+        assertEquals(0, fast.getCalls());
+        assertFalse(policy.tryHedge());
+        assertTrue(policy.hedgeDelayMillis("SUM") >= 10);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: HttpTransportTest.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.aiservice.HttpTransport;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests for the shared HTTP transport.
+ */
+class HttpTransportTest {
+
+    @Test
+    void testClientsShareConnectionPoolAndDispatcher() {
+        final HttpTransport transport = new HttpTransport(8, 60, 100, 20, true);
+
+        final OkHttpClient gemini = transport.client(200, 1200, 200);
+        final OkHttpClient ollama = transport.client(200, 200, 200);
+
+        assertSame(transport.connectionPool(), gemini.connectionPool());
+        assertSame(gemini.connectionPool(), ollama.connectionPool());
+        assertSame(gemini.dispatcher(), ollama.dispatcher());
+    }
+
+    @Test
+    void testClientsKeepTheirOwnTimeouts() {
+        final HttpTransport transport = new HttpTransport(8, 60, 100, 20, true);
+
+        final OkHttpClient gemini = transport.client(200, 1200, 200);
+        final OkHttpClient ollama = transport.client(200, 200, 200);
+
+        assertEquals(1_200_000, gemini.readTimeoutMillis());
+        assertEquals(200_000, ollama.readTimeoutMillis());
+    }
+
+    @Test
+    void testDispatcherLimitsApplied() {
+        final HttpTransport transport = new HttpTransport(8, 60, 100, 20, true);
+
+        assertEquals(100, transport.dispatcher().getMaxRequests());
+        assertEquals(20, transport.dispatcher().getMaxRequestsPerHost());
+    }
+
+    @Test
+    void testHttp2Toggle() {
+        final OkHttpClient withHttp2 = new HttpTransport(8, 60, 100, 20, true).client(1, 1, 1);
+        final OkHttpClient withoutHttp2 = new HttpTransport(8, 60, 100, 20, false).client(1, 1, 1);
+
+        assertEquals(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1), withHttp2.protocols());
+        assertEquals(List.of(Protocol.HTTP_1_1), withoutHttp2.protocols());
+    }
+
+    @Test
+    void testSharedTransportIsSingleton() {
+        assertSame(HttpTransport.shared(), HttpTransport.shared());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: ImagePreprocessorTest.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.data.ImagePreprocessor;
+import com.swe.aiinsights.data.WhiteBoardData;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for downscaling and re-encoding of whiteboard images.
+ */
+class ImagePreprocessorTest {
+
+    private static final long CACHE_BYTES = 8L * 1024 * 1024;
+
+    private static WhiteBoardData whiteboard(final int width, final int height) throws IOException {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.setStroke(new BasicStroke(6));
+        for (int x = 0; x < width; x += 97) {
+            graphics.drawLine(x, 0, width - x, height);
+        }
+        graphics.dispose();
+        final Path file = Files.createTempFile("whiteboard", ".png");
+        file.toFile().deleteOnExit();
+        ImageIO.write(image, "png", file.toFile());
+        return new WhiteBoardData(file.toString(), true);
+    }
+
+    private static BufferedImage decode(final WhiteBoardData data) throws IOException {
+        try (InputStream in = data.openImage()) {
+            return ImageIO.read(in);
+        }
+    }
+
+    private static long sizeOf(final WhiteBoardData data) throws IOException {
+        try (InputStream in = data.openImage()) {
+            return in.readAllBytes().length;
+        }
+    }
+
+    @Test
+    void testDownscalesToMaxDimension() throws IOException {
+        final ImagePreprocessor preprocessor =
+                new ImagePreprocessor(1000, ImagePreprocessor.Format.ORIGINAL, 0.85, CACHE_BYTES);
+        final WhiteBoardData original = whiteboard(4000, 2000);
+
+        final WhiteBoardData prepared = preprocessor.prepare(original);
+        final BufferedImage image = decode(prepared);
+
+        assertEquals(1000, image.getWidth());
+        assertEquals(500, image.getHeight());
+        assertEquals("image/png", prepared.getMimeType());
+        assertTrue(sizeOf(prepared) < sizeOf(original));
+    }
+
+    @Test
+    void testReencodesAsJpeg() throws IOException {
+        final ImagePreprocessor preprocessor =
+                new ImagePreprocessor(800, ImagePreprocessor.Format.JPEG, 0.7, CACHE_BYTES);
+
+        final WhiteBoardData prepared = preprocessor.prepare(whiteboard(1600, 1200));
+
+        assertEquals("image/jpeg", prepared.getMimeType());
+        assertEquals(800, decode(prepared).getWidth());
+    }
+
+    @Test
+    void testProcessedImageIsCachedByContentHash() throws IOException {
+        final ImagePreprocessor preprocessor =
+                new ImagePreprocessor(500, ImagePreprocessor.Format.PALETTE_PNG, 0.85, CACHE_BYTES);
+        final WhiteBoardData original = whiteboard(2000, 1000);
+
+        final WhiteBoardData first = preprocessor.prepare(original);
+        final long cached = preprocessor.getCachedBytes();
+        final WhiteBoardData second = preprocessor.prepare(original);
+
+        assertTrue(cached > 0);
+        assertEquals(cached, preprocessor.getCachedBytes());
+        assertEquals(first.getContentHash(), second.getContentHash());
+        assertNotNull(decode(second));
+    }
+
+    @Test
+    void testKeepsImagesThatNeedNoWork() throws IOException {
+        final ImagePreprocessor preprocessor =
+                new ImagePreprocessor(1000, ImagePreprocessor.Format.ORIGINAL, 0.85, CACHE_BYTES);
+        final WhiteBoardData small = whiteboard(300, 200);
+        assertSame(small, preprocessor.prepare(small));
+
+        final Path notAnImage = Files.createTempFile("whiteboard", ".png");
+        try {
+            Files.write(notAnImage, new byte[]{0x00, 0x01, 0x02});
+            final WhiteBoardData unreadable = new WhiteBoardData(notAnImage.toString(), true);
+            assertSame(unreadable, preprocessor.prepare(unreadable));
+        } finally {
+            Files.deleteIfExists(notAnImage);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: IncrementalSummariserTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.summariser.IncrementalSummariser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for coalescing and windowing of the incremental summariser.
+ */
+class IncrementalSummariserTest {
+
+    /**
+     * Records every summarisation input and lets the test complete it.
+     */
+    private final List<String> inputs = new ArrayList<>();
+
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+
+    private CompletableFuture<String> call(final String content, final Consumer<String> onChunk) {
+        inputs.add(content);
+        final CompletableFuture<String> answer = new CompletableFuture<>();
+        calls.add(answer);
+        if (onChunk != null) {
+            answer.thenAccept(onChunk);
+        }
+        return answer;
+    }
+
+    @Test
+    void testChunksArrivingDuringASummaryShareTheNextRound() throws Exception {
+        final IncrementalSummariser summariser = new IncrementalSummariser(this::call, 1000, 10);
+
+        final CompletableFuture<String> first = summariser.submit("a", null);
+        final CompletableFuture<String> second = summariser.submit("b", null);
+        final CompletableFuture<String> third = summariser.submit("c", null);
+        assertEquals(1, calls.size());
+
+        calls.get(0).complete("S1");
+        assertEquals("S1", first.get());
+        assertFalse(second.isDone());
+        assertEquals(2, calls.size());
+        assertEquals("b\n\nc", inputs.get(1));
+
+        calls.get(1).complete("S2");
+        assertEquals("S1\n\nS2", second.get());
+        assertEquals("S1\n\nS2", third.get());
+    }
+
+    @Test
+    void testLargeBurstIsSplitIntoWindows() throws Exception {
+        final IncrementalSummariser summariser = new IncrementalSummariser(this::call, 5, 10);
+        summariser.submit("first", null);
+        final CompletableFuture<String> later = summariser.submit("aaa", null);
+        summariser.submit("bbb", null);
+        calls.get(0).complete("S0");
+
+        assertEquals("aaa", inputs.get(1));
+        calls.get(1).complete("SA");
+        assertEquals("bbb", inputs.get(2));
+        calls.get(2).complete("SB");
+
+        assertEquals("S0\n\nSA\n\nSB", later.get());
+    }
+
+    @Test
+    void testWindowsAreRolledUpSoPromptsStayBounded() throws Exception {
+        final IncrementalSummariser summariser = new IncrementalSummariser(this::call, 100, 2);
+
+        summariser.submit("one", null);
+        calls.get(0).complete("W1");
+        final CompletableFuture<String> second = summariser.submit("two", null);
+        calls.get(1).complete("W2");
+
+        assertEquals("W1\n\nW2", inputs.get(2));
+        calls.get(2).complete("R1");
+        assertEquals("R1", second.get());
+
+        summariser.submit("three", null);
+        calls.get(3).complete("W3");
+        final CompletableFuture<String> fourth = summariser.submit("four", null);
+        calls.get(4).complete("W4");
+
+        assertEquals("Previous Summary: R1\n\nNew Chat Data: W3\n\nW4", inputs.get(5));
+        calls.get(5).complete("R2");
+        assertEquals("R2", fourth.get());
+        assertEquals("four", inputs.get(4));
+    }
+
+    @Test
+    void testFailedRoundFailsItsCallersOnly() throws Exception {
+        final IncrementalSummariser summariser = new IncrementalSummariser(this::call, 100, 10);
+        final CompletableFuture<String> failed = summariser.submit("a", null);
+        final CompletableFuture<String> queued = summariser.submit("b", null);
+
+        calls.get(0).completeExceptionally(new IllegalStateException("down"));
+        assertThrows(ExecutionException.class, failed::get);
+
+        calls.get(1).complete("S");
+        assertEquals("S", queued.get());
+    }
+
+    @Test
+    void testChunksOfAFailedRoundAreSummarisedLater() throws Exception {
+        final IncrementalSummariser summariser = new IncrementalSummariser(this::call, 100, 10);
+        final CompletableFuture<String> failed = summariser.submit("a", null);
+        calls.get(0).completeExceptionally(new IllegalStateException("down"));
+        assertThrows(ExecutionException.class, failed::get);
+        // the failing model is not retried on its own
+        assertEquals(1, calls.size());
+
+        final CompletableFuture<String> next = summariser.submit("b", null);
+        assertEquals("a\n\nb", inputs.get(1));
+        calls.get(1).complete("S");
+        assertEquals("S", next.get());
+    }
+
+    @Test
+    void testStreamedTextReachesEveryCallerOfTheRound() {
+        final IncrementalSummariser summariser = new IncrementalSummariser(this::call, 100, 10);
+        final List<String> firstChunks = new ArrayList<>();
+        final List<String> secondChunks = new ArrayList<>();
+        summariser.submit("a", null);
+        summariser.submit("b", firstChunks::add);
+        summariser.submit("c", secondChunks::add);
+
+        calls.get(0).complete("S1");
+        calls.get(1).complete("S2");
+
+        assertEquals(List.of("S2"), firstChunks);
+        assertEquals(List.of("S2"), secondChunks);
+    }
+
+    @Test
+    void testClearForgetsTheSummary() throws Exception {
+        final IncrementalSummariser summariser = new IncrementalSummariser(this::call, 100, 10);
+        summariser.submit("a", null);
+        calls.get(0).complete("S1");
+
+        summariser.clear();
+        final CompletableFuture<String> next = summariser.submit("b", null);
+        calls.get(1).complete("S2");
+
+        assertEquals("S2", next.get());
+        assertTrue(summariser.currentSummary().startsWith("S2"));
+    }
+}
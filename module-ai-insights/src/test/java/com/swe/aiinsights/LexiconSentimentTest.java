@@ -0,0 +1,174 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: LexiconSentimentTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swe.aiinsights.apiendpoints.AiClientService;
+import com.swe.aiinsights.parser.InsightsParser;
+import com.swe.aiinsights.sentiment.LexiconSentiment;
+import com.swe.aiinsights.sentiment.SentimentEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests and benchmark for the local sentiment scorer.
+ * The fixture holds meeting chat labelled positive, negative or neutral.
+ */
+class LexiconSentimentTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Scores closer to 0 than this, on the [-10, 10] scale, count as neutral.
+     */
+    private static final double NEUTRAL_BAND = 0.5;
+
+    /**
+     * Share of the fixture the lexicon must label right.
+     */
+    private static final double MIN_ACCURACY = 0.8;
+
+    private final LexiconSentiment scorer = new LexiconSentiment();
+
+    private static JsonNode loadFixture() throws IOException {
+        try (InputStream in = LexiconSentimentTest.class
+                .getResourceAsStream("/chatData/sentiment_labelled.json")) {
+            assertNotNull(in);
+            return MAPPER.readTree(in);
+        }
+    }
+
+    private static String labelOf(final double score) {
+        if (score >= NEUTRAL_BAND) {
+            return "positive";
+        }
+        if (score <= -NEUTRAL_BAND) {
+            return "negative";
+        }
+        return "neutral";
+    }
+
+    /**
+     * Share of fixture messages whose score falls in their labelled class.
+     */
+    private static double accuracy(final JsonNode fixture, final String scores) throws IOException {
+        final Map<String, Double> byTime = new HashMap<>();
+        for (final JsonNode entry : MAPPER.readTree(InsightsParser.parse(scores))) {
+            byTime.put(entry.get("time").asText(), entry.get("sentiment").asDouble());
+        }
+        int correct = 0;
+        for (final JsonNode message : fixture.get("messages")) {
+            final Double score = byTime.get(message.get("timestamp").asText());
+            if (score != null && message.get("label").asText().equals(labelOf(score))) {
+                correct++;
+            }
+        }
+        return (double) correct / fixture.get("messages").size();
+    }
+
+    @Test
+    void testFixtureAccuracy() throws IOException {
+        final JsonNode fixture = loadFixture();
+
+        final double accuracy = accuracy(fixture, scorer.analyse(fixture));
+
+        assertTrue(accuracy >= MIN_ACCURACY, "accuracy " + accuracy);
+    }
+
+    @Test
+    void testFixtureBenchmark() throws IOException {
+        final JsonNode fixture = loadFixture();
+        final int warmup = 200;
+        final int rounds = 500;
+        for (int i = 0; i < warmup; i++) {
+            scorer.analyse(fixture);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            scorer.analyse(fixture);
+        }
+        final double micros = (System.nanoTime() - start) / 1000.0 / (rounds * fixture.get("messages").size());
+        assertTrue(micros < 1000, "took " + micros + " us per message");
+    }
+
+    /**
+     * Compares with the LLM engine on the same fixture: the local engine must
+     * keep its accuracy and answer faster than the model.
+     * Needs a configured model, so it only runs with AI_SENTIMENT_COMPARE=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "AI_SENTIMENT_COMPARE", matches = "true")
+    void testCompareWithLlm() throws Exception {
+        final JsonNode fixture = loadFixture();
+        final AiClientService service = new AiClientService();
+
+        long start = System.nanoTime();
+        final String local = service.sentiment(fixture, SentimentEngine.LOCAL).get(1, TimeUnit.MINUTES);
+        final long localMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        start = System.nanoTime();
+        final String llm = service.sentiment(fixture, SentimentEngine.LLM).get(2, TimeUnit.MINUTES);
+        final long llmMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        final String summary = "lexicon " + accuracy(fixture, local) + " in " + localMillis + " ms, LLM "
+                + accuracy(fixture, llm) + " in " + llmMillis + " ms";
+        assertTrue(accuracy(fixture, local) >= MIN_ACCURACY, summary);
+        assertTrue(localMillis <= llmMillis, summary);
+    }
+
+    @Test
+    void testOutputMatchesInsightsFormat() throws IOException {
+        final JsonNode chat = MAPPER.readTree("""
+                {"messages": [
+                  {"timestamp": "2025-11-12T09:00:00Z", "message": "Great job"},
+                  {"message": "no timestamp, left out"},
+                  {"timestamp": "2025-11-12T09:01:00Z", "text": "the build is broken"}
+                ]}""");
+
+        final JsonNode scores = MAPPER.readTree(InsightsParser.parse(scorer.analyse(chat)));
+
+        assertEquals(2, scores.size());
+        assertEquals("2025-11-12T09:00:00Z", scores.get(0).get("time").asText());
+        assertTrue(scores.get(0).get("sentiment").asDouble() > 0);
+        assertTrue(scores.get(1).get("sentiment").asDouble() < 0);
+    }
+
+    @Test
+    void testNegationAndIntensifiers() {
+        final double good = scorer.score("the demo was good");
+
+        assertTrue(good > 0);
+        assertTrue(scorer.score("the demo was not good") < 0);
+        assertTrue(scorer.score("the demo wasn't good") < 0);
+        assertTrue(scorer.score("the demo was very good") > good);
+        assertTrue(scorer.score("the demo was slightly good") < good);
+        assertTrue(scorer.score("the demo was GOOD") > good);
+        assertTrue(scorer.score("the demo was good!!") > good);
+        assertEquals(0.0, scorer.score("the demo is at noon"));
+    }
+
+    @Test
+    void testClauseAfterButWeighsMore() {
+        assertTrue(scorer.score("the design is nice but the code is terrible") < 0);
+        assertTrue(scorer.score("the code is terrible but the design is nice") > 0);
+        assertEquals(10.0, LexiconSentiment.toScale(1.0));
+        assertEquals(-3.3, LexiconSentiment.toScale(-0.3312));
+    }
+}
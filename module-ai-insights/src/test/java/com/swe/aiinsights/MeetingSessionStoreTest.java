@@ -0,0 +1,103 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: MeetingSessionStoreTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.retrieval.Bm25Index;
+import com.swe.aiinsights.session.MeetingSession;
+import com.swe.aiinsights.session.MeetingSessionStore;
+import com.swe.aiinsights.summariser.IncrementalSummariser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for per-meeting session isolation and idle eviction.
+ */
+class MeetingSessionStoreTest {
+
+    private static final long IDLE = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+
+    private MeetingSession newSession(final String meetingId) {
+        return new MeetingSession(meetingId, new IncrementalSummariser((content, onChunk) -> {
+            final CompletableFuture<String> answer = new CompletableFuture<>();
+            calls.add(answer);
+            return answer;
+        }, 100, 10), new Bm25Index(100));
+    }
+
+    @Test
+    void testMeetingsHaveIndependentState() throws Exception {
+        final MeetingSessionStore store = new MeetingSessionStore(this::newSession, IDLE, now::get);
+        final MeetingSession first = store.get("a");
+        final MeetingSession second = store.get("b");
+        assertNotSame(first, second);
+        assertSame(first, store.get("a"));
+
+        final CompletableFuture<String> summaryA = first.summarise("chat a", null);
+        final CompletableFuture<String> summaryB = second.summarise("chat b", null);
+        // neither meeting waits for the other
+        assertEquals(2, calls.size());
+
+        calls.get(1).complete("B");
+        assertEquals("B", summaryB.get());
+        assertFalse(summaryA.isDone());
+        assertEquals("", first.getSummary());
+        assertEquals("B", second.getSummary());
+    }
+
+    @Test
+    void testIdleSessionsAreEvicted() {
+        final MeetingSessionStore store = new MeetingSessionStore(this::newSession, IDLE, now::get);
+        store.get("old");
+        now.set(IDLE / 2);
+        store.get("recent");
+
+        now.set(IDLE + 1);
+        assertEquals(1, store.evictIdle());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testSessionWithSummaryInFlightIsKept() {
+        final MeetingSessionStore store = new MeetingSessionStore(this::newSession, IDLE, now::get);
+        store.get("busy").summarise("chat", null);
+
+        now.set(IDLE * 2);
+        assertEquals(0, store.evictIdle());
+
+        calls.get(0).complete("done");
+        assertEquals(1, store.evictIdle());
+    }
+
+    @Test
+    void testSweepRunsOnUse() {
+        final MeetingSessionStore store = new MeetingSessionStore(this::newSession, IDLE, now::get);
+        store.get("old");
+
+        now.set(IDLE * 2);
+        final MeetingSession fresh = store.get("new");
+
+        assertEquals(1, store.size());
+        assertTrue(fresh.isQuiet());
+    }
+}
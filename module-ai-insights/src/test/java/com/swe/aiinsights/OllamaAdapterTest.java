@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.StringReader;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -174,4 +175,33 @@ class OllamaAdapterTest {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    void testBuildStreamingRequestEnablesStream() throws JsonProcessingException {
+        when(mockRequest.getPrompt()).thenReturn("Summarize: ");
+        when(mockRequest.getTextData()).thenReturn("Text to process");
+        when(mockRequest.getImgData()).thenReturn(null);
+
+        final JsonNode streaming = new ObjectMapper().readTree(adapter.buildStreamingRequest(mockRequest));
+
+        assertTrue(streaming.get("stream").asBoolean());
+    }
+
+    @Test
+    void testParseStreamLineReturnsResponseToken() throws IOException {
+        assertEquals("Hel", adapter.parseStreamLine(
+                "{\"model\":\"gemma3\",\"response\":\"Hel\",\"done\":false}"));
+        assertEquals("", adapter.parseStreamLine(
+                "{\"model\":\"gemma3\",\"response\":\"\",\"done\":true,\"context\":[1,2,3]}"));
+    }
+
+    @Test
+    void testParseStreamLineWithoutResponse() throws IOException {
+        assertNull(adapter.parseStreamLine("{\"done\":true}"));
+        assertNull(adapter.parseStreamLine("[1, 2]"));
+    }
+
+    @Test
+    void testParseStreamLineError() {
+        assertThrows(IOException.class, () -> adapter.parseStreamLine("{\"error\":\"model not found\"}"));
+    }
+}
@@ -9,16 +9,21 @@
 
 package com.swe.aiinsights;
 
+import com.swe.aiinsights.aiservice.AsyncLlmService;
+import com.swe.aiinsights.aiservice.CircuitBreaker;
 import com.swe.aiinsights.aiservice.LlmOrchestratorService;
 import com.swe.aiinsights.aiservice.LlmService;
 import com.swe.aiinsights.aiservice.OllamaService;
+import com.swe.aiinsights.aiservice.StreamingLlmService;
 import com.swe.aiinsights.customexceptions.RateLimitException;
 import com.swe.aiinsights.generaliser.RequestGeneraliser;
 import com.swe.aiinsights.modeladapter.OllamaAdapter;
 import com.swe.aiinsights.response.AiResponse;
 import io.github.cdimascio.dotenv.Dotenv;
 import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.junit.jupiter.api.Test;
@@ -29,18 +34,29 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.mockConstruction;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 
 /**
  * Tests for OllamaService and LlmOrchestratorService.
@@ -103,6 +119,10 @@ class OllamaAndOrchestratorServiceTest {
     private LlmService mockLlmService2;
 
 
+    private static RequestBody jsonBody(final String json) {
+        return RequestBody.create(json, null);
+    }
+
     // test constructor of Ollama service
     @Test
     void testOllamaServiceConstructor() {
@@ -131,7 +151,8 @@ class OllamaAndOrchestratorServiceTest {
             try (MockedConstruction<OllamaAdapter> adapterMock = mockConstruction(
                     OllamaAdapter.class,
                     (mock, context) -> {
-                        when(mock.buildRequest(any())).thenReturn("{\"model\":\"gemma3\",\"prompt\":\"test\"}");
+                        when(mock.requestBody(any())).thenReturn(
+                                jsonBody("{\"model\":\"gemma3\",\"prompt\":\"test\"}"));
                         when(mock.getResponse(any())).thenReturn("Ollama response");
                     })) {
 
@@ -165,7 +186,7 @@ class OllamaAndOrchestratorServiceTest {
             try (MockedConstruction<OllamaAdapter> adapterMock = mockConstruction(
                     OllamaAdapter.class,
                     (mock, context) -> {
-                        when(mock.buildRequest(any())).thenReturn("{\"model\":\"llama2\"}");
+                        when(mock.requestBody(any())).thenReturn(jsonBody("{\"model\":\"llama2\"}"));
                     })) {
 
                 when(mockRequestGeneraliser.getAiResponse()).thenReturn(mockAiResponse);
@@ -251,4 +272,216 @@ class OllamaAndOrchestratorServiceTest {
         verify(mockLlmService1).runProcess(mockRequestGeneraliser);
         verify(mockLlmService2).runProcess(mockRequestGeneraliser);
     }
-}
\ No newline at end of file
+
+    // Non-blocking path tests
+
+    @Test
+    void testOllamaServiceRunProcessAsyncSuccess() throws Exception {
+        try (MockedStatic<Dotenv> dotenvMock = mockStatic(Dotenv.class)) {
+            dotenvMock.when(Dotenv::load).thenReturn(mockDotenv);
+            lenient().when(mockDotenv.get("OLLAMA_URL")).thenReturn("http://localhost:11434/api/generate");
+
+            final OllamaService service = new OllamaService();
+
+            final var httpClientField = OllamaService.class.getDeclaredField("httpClient");
+            httpClientField.setAccessible(true);
+            httpClientField.set(service, mockHttpClient);
+
+            try (MockedConstruction<OllamaAdapter> adapterMock = mockConstruction(
+                    OllamaAdapter.class,
+                    (mock, context) -> {
+                        when(mock.requestBody(any())).thenReturn(jsonBody("{\"model\":\"gemma3\"}"));
+                        when(mock.getResponse(any())).thenReturn("Ollama response");
+                    })) {
+
+                when(mockRequestGeneraliser.getAiResponse()).thenReturn(mockAiResponse);
+                when(mockHttpClient.newCall(any())).thenReturn(mockCall);
+                when(mockResponse.isSuccessful()).thenReturn(true);
+                doAnswer(invocation -> {
+                    final Callback callback = invocation.getArgument(0);
+                    callback.onResponse(mockCall, mockResponse);
+                    return null;
+                }).when(mockCall).enqueue(any());
+
+                final AiResponse result = service.runProcessAsync(mockRequestGeneraliser).get();
+
+                assertSame(mockAiResponse, result);
+                verify(mockAiResponse).setResponse("Ollama response");
+                verify(mockCall, never()).execute();
+            }
+        }
+    }
+
+    @Test
+    void testOllamaServiceRunProcessAsyncNetworkFailure() throws Exception {
+        try (MockedStatic<Dotenv> dotenvMock = mockStatic(Dotenv.class)) {
+            dotenvMock.when(Dotenv::load).thenReturn(mockDotenv);
+            lenient().when(mockDotenv.get("OLLAMA_URL")).thenReturn("http://localhost:11434/api/generate");
+
+            final OllamaService service = new OllamaService();
+
+            final var httpClientField = OllamaService.class.getDeclaredField("httpClient");
+            httpClientField.setAccessible(true);
+            httpClientField.set(service, mockHttpClient);
+
+            try (MockedConstruction<OllamaAdapter> adapterMock = mockConstruction(
+                    OllamaAdapter.class,
+                    (mock, context) -> when(mock.requestBody(any())).thenReturn(jsonBody("{}")))) {
+
+                when(mockHttpClient.newCall(any())).thenReturn(mockCall);
+                doAnswer(invocation -> {
+                    final Callback callback = invocation.getArgument(0);
+                    callback.onFailure(mockCall, new IOException("connection refused"));
+                    return null;
+                }).when(mockCall).enqueue(any());
+
+                final CompletableFuture<AiResponse> result = service.runProcessAsync(mockRequestGeneraliser);
+
+                final ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+                assertInstanceOf(IOException.class, exception.getCause());
+            }
+        }
+    }
+
+    @Test
+    void testOrchestratorRunProcessAsyncFailsOverOnRateLimit() throws Exception {
+        final AsyncLlmService primary = mock(AsyncLlmService.class);
+        final AsyncLlmService fallback = mock(AsyncLlmService.class);
+        final LlmOrchestratorService orchestrator =
+                new LlmOrchestratorService(Arrays.asList(primary, fallback));
+
+        when(primary.runProcessAsync(any())).thenReturn(
+                CompletableFuture.failedFuture(new RateLimitException("Rate limit hit")));
+        when(fallback.runProcessAsync(any())).thenReturn(
+                CompletableFuture.completedFuture(mockAiResponse));
+
+        assertSame(mockAiResponse, orchestrator.runProcessAsync(mockRequestGeneraliser).get());
+
+        // the switch is sticky, the next request goes straight to the fallback
+        assertSame(mockAiResponse, orchestrator.runProcessAsync(mockRequestGeneraliser).get());
+        verify(primary).runProcessAsync(mockRequestGeneraliser);
+        verify(primary, never()).runProcess(any());
+    }
+
+    @Test
+    void testOrchestratorRunProcessAsyncUsesBlockingServices() throws Exception {
+        final LlmOrchestratorService orchestrator =
+                new LlmOrchestratorService(Arrays.asList(mockLlmService1, mockLlmService2));
+
+        when(mockLlmService1.runProcess(any())).thenThrow(new RateLimitException("Rate limit hit"));
+        when(mockLlmService2.runProcess(any())).thenReturn(mockAiResponse);
+
+        assertSame(mockAiResponse, orchestrator.runProcessAsync(mockRequestGeneraliser).get());
+    }
+
+    @Test
+    void testOrchestratorRunProcessAsyncFailsOverOnOtherIoErrors() throws Exception {
+        final AsyncLlmService primary = mock(AsyncLlmService.class);
+        final AsyncLlmService fallback = mock(AsyncLlmService.class);
+        final LlmOrchestratorService orchestrator =
+                new LlmOrchestratorService(Arrays.asList(primary, fallback));
+
+        when(primary.runProcessAsync(any())).thenReturn(
+                CompletableFuture.failedFuture(new IOException("bad response")));
+        when(fallback.runProcessAsync(any())).thenReturn(
+                CompletableFuture.completedFuture(mockAiResponse));
+
+        assertSame(mockAiResponse, orchestrator.runProcessAsync(mockRequestGeneraliser).get());
+        verify(fallback).runProcessAsync(mockRequestGeneraliser);
+    }
+
+    @Test
+    void testOrchestratorRunProcessAsyncDoesNotFailOverOnNonIoErrors() {
+        final AsyncLlmService primary = mock(AsyncLlmService.class);
+        final AsyncLlmService fallback = mock(AsyncLlmService.class);
+        final LlmOrchestratorService orchestrator =
+                new LlmOrchestratorService(Arrays.asList(primary, fallback));
+
+        when(primary.runProcessAsync(any())).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("bug")));
+
+        final ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> orchestrator.runProcessAsync(mockRequestGeneraliser).get());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        verify(fallback, never()).runProcessAsync(any());
+    }
+
+    @Test
+    void testOrchestratorReturnsToPreferredServiceAfterCoolDown() throws Exception {
+        final AtomicLong now = new AtomicLong();
+        final AsyncLlmService primary = mock(AsyncLlmService.class);
+        final AsyncLlmService fallback = mock(AsyncLlmService.class);
+        final LlmOrchestratorService orchestrator = new LlmOrchestratorService(
+                Arrays.asList(primary, fallback),
+                () -> new CircuitBreaker(10, 5, 0.5, 60_000, 1000, now::get));
+
+        when(primary.runProcessAsync(any())).thenReturn(
+                CompletableFuture.failedFuture(new RateLimitException("Rate limit hit")),
+                CompletableFuture.completedFuture(mockAiResponse));
+        when(fallback.runProcessAsync(any())).thenReturn(
+                CompletableFuture.completedFuture(mockAiResponse));
+
+        orchestrator.runProcessAsync(mockRequestGeneraliser).get();
+        orchestrator.runProcessAsync(mockRequestGeneraliser).get();
+        verify(primary, times(1)).runProcessAsync(any());
+        assertEquals(CircuitBreaker.State.OPEN, orchestrator.getServiceHealth().get(0).state());
+
+        // after the cool-down the primary is probed and takes the traffic back
+        now.addAndGet(1000);
+        orchestrator.runProcessAsync(mockRequestGeneraliser).get();
+        orchestrator.runProcessAsync(mockRequestGeneraliser).get();
+        verify(primary, times(3)).runProcessAsync(any());
+        verify(fallback, times(2)).runProcessAsync(any());
+        assertEquals(CircuitBreaker.State.CLOSED, orchestrator.getServiceHealth().get(0).state());
+    }
+
+    @Test
+    void testOrchestratorRunProcessAsyncAllServicesFail() throws IOException {
+        final LlmOrchestratorService orchestrator =
+                new LlmOrchestratorService(Arrays.asList(mockLlmService1, mockLlmService2));
+        when(mockLlmService1.runProcess(any())).thenThrow(new RateLimitException("Rate limit 1"));
+        when(mockLlmService2.runProcess(any())).thenThrow(new RateLimitException("Rate limit 2"));
+
+        final ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> orchestrator.runProcessAsync(mockRequestGeneraliser).get());
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    void testOrchestratorStreamingFailsOverBeforeFirstChunk() throws Exception {
+        final StreamingLlmService primary = mock(StreamingLlmService.class);
+        final List<String> chunks = new ArrayList<>();
+        final LlmOrchestratorService orchestrator =
+                new LlmOrchestratorService(Arrays.asList(primary, mockLlmService2));
+
+        when(primary.runProcessStreaming(any(), any())).thenReturn(
+                CompletableFuture.failedFuture(new RateLimitException("Rate limit hit")));
+        when(mockLlmService2.runProcess(any())).thenReturn(mockAiResponse);
+        when(mockAiResponse.getResponse()).thenReturn("whole answer");
+
+        assertSame(mockAiResponse,
+                orchestrator.runProcessStreaming(mockRequestGeneraliser, chunks::add).get());
+        // a service that cannot stream hands over its answer as one chunk
+        assertEquals(List.of("whole answer"), chunks);
+    }
+
+    @Test
+    void testOrchestratorStreamingDoesNotFailOverAfterFirstChunk() throws Exception {
+        final StreamingLlmService primary = mock(StreamingLlmService.class);
+        final List<String> chunks = new ArrayList<>();
+        final LlmOrchestratorService orchestrator =
+                new LlmOrchestratorService(Arrays.asList(primary, mockLlmService2));
+
+        when(primary.runProcessStreaming(any(), any())).thenAnswer(invocation -> {
+            final Consumer<String> onChunk = invocation.getArgument(1);
+            onChunk.accept("partial ");
+            return CompletableFuture.failedFuture(new IOException("connection reset"));
+        });
+
+        final ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> orchestrator.runProcessStreaming(mockRequestGeneraliser, chunks::add).get());
+        assertInstanceOf(IOException.class, exception.getCause());
+        assertEquals(List.of("partial "), chunks);
+        verify(mockLlmService2, never()).runProcess(any());
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: OllamaPoolTest.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.aiservice.OllamaPool;
+import com.swe.aiinsights.aiservice.StreamingLlmService;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.request.AiSummarisationRequest;
+import com.swe.aiinsights.response.AiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for routing and concurrency limits of the Ollama pool.
+ */
+class OllamaPoolTest {
+
+    /**
+     * Instance whose requests are completed by the test.
+     */
+    private static final class ControlledInstance implements StreamingLlmService {
+        private final List<CompletableFuture<AiResponse>> calls = new ArrayList<>();
+        private final List<Consumer<String>> streams = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<AiResponse> runProcessAsync(final RequestGeneraliser request) {
+            final CompletableFuture<AiResponse> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+
+        @Override
+        public CompletableFuture<AiResponse> runProcessStreaming(final RequestGeneraliser request,
+                                                                 final Consumer<String> onChunk) {
+            streams.add(onChunk);
+            return runProcessAsync(request);
+        }
+
+        @Override
+        public AiResponse runProcess(final RequestGeneraliser request) {
+            throw new UnsupportedOperationException();
+        }
+
+        void answer(final int index, final String text) {
+            final AiResponse response = new RequestGeneraliser(
+                    new AiSummarisationRequest("{}")).getAiResponse();
+            response.setResponse(text);
+            calls.get(index).complete(response);
+        }
+    }
+
+    private static RequestGeneraliser request() {
+        return new RequestGeneraliser(new AiSummarisationRequest("{\"messages\":[]}"));
+    }
+
+    @Test
+    void testRespectsConcurrencyLimitAndQueues() throws Exception {
+        final ControlledInstance instance = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(
+                List.of(new OllamaPool.Endpoint("a", instance, 2)), 10, 0.3);
+
+        final CompletableFuture<AiResponse> first = pool.runProcessAsync(request());
+        pool.runProcessAsync(request());
+        final CompletableFuture<AiResponse> third = pool.runProcessAsync(request());
+        assertEquals(2, instance.calls.size());
+        assertEquals(2, pool.getEndpoints().get(0).getInFlight());
+
+        instance.answer(0, "one");
+        assertEquals("one", first.get().getResponse());
+        // the waiting request takes the freed slot
+        assertEquals(3, instance.calls.size());
+        instance.answer(2, "three");
+        assertEquals("three", third.get().getResponse());
+    }
+
+    @Test
+    void testPrefersLowerLatencyInstance() throws Exception {
+        final ControlledInstance slow = new ControlledInstance();
+        final ControlledInstance fast = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(List.of(
+                new OllamaPool.Endpoint("slow", slow, 4),
+                new OllamaPool.Endpoint("fast", fast, 4)), 10, 0.3);
+
+        // learn the latencies: the slow instance answers after a pause
+        pool.runProcessAsync(request());
+        pool.runProcessAsync(request());
+        fast.answer(0, "fast");
+        Thread.sleep(50);
+        slow.answer(0, "slow");
+        final double slowLatency = pool.getEndpoints().get(0).getEwmaMillis();
+        final double fastLatency = pool.getEndpoints().get(1).getEwmaMillis();
+        assertTrue(slowLatency > fastLatency);
+
+        pool.runProcessAsync(request());
+        assertEquals(2, fast.calls.size());
+        assertEquals(1, slow.calls.size());
+    }
+
+    @Test
+    void testRetriesOnAnotherInstance() throws Exception {
+        final ControlledInstance broken = new ControlledInstance();
+        final ControlledInstance healthy = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(List.of(
+                new OllamaPool.Endpoint("broken", broken, 1),
+                new OllamaPool.Endpoint("healthy", healthy, 1)), 10, 0.3);
+
+        final CompletableFuture<AiResponse> result = pool.runProcessAsync(request());
+        assertEquals(1, broken.calls.size());
+        broken.calls.get(0).completeExceptionally(new IOException("connection refused"));
+
+        assertFalse(result.isDone());
+        healthy.answer(0, "answer");
+        assertEquals("answer", result.get().getResponse());
+        assertTrue(pool.getEndpoints().get(0).getEwmaMillis() > pool.getEndpoints().get(1).getEwmaMillis());
+    }
+
+    @Test
+    void testRetryWaitsForAnInstanceNotTried() throws Exception {
+        final ControlledInstance broken = new ControlledInstance();
+        final ControlledInstance healthy = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(List.of(
+                new OllamaPool.Endpoint("broken", broken, 1),
+                new OllamaPool.Endpoint("healthy", healthy, 1)), 10, 0.3);
+
+        final CompletableFuture<AiResponse> retried = pool.runProcessAsync(request());
+        final CompletableFuture<AiResponse> other = pool.runProcessAsync(request());
+        broken.calls.get(0).completeExceptionally(new IOException("connection refused"));
+
+        // the broken instance has the only free slot, the retry waits for the other one
+        assertEquals(1, broken.calls.size());
+        assertFalse(retried.isDone());
+        healthy.answer(0, "other");
+        assertEquals("other", other.get().getResponse());
+        assertEquals(2, healthy.calls.size());
+        healthy.answer(1, "retried");
+        assertEquals("retried", retried.get().getResponse());
+    }
+
+    @Test
+    void testStreamIsNotRetriedAfterAChunk() {
+        final ControlledInstance broken = new ControlledInstance();
+        final ControlledInstance healthy = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(List.of(
+                new OllamaPool.Endpoint("broken", broken, 1),
+                new OllamaPool.Endpoint("healthy", healthy, 1)), 10, 0.3);
+        final List<String> received = new ArrayList<>();
+
+        final CompletableFuture<AiResponse> result = pool.runProcessStreaming(request(), received::add);
+        broken.streams.get(0).accept("The meeting");
+        broken.calls.get(0).completeExceptionally(new IOException("connection reset"));
+
+        // a retry would send the first words again
+        final ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IOException.class, exception.getCause());
+        assertEquals(0, healthy.calls.size());
+        assertEquals(List.of("The meeting"), received);
+    }
+
+    @Test
+    void testCancellingReachesTheSentCall() throws Exception {
+        final ControlledInstance instance = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(
+                List.of(new OllamaPool.Endpoint("a", instance, 1)), 10, 0.3);
+
+        final CompletableFuture<AiResponse> cancelled = pool.runProcessAsync(request());
+        final CompletableFuture<AiResponse> queued = pool.runProcessAsync(request());
+        cancelled.cancel(true);
+
+        assertTrue(instance.calls.get(0).isCancelled());
+        // the freed slot goes to the waiting request
+        assertEquals(2, instance.calls.size());
+        instance.answer(1, "answer");
+        assertEquals("answer", queued.get().getResponse());
+    }
+
+    @Test
+    void testCancelledWaiterIsNotSent() {
+        final ControlledInstance instance = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(
+                List.of(new OllamaPool.Endpoint("a", instance, 1)), 1, 0.3);
+
+        pool.runProcessAsync(request());
+        pool.runProcessAsync(request()).cancel(true);
+        // the cancelled request gave its place in the queue back
+        final CompletableFuture<AiResponse> next = pool.runProcessAsync(request());
+        assertFalse(next.isDone());
+
+        instance.answer(0, "first");
+        assertEquals(2, instance.calls.size());
+        instance.answer(1, "next");
+        assertTrue(next.isDone());
+        assertEquals(0, pool.getEndpoints().get(0).getInFlight());
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() {
+        final ControlledInstance instance = new ControlledInstance();
+        final OllamaPool pool = new OllamaPool(
+                List.of(new OllamaPool.Endpoint("a", instance, 1)), 1, 0.3);
+
+        pool.runProcessAsync(request());
+        pool.runProcessAsync(request());
+        final CompletableFuture<AiResponse> rejected = pool.runProcessAsync(request());
+        final ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+}
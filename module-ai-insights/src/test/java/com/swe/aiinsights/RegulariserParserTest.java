@@ -16,9 +16,12 @@ import com.swe.aiinsights.parser.RegulariserParser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 
 /**
@@ -327,4 +330,58 @@ class RegulariserParserTest {
         assertEquals(inputJson, result);
     }
 
-}
\ No newline at end of file
+    private static String shape(final String shapeId) {
+        return "{\"ShapeId\": \"" + shapeId + "\", \"Type\": \"FREEHAND\","
+                + " \"Points\": [{\"X\": 10, \"Y\": 20}, {\"X\": 30, \"Y\": 40}, {\"X\": 11, \"Y\": 19}],"
+                + " \"Color\": \"#FF000000\", \"Thickness\": 2, \"CreatedBy\": \"user_default\","
+                + " \"LastModifiedBy\": \"user_default\", \"IsDeleted\": false}";
+    }
+
+    @Test
+    void testParseBatchMatchesEntriesByShapeId() throws JsonProcessingException {
+        final String aiResponse = """
+                ```json
+                [
+                  {"ShapeId": "b", "type": "RECTANGLE", "Points": [{"X": 1, "Y": 2}, {"X": 3, "Y": 4}]},
+                  {"ShapeId": "a", "type": "ELLIPSE", "Points": [{"X": 5, "Y": 6}, {"X": 7, "Y": 8}]}
+                ]
+                ```
+                """;
+
+        final List<String> result = parser.parseBatch(List.of(shape("a"), shape("b")), aiResponse);
+
+        assertEquals(2, result.size());
+        final JsonNode first = objectMapper.readTree(result.get(0));
+        assertEquals("a", first.get("ShapeId").asText());
+        assertEquals("ELLIPSE", first.get("Type").asText());
+        assertEquals("#FF000000", first.get("Color").asText());
+        final JsonNode second = objectMapper.readTree(result.get(1));
+        assertEquals("RECTANGLE", second.get("Type").asText());
+        assertEquals(3, second.get("Points").get(1).get("X").asInt());
+    }
+
+    @Test
+    void testParseBatchLeavesMissingAndMalformedEntriesEmpty() {
+        final String aiResponse = """
+                {"shapes": [
+                  {"ShapeId": "a", "type": "ELLIPSE", "Points": [{"X": 5, "Y": 6}, {"X": 7, "Y": 8}]},
+                  {"ShapeId": "b", "type": "ELLIPSE", "Points": [{"X": 5, "Y": 6}]}
+                ]}
+                """;
+
+        final List<String> result = parser.parseBatch(
+                List.of(shape("a"), shape("b"), shape("c")), aiResponse);
+
+        assertNotNull(result.get(0));
+        assertNull(result.get(1));
+        assertNull(result.get(2));
+    }
+
+    @Test
+    void testParseBatchInvalidResponse() {
+        final List<String> result = parser.parseBatch(List.of(shape("a")), "not json at all");
+
+        assertEquals(1, result.size());
+        assertNull(result.get(0));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: RequestCoalescerTest.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.aiservice.LlmService;
+import com.swe.aiinsights.apiendpoints.AsyncAiExecutor;
+import com.swe.aiinsights.apiendpoints.RequestCoalescer;
+import com.swe.aiinsights.generaliser.RequestFingerprint;
+import com.swe.aiinsights.request.AiSummarisationRequest;
+import com.swe.aiinsights.response.AiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the single-flight layer of the AI executor.
+ */
+class RequestCoalescerTest {
+
+    @Test
+    void testIdenticalInFlightRequestsShareOneCall() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CompletableFuture<String> upstream = new CompletableFuture<>();
+        final AtomicInteger calls = new AtomicInteger();
+
+        final CompletableFuture<String> first = coalescer.coalesce("k", () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        final CompletableFuture<String> second = coalescer.coalesce("k", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        upstream.complete("shared");
+
+        assertEquals("shared", first.get());
+        assertEquals("shared", second.get());
+        assertEquals(1, calls.get());
+        assertEquals(1, coalescer.getCoalescedCalls());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void testCompletedRequestIsNotReused() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+
+        assertEquals("one", coalescer.coalesce("k", () -> CompletableFuture.completedFuture("one")).get());
+        assertEquals("two", coalescer.coalesce("k", () -> CompletableFuture.completedFuture("two")).get());
+        assertEquals(2, coalescer.getUpstreamCalls());
+    }
+
+    @Test
+    void testFailureIsSharedAndCleared() {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = coalescer.coalesce("k", () -> upstream);
+        final CompletableFuture<String> second = coalescer.coalesce("k", () -> upstream);
+        upstream.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void testCancellingOneCallerDoesNotCancelOthers() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = coalescer.coalesce("k", () -> upstream);
+        final CompletableFuture<String> second = coalescer.coalesce("k", () -> upstream);
+        first.cancel(true);
+        upstream.complete("done");
+
+        assertEquals("done", second.get());
+    }
+
+    @Test
+    void testFingerprintSeparatesParts() {
+        assertEquals(RequestFingerprint.of("SUM", "p", "x"), RequestFingerprint.of("SUM", "p", "x"));
+        assertNotEquals(RequestFingerprint.of("SUM", "ab", "c"), RequestFingerprint.of("SUM", "a", "bc"));
+        assertNotEquals(RequestFingerprint.of("SUM", "p", null), RequestFingerprint.of("SUM", "p", ""));
+    }
+
+    @Test
+    void testExecutorCoalescesConcurrentIdenticalRequests() throws Exception {
+        final AtomicInteger upstreamCalls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final LlmService slowService = request -> {
+            upstreamCalls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final AiResponse response = request.getAiResponse();
+            response.setResponse("summary");
+            return response;
+        };
+        final AsyncAiExecutor executor =
+                new AsyncAiExecutor(slowService, Executors.newCachedThreadPool());
+
+        final CompletableFuture<String> first = executor.execute(new AiSummarisationRequest("same chat"));
+        final CompletableFuture<String> second = executor.execute(new AiSummarisationRequest("same chat"));
+        final CompletableFuture<String> other = executor.execute(new AiSummarisationRequest("other chat"));
+        release.countDown();
+
+        assertEquals("summary", first.get(5, TimeUnit.SECONDS));
+        assertEquals("summary", second.get(5, TimeUnit.SECONDS));
+        assertEquals("summary", other.get(5, TimeUnit.SECONDS));
+        assertEquals(2, upstreamCalls.get());
+        assertTrue(executor.getCoalescer().getCoalescedCalls() >= 1);
+    }
+}
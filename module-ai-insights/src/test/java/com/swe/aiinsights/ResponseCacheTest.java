@@ -0,0 +1,213 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: ResponseCacheTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swe.aiinsights.aiservice.LlmService;
+import com.swe.aiinsights.cache.CacheMetrics;
+import com.swe.aiinsights.cache.CachingLlmService;
+import com.swe.aiinsights.cache.ResponseCache;
+import com.swe.aiinsights.generaliser.RequestGeneraliser;
+import com.swe.aiinsights.request.AiInsightsRequest;
+import com.swe.aiinsights.request.AiRegularisationRequest;
+import com.swe.aiinsights.request.AiSummarisationRequest;
+import com.swe.aiinsights.response.AiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the two-tier response cache and the caching service.
+ */
+class ResponseCacheTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private static final long MEGABYTE = 1024L * 1024;
+
+    @Test
+    void testMemoryHitAndMiss() {
+        final ResponseCache cache = new ResponseCache(4, HOUR, null, 0);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "answer");
+
+        assertEquals("answer", cache.get("a"));
+        final CacheMetrics metrics = cache.getMetrics();
+        assertEquals(1, metrics.getMemoryHits());
+        assertEquals(1, metrics.getMisses());
+        assertEquals(1, metrics.getPuts());
+        assertEquals(0.5, metrics.getHitRatio());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        final ResponseCache cache = new ResponseCache(2, HOUR, null, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals(2, cache.memorySize());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.getMetrics().getEvictions());
+    }
+
+    @Test
+    void testExpiredEntriesAreNotReturned() throws Exception {
+        final Path dir = Files.createTempDirectory("ai-cache-ttl");
+        final ResponseCache cache = new ResponseCache(4, 1, dir, MEGABYTE);
+        cache.put("a", "answer");
+
+        Thread.sleep(20);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.diskSizeInBytes());
+    }
+
+    @Test
+    void testDiskTierSurvivesRestart() throws Exception {
+        final Path dir = Files.createTempDirectory("ai-cache-disk");
+        new ResponseCache(4, HOUR, dir, MEGABYTE).put("a", "réponse");
+
+        final ResponseCache restarted = new ResponseCache(4, HOUR, dir, MEGABYTE);
+
+        assertEquals("réponse", restarted.get("a"));
+        assertEquals("réponse", restarted.get("a"));
+        assertEquals(1, restarted.getMetrics().getDiskHits());
+        assertEquals(1, restarted.getMetrics().getMemoryHits());
+    }
+
+    @Test
+    void testDiskTierStaysWithinSizeLimit() throws Exception {
+        final Path dir = Files.createTempDirectory("ai-cache-size");
+        final int limit = 1000;
+        final ResponseCache cache = new ResponseCache(1, HOUR, dir, limit);
+        final String value = "x".repeat(200);
+
+        for (int i = 0; i < 20; i++) {
+            cache.put("k" + i, value);
+        }
+
+        assertTrue(cache.diskSizeInBytes() <= limit);
+        assertTrue(cache.getMetrics().getEvictions() > 0);
+        assertEquals(value, cache.get("k19"));
+    }
+
+    @Test
+    void testDiskDirectoryIsReadableByItsOwnerOnly() throws Exception {
+        final Path dir = Files.createTempDirectory("ai-cache-owner").resolve("cache");
+        final ResponseCache cache = new ResponseCache(4, HOUR, dir, MEGABYTE);
+        cache.put("a", "answer");
+
+        assertTrue(cache.diskSizeInBytes() > 0);
+        if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(dir));
+        }
+    }
+
+    @Test
+    void testFailedWriteLeavesNoTemporaryFile() throws Exception {
+        final Path dir = Files.createTempDirectory("ai-cache-temp");
+        // a non-empty directory where the entry should go makes the move fail
+        Files.createFile(Files.createDirectory(dir.resolve("a.entry")).resolve("blocker"));
+        final ResponseCache cache = new ResponseCache(4, HOUR, dir, MEGABYTE);
+
+        cache.put("a", "answer");
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(dir.resolve("a.entry")), files.toList());
+        }
+    }
+
+    @Test
+    void testRepeatedRegularisationIsAnsweredFromCache() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final LlmService upstream = request -> {
+            calls.incrementAndGet();
+            final AiResponse response = request.getAiResponse();
+            response.setResponse("shape");
+            return response;
+        };
+        final CachingLlmService service = new CachingLlmService(
+                upstream, new ResponseCache(4, HOUR, null, 0), Set.of("REG"));
+
+        final String points = "{\"ShapeId\":\"s1\",\"Color\":\"#000000\",\"Thickness\":2,"
+                + "\"CreatedBy\":\"u\",\"LastModifiedBy\":\"u\",\"IsDeleted\":false,"
+                + "\"Points\":[{\"X\":1,\"Y\":2}]}";
+        service.runProcess(new RequestGeneraliser(new AiRegularisationRequest(points)));
+        final AiResponse second = service.runProcessAsync(
+                new RequestGeneraliser(new AiRegularisationRequest(points))).get();
+
+        assertEquals("shape", second.getResponse());
+        assertEquals(1, calls.get());
+
+        final List<String> chunks = new ArrayList<>();
+        service.runProcessStreaming(
+                new RequestGeneraliser(new AiRegularisationRequest(points)), chunks::add).get();
+        assertEquals(List.of("shape"), chunks);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testMalformedInsightsAnswerIsNotCached() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final LlmService upstream = request -> {
+            final AiResponse response = request.getAiResponse();
+            response.setResponse(calls.incrementAndGet() == 1
+                    ? "Sorry, I cannot score this chat"
+                    : "[{\"time\": \"2025-11-12T09:00:00Z\", \"sentiment\": 5}]");
+            return response;
+        };
+        final ResponseCache cache = new ResponseCache(4, HOUR, null, 0);
+        final CachingLlmService service = new CachingLlmService(upstream, cache, Set.of("INS"));
+        final JsonNode chat = new ObjectMapper().readTree("{\"messages\": []}");
+
+        service.runProcess(new RequestGeneraliser(new AiInsightsRequest(chat)));
+        assertEquals(0, cache.getMetrics().getPuts());
+
+        final AiResponse second = service.runProcessAsync(new RequestGeneraliser(new AiInsightsRequest(chat))).get();
+        assertEquals(2, calls.get());
+        assertTrue(second.getResponse().startsWith("["));
+        assertEquals(1, cache.getMetrics().getPuts());
+    }
+
+    @Test
+    void testUncachedTypesAlwaysReachTheService() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final LlmService upstream = request -> {
+            calls.incrementAndGet();
+            final AiResponse response = request.getAiResponse();
+            response.setResponse("summary");
+            return response;
+        };
+        final ResponseCache cache = new ResponseCache(4, HOUR, null, 0);
+        final CachingLlmService service = new CachingLlmService(upstream, cache, Set.of("REG"));
+
+        service.runProcess(new RequestGeneraliser(new AiSummarisationRequest("{}")));
+        service.runProcess(new RequestGeneraliser(new AiSummarisationRequest("{}")));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getMetrics().getPuts());
+    }
+}
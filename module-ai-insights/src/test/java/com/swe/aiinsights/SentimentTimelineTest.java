@@ -0,0 +1,174 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: SentimentTimelineTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.swe.aiinsights.sentiment.LexiconSentiment;
+import com.swe.aiinsights.sentiment.SentimentEngine;
+import com.swe.aiinsights.sentiment.SentimentTimeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the per-meeting sentiment timeline.
+ */
+class SentimentTimelineTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final LexiconSentiment lexicon = new LexiconSentiment();
+
+    /**
+     * Chats handed to the scorer, to check that old messages are not sent again.
+     */
+    private final List<JsonNode> submitted = new ArrayList<>();
+
+    private final Function<JsonNode, CompletableFuture<String>> scorer = chat -> {
+        submitted.add(chat);
+        return CompletableFuture.completedFuture(lexicon.analyse(chat));
+    };
+
+    private static JsonNode chat(final String... timesAndTexts) {
+        final ObjectNode chat = MAPPER.createObjectNode();
+        final ArrayNode messages = chat.putArray("messages");
+        for (int i = 0; i < timesAndTexts.length; i += 2) {
+            messages.addObject()
+                    .put("from", "user" + i)
+                    .put("timestamp", timesAndTexts[i])
+                    .put("message", timesAndTexts[i + 1]);
+        }
+        return chat;
+    }
+
+    @Test
+    void testOnlyNewMessagesAreScored() throws Exception {
+        final SentimentTimeline timeline = new SentimentTimeline();
+
+        timeline.refresh(chat(
+                "2025-11-12T09:00:00Z", "Great start",
+                "2025-11-12T09:01:00Z", "The build is broken"), scorer).join();
+        final String merged = timeline.refresh(chat(
+                "2025-11-12T09:00:00Z", "Great start",
+                "2025-11-12T09:01:00Z", "The build is broken",
+                "2025-11-12T09:02:00Z", "Fixed it, thanks"), scorer).join();
+
+        assertEquals(2, submitted.size());
+        assertEquals(2, submitted.get(0).get("messages").size());
+        assertEquals(1, submitted.get(1).get("messages").size());
+        assertEquals("Fixed it, thanks", submitted.get(1).get("messages").get(0).get("message").asText());
+
+        final JsonNode series = MAPPER.readTree(merged);
+        assertEquals(3, series.size());
+        assertEquals("2025-11-12T09:02:00Z", series.get(2).get("time").asText());
+        assertTrue(series.get(1).get("sentiment").asDouble() < 0);
+        assertEquals(3, timeline.size());
+    }
+
+    @Test
+    void testUnchangedChatIsNotSentAgain() {
+        final SentimentTimeline timeline = new SentimentTimeline();
+        final JsonNode chat = chat("2025-11-12T09:00:00Z", "Great start");
+
+        final String first = timeline.refresh(chat, scorer).join();
+        final String second = timeline.refresh(chat, scorer).join();
+
+        assertEquals(1, submitted.size());
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testSeriesIsInTimeOrder() throws Exception {
+        final SentimentTimeline timeline = new SentimentTimeline();
+
+        timeline.refresh(chat("2025-11-12T09:05:00Z", "Nice work"), scorer).join();
+        final String merged = timeline.refresh(chat(
+                "2025-11-12T09:05:00Z", "Nice work",
+                "2025-11-12T09:01:00Z", "Sorry I was late",
+                "2025-11-12T09:05:00Z", "Same second, other message"), scorer).join();
+
+        final JsonNode series = MAPPER.readTree(merged);
+        assertEquals(3, series.size());
+        assertEquals("2025-11-12T09:01:00Z", series.get(0).get("time").asText());
+        assertEquals("2025-11-12T09:05:00Z", series.get(1).get("time").asText());
+        assertEquals("2025-11-12T09:05:00Z", series.get(2).get("time").asText());
+    }
+
+    @Test
+    void testFailedScoringIsRetried() {
+        final SentimentTimeline timeline = new SentimentTimeline();
+        final JsonNode chat = chat("2025-11-12T09:00:00Z", "Great start");
+
+        final CompletableFuture<String> failed = timeline.refresh(chat,
+                newMessages -> CompletableFuture.failedFuture(new IllegalStateException("model down")));
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(0, timeline.size());
+
+        timeline.refresh(chat, scorer).join();
+        assertEquals(1, submitted.size());
+        assertEquals(1, timeline.size());
+        assertTrue(timeline.isQuiet());
+    }
+
+    @Test
+    void testSkippedMessagesAreSentAgain() {
+        final SentimentTimeline timeline = new SentimentTimeline();
+        final JsonNode chat = chat(
+                "2025-11-12T09:00:00Z", "Great start",
+                "2025-11-12T09:01:00Z", "ok");
+
+        timeline.refresh(chat, newMessages -> CompletableFuture.completedFuture(
+                "[{\"time\": \"2025-11-12T09:00:00Z\", \"sentiment\": 5}]")).join();
+        assertEquals(1, timeline.size());
+
+        timeline.refresh(chat, scorer).join();
+        assertEquals(1, submitted.size());
+        assertEquals("ok", submitted.get(0).get("messages").get(0).get("message").asText());
+        assertEquals(2, timeline.size());
+    }
+
+    @Test
+    void testSeriesUsesTheTimestampsSent() throws Exception {
+        final SentimentTimeline timeline = new SentimentTimeline();
+        final JsonNode chat = chat(
+                "2025-11-12T10:00:00Z", "Thanks all",
+                "2025-11-12T09:05:00Z", "Great start");
+
+        // a model writing times its own way, out of order
+        final String merged = timeline.refresh(chat, newMessages -> CompletableFuture.completedFuture(
+                "[{\"time\": \"10:00\", \"sentiment\": 4}, {\"time\": \"9:05\", \"sentiment\": 6}]")).join();
+
+        final JsonNode series = MAPPER.readTree(merged);
+        assertEquals(2, series.size());
+        assertEquals("2025-11-12T09:05:00Z", series.get(0).get("time").asText());
+        assertEquals(6.0, series.get(0).get("sentiment").asDouble());
+        assertEquals("2025-11-12T10:00:00Z", series.get(1).get("time").asText());
+        assertEquals(2, timeline.size());
+    }
+
+    @Test
+    void testAutoEngineIsChosenOnce() {
+        final SentimentTimeline timeline = new SentimentTimeline();
+
+        assertEquals(SentimentEngine.LLM, timeline.resolveAuto(() -> SentimentEngine.LLM));
+        assertEquals(SentimentEngine.LLM, timeline.resolveAuto(() -> SentimentEngine.LOCAL));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: SnapshotIndexTest.java
+ *  Owner: Nandhana Sunil
+ *  Roll Number : 112201008
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.cache.CacheMetrics;
+import com.swe.aiinsights.cache.PerceptualHash;
+import com.swe.aiinsights.cache.SnapshotIndex;
+import com.swe.aiinsights.data.WhiteBoardData;
+import com.swe.aiinsights.retrieval.Bm25Index;
+import com.swe.aiinsights.session.MeetingSession;
+import com.swe.aiinsights.summariser.IncrementalSummariser;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the near-duplicate lookup of whiteboard snapshots.
+ */
+class SnapshotIndexTest {
+
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 800;
+    private static final long TTL = 60_000;
+
+    private static BufferedImage board(final boolean extraStroke) {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(Color.BLACK);
+        graphics.setStroke(new BasicStroke(8));
+        graphics.drawRect(100, 100, 400, 250);
+        graphics.drawOval(700, 350, 300, 300);
+        graphics.drawLine(500, 225, 700, 500);
+        if (extraStroke) {
+            graphics.setStroke(new BasicStroke(3));
+            graphics.drawLine(150, 600, 260, 640);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static BufferedImage otherBoard() {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(Color.RED);
+        graphics.fillRect(650, 50, 500, 300);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(50, 400, 400, 350);
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    void testOneStrokeKeepsTheHashClose() {
+        final long before = PerceptualHash.dHash(board(false));
+        final long after = PerceptualHash.dHash(board(true));
+        final long other = PerceptualHash.dHash(otherBoard());
+
+        assertTrue(PerceptualHash.distance(before, after) <= 5);
+        assertTrue(PerceptualHash.distance(before, other) > 5);
+    }
+
+    @Test
+    void testHashOfEncodedImage() throws IOException {
+        final ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(board(false), "png", png);
+
+        final Long hash = PerceptualHash.of(new WhiteBoardData(png.toByteArray(), "image/png"));
+
+        assertNotNull(hash);
+        assertEquals(PerceptualHash.dHash(board(false)), (long) hash);
+        assertNull(PerceptualHash.of(new WhiteBoardData(new byte[] {1, 2, 3}, "image/png")));
+    }
+
+    private static BufferedImage blankBoard(final boolean dot) {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        if (dot) {
+            graphics.setColor(Color.BLACK);
+            graphics.fillOval(600, 400, 12, 12);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static void put(final SnapshotIndex index, final BufferedImage image, final String description) {
+        index.put(PerceptualHash.dHash(image), PerceptualHash.exactHash(image), description);
+    }
+
+    private static String find(final SnapshotIndex index, final BufferedImage image) {
+        return index.find(PerceptualHash.dHash(image), PerceptualHash.exactHash(image));
+    }
+
+    @Test
+    void testNearDuplicateReusesDescription() {
+        final SnapshotIndex index = new SnapshotIndex(8, 5, TTL, () -> 0L);
+        put(index, board(false), "a box linked to a circle");
+
+        assertEquals("a box linked to a circle", find(index, board(true)));
+        assertNull(find(index, otherBoard()));
+
+        assertEquals(1, index.getMetrics().getMemoryHits());
+        assertEquals(1, index.getMetrics().getMisses());
+        assertEquals(0.5, index.getMetrics().getHitRatio());
+    }
+
+    @Test
+    void testExpiredAndEvictedSnapshotsMiss() {
+        final AtomicLong now = new AtomicLong();
+        final SnapshotIndex index = new SnapshotIndex(1, 5, TTL, now::get);
+
+        put(index, board(false), "old");
+        put(index, otherBoard(), "other");
+        assertNull(find(index, board(false)));
+        assertEquals(1, index.size());
+
+        put(index, board(false), "fresh");
+        now.addAndGet(TTL + 1);
+        assertNull(find(index, board(false)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testNearBlankBoardNeedsTheSamePixels() {
+        final SnapshotIndex index = new SnapshotIndex(8, 5, TTL, () -> 0L);
+        put(index, blankBoard(false), "an empty board");
+
+        assertTrue(PerceptualHash.distance(
+                PerceptualHash.dHash(blankBoard(false)), PerceptualHash.dHash(blankBoard(true))) <= 5);
+        assertNull(find(index, blankBoard(true)));
+        assertEquals("an empty board", find(index, blankBoard(false)));
+    }
+
+    @Test
+    void testMeetingsDoNotShareDescriptions() {
+        final CacheMetrics shared = new CacheMetrics();
+        final MeetingSession first = session("a", new SnapshotIndex(8, 5, TTL, () -> 0L, shared));
+        final MeetingSession second = session("b", new SnapshotIndex(8, 5, TTL, () -> 0L, shared));
+        put(first.getSnapshots(), board(false), "meeting a's board");
+
+        assertNull(find(second.getSnapshots(), board(true)));
+        assertEquals("meeting a's board", find(first.getSnapshots(), board(true)));
+        assertEquals(1, shared.getMemoryHits());
+        assertEquals(1, shared.getMisses());
+    }
+
+    private static MeetingSession session(final String meetingId, final SnapshotIndex snapshots) {
+        return new MeetingSession(meetingId,
+                new IncrementalSummariser((content, onChunk) -> CompletableFuture.completedFuture(content), 100, 2),
+                new Bm25Index(4), snapshots);
+    }
+}
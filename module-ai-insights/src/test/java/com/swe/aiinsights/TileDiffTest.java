@@ -0,0 +1,149 @@
+/*
+ * -----------------------------------------------------------------------------
+ *  File: TileDiffTest.java
+ *  Owner: Abhirami R Iyer
+ *  Roll Number : 112201001
+ *  Module : com.swe.aiinsights
+ * -----------------------------------------------------------------------------
+ */
+
+package com.swe.aiinsights;
+
+import com.swe.aiinsights.data.TileDiff;
+import com.swe.aiinsights.session.BoardState;
+import org.junit.jupiter.api.Test;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the region diff of whiteboard snapshots and the board state.
+ */
+class TileDiffTest {
+
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 768;
+    private static final int TILE = 64;
+
+    private static BufferedImage board() {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(Color.BLACK);
+        graphics.setStroke(new BasicStroke(4));
+        graphics.drawRect(200, 200, 300, 200);
+        graphics.dispose();
+        return image;
+    }
+
+    private static BufferedImage copy(final BufferedImage image) {
+        final BufferedImage copy = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    private static void stroke(final BufferedImage image, final int x, final int y) {
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.setStroke(new BasicStroke(3));
+        graphics.drawLine(x, y, x + 40, y + 20);
+        graphics.dispose();
+    }
+
+    @Test
+    void testUnchangedBoardHasNoRegions() {
+        final BufferedImage previous = board();
+        final BufferedImage current = copy(previous);
+        // re-encoding noise below the tolerance
+        current.setRGB(10, 10, 0xF0F0F0);
+
+        assertTrue(TileDiff.changedRegions(previous, current, TILE, 4).isEmpty());
+    }
+
+    @Test
+    void testCornerChangeIsCroppedToItsTiles() {
+        final BufferedImage previous = board();
+        final BufferedImage current = copy(previous);
+        stroke(current, 900, 680);
+
+        final List<Rectangle> regions = TileDiff.changedRegions(previous, current, TILE, 4);
+
+        assertEquals(1, regions.size());
+        final Rectangle region = regions.get(0);
+        assertTrue(region.contains(new Rectangle(900, 680, 40, 20)));
+        assertEquals(0, region.x % TILE);
+        assertTrue(TileDiff.coverage(regions, WIDTH, HEIGHT) < 0.05);
+
+        final BufferedImage packed = TileDiff.pack(current, regions);
+        assertEquals(region.width, packed.getWidth());
+        assertEquals(region.height, packed.getHeight());
+    }
+
+    @Test
+    void testSeparateChangesAreSeparateRegions() {
+        final BufferedImage previous = board();
+        final BufferedImage current = copy(previous);
+        stroke(current, 20, 20);
+        stroke(current, 900, 680);
+
+        final List<Rectangle> regions = TileDiff.changedRegions(previous, current, TILE, 4);
+        assertEquals(2, regions.size());
+        assertTrue(regions.get(0).y < regions.get(1).y);
+
+        final List<Rectangle> merged = TileDiff.changedRegions(previous, current, TILE, 1);
+        assertEquals(1, merged.size());
+        assertTrue(merged.get(0).contains(regions.get(0)));
+        assertTrue(merged.get(0).contains(regions.get(1)));
+    }
+
+    @Test
+    void testResizedBoardChangesEverywhere() {
+        final BufferedImage smaller = new BufferedImage(WIDTH / 2, HEIGHT / 2, BufferedImage.TYPE_INT_RGB);
+
+        final List<Rectangle> regions = TileDiff.changedRegions(smaller, board(), TILE, 4);
+
+        assertEquals(List.of(new Rectangle(0, 0, WIDTH, HEIGHT)), regions);
+    }
+
+    @Test
+    void testBoardUpdatesStartFromThePreviousOne() {
+        final BoardState state = new BoardState();
+        final BufferedImage first = board();
+        final CompletableFuture<BoardState.Snapshot> slow = new CompletableFuture<>();
+
+        final CompletableFuture<String> one = state.update(previous -> {
+            assertNull(previous.image());
+            return slow;
+        });
+        final CompletableFuture<String> two = state.update(previous -> {
+            assertSame(first, previous.image());
+            return CompletableFuture.completedFuture(
+                    new BoardState.Snapshot(first, previous.description() + " and a stroke"));
+        });
+        final CompletableFuture<String> three = state.update(previous ->
+                CompletableFuture.failedFuture(new IllegalStateException("model down")));
+
+        slow.complete(new BoardState.Snapshot(first, "a box"));
+
+        assertEquals("a box", one.join());
+        assertEquals("a box and a stroke", two.join());
+        assertThrows(CompletionException.class, three::join);
+        assertEquals("a box and a stroke", state.getDescription());
+        assertTrue(state.isQuiet());
+    }
+}
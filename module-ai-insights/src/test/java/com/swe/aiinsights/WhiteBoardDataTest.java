@@ -14,12 +14,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Base64;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -69,6 +74,29 @@ class WhiteBoardDataTest {
         assertEquals(newContent, wbData.getContent());
     }
 
+    @Test
+    void testStreamedModeKeepsOnlyThePath() throws IOException {
+        final Path imageFile = tempDir.resolve("streamed.png");
+        final byte[] imageData = new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A};
+        Files.write(imageFile, imageData);
 
+        final WhiteBoardData streamed = new WhiteBoardData(imageFile.toString(), true);
+        assertTrue(streamed.isStreamed());
+        try (InputStream in = streamed.openImage()) {
+            assertArrayEquals(imageData, in.readAllBytes());
+        }
+        // the content is still available to callers that need the whole string
+        assertEquals(Base64.getEncoder().encodeToString(imageData), streamed.getContent());
+        assertEquals(streamed.getContentHash(),
+                new WhiteBoardData(imageFile.toString(), true).getContentHash());
+
+        final WhiteBoardData eager = new WhiteBoardData(imageFile.toString(), false);
+        assertFalse(eager.isStreamed());
+        assertEquals(streamed.getContent(), eager.getContent());
+    }
 
-}
\ No newline at end of file
+    @Test
+    void testStreamedModeNonExistentFile() {
+        assertThrows(IOException.class, () -> new WhiteBoardData("/nonexistent/path/image.png", true));
+    }
+}